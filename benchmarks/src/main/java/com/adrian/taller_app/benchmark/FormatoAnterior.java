@@ -0,0 +1,46 @@
+package com.adrian.taller_app.benchmark;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Formato anterior de importes y fechas de las entidades (un DecimalFormat o DateTimeFormatter
+ * nuevo en cada llamada), conservado como referencia para los benchmarks.
+ */
+final class FormatoAnterior {
+
+    private FormatoAnterior() {
+    }
+
+    static String euros(BigDecimal value) {
+        if (value == null) {
+            return "-";
+        }
+        DecimalFormatSymbols symbols = new DecimalFormatSymbols(new Locale("es", "ES"));
+        symbols.setDecimalSeparator(',');
+        symbols.setGroupingSeparator('.');
+        DecimalFormat df = new DecimalFormat("#,##0.00", symbols);
+        return df.format(value) + " €";
+    }
+
+    static String fecha(LocalDate value) {
+        if (value == null) {
+            return null;
+        }
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        return value.format(formatter);
+    }
+
+    static String fechaHora(LocalDateTime value) {
+        if (value == null) {
+            return null;
+        }
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+        return value.format(formatter);
+    }
+}
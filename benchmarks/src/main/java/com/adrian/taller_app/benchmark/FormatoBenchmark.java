@@ -0,0 +1,55 @@
+package com.adrian.taller_app.benchmark;
+
+import com.adrian.taller_app.format.Formato;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el formato anterior ({@link FormatoAnterior}) con {@link Formato} sobre los datos de
+ * una fila del listado de órdenes: fecha de creación y de cierre, total y fecha de un recordatorio.
+ * <p>
+ * Cada operación formatea una fila. Para ver la memoria asignada por fila:
+ * {@code java -jar target/benchmarks.jar Formato -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatoBenchmark {
+
+    private final LocalDateTime creacion = LocalDateTime.of(2026, 3, 9, 8, 5);
+    private final LocalDateTime cierre = LocalDateTime.of(2026, 3, 12, 17, 45);
+    private final BigDecimal total = new BigDecimal("1234.50");
+    private final LocalDate fechaObjetivo = LocalDate.of(2026, 11, 30);
+
+    @Benchmark
+    public void filaAnterior(Blackhole bh) {
+        bh.consume(FormatoAnterior.fechaHora(creacion));
+        bh.consume(FormatoAnterior.fechaHora(cierre));
+        bh.consume(FormatoAnterior.euros(total));
+        bh.consume(FormatoAnterior.fecha(fechaObjetivo));
+    }
+
+    @Benchmark
+    public void filaNueva(Blackhole bh) {
+        bh.consume(Formato.fechaHora(creacion));
+        bh.consume(Formato.fechaHora(cierre));
+        bh.consume(Formato.euros(total));
+        bh.consume(Formato.fecha(fechaObjetivo));
+    }
+}
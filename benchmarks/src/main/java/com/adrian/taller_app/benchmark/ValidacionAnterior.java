@@ -0,0 +1,101 @@
+package com.adrian.taller_app.benchmark;
+
+import java.util.regex.Pattern;
+
+/**
+ * Implementación anterior de los validadores y de la normalización de los servicios (con
+ * {@code replaceAll} y {@code String.matches}), conservada como referencia para los benchmarks.
+ */
+final class ValidacionAnterior {
+
+    private static final String LETRAS_NIF = "TRWAGMYFPDXBNJZSQVHLCKE";
+
+    private static final Pattern EMAIL = Pattern.compile(
+            "^[a-zA-Z0-9.!#$%&'*+/=?^_`{|}~-]+@[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?(?:\\.[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?)*$");
+
+    private ValidacionAnterior() {
+    }
+
+    static boolean esMatriculaValida(String matricula) {
+        if (matricula == null || matricula.trim().isEmpty()) {
+            return false;
+        }
+        String normalized = matricula.trim().toUpperCase()
+                .replaceAll("\\s+", "")
+                .replaceAll("-", "");
+        if (normalized.matches("^[0-9]{4}[BCDFGHJKLMNPRSTVWXYZ]{3}$")) {
+            return true;
+        }
+        return normalized.matches("^[A-Z]{1,2}[0-9]{4}[A-Z]{1,2}$");
+    }
+
+    static boolean esNifValido(String nif) {
+        if (nif == null || nif.trim().isEmpty()) {
+            return true;
+        }
+        String normalized = nif.trim().toUpperCase().replaceAll("\\s+", "");
+        if (normalized.length() < 8 || normalized.length() > 9) {
+            return false;
+        }
+        if (normalized.matches("^[0-9]{8}[A-Z]$")) {
+            return validarNif(normalized);
+        }
+        if (normalized.matches("^[XYZ][0-9]{7}[A-Z]$")) {
+            return validarNie(normalized);
+        }
+        return false;
+    }
+
+    static boolean esTelefonoValido(String telefono) {
+        if (telefono == null || telefono.trim().isEmpty()) {
+            return true;
+        }
+        String normalized = telefono.trim()
+                .replaceAll("\\s+", "")
+                .replaceAll("-", "")
+                .replaceAll("\\(", "")
+                .replaceAll("\\)", "")
+                .replaceAll("\\+34", "")
+                .replaceAll("^0034", "");
+        if (!normalized.matches("^[0-9]{9}$")) {
+            return false;
+        }
+        char primerDigito = normalized.charAt(0);
+        return primerDigito == '6' || primerDigito == '7' ||
+               primerDigito == '8' || primerDigito == '9';
+    }
+
+    static boolean esEmailValido(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            return true;
+        }
+        if (email.length() > 100) {
+            return false;
+        }
+        return EMAIL.matcher(email.trim()).matches();
+    }
+
+    static String normalizarMatricula(String matricula) {
+        return matricula.toUpperCase()
+                .replaceAll("\\s+", "")
+                .replaceAll("-", "");
+    }
+
+    static String normalizarNif(String nif) {
+        return nif.toUpperCase().replaceAll("\\s+", "");
+    }
+
+    private static boolean validarNif(String nif) {
+        int resto = Integer.parseInt(nif.substring(0, 8)) % 23;
+        return LETRAS_NIF.charAt(resto) == nif.charAt(8);
+    }
+
+    private static boolean validarNie(String nie) {
+        String numeroNif = nie.substring(0, 1)
+                .replace("X", "0")
+                .replace("Y", "1")
+                .replace("Z", "2") + nie.substring(1, 8);
+        int resto = Integer.parseInt(numeroNif) % 23;
+        return LETRAS_NIF.charAt(resto) == nie.charAt(8);
+    }
+}
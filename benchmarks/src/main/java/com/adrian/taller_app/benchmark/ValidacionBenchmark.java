@@ -0,0 +1,118 @@
+package com.adrian.taller_app.benchmark;
+
+import com.adrian.taller_app.validation.Formatos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la validación y normalización anteriores ({@link ValidacionAnterior}) con
+ * {@link Formatos} sobre valores como los que llegan de los formularios y de la importación CSV:
+ * mayoría válidos, con espacios, guiones o minúsculas, y algunos erróneos.
+ * <p>
+ * Cada operación procesa todos los valores del conjunto. Para ver también la memoria asignada:
+ * {@code java -jar target/benchmarks.jar -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidacionBenchmark {
+
+    private final String[] matriculas = {
+            "1234BCD", "5678 XYZ", "9012-FGH", "M1234AB", "se-1234-a", "B 1234 BC", "1234ABC", "12345BCD"
+    };
+    private final String[] nifs = {
+            "12345678Z", "87654321X", "x1234567l", "Y 7654321 G", "Z1234567R", "12345678A", "1234567Z", "00000000T"
+    };
+    private final String[] telefonos = {
+            "612345678", "712 345 678", "+34 612 345 678", "0034912345678", "(91) 234-5678", "512345678", "61234567", "+34-699-000-111"
+    };
+    private final String[] emails = {
+            "cliente@example.com", "nombre.apellido@taller-madrid.es", "  info@sub.dominio.org ", "a+b@c.io",
+            "sin-arroba.example.com", "doble@@example.com", "x@-mal.com", "reparaciones@garage.example.co.uk"
+    };
+
+    @Benchmark
+    public void matriculaAnterior(Blackhole bh) {
+        for (String matricula : matriculas) {
+            bh.consume(ValidacionAnterior.esMatriculaValida(matricula));
+        }
+    }
+
+    @Benchmark
+    public void matriculaNueva(Blackhole bh) {
+        for (String matricula : matriculas) {
+            bh.consume(Formatos.esMatriculaValida(matricula));
+        }
+    }
+
+    @Benchmark
+    public void nifAnterior(Blackhole bh) {
+        for (String nif : nifs) {
+            bh.consume(ValidacionAnterior.esNifValido(nif));
+        }
+    }
+
+    @Benchmark
+    public void nifNuevo(Blackhole bh) {
+        for (String nif : nifs) {
+            bh.consume(Formatos.esNifValido(nif));
+        }
+    }
+
+    @Benchmark
+    public void telefonoAnterior(Blackhole bh) {
+        for (String telefono : telefonos) {
+            bh.consume(ValidacionAnterior.esTelefonoValido(telefono));
+        }
+    }
+
+    @Benchmark
+    public void telefonoNuevo(Blackhole bh) {
+        for (String telefono : telefonos) {
+            bh.consume(Formatos.esTelefonoValido(telefono));
+        }
+    }
+
+    @Benchmark
+    public void emailAnterior(Blackhole bh) {
+        for (String email : emails) {
+            bh.consume(ValidacionAnterior.esEmailValido(email));
+        }
+    }
+
+    @Benchmark
+    public void emailNuevo(Blackhole bh) {
+        for (String email : emails) {
+            bh.consume(Formatos.esEmailValido(email));
+        }
+    }
+
+    @Benchmark
+    public void normalizacionAnterior(Blackhole bh) {
+        for (int i = 0; i < matriculas.length; i++) {
+            bh.consume(ValidacionAnterior.normalizarMatricula(matriculas[i]));
+            bh.consume(ValidacionAnterior.normalizarNif(nifs[i]));
+        }
+    }
+
+    @Benchmark
+    public void normalizacionNueva(Blackhole bh) {
+        for (int i = 0; i < matriculas.length; i++) {
+            bh.consume(Formatos.normalizarMatricula(matriculas[i]));
+            bh.consume(Formatos.normalizarNif(nifs[i]));
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.adrian.taller_app;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.PropertySource;
 
 @SpringBootApplication
+@PropertySource("classpath:valores-por-defecto.properties")
 public class TallerAppApplication {
 
 	public static void main(String[] args) {
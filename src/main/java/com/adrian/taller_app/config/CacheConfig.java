@@ -0,0 +1,36 @@
+package com.adrian.taller_app.config;
+
+import com.adrian.taller_app.service.DashboardService;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /**
+     * Cachés en memoria (Caffeine) con tamaño máximo y caducidad acotados.
+     * Las evicciones se aplazan hasta el commit de la transacción que las provoca, para que una
+     * lectura concurrente no vuelva a cachear datos anteriores a la escritura.
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${app.dashboard.cache-ttl:60s}") Duration dashboardTtl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(100)
+                .expireAfterWrite(dashboardTtl)
+                .recordStats());
+        cacheManager.setCacheNames(List.of(DashboardService.CACHE));
+        cacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
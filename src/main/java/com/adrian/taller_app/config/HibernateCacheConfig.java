@@ -0,0 +1,41 @@
+package com.adrian.taller_app.config;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HibernateCacheConfig {
+
+    /**
+     * Fichero de configuración de Caffeine (JCache) con las regiones de la caché de segundo nivel.
+     */
+    static final String CONFIGURACION_REGIONES = "hibernate-cache.conf";
+
+    /**
+     * Caché de segundo nivel de Hibernate en memoria (JCache sobre Caffeine) para las entidades
+     * de referencia (Usuario, Vehiculo, Cliente) y caché de consultas para los listados pequeños.
+     * Cada región tiene su tamaño y caducidad en {@value #CONFIGURACION_REGIONES}; una región que
+     * no esté definida ahí hace fallar el arranque en lugar de crearse sin límites.
+     * <p>
+     * Con las estadísticas activas, Actuator publica los aciertos/fallos por región en
+     * /actuator/metrics/hibernate.second.level.cache.requests.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(
+            @Value("${app.cache-segundo-nivel.estadisticas:true}") boolean estadisticas) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.put(ConfigSettings.PROVIDER, CaffeineCachingProvider.class.getName());
+            properties.put(ConfigSettings.CONFIG_URI, CONFIGURACION_REGIONES);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, estadisticas);
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.adrian.taller_app.config;
+
+import com.adrian.taller_app.service.BusquedaOrdenesService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reconstruye el índice de búsqueda de órdenes al arrancar si se indica en la configuración
+ * o si el índice está vacío (primer despliegue o directorio del índice borrado).
+ */
+@Component
+public class IndiceBusquedaRunner implements CommandLineRunner {
+
+    private final BusquedaOrdenesService busquedaOrdenesService;
+    private final boolean enabled;
+
+    public IndiceBusquedaRunner(BusquedaOrdenesService busquedaOrdenesService,
+                                @Value("${app.busqueda.reindexar-al-arrancar:false}") boolean enabled) {
+        this.busquedaOrdenesService = busquedaOrdenesService;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!enabled && !busquedaOrdenesService.isIndiceVacio()) {
+            return;
+        }
+        busquedaOrdenesService.reindexar();
+    }
+}
@@ -0,0 +1,55 @@
+package com.adrian.taller_app.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class MetricasConfig {
+
+    /**
+     * Timers con histograma de latencias: servicios anotados con {@code @Timed("taller.servicio")},
+     * métodos de los repositorios (métrica de Spring Data) y peticiones HTTP.
+     */
+    static final List<String> TIMERS_CON_HISTOGRAMA = List.of(
+            "taller.", "spring.data.repository.invocations", "http.server.requests");
+
+    /**
+     * Activa {@code @Timed} en los beans (servicios y generación de facturas).
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    /**
+     * Publica los timers de {@link #TIMERS_CON_HISTOGRAMA} con histograma (buckets de Prometheus)
+     * para calcular p95/p99 en el servidor de métricas. El rango acotado entre 1 ms y 30 s limita
+     * el número de buckets por serie.
+     */
+    @Bean
+    public MeterFilter histogramasLatencia() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getType() != Meter.Type.TIMER
+                        || TIMERS_CON_HISTOGRAMA.stream().noneMatch(id.getName()::startsWith)) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                        .maximumExpectedValue((double) Duration.ofSeconds(30).toNanos())
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+}
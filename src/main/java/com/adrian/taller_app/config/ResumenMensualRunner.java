@@ -0,0 +1,31 @@
+package com.adrian.taller_app.config;
+
+import com.adrian.taller_app.service.ResumenMensualService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reconstruye los acumulados mensuales al arrancar si se indica en la configuración.
+ * Útil en el primer despliegue, cuando RESUMEN_MENSUAL_OT está vacía.
+ */
+@Component
+public class ResumenMensualRunner implements CommandLineRunner {
+
+    private final ResumenMensualService resumenMensualService;
+    private final boolean enabled;
+
+    public ResumenMensualRunner(ResumenMensualService resumenMensualService,
+                                @Value("${app.estadisticas.reconstruir-al-arrancar:false}") boolean enabled) {
+        this.resumenMensualService = resumenMensualService;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!enabled) {
+            return;
+        }
+        resumenMensualService.reconstruir();
+    }
+}
@@ -1,7 +1,10 @@
 package com.adrian.taller_app.config;
 
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.http.HttpMethod;
@@ -12,11 +15,33 @@ import org.springframework.security.web.SecurityFilterChain;
 @Configuration
 public class SecurityConfig {
 
+    /**
+     * Endpoints de Actuator, en el puerto de gestión si se configura management.server.port:
+     * health es público y el resto solo para ADMIN. Además de la sesión admiten HTTP Basic, para
+     * que el servidor de métricas lea /actuator/prometheus sin pasar por el formulario de login.
+     */
     @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorSecurityFilterChain(HttpSecurity http) throws Exception {
+        http.securityMatcher(EndpointRequest.toAnyEndpoint())
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                        .anyRequest().hasRole("ADMIN")
+                )
+                .httpBasic(Customizer.withDefaults());
+        return http.build();
+    }
+
+    @Bean
+    @Order(2)
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http.authorizeHttpRequests(auth -> auth
                         .requestMatchers("/", "/css/**", "/js/**", "/images/**", "/login", "/error", "/error/**").permitAll()
                         .requestMatchers("/usuarios/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/ordenes-trabajo/buscar/reindexar").hasRole("ADMIN")
+                        // El selector de vehículos de las órdenes de trabajo también lo usan los mecánicos
+                        .requestMatchers(HttpMethod.GET, "/vehiculos/sugerencias")
+                        .hasAnyRole("ADMIN", "RECEPCION", "MECANICO")
                         .requestMatchers("/clientes/**", "/vehiculos/**", "/recordatorios/**")
                         .hasAnyRole("ADMIN", "RECEPCION")
                         .requestMatchers(HttpMethod.POST, "/ordenes-trabajo/*/eliminar")
@@ -25,8 +50,13 @@ public class SecurityConfig {
                         .hasAnyRole("ADMIN", "RECEPCION")
                         .requestMatchers(HttpMethod.GET, "/ordenes-trabajo/exportar")
                         .hasAnyRole("ADMIN", "RECEPCION")
+                        .requestMatchers(HttpMethod.GET, "/ordenes-trabajo/facturas", "/ordenes-trabajo/facturas/**")
+                        .hasAnyRole("ADMIN", "RECEPCION")
                         .requestMatchers("/ordenes-trabajo/**")
                         .hasAnyRole("ADMIN", "RECEPCION", "MECANICO")
+                        // Trabajos de documentos en segundo plano (facturas y exportaciones)
+                        .requestMatchers("/trabajos/**")
+                        .hasAnyRole("ADMIN", "RECEPCION")
                         .anyRequest().authenticated()
                 )
                 .formLogin(form -> form
@@ -0,0 +1,23 @@
+package com.adrian.taller_app.config;
+
+import com.adrian.taller_app.service.SugerenciasVehiculoService;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Carga al arrancar el índice en memoria de sugerencias de vehículos (selector de los formularios).
+ */
+@Component
+public class SugerenciasVehiculoRunner implements CommandLineRunner {
+
+    private final SugerenciasVehiculoService sugerenciasVehiculoService;
+
+    public SugerenciasVehiculoRunner(SugerenciasVehiculoService sugerenciasVehiculoService) {
+        this.sugerenciasVehiculoService = sugerenciasVehiculoService;
+    }
+
+    @Override
+    public void run(String... args) {
+        sugerenciasVehiculoService.cargar();
+    }
+}
@@ -0,0 +1,23 @@
+package com.adrian.taller_app.config;
+
+import com.adrian.taller_app.service.TrabajoDocumentoService;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Vuelve a encolar al arrancar los trabajos de documentos pendientes o interrumpidos.
+ */
+@Component
+public class TrabajosDocumentoRunner implements CommandLineRunner {
+
+    private final TrabajoDocumentoService trabajoDocumentoService;
+
+    public TrabajosDocumentoRunner(TrabajoDocumentoService trabajoDocumentoService) {
+        this.trabajoDocumentoService = trabajoDocumentoService;
+    }
+
+    @Override
+    public void run(String... args) {
+        trabajoDocumentoService.recuperar();
+    }
+}
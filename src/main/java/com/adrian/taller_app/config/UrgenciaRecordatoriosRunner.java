@@ -0,0 +1,23 @@
+package com.adrian.taller_app.config;
+
+import com.adrian.taller_app.service.UrgenciaRecordatoriosService;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Carga al arrancar el índice en memoria de urgencia de los recordatorios (dashboard y próximos).
+ */
+@Component
+public class UrgenciaRecordatoriosRunner implements CommandLineRunner {
+
+    private final UrgenciaRecordatoriosService urgenciaRecordatoriosService;
+
+    public UrgenciaRecordatoriosRunner(UrgenciaRecordatoriosService urgenciaRecordatoriosService) {
+        this.urgenciaRecordatoriosService = urgenciaRecordatoriosService;
+    }
+
+    @Override
+    public void run(String... args) {
+        urgenciaRecordatoriosService.resincronizar();
+    }
+}
@@ -3,8 +3,11 @@ package com.adrian.taller_app.controller;
 import com.adrian.taller_app.domain.Cliente;
 import com.adrian.taller_app.service.ClienteService;
 import com.adrian.taller_app.service.CsvExportService;
+import com.adrian.taller_app.service.ImportacionCsvService;
 import com.adrian.taller_app.service.OrdenTrabajoService;
 import com.adrian.taller_app.service.VehiculoService;
+import com.adrian.taller_app.web.ClienteFila;
+import com.adrian.taller_app.web.PaginaAproximada;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpHeaders;
@@ -19,14 +22,12 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
-import java.io.IOException;
-import java.util.List;
-
 @Controller
 @RequestMapping("/clientes")
 public class ClienteController {
@@ -35,30 +36,34 @@ public class ClienteController {
     private final VehiculoService vehiculoService;
     private final OrdenTrabajoService ordenTrabajoService;
     private final CsvExportService csvExportService;
+    private final ImportacionCsvService importacionCsvService;
 
     public ClienteController(ClienteService clienteService,
                              VehiculoService vehiculoService,
                              OrdenTrabajoService ordenTrabajoService,
-                             CsvExportService csvExportService) {
+                             CsvExportService csvExportService,
+                             ImportacionCsvService importacionCsvService) {
         this.clienteService = clienteService;
         this.vehiculoService = vehiculoService;
         this.ordenTrabajoService = ordenTrabajoService;
         this.csvExportService = csvExportService;
+        this.importacionCsvService = importacionCsvService;
     }
 
     @GetMapping
     public String list(@RequestParam(defaultValue = "0") int page,
                        @RequestParam(defaultValue = "10") int size,
                        Model model) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Cliente> clientesPage = clienteService.findAll(pageable);
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, 100)));
+        PaginaAproximada<ClienteFila> pagina = clienteService.findAll(pageable);
         
         model.addAttribute("title", "Clientes");
-        model.addAttribute("clientes", clientesPage.getContent());
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", clientesPage.getTotalPages());
-        model.addAttribute("totalItems", clientesPage.getTotalElements());
-        model.addAttribute("pageSize", size);
+        model.addAttribute("clientes", pagina.getContenido());
+        model.addAttribute("currentPage", pagina.getNumero());
+        model.addAttribute("totalPages", pagina.getTotalPaginas());
+        model.addAttribute("totalItems", pagina.getTotalAproximado());
+        model.addAttribute("hasNext", pagina.isTieneSiguiente());
+        model.addAttribute("pageSize", pagina.getTamano());
         return "clientes/list";
     }
 
@@ -105,7 +110,7 @@ public class ClienteController {
     @GetMapping("/{id}")
     public String detail(@PathVariable("id") Long id, Model model, RedirectAttributes redirectAttributes) {
         try {
-            Cliente cliente = clienteService.findByIdWithVehiculos(id);
+            Cliente cliente = clienteService.findById(id);
             model.addAttribute("title", "Cliente " + cliente.getNombre());
             model.addAttribute("cliente", cliente);
             model.addAttribute("vehiculos", vehiculoService.findAllByCliente(id));
@@ -152,21 +157,33 @@ public class ClienteController {
     }
 
     @GetMapping("/exportar")
-    public ResponseEntity<byte[]> exportarCsv() {
-        try {
-            List<Cliente> clientes = clienteService.findAll();
-            byte[] csvData = csvExportService.exportClientes(clientes);
+    public ResponseEntity<StreamingResponseBody> exportarCsv() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv; charset=UTF-8"));
+        headers.setContentDispositionFormData("attachment", "clientes_" + 
+            java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) + ".csv");
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("text/csv; charset=UTF-8"));
-            headers.setContentDispositionFormData("attachment", "clientes_" + 
-                java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) + ".csv");
+        // Las filas se escriben directamente en la respuesta a medida que se leen de BD
+        StreamingResponseBody body = csvExportService::exportClientes;
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
 
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(csvData);
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError().build();
+    @PostMapping("/importar")
+    public ResponseEntity<StreamingResponseBody> importarCsv(@RequestParam("archivo") MultipartFile archivo) {
+        if (archivo.isEmpty()) {
+            throw new IllegalStateException("Selecciona un fichero CSV para importar.");
         }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv; charset=UTF-8"));
+        headers.setContentDispositionFormData("attachment", "importacion_clientes_" +
+            java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) + ".csv");
+
+        // El fichero se importa por bloques mientras se envía el informe de errores
+        StreamingResponseBody body = output -> importacionCsvService.importarClientes(archivo.getInputStream(), output);
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
     }
 }
@@ -0,0 +1,131 @@
+package com.adrian.taller_app.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Envía un fichero del disco como cuerpo de la respuesta, con soporte de peticiones Range (un
+ * único rango; varios rangos se responden con el fichero completo) e If-Range.
+ * <p>
+ * Si el conector lo admite se delega en el sendfile de Tomcat, que copia del fichero al socket
+ * con {@link FileChannel#transferTo} sin pasar los bytes por la JVM. Si no (por ejemplo con TLS),
+ * se copia igualmente con {@code transferTo} hacia el stream de la respuesta.
+ * <p>
+ * Los ficheros que pueden borrarse mientras se envían (la caché de facturas) se pasan como un
+ * canal ya abierto: se copian siempre desde él, porque el sendfile de Tomcat vuelve a abrir el
+ * fichero por su nombre después de que el controlador haya terminado.
+ */
+final class EnvioFichero {
+
+    // Atributos de petición con los que Tomcat ofrece y recibe el envío por sendfile
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FICHERO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    private EnvioFichero() {
+    }
+
+    /**
+     * Escribe el fichero (o el rango pedido) en la respuesta. Las cabeceras de caché, ETag y
+     * Content-Disposition deben estar ya puestas; el ETag, que debe ser fuerte, se compara con If-Range.
+     */
+    static void enviar(Path fichero, MediaType tipo, String etag,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long[] rango = prepararRango(Files.size(fichero), tipo, etag, request, response);
+        if (rango == null) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))) {
+            request.setAttribute(SENDFILE_FICHERO, fichero.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_INICIO, rango[0]);
+            request.setAttribute(SENDFILE_FIN, rango[1] + 1);
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(fichero)) {
+            copiar(canal, rango[0], rango[1], response);
+        }
+    }
+
+    /**
+     * Igual que {@link #enviar(Path, MediaType, String, HttpServletRequest, HttpServletResponse)}
+     * pero desde un canal abierto, que no se cierra.
+     */
+    static void enviar(FileChannel canal, MediaType tipo, String etag,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long[] rango = prepararRango(canal.size(), tipo, etag, request, response);
+        if (rango != null) {
+            copiar(canal, rango[0], rango[1], response);
+        }
+    }
+
+    /**
+     * Pone el estado y las cabeceras de la respuesta según la cabecera Range y devuelve el
+     * primer y el último byte que hay que enviar, o null si ya no hay que enviar cuerpo (HEAD o
+     * rango no satisfacible).
+     */
+    private static long[] prepararRango(long longitud, MediaType tipo, String etag,
+                                        HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long inicio = 0;
+        long fin = longitud - 1;
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        String rango = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rango != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> rangos;
+            try {
+                rangos = HttpRange.parseRanges(rango);
+            } catch (IllegalArgumentException ex) {
+                rangos = List.of();
+            }
+            if (rangos.size() == 1) {
+                try {
+                    inicio = rangos.get(0).getRangeStart(longitud);
+                    fin = rangos.get(0).getRangeEnd(longitud);
+                } catch (IllegalArgumentException ex) {
+                    inicio = longitud;
+                }
+                if (inicio >= longitud || inicio > fin) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + longitud);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return null;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + longitud);
+            }
+        }
+
+        response.setContentType(tipo.toString());
+        response.setContentLengthLong(fin - inicio + 1);
+        if ("HEAD".equals(request.getMethod())) {
+            return null;
+        }
+        return new long[]{inicio, fin};
+    }
+
+    private static void copiar(FileChannel canal, long inicio, long fin,
+                               HttpServletResponse response) throws IOException {
+        long bytes = fin - inicio + 1;
+        WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+        long enviados = 0;
+        while (enviados < bytes) {
+            long n = canal.transferTo(inicio + enviados, bytes - enviados, salida);
+            if (n <= 0) {
+                break;
+            }
+            enviados += n;
+        }
+    }
+}
@@ -1,12 +1,7 @@
 package com.adrian.taller_app.controller;
 
-import com.adrian.taller_app.domain.Recordatorio;
-import com.adrian.taller_app.repository.ClienteRepository;
-import com.adrian.taller_app.repository.OrdenTrabajoRepository;
-import com.adrian.taller_app.repository.VehiculoRepository;
-import com.adrian.taller_app.service.OrdenTrabajoService;
-import com.adrian.taller_app.service.RecordatorioService;
-import com.adrian.taller_app.web.ResumenFacturacion;
+import com.adrian.taller_app.service.ResumenDashboardService;
+import com.adrian.taller_app.web.DatosDashboard;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -14,27 +9,13 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 
-import java.util.List;
-
 @Controller
 public class HomeController {
 
-    private final ClienteRepository clienteRepository;
-    private final VehiculoRepository vehiculoRepository;
-    private final OrdenTrabajoRepository ordenTrabajoRepository;
-    private final OrdenTrabajoService ordenTrabajoService;
-    private final RecordatorioService recordatorioService;
+    private final ResumenDashboardService resumenDashboardService;
 
-    public HomeController(ClienteRepository clienteRepository,
-                          VehiculoRepository vehiculoRepository,
-                          OrdenTrabajoRepository ordenTrabajoRepository,
-                          OrdenTrabajoService ordenTrabajoService,
-                          RecordatorioService recordatorioService) {
-        this.clienteRepository = clienteRepository;
-        this.vehiculoRepository = vehiculoRepository;
-        this.ordenTrabajoRepository = ordenTrabajoRepository;
-        this.ordenTrabajoService = ordenTrabajoService;
-        this.recordatorioService = recordatorioService;
+    public HomeController(ResumenDashboardService resumenDashboardService) {
+        this.resumenDashboardService = resumenDashboardService;
     }
 
     @GetMapping("/")
@@ -47,11 +28,6 @@ public class HomeController {
     public String resumen(Model model, Authentication authentication) {
         model.addAttribute("title", "Dashboard");
 
-        // Datos básicos
-        model.addAttribute("clientesRegistrados", clienteRepository.count());
-        model.addAttribute("vehiculosRegistrados", vehiculoRepository.count());
-        model.addAttribute("ordenesAbiertas", ordenTrabajoRepository.countByFechaCierreIsNull());
-
         // Determinar rol del usuario
         boolean esAdmin = false;
         boolean esMecanico = false;
@@ -73,15 +49,18 @@ public class HomeController {
         model.addAttribute("esAdmin", esAdmin);
         model.addAttribute("esMecanico", esMecanico);
 
-        // Solo para admin y recepción: estadísticas completas
+        // Datos básicos para todos; facturación y recordatorios solo para admin y recepción.
+        // Los bloques se consultan en paralelo
+        DatosDashboard datos = resumenDashboardService.obtener(esAdmin);
+        model.addAttribute("clientesRegistrados", datos.getClientesRegistrados());
+        model.addAttribute("vehiculosRegistrados", datos.getVehiculosRegistrados());
+        model.addAttribute("ordenesAbiertas", datos.getOrdenesAbiertas());
         if (esAdmin) {
-            // Resumen de facturación del mes
-            ResumenFacturacion resumen = ordenTrabajoService.obtenerResumenFacturacionMesActual();
-            model.addAttribute("resumenFacturacion", resumen);
-
-            // Recordatorios próximos
-            List<Recordatorio> recordatoriosProximos = recordatorioService.obtenerRecordatoriosProximos(5);
-            model.addAttribute("recordatoriosProximos", recordatoriosProximos);
+            model.addAttribute("resumenFacturacion", datos.getResumenFacturacion());
+            model.addAttribute("recordatoriosProximos", datos.getRecordatoriosProximos());
+        }
+        if (datos.isIncompleto()) {
+            model.addAttribute("error", "Algunos datos del resumen no están disponibles en este momento.");
         }
 
         return "home";
@@ -4,13 +4,25 @@ import com.adrian.taller_app.domain.EstadoOrdenTrabajo;
 import com.adrian.taller_app.domain.OrdenTrabajo;
 import com.adrian.taller_app.domain.Usuario;
 import com.adrian.taller_app.domain.Vehiculo;
+import com.adrian.taller_app.service.BusquedaOrdenesService;
+import com.adrian.taller_app.service.CacheFacturasService;
 import com.adrian.taller_app.service.CsvExportService;
 import com.adrian.taller_app.service.FacturaPdfService;
+import com.adrian.taller_app.service.FacturacionLoteService;
 import com.adrian.taller_app.service.OrdenTrabajoService;
+import com.adrian.taller_app.service.SugerenciasVehiculoService;
 import com.adrian.taller_app.service.UsuarioService;
 import com.adrian.taller_app.service.VehiculoService;
+import com.adrian.taller_app.web.OrdenTrabajoFila;
+import com.adrian.taller_app.web.PaginaCursor;
+import com.adrian.taller_app.web.ProgresoFacturacion;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -20,15 +32,19 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 
 @Controller
 @RequestMapping("/ordenes-trabajo")
@@ -38,39 +54,84 @@ public class OrdenTrabajoController {
     private final VehiculoService vehiculoService;
     private final UsuarioService usuarioService;
     private final FacturaPdfService facturaPdfService;
+    private final CacheFacturasService cacheFacturasService;
+    private final FacturacionLoteService facturacionLoteService;
     private final CsvExportService csvExportService;
+    private final BusquedaOrdenesService busquedaOrdenesService;
+    private final SugerenciasVehiculoService sugerenciasVehiculoService;
 
     public OrdenTrabajoController(OrdenTrabajoService ordenTrabajoService,
                                   VehiculoService vehiculoService,
                                   UsuarioService usuarioService,
                                   FacturaPdfService facturaPdfService,
-                                  CsvExportService csvExportService) {
+                                  CacheFacturasService cacheFacturasService,
+                                  FacturacionLoteService facturacionLoteService,
+                                  CsvExportService csvExportService,
+                                  BusquedaOrdenesService busquedaOrdenesService,
+                                  SugerenciasVehiculoService sugerenciasVehiculoService) {
         this.ordenTrabajoService = ordenTrabajoService;
         this.vehiculoService = vehiculoService;
         this.usuarioService = usuarioService;
         this.facturaPdfService = facturaPdfService;
+        this.cacheFacturasService = cacheFacturasService;
+        this.facturacionLoteService = facturacionLoteService;
         this.csvExportService = csvExportService;
+        this.busquedaOrdenesService = busquedaOrdenesService;
+        this.sugerenciasVehiculoService = sugerenciasVehiculoService;
     }
 
     @GetMapping
     public String list(@RequestParam(name = "estado", required = false) EstadoOrdenTrabajo estado,
-                       @RequestParam(defaultValue = "0") int page,
+                       @RequestParam(name = "cursor", required = false) String cursor,
+                       @RequestParam(name = "dir", defaultValue = "next") String dir,
                        @RequestParam(defaultValue = "10") int size,
                        Model model) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<OrdenTrabajo> ordenesPage = ordenTrabajoService.findAllByEstado(estado, pageable);
+        int pageSize = Math.max(1, Math.min(size, 100));
+        PaginaCursor<OrdenTrabajoFila> pagina = ordenTrabajoService.findPagina(estado, cursor, "prev".equals(dir), pageSize);
         
         model.addAttribute("title", "Órdenes de trabajo");
-        model.addAttribute("ordenes", ordenesPage.getContent());
+        model.addAttribute("ordenes", pagina.getContenido());
         model.addAttribute("estadoSeleccionado", estado);
         model.addAttribute("estados", EstadoOrdenTrabajo.values());
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", ordenesPage.getTotalPages());
-        model.addAttribute("totalItems", ordenesPage.getTotalElements());
-        model.addAttribute("pageSize", size);
+        model.addAttribute("pagina", pagina);
+        model.addAttribute("totalItems", pagina.getTotalAproximado());
+        model.addAttribute("pageSize", pageSize);
         return "ordenes-trabajo/list";
     }
 
+    @GetMapping("/buscar")
+    public String buscar(@RequestParam(name = "q", required = false) String q,
+                         @RequestParam(defaultValue = "0") int page,
+                         @RequestParam(defaultValue = "10") int size,
+                         Model model) {
+        int pageSize = Math.max(1, Math.min(size, 100));
+        Page<OrdenTrabajoFila> resultados = busquedaOrdenesService.buscar(q, PageRequest.of(Math.max(page, 0), pageSize));
+
+        model.addAttribute("title", "Buscar órdenes de trabajo");
+        model.addAttribute("q", q);
+        model.addAttribute("ordenes", resultados.getContent());
+        model.addAttribute("currentPage", resultados.getNumber());
+        model.addAttribute("totalPages", resultados.getTotalPages());
+        model.addAttribute("totalItems", resultados.getTotalElements());
+        model.addAttribute("pageSize", pageSize);
+        return "ordenes-trabajo/buscar";
+    }
+
+    /**
+     * Reconstruye el índice de búsqueda (solo ADMIN), por ejemplo tras cambios hechos
+     * directamente en BD. Las búsquedas siguen funcionando mientras tanto.
+     */
+    @PostMapping("/buscar/reindexar")
+    public String reindexar(RedirectAttributes redirectAttributes) {
+        try {
+            busquedaOrdenesService.reindexar();
+            redirectAttributes.addFlashAttribute("success", "Índice de búsqueda reconstruido correctamente.");
+        } catch (IllegalStateException ex) {
+            redirectAttributes.addFlashAttribute("error", ex.getMessage());
+        }
+        return "redirect:/ordenes-trabajo/buscar";
+    }
+
     @GetMapping("/nueva")
     public String createForm(@RequestParam(required = false) Long vehiculoId,
                              Model model) {
@@ -91,7 +152,7 @@ public class OrdenTrabajoController {
         ordenTrabajo.setUsuarioAsignado(new Usuario());
         model.addAttribute("title", "Nueva orden de trabajo");
         model.addAttribute("ordenTrabajo", ordenTrabajo);
-        loadSelectLists(model);
+        loadSelectLists(model, ordenTrabajo);
         model.addAttribute("action", "/ordenes-trabajo");
         model.addAttribute("isEdit", false);
         return "ordenes-trabajo/form";
@@ -106,7 +167,7 @@ public class OrdenTrabajoController {
         if (bindingResult.hasErrors()) {
             model.addAttribute("title", "Nueva orden de trabajo");
             ensureRelationsNotNull(ordenTrabajo);
-            loadSelectLists(model);
+            loadSelectLists(model, ordenTrabajo);
             model.addAttribute("action", "/ordenes-trabajo");
             model.addAttribute("isEdit", false);
             return "ordenes-trabajo/form";
@@ -117,7 +178,7 @@ public class OrdenTrabajoController {
         } catch (EntityNotFoundException | IllegalStateException ex) {
             model.addAttribute("title", "Nueva orden de trabajo");
             ensureRelationsNotNull(ordenTrabajo);
-            loadSelectLists(model);
+            loadSelectLists(model, ordenTrabajo);
             model.addAttribute("action", "/ordenes-trabajo");
             model.addAttribute("isEdit", false);
             model.addAttribute("error", ex.getMessage());
@@ -129,12 +190,12 @@ public class OrdenTrabajoController {
     @GetMapping("/{id}/editar")
     public String editForm(@PathVariable("id") Long id, Model model, RedirectAttributes redirectAttributes) {
         try {
-            OrdenTrabajo ordenTrabajo = ordenTrabajoService.findById(id);
+            OrdenTrabajo ordenTrabajo = ordenTrabajoService.findByIdWithRelations(id);
             ensureRelationsNotNull(ordenTrabajo);
             model.addAttribute("title", "Editar orden de trabajo");
             model.addAttribute("ordenTrabajo", ordenTrabajo);
             model.addAttribute("kmEntradaOriginal", ordenTrabajo.getKmEntrada());
-            loadSelectLists(model);
+            loadSelectLists(model, ordenTrabajo);
             model.addAttribute("action", "/ordenes-trabajo/" + id);
             model.addAttribute("isEdit", true);
             return "ordenes-trabajo/form";
@@ -160,7 +221,7 @@ public class OrdenTrabajoController {
             }
             model.addAttribute("title", "Editar orden de trabajo");
             ensureRelationsNotNull(ordenTrabajo);
-            loadSelectLists(model);
+            loadSelectLists(model, ordenTrabajo);
             model.addAttribute("action", "/ordenes-trabajo/" + id);
             model.addAttribute("isEdit", true);
             return "ordenes-trabajo/form";
@@ -172,6 +233,12 @@ public class OrdenTrabajoController {
         } catch (EntityNotFoundException ex) {
             redirectAttributes.addFlashAttribute("error", "Orden de trabajo no encontrada.");
             return "redirect:/ordenes-trabajo";
+        } catch (OptimisticLockingFailureException ex) {
+            // Otra persona la guardó mientras se editaba: se vuelve al formulario con los datos actuales
+            model.asMap().remove(BindingResult.MODEL_KEY_PREFIX + "ordenTrabajo");
+            model.addAttribute("error", "Otra persona ha modificado la orden de trabajo mientras la editabas. "
+                    + "Se muestran los datos actuales: revísalos y vuelve a guardar tus cambios.");
+            return editForm(id, model, redirectAttributes);
         } catch (IllegalStateException ex) {
             try {
                 model.addAttribute("kmEntradaOriginal", ordenTrabajoService.findById(id).getKmEntrada());
@@ -181,7 +248,7 @@ public class OrdenTrabajoController {
             }
             model.addAttribute("title", "Editar orden de trabajo");
             ensureRelationsNotNull(ordenTrabajo);
-            loadSelectLists(model);
+            loadSelectLists(model, ordenTrabajo);
             model.addAttribute("action", "/ordenes-trabajo/" + id);
             model.addAttribute("isEdit", true);
             model.addAttribute("error", ex.getMessage());
@@ -200,39 +267,97 @@ public class OrdenTrabajoController {
         return "redirect:/ordenes-trabajo";
     }
 
+    /**
+     * Factura PDF de la orden, con la versión de su contenido como ETag: si el navegador ya tiene
+     * esa versión se responde 304 sin generar nada. Las órdenes entregadas ya no cambian, así que
+     * su PDF se guarda en la caché de facturas en disco y se sirve desde ahí (admite Range) con un
+     * ETag fuerte; las demás se regeneran en cada petición y llevan un ETag débil, porque el PDF
+     * regenerado puede diferir en bytes aunque muestre lo mismo.
+     */
     @GetMapping("/{id}/factura")
-    public ResponseEntity<byte[]> factura(@PathVariable("id") Long id) {
+    public ResponseEntity<byte[]> factura(@PathVariable("id") Long id, ServletWebRequest webRequest) throws IOException {
         OrdenTrabajo ordenTrabajo = ordenTrabajoService.findByIdWithRelations(id);
-        byte[] pdf = facturaPdfService.generarFactura(ordenTrabajo);
+        String version = facturaPdfService.version(ordenTrabajo);
+        boolean cacheable = ordenTrabajo.getEstado() == EstadoOrdenTrabajo.ENTREGADA;
+        String etag = (cacheable ? "\"" : "W/\"") + version + "\"";
         String filename = "factura-ot-" + id + ".pdf";
+
+        HttpServletResponse response = webRequest.getResponse();
+        // Cacheable solo por el navegador y siempre revalidando con el ETag (la orden puede editarse)
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        if (!cacheable) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .body(facturaPdfService.generarFactura(ordenTrabajo));
+        }
+        try (FileChannel fichero = cacheFacturasService.abrir(version, () -> facturaPdfService.generarFactura(ordenTrabajo))) {
+            EnvioFichero.enviar(fichero, MediaType.APPLICATION_PDF, etag, webRequest.getRequest(), response);
+        }
+        return null;
+    }
+
+    /**
+     * Facturas de las órdenes creadas en el periodo (por defecto, el mes en curso) en un ZIP que
+     * se envía a medida que se generan. El avance se consulta en /facturas/progreso con el lote.
+     */
+    @GetMapping("/facturas")
+    public ResponseEntity<StreamingResponseBody> facturasLote(
+            @RequestParam(name = "desde", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(name = "hasta", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(name = "estado", required = false) EstadoOrdenTrabajo estado,
+            @RequestParam(name = "lote", required = false) String lote) {
+        LocalDate inicio = desde != null ? desde : LocalDate.now().withDayOfMonth(1);
+        LocalDate fin = hasta != null ? hasta : LocalDate.now();
+        if (fin.isBefore(inicio)) {
+            throw new IllegalStateException("La fecha final no puede ser anterior a la inicial.");
+        }
+        ProgresoFacturacion progreso = facturacionLoteService.iniciar(lote);
+
+        DateTimeFormatter formato = DateTimeFormatter.ofPattern("yyyyMMdd");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment",
+                "facturas_" + inicio.format(formato) + "_" + fin.format(formato) + ".zip");
+        headers.set("X-Lote-Facturas", progreso.getLote());
+
+        StreamingResponseBody body = output -> facturacionLoteService.generarZip(progreso, inicio, fin, estado, output);
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(MediaType.APPLICATION_PDF)
-                .body(pdf);
+                .headers(headers)
+                .body(body);
     }
 
-    @GetMapping("/exportar")
-    public ResponseEntity<byte[]> exportarCsv(@RequestParam(name = "estado", required = false) EstadoOrdenTrabajo estado) {
-        try {
-            var ordenes = ordenTrabajoService.findAllByEstado(estado);
-            byte[] csvData = csvExportService.exportOrdenesTrabajo(ordenes);
+    @GetMapping("/facturas/progreso")
+    @ResponseBody
+    public ResponseEntity<ProgresoFacturacion> progresoFacturasLote(@RequestParam(name = "lote") String lote) {
+        ProgresoFacturacion progreso = facturacionLoteService.obtenerProgreso(lote);
+        return progreso != null ? ResponseEntity.ok(progreso) : ResponseEntity.notFound().build();
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("text/csv; charset=UTF-8"));
-            String filename = "ordenes_trabajo_" + 
-                java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) + ".csv";
-            headers.setContentDispositionFormData("attachment", filename);
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarCsv(@RequestParam(name = "estado", required = false) EstadoOrdenTrabajo estado) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv; charset=UTF-8"));
+        String filename = "ordenes_trabajo_" + 
+            java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) + ".csv";
+        headers.setContentDispositionFormData("attachment", filename);
 
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(csvData);
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError().build();
-        }
+        // Las filas se escriben directamente en la respuesta a medida que se leen de BD
+        StreamingResponseBody body = output -> csvExportService.exportOrdenesTrabajo(estado, output);
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
     }
 
-    private void loadSelectLists(Model model) {
-        model.addAttribute("vehiculos", vehiculoService.findAll());
+    /**
+     * El vehículo se elige con el buscador de sugerencias; solo se envía el ya seleccionado.
+     */
+    private void loadSelectLists(Model model, OrdenTrabajo ordenTrabajo) {
+        Long idVehiculo = ordenTrabajo.getVehiculo() != null ? ordenTrabajo.getVehiculo().getIdVehiculo() : null;
+        model.addAttribute("vehiculoSeleccionado", sugerenciasVehiculoService.obtener(idVehiculo));
         model.addAttribute("usuarios", usuarioService.findMecanicosActivos());
         model.addAttribute("estados", EstadoOrdenTrabajo.values());
     }
@@ -4,9 +4,12 @@ import com.adrian.taller_app.domain.ModoRecordatorio;
 import com.adrian.taller_app.domain.Recordatorio;
 import com.adrian.taller_app.domain.Vehiculo;
 import com.adrian.taller_app.service.RecordatorioService;
-import com.adrian.taller_app.service.VehiculoService;
+import com.adrian.taller_app.service.SugerenciasVehiculoService;
+import com.adrian.taller_app.web.PaginaAproximada;
+import com.adrian.taller_app.web.RecordatorioFila;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -26,27 +29,45 @@ import org.springframework.data.domain.Pageable;
 public class RecordatorioController {
 
     private final RecordatorioService recordatorioService;
-    private final VehiculoService vehiculoService;
+    private final SugerenciasVehiculoService sugerenciasVehiculoService;
 
-    public RecordatorioController(RecordatorioService recordatorioService, VehiculoService vehiculoService) {
+    public RecordatorioController(RecordatorioService recordatorioService,
+                                  SugerenciasVehiculoService sugerenciasVehiculoService) {
         this.recordatorioService = recordatorioService;
-        this.vehiculoService = vehiculoService;
+        this.sugerenciasVehiculoService = sugerenciasVehiculoService;
     }
 
     @GetMapping
     public String list(@RequestParam(defaultValue = "0") int page,
                        @RequestParam(defaultValue = "10") int size,
                        Model model) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<com.adrian.taller_app.domain.Recordatorio> recordatoriosPage = recordatorioService.findAll(pageable);
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, 100)));
+        PaginaAproximada<RecordatorioFila> pagina = recordatorioService.findAll(pageable);
         
         model.addAttribute("title", "Recordatorios");
+        model.addAttribute("recordatorios", pagina.getContenido());
+        model.addAttribute("currentPage", pagina.getNumero());
+        model.addAttribute("totalPages", pagina.getTotalPaginas());
+        model.addAttribute("totalItems", pagina.getTotalAproximado());
+        model.addAttribute("hasNext", pagina.isTieneSiguiente());
+        model.addAttribute("pageSize", pagina.getTamano());
+        return "recordatorios/list";
+    }
+
+    @GetMapping("/proximos")
+    public String proximos(@RequestParam(defaultValue = "0") int page,
+                           @RequestParam(defaultValue = "10") int size,
+                           Model model) {
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, 100)));
+        Page<RecordatorioFila> recordatoriosPage = recordatorioService.findProximos(pageable);
+
+        model.addAttribute("title", "Recordatorios próximos");
         model.addAttribute("recordatorios", recordatoriosPage.getContent());
-        model.addAttribute("currentPage", page);
+        model.addAttribute("currentPage", recordatoriosPage.getNumber());
         model.addAttribute("totalPages", recordatoriosPage.getTotalPages());
         model.addAttribute("totalItems", recordatoriosPage.getTotalElements());
-        model.addAttribute("pageSize", size);
-        return "recordatorios/list";
+        model.addAttribute("pageSize", recordatoriosPage.getSize());
+        return "recordatorios/proximos";
     }
 
     @GetMapping("/nuevo")
@@ -55,7 +76,7 @@ public class RecordatorioController {
         recordatorio.setVehiculo(new Vehiculo());
         model.addAttribute("title", "Nuevo recordatorio");
         model.addAttribute("recordatorio", recordatorio);
-        loadSelectLists(model);
+        loadSelectLists(model, recordatorio);
         model.addAttribute("action", "/recordatorios");
         model.addAttribute("isEdit", false);
         return "recordatorios/form";
@@ -71,7 +92,7 @@ public class RecordatorioController {
         if (bindingResult.hasErrors()) {
             model.addAttribute("title", "Nuevo recordatorio");
             ensureVehiculoNotNull(recordatorio);
-            loadSelectLists(model);
+            loadSelectLists(model, recordatorio);
             model.addAttribute("action", "/recordatorios");
             model.addAttribute("isEdit", false);
             return "recordatorios/form";
@@ -82,7 +103,7 @@ public class RecordatorioController {
         } catch (EntityNotFoundException | IllegalStateException ex) {
             model.addAttribute("title", "Nuevo recordatorio");
             ensureVehiculoNotNull(recordatorio);
-            loadSelectLists(model);
+            loadSelectLists(model, recordatorio);
             model.addAttribute("action", "/recordatorios");
             model.addAttribute("isEdit", false);
             model.addAttribute("error", ex.getMessage());
@@ -94,11 +115,11 @@ public class RecordatorioController {
     @GetMapping("/{id}/editar")
     public String editForm(@PathVariable("id") Long id, Model model, RedirectAttributes redirectAttributes) {
         try {
-            Recordatorio recordatorio = recordatorioService.findById(id);
+            Recordatorio recordatorio = recordatorioService.findByIdWithVehiculo(id);
             ensureVehiculoNotNull(recordatorio);
             model.addAttribute("title", "Editar recordatorio");
             model.addAttribute("recordatorio", recordatorio);
-            loadSelectLists(model);
+            loadSelectLists(model, recordatorio);
             model.addAttribute("action", "/recordatorios/" + id);
             model.addAttribute("isEdit", true);
             return "recordatorios/form";
@@ -119,7 +140,7 @@ public class RecordatorioController {
         if (bindingResult.hasErrors()) {
             model.addAttribute("title", "Editar recordatorio");
             ensureVehiculoNotNull(recordatorio);
-            loadSelectLists(model);
+            loadSelectLists(model, recordatorio);
             model.addAttribute("action", "/recordatorios/" + id);
             model.addAttribute("isEdit", true);
             return "recordatorios/form";
@@ -131,10 +152,15 @@ public class RecordatorioController {
         } catch (EntityNotFoundException ex) {
             redirectAttributes.addFlashAttribute("error", "Recordatorio no encontrado.");
             return "redirect:/recordatorios";
+        } catch (OptimisticLockingFailureException ex) {
+            model.asMap().remove(BindingResult.MODEL_KEY_PREFIX + "recordatorio");
+            model.addAttribute("error", "Otra persona ha modificado el recordatorio mientras lo editabas. "
+                    + "Se muestran los datos actuales: revísalos y vuelve a guardar tus cambios.");
+            return editForm(id, model, redirectAttributes);
         } catch (IllegalStateException ex) {
             model.addAttribute("title", "Editar recordatorio");
             ensureVehiculoNotNull(recordatorio);
-            loadSelectLists(model);
+            loadSelectLists(model, recordatorio);
             model.addAttribute("action", "/recordatorios/" + id);
             model.addAttribute("isEdit", true);
             model.addAttribute("error", ex.getMessage());
@@ -153,8 +179,12 @@ public class RecordatorioController {
         return "redirect:/recordatorios";
     }
 
-    private void loadSelectLists(Model model) {
-        model.addAttribute("vehiculos", vehiculoService.findAll());
+    /**
+     * El vehículo se elige con el buscador de sugerencias; solo se envía el ya seleccionado.
+     */
+    private void loadSelectLists(Model model, Recordatorio recordatorio) {
+        Long idVehiculo = recordatorio.getVehiculo() != null ? recordatorio.getVehiculo().getIdVehiculo() : null;
+        model.addAttribute("vehiculoSeleccionado", sugerenciasVehiculoService.obtener(idVehiculo));
         model.addAttribute("modos", ModoRecordatorio.values());
     }
 
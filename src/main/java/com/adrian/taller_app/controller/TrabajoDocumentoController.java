@@ -0,0 +1,116 @@
+package com.adrian.taller_app.controller;
+
+import com.adrian.taller_app.domain.EstadoOrdenTrabajo;
+import com.adrian.taller_app.domain.TrabajoDocumento;
+import com.adrian.taller_app.service.TrabajoDocumentoService;
+import com.adrian.taller_app.web.ProgresoTrabajo;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * Trabajos de documentos en segundo plano: el POST encarga el documento y responde 202 con el
+ * id del trabajo (y su URL en Location); el estado se consulta en /trabajos/{id} y, cuando está
+ * terminado, el fichero se descarga de /trabajos/{id}/descarga. Cada usuario solo ve sus
+ * trabajos, salvo los administradores.
+ */
+@Controller
+@RequestMapping("/trabajos")
+public class TrabajoDocumentoController {
+
+    private final TrabajoDocumentoService trabajoDocumentoService;
+
+    public TrabajoDocumentoController(TrabajoDocumentoService trabajoDocumentoService) {
+        this.trabajoDocumentoService = trabajoDocumentoService;
+    }
+
+    @PostMapping("/facturas/{idOt}")
+    @ResponseBody
+    public ResponseEntity<ProgresoTrabajo> encargarFactura(@PathVariable("idOt") Long idOt,
+                                                           Authentication authentication) {
+        return aceptado(trabajoDocumentoService.encargarFactura(idOt, authentication.getName()));
+    }
+
+    @PostMapping("/exportaciones/ordenes")
+    @ResponseBody
+    public ResponseEntity<ProgresoTrabajo> encargarExportacionOrdenes(
+            @RequestParam(name = "estado", required = false) EstadoOrdenTrabajo estado,
+            Authentication authentication) {
+        return aceptado(trabajoDocumentoService.encargarExportacionOrdenes(estado, authentication.getName()));
+    }
+
+    @GetMapping("/{id}")
+    @ResponseBody
+    public ResponseEntity<ProgresoTrabajo> estado(@PathVariable("id") String id, Authentication authentication) {
+        TrabajoDocumento trabajo = obtener(id, authentication);
+        if (trabajo == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(new ProgresoTrabajo(trabajo, url(id, "/descarga").toString()));
+    }
+
+    /**
+     * Documento generado. No cambia mientras existe el trabajo, así que el id sirve de ETag
+     * fuerte y la descarga admite Range para reanudarse.
+     */
+    @GetMapping("/{id}/descarga")
+    public ResponseEntity<Void> descarga(@PathVariable("id") String id, Authentication authentication,
+                                         ServletWebRequest webRequest) throws IOException {
+        TrabajoDocumento trabajo = obtener(id, authentication);
+        if (trabajo == null) {
+            throw new EntityNotFoundException("El trabajo no existe o ha caducado.");
+        }
+        String etag = "\"" + id + "\"";
+        HttpServletResponse response = webRequest.getResponse();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        Path fichero = trabajoDocumentoService.fichero(trabajo);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(trabajo.getNombreFichero()).build().toString());
+        EnvioFichero.enviar(fichero, MediaType.parseMediaType(trabajo.getTipo().getTipoContenido()), etag,
+                webRequest.getRequest(), response);
+        return null;
+    }
+
+    private TrabajoDocumento obtener(String id, Authentication authentication) {
+        boolean administrador = authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+        return trabajoDocumentoService.obtener(id, authentication.getName(), administrador);
+    }
+
+    private ResponseEntity<ProgresoTrabajo> aceptado(TrabajoDocumento trabajo) {
+        String id = trabajo.getIdTrabajo();
+        return ResponseEntity.accepted()
+                .location(url(id, ""))
+                .body(new ProgresoTrabajo(trabajo, url(id, "/descarga").toString()));
+    }
+
+    private static URI url(String id, String sufijo) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/trabajos/{id}" + sufijo)
+                .buildAndExpand(id)
+                .toUri();
+    }
+}
@@ -3,6 +3,7 @@ package com.adrian.taller_app.controller;
 import com.adrian.taller_app.domain.RolUsuario;
 import com.adrian.taller_app.domain.Usuario;
 import com.adrian.taller_app.service.UsuarioService;
+import com.adrian.taller_app.web.PaginaAproximada;
 import com.adrian.taller_app.web.UsuarioForm;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
@@ -16,7 +17,6 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
@@ -34,15 +34,16 @@ public class UsuarioController {
     public String list(@RequestParam(defaultValue = "0") int page,
                        @RequestParam(defaultValue = "10") int size,
                        Model model) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<com.adrian.taller_app.domain.Usuario> usuariosPage = usuarioService.findAll(pageable);
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, 100)));
+        PaginaAproximada<Usuario> pagina = usuarioService.findAll(pageable);
         
         model.addAttribute("title", "Usuarios");
-        model.addAttribute("usuarios", usuariosPage.getContent());
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", usuariosPage.getTotalPages());
-        model.addAttribute("totalItems", usuariosPage.getTotalElements());
-        model.addAttribute("pageSize", size);
+        model.addAttribute("usuarios", pagina.getContenido());
+        model.addAttribute("currentPage", pagina.getNumero());
+        model.addAttribute("totalPages", pagina.getTotalPaginas());
+        model.addAttribute("totalItems", pagina.getTotalAproximado());
+        model.addAttribute("hasNext", pagina.isTieneSiguiente());
+        model.addAttribute("pageSize", pagina.getTamano());
         return "usuarios/list";
     }
 
@@ -4,10 +4,16 @@ import com.adrian.taller_app.domain.Cliente;
 import com.adrian.taller_app.domain.Vehiculo;
 import com.adrian.taller_app.service.ClienteService;
 import com.adrian.taller_app.service.CsvExportService;
+import com.adrian.taller_app.service.ImportacionCsvService;
 import com.adrian.taller_app.service.OrdenTrabajoService;
+import com.adrian.taller_app.service.SugerenciasVehiculoService;
 import com.adrian.taller_app.service.VehiculoService;
+import com.adrian.taller_app.web.PaginaAproximada;
+import com.adrian.taller_app.web.SugerenciaVehiculo;
+import com.adrian.taller_app.web.VehiculoFila;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -20,12 +26,14 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
-import java.io.IOException;
+import java.util.List;
 
 @Controller
 @RequestMapping("/vehiculos")
@@ -35,30 +43,37 @@ public class VehiculoController {
     private final ClienteService clienteService;
     private final OrdenTrabajoService ordenTrabajoService;
     private final CsvExportService csvExportService;
+    private final ImportacionCsvService importacionCsvService;
+    private final SugerenciasVehiculoService sugerenciasVehiculoService;
 
     public VehiculoController(VehiculoService vehiculoService,
                               ClienteService clienteService,
                               OrdenTrabajoService ordenTrabajoService,
-                              CsvExportService csvExportService) {
+                              CsvExportService csvExportService,
+                              ImportacionCsvService importacionCsvService,
+                              SugerenciasVehiculoService sugerenciasVehiculoService) {
         this.vehiculoService = vehiculoService;
         this.clienteService = clienteService;
         this.ordenTrabajoService = ordenTrabajoService;
         this.csvExportService = csvExportService;
+        this.importacionCsvService = importacionCsvService;
+        this.sugerenciasVehiculoService = sugerenciasVehiculoService;
     }
 
     @GetMapping
     public String list(@RequestParam(defaultValue = "0") int page,
                        @RequestParam(defaultValue = "10") int size,
                        Model model) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<com.adrian.taller_app.domain.Vehiculo> vehiculosPage = vehiculoService.findAll(pageable);
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, 100)));
+        PaginaAproximada<VehiculoFila> pagina = vehiculoService.findAll(pageable);
         
         model.addAttribute("title", "Vehículos");
-        model.addAttribute("vehiculos", vehiculosPage.getContent());
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", vehiculosPage.getTotalPages());
-        model.addAttribute("totalItems", vehiculosPage.getTotalElements());
-        model.addAttribute("pageSize", size);
+        model.addAttribute("vehiculos", pagina.getContenido());
+        model.addAttribute("currentPage", pagina.getNumero());
+        model.addAttribute("totalPages", pagina.getTotalPaginas());
+        model.addAttribute("totalItems", pagina.getTotalAproximado());
+        model.addAttribute("hasNext", pagina.isTieneSiguiente());
+        model.addAttribute("pageSize", pagina.getTamano());
         return "vehiculos/list";
     }
 
@@ -119,7 +134,7 @@ public class VehiculoController {
     @GetMapping("/{id}/editar")
     public String editForm(@PathVariable("id") Long id, Model model, RedirectAttributes redirectAttributes) {
         try {
-            Vehiculo vehiculo = vehiculoService.findById(id);
+            Vehiculo vehiculo = vehiculoService.findByIdWithCliente(id);
             model.addAttribute("title", "Editar vehículo");
             model.addAttribute("vehiculo", vehiculo);
             model.addAttribute("clientes", clienteService.findAll());
@@ -168,6 +183,11 @@ public class VehiculoController {
         } catch (EntityNotFoundException ex) {
             redirectAttributes.addFlashAttribute("error", "Vehículo no encontrado.");
             return "redirect:/vehiculos";
+        } catch (OptimisticLockingFailureException ex) {
+            model.asMap().remove(BindingResult.MODEL_KEY_PREFIX + "vehiculo");
+            model.addAttribute("error", "Otra persona ha modificado el vehículo mientras lo editabas. "
+                    + "Se muestran los datos actuales: revísalos y vuelve a guardar tus cambios.");
+            return editForm(id, model, redirectAttributes);
         } catch (IllegalStateException ex) {
             model.addAttribute("title", "Editar vehículo");
             ensureClienteNotNull(vehiculo);
@@ -202,22 +222,44 @@ public class VehiculoController {
         }
     }
 
+    /**
+     * Sugerencias para el selector de vehículos de los formularios (matrícula o cliente).
+     */
+    @GetMapping("/sugerencias")
+    @ResponseBody
+    public List<SugerenciaVehiculo> sugerencias(@RequestParam(name = "q", required = false) String q,
+                                                @RequestParam(defaultValue = "" + SugerenciasVehiculoService.LIMITE_POR_DEFECTO) int limite) {
+        return sugerenciasVehiculoService.sugerir(q, limite);
+    }
+
     @GetMapping("/exportar")
-    public ResponseEntity<byte[]> exportarCsv() {
-        try {
-            var vehiculos = vehiculoService.findAll();
-            byte[] csvData = csvExportService.exportVehiculos(vehiculos);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("text/csv; charset=UTF-8"));
-            headers.setContentDispositionFormData("attachment", "vehiculos_" + 
-                java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) + ".csv");
-
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(csvData);
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError().build();
+    public ResponseEntity<StreamingResponseBody> exportarCsv() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv; charset=UTF-8"));
+        headers.setContentDispositionFormData("attachment", "vehiculos_" + 
+            java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) + ".csv");
+
+        // Las filas se escriben directamente en la respuesta a medida que se leen de BD
+        StreamingResponseBody body = csvExportService::exportVehiculos;
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
+
+    @PostMapping("/importar")
+    public ResponseEntity<StreamingResponseBody> importarCsv(@RequestParam("archivo") MultipartFile archivo) {
+        if (archivo.isEmpty()) {
+            throw new IllegalStateException("Selecciona un fichero CSV para importar.");
         }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv; charset=UTF-8"));
+        headers.setContentDispositionFormData("attachment", "importacion_vehiculos_" +
+            java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) + ".csv");
+
+        // El fichero se importa por bloques mientras se envía el informe de errores
+        StreamingResponseBody body = output -> importacionCsvService.importarVehiculos(archivo.getInputStream(), output);
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
     }
 }
@@ -1,5 +1,6 @@
 package com.adrian.taller_app.domain;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -7,7 +8,6 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
-import jakarta.persistence.Transient;
 import com.adrian.taller_app.validation.EmailReal;
 import com.adrian.taller_app.validation.Nif;
 import com.adrian.taller_app.validation.TelefonoEspanol;
@@ -16,13 +16,17 @@ import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Generated;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "cliente")
 @Table(name = "CLIENTE")
 @Getter
 @Setter
@@ -54,18 +58,11 @@ public class Cliente {
     @Column(name = "nif", length = 20, unique = true)
     private String nif;
 
+    // Valor por defecto de BD; se relee tras el INSERT para no dejar la fecha vacía en la caché
+    @Generated
     @Column(name = "fecha_alta", insertable = false, updatable = false)
     private LocalDateTime fechaAlta;
 
     @OneToMany(mappedBy = "cliente")
     private List<Vehiculo> vehiculos = new ArrayList<>();
-
-    @Transient
-    public String getFechaAltaFormateada() {
-        if (fechaAlta == null) {
-            return null;
-        }
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-        return fechaAlta.format(formatter);
-    }
 }
@@ -0,0 +1,39 @@
+package com.adrian.taller_app.domain;
+
+/**
+ * Estado del aviso por correo de un recordatorio. Sin estado (null), el aviso está pendiente.
+ */
+public enum EstadoAviso {
+    ENVIANDO("enviando", "Enviando"),
+    ENVIADO("enviado", "Enviado"),
+    FALLIDO("fallido", "Fallido"),
+    SIN_EMAIL("sin_email", "Cliente sin email");
+
+    private final String valor;
+    private final String etiqueta;
+
+    EstadoAviso(String valor, String etiqueta) {
+        this.valor = valor;
+        this.etiqueta = etiqueta;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+
+    public String getEtiqueta() {
+        return etiqueta;
+    }
+
+    public static EstadoAviso fromValor(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        for (EstadoAviso estado : values()) {
+            if (estado.valor.equalsIgnoreCase(valor)) {
+                return estado;
+            }
+        }
+        throw new IllegalArgumentException("Estado de aviso no válido: " + valor);
+    }
+}
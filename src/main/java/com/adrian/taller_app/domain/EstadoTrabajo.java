@@ -0,0 +1,40 @@
+package com.adrian.taller_app.domain;
+
+public enum EstadoTrabajo {
+    PENDIENTE("pendiente", "Pendiente"),
+    EN_CURSO("en_curso", "En curso"),
+    TERMINADO("terminado", "Terminado"),
+    ERROR("error", "Error");
+
+    private final String valor;
+    private final String etiqueta;
+
+    EstadoTrabajo(String valor, String etiqueta) {
+        this.valor = valor;
+        this.etiqueta = etiqueta;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+
+    public String getEtiqueta() {
+        return etiqueta;
+    }
+
+    public boolean isFinalizado() {
+        return this == TERMINADO || this == ERROR;
+    }
+
+    public static EstadoTrabajo fromValor(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        for (EstadoTrabajo estado : values()) {
+            if (estado.valor.equalsIgnoreCase(valor)) {
+                return estado;
+            }
+        }
+        throw new IllegalArgumentException("Estado de trabajo no válido: " + valor);
+    }
+}
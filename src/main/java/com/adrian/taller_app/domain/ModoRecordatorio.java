@@ -1,10 +1,24 @@
 package com.adrian.taller_app.domain;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum ModoRecordatorio {
     POR_FECHA("por_fecha", "Por fecha"),
     POR_KM("por_km", "Por kilómetros"),
     AMBOS("ambos", "Ambos");
 
+    /**
+     * Modos que avisan por fecha.
+     */
+    public static final Set<ModoRecordatorio> CON_FECHA = Collections.unmodifiableSet(EnumSet.of(POR_FECHA, AMBOS));
+
+    /**
+     * Modos que avisan por kilometraje.
+     */
+    public static final Set<ModoRecordatorio> CON_KM = Collections.unmodifiableSet(EnumSet.of(POR_KM, AMBOS));
+
     private final String valor;
     private final String etiqueta;
 
@@ -21,6 +35,14 @@ public enum ModoRecordatorio {
         return etiqueta;
     }
 
+    public boolean usaFecha() {
+        return CON_FECHA.contains(this);
+    }
+
+    public boolean usaKm() {
+        return CON_KM.contains(this);
+    }
+
     public static ModoRecordatorio fromValor(String valor) {
         if (valor == null) {
             return null;
@@ -8,10 +8,14 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.Table;
-import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -19,21 +23,33 @@ import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Generated;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.util.Locale;
 
 @Entity
-@Table(name = "ORDEN_TRABAJO")
+@NamedEntityGraph(name = OrdenTrabajo.GRAFO_CON_RELACIONES,
+        attributeNodes = {
+                @NamedAttributeNode(value = "vehiculo", subgraph = "vehiculo"),
+                @NamedAttributeNode("usuarioAsignado")
+        },
+        subgraphs = @NamedSubgraph(name = "vehiculo", attributeNodes = @NamedAttributeNode("cliente")))
+@Table(name = "ORDEN_TRABAJO", indexes = {
+        @Index(name = "idx_ot_fecha_creacion_id", columnList = "fecha_creacion, id_ot"),
+        @Index(name = "idx_ot_estado_fecha_creacion_id", columnList = "estado, fecha_creacion, id_ot")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class OrdenTrabajo {
 
+    /**
+     * Plan de carga con el vehículo, su cliente y el usuario asignado, para la factura PDF y el
+     * índice de búsqueda. Sin él, fuera de la transacción solo son accesibles los ids de las relaciones.
+     */
+    public static final String GRAFO_CON_RELACIONES = "OrdenTrabajo.conRelaciones";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id_ot")
@@ -48,6 +64,8 @@ public class OrdenTrabajo {
     @JoinColumn(name = "id_usuario_asignado")
     private Usuario usuarioAsignado;
 
+    // Valor por defecto de BD; se relee tras el INSERT para poder acumularlo en el resumen mensual
+    @Generated
     @Column(name = "fecha_creacion", insertable = false, updatable = false)
     private LocalDateTime fechaCreacion;
 
@@ -78,47 +96,12 @@ public class OrdenTrabajo {
     @Column(name = "total", precision = 10, scale = 2)
     private BigDecimal total;
 
-    @Transient
-    public String getFechaCreacionFormateada() {
-        return formatDateTime(fechaCreacion);
-    }
-
-    @Transient
-    public String getFechaCierreFormateada() {
-        return formatDateTime(fechaCierre);
-    }
-
-    @Transient
-    public String getSubtotalFormateado() {
-        return formatCurrency(subtotal);
-    }
-
-    @Transient
-    public String getIvaTotalFormateado() {
-        return formatCurrency(ivaTotal);
-    }
-
-    @Transient
-    public String getTotalFormateado() {
-        return formatCurrency(total);
-    }
-
-    private String formatDateTime(LocalDateTime value) {
-        if (value == null) {
-            return null;
-        }
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-        return value.format(formatter);
-    }
-
-    private String formatCurrency(BigDecimal value) {
-        if (value == null) {
-            return "-";
-        }
-        DecimalFormatSymbols symbols = new DecimalFormatSymbols(new Locale("es", "ES"));
-        symbols.setDecimalSeparator(',');
-        symbols.setGroupingSeparator('.');
-        DecimalFormat df = new DecimalFormat("#,##0.00", symbols);
-        return df.format(value) + " €";
-    }
+    /**
+     * Versión para el bloqueo optimista: sube con cada modificación de la fila, así que también
+     * sirve como indicador barato de cambio. El formulario la reenvía y
+     * {@code OrdenTrabajoService.update} rechaza los cambios hechos sobre una versión anterior.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 }
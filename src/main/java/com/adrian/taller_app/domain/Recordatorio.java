@@ -1,5 +1,6 @@
 package com.adrian.taller_app.domain;
 
+import com.adrian.taller_app.domain.converter.EstadoAvisoConverter;
 import com.adrian.taller_app.domain.converter.ModoRecordatorioConverter;
 import jakarta.persistence.Column;
 import jakarta.persistence.Convert;
@@ -8,10 +9,14 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.Table;
-import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -21,15 +26,25 @@ import lombok.Setter;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 @Entity
-@Table(name = "RECORDATORIO")
+@NamedEntityGraph(name = Recordatorio.GRAFO_CON_VEHICULO,
+        attributeNodes = @NamedAttributeNode(value = "vehiculo", subgraph = "vehiculo"),
+        subgraphs = @NamedSubgraph(name = "vehiculo", attributeNodes = @NamedAttributeNode("cliente")))
+@Table(name = "RECORDATORIO", indexes = {
+        @Index(name = "idx_recordatorio_modo_km_restantes", columnList = "modo, km_restantes")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class Recordatorio {
 
+    /**
+     * Plan de carga con el vehículo y su cliente. Sin él, fuera de la transacción solo es accesible
+     * el id del vehículo.
+     */
+    public static final String GRAFO_CON_VEHICULO = "Recordatorio.conVehiculo";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id_recordatorio")
@@ -55,6 +70,14 @@ public class Recordatorio {
     @Column(name = "km_objetivo")
     private Integer kmObjetivo;
 
+    /**
+     * km_objetivo - km_actual del vehículo, solo en los modos por km. Se guarda para que los
+     * próximos por km sean un rango del índice (modo, km_restantes) sin cruzar con VEHICULO;
+     * lo recalculan RecordatorioService al guardar y los cambios de km del vehículo.
+     */
+    @Column(name = "km_restantes")
+    private Integer kmRestantes;
+
     @Size(max = 30)
     @Column(name = "estado", length = 30)
     private String estado;
@@ -62,21 +85,29 @@ public class Recordatorio {
     @Column(name = "creado_en", insertable = false, updatable = false)
     private LocalDateTime creadoEn;
 
-    @Transient
-    public String getFechaObjetivoFormateada() {
-        if (fechaObjetivo == null) {
-            return null;
-        }
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-        return fechaObjetivo.format(formatter);
-    }
-
-    @Transient
-    public String getCreadoEnFormateado() {
-        if (creadoEn == null) {
-            return null;
-        }
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-        return creadoEn.format(formatter);
-    }
+    /**
+     * Aviso por correo al cliente (AvisoRecordatoriosService): null mientras está pendiente. Lo
+     * escribe el envío con actualizaciones masivas y RecordatorioService lo vuelve a dejar
+     * pendiente si cambia el objetivo.
+     */
+    @Convert(converter = EstadoAvisoConverter.class)
+    @Column(name = "aviso_estado", length = 20)
+    private EstadoAviso avisoEstado;
+
+    // Intentos de envío fallidos
+    @Column(name = "aviso_intentos", nullable = false)
+    private int avisoIntentos;
+
+    // Fecha del envío o del último intento
+    @Column(name = "aviso_en")
+    private LocalDateTime avisoEn;
+
+    @Column(name = "aviso_error", length = 500)
+    private String avisoError;
+
+    // Bloqueo optimista. El recálculo de km_restantes por cambio de km del vehículo no la sube:
+    // es un dato derivado que se vuelve a calcular al guardar el formulario
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 }
@@ -0,0 +1,44 @@
+package com.adrian.taller_app.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Acumulado mensual de órdenes de trabajo, mantenido por {@code ResumenMensualService}
+ * en la misma transacción que cada alta, modificación o baja de una orden.
+ * <p>
+ * Cada orden aporta una fila agrupada por el mes de su fecha de creación y, si está cerrada,
+ * otra por el mes de su fecha de cierre.
+ */
+@Entity
+@Table(name = "RESUMEN_MENSUAL_OT")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ResumenMensualOt {
+
+    public static final String POR_CREACION = "creacion";
+    public static final String POR_CIERRE = "cierre";
+
+    @EmbeddedId
+    private ResumenMensualOtId id;
+
+    @Column(name = "num_ordenes", nullable = false)
+    private long numOrdenes;
+
+    @Column(name = "subtotal", precision = 14, scale = 2, nullable = false)
+    private BigDecimal subtotal;
+
+    @Column(name = "iva_total", precision = 14, scale = 2, nullable = false)
+    private BigDecimal ivaTotal;
+
+    @Column(name = "total", precision = 14, scale = 2, nullable = false)
+    private BigDecimal total;
+}
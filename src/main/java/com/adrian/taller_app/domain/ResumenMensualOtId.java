@@ -0,0 +1,40 @@
+package com.adrian.taller_app.domain;
+
+import com.adrian.taller_app.domain.converter.EstadoOrdenTrabajoConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Embeddable;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * Clave del resumen mensual: tipo de fecha agrupada, mes, estado y mecánico asignado.
+ * Las órdenes sin mecánico se agrupan con idUsuario = 0.
+ */
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@EqualsAndHashCode
+public class ResumenMensualOtId implements Serializable {
+
+    @Column(name = "tipo_fecha", length = 10)
+    private String tipoFecha;
+
+    @Column(name = "anio")
+    private Integer anio;
+
+    @Column(name = "mes")
+    private Integer mes;
+
+    @Convert(converter = EstadoOrdenTrabajoConverter.class)
+    @Column(name = "estado", length = 20)
+    private EstadoOrdenTrabajo estado;
+
+    @Column(name = "id_usuario")
+    private Long idUsuario;
+}
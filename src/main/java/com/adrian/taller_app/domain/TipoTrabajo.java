@@ -0,0 +1,50 @@
+package com.adrian.taller_app.domain;
+
+/**
+ * Documentos que se generan como trabajo en segundo plano. Los prioritarios (una factura) tienen
+ * sus propios hilos y no esperan detrás de los pesados (exportaciones de miles de filas).
+ */
+public enum TipoTrabajo {
+    FACTURA("factura", "Factura PDF", "application/pdf", true),
+    EXPORTACION_ORDENES("exportacion_ordenes", "Exportación de órdenes de trabajo", "text/csv; charset=UTF-8", false);
+
+    private final String valor;
+    private final String etiqueta;
+    private final String tipoContenido;
+    private final boolean prioritario;
+
+    TipoTrabajo(String valor, String etiqueta, String tipoContenido, boolean prioritario) {
+        this.valor = valor;
+        this.etiqueta = etiqueta;
+        this.tipoContenido = tipoContenido;
+        this.prioritario = prioritario;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+
+    public String getEtiqueta() {
+        return etiqueta;
+    }
+
+    public String getTipoContenido() {
+        return tipoContenido;
+    }
+
+    public boolean isPrioritario() {
+        return prioritario;
+    }
+
+    public static TipoTrabajo fromValor(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        for (TipoTrabajo tipo : values()) {
+            if (tipo.valor.equalsIgnoreCase(valor)) {
+                return tipo;
+            }
+        }
+        throw new IllegalArgumentException("Tipo de trabajo no válido: " + valor);
+    }
+}
@@ -0,0 +1,71 @@
+package com.adrian.taller_app.domain;
+
+import com.adrian.taller_app.domain.converter.EstadoTrabajoConverter;
+import com.adrian.taller_app.domain.converter.TipoTrabajoConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trabajo de generación de un documento en segundo plano, gestionado por
+ * {@code TrabajoDocumentoService}. El resultado se guarda en disco con el id como nombre.
+ */
+@Entity
+@Table(name = "TRABAJO_DOCUMENTO")
+@Getter
+@Setter
+@NoArgsConstructor
+public class TrabajoDocumento {
+
+    @Id
+    @Column(name = "id_trabajo", length = 36)
+    private String idTrabajo;
+
+    @Convert(converter = TipoTrabajoConverter.class)
+    @Column(name = "tipo", length = 30, nullable = false)
+    private TipoTrabajo tipo;
+
+    /**
+     * Parámetro del documento: el id de la orden en una factura, el valor del estado (o nada)
+     * en una exportación de órdenes.
+     */
+    @Column(name = "parametros", length = 255)
+    private String parametros;
+
+    @Convert(converter = EstadoTrabajoConverter.class)
+    @Column(name = "estado", length = 20, nullable = false)
+    private EstadoTrabajo estado;
+
+    // Usuario que lo pidió: solo él (o un administrador) puede consultarlo y descargarlo
+    @Column(name = "usuario", length = 50, nullable = false)
+    private String usuario;
+
+    // Nombre con el que se descarga el fichero
+    @Column(name = "nombre_fichero", length = 255, nullable = false)
+    private String nombreFichero;
+
+    @Column(name = "tamano")
+    private Long tamano;
+
+    @Column(name = "error", length = 500)
+    private String error;
+
+    @Column(name = "creado_en", nullable = false)
+    private LocalDateTime creadoEn;
+
+    @Column(name = "iniciado_en")
+    private LocalDateTime iniciadoEn;
+
+    @Column(name = "terminado_en")
+    private LocalDateTime terminadoEn;
+
+    @Column(name = "caduca_en")
+    private LocalDateTime caducaEn;
+}
@@ -1,6 +1,7 @@
 package com.adrian.taller_app.domain;
 
 import com.adrian.taller_app.domain.converter.RolUsuarioConverter;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
@@ -14,10 +15,15 @@ import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Generated;
 
 import java.time.LocalDateTime;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "usuario")
 @Table(name = "USUARIO")
 @Getter
 @Setter
@@ -56,6 +62,8 @@ public class Usuario {
     @Column(name = "activo", nullable = false)
     private Boolean activo;
 
+    // Valor por defecto de BD; se relee tras el INSERT para no dejar la fecha vacía en la caché
+    @Generated
     @Column(name = "fecha_alta", insertable = false, updatable = false)
     private LocalDateTime fechaAlta;
 }
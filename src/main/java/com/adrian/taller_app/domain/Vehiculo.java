@@ -1,5 +1,6 @@
 package com.adrian.taller_app.domain;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -8,7 +9,10 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import com.adrian.taller_app.validation.MatriculaEspanola;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -18,14 +22,25 @@ import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@NamedEntityGraph(name = Vehiculo.GRAFO_CON_CLIENTE, attributeNodes = @NamedAttributeNode("cliente"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vehiculo")
 @Table(name = "VEHICULO")
 @Getter
 @Setter
 @NoArgsConstructor
 public class Vehiculo {
 
+    /**
+     * Plan de carga con el cliente, para la ficha del vehículo y las sugerencias. Sin él, fuera de
+     * la transacción solo es accesible el id del cliente.
+     */
+    public static final String GRAFO_CON_CLIENTE = "Vehiculo.conCliente";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id_vehiculo")
@@ -58,4 +73,9 @@ public class Vehiculo {
     @Min(0)
     @Column(name = "km_actual")
     private Integer kmActual;
+
+    // Bloqueo optimista; también la sube la actualización directa del km (ver VehiculoRepository)
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 }
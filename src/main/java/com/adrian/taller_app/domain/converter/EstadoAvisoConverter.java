@@ -0,0 +1,19 @@
+package com.adrian.taller_app.domain.converter;
+
+import com.adrian.taller_app.domain.EstadoAviso;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class EstadoAvisoConverter implements AttributeConverter<EstadoAviso, String> {
+
+    @Override
+    public String convertToDatabaseColumn(EstadoAviso attribute) {
+        return attribute != null ? attribute.getValor() : null;
+    }
+
+    @Override
+    public EstadoAviso convertToEntityAttribute(String dbData) {
+        return EstadoAviso.fromValor(dbData);
+    }
+}
@@ -0,0 +1,19 @@
+package com.adrian.taller_app.domain.converter;
+
+import com.adrian.taller_app.domain.EstadoTrabajo;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class EstadoTrabajoConverter implements AttributeConverter<EstadoTrabajo, String> {
+
+    @Override
+    public String convertToDatabaseColumn(EstadoTrabajo attribute) {
+        return attribute != null ? attribute.getValor() : null;
+    }
+
+    @Override
+    public EstadoTrabajo convertToEntityAttribute(String dbData) {
+        return EstadoTrabajo.fromValor(dbData);
+    }
+}
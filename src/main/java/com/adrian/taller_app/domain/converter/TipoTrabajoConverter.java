@@ -0,0 +1,19 @@
+package com.adrian.taller_app.domain.converter;
+
+import com.adrian.taller_app.domain.TipoTrabajo;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class TipoTrabajoConverter implements AttributeConverter<TipoTrabajo, String> {
+
+    @Override
+    public String convertToDatabaseColumn(TipoTrabajo attribute) {
+        return attribute != null ? attribute.getValor() : null;
+    }
+
+    @Override
+    public TipoTrabajo convertToEntityAttribute(String dbData) {
+        return TipoTrabajo.fromValor(dbData);
+    }
+}
@@ -0,0 +1,164 @@
+package com.adrian.taller_app.format;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Formato de importes y fechas compartido por las vistas (como {@code #formato}), los CSV y las
+ * facturas PDF.
+ * <p>
+ * Da el mismo texto que los patrones {@code #,##0.00 €}, {@code dd/MM/yyyy} y
+ * {@code dd/MM/yyyy HH:mm} a los que sustituye, pero sin crear un formateador en cada llamada:
+ * los importes se escriben a partir de los céntimos y las fechas dígito a dígito, en un
+ * {@code char[]} del tamaño exacto. No guarda estado, así que se puede usar desde cualquier hilo.
+ */
+public final class Formato {
+
+    /**
+     * Texto de un importe desconocido en las vistas.
+     */
+    public static final String SIN_IMPORTE = "-";
+
+    private static final String SUFIJO_EUROS = " €";
+    private static final int ESCALA = 2;
+    // Con más bits los céntimos no caben en un long (nunca ocurre con DECIMAL(10,2))
+    private static final int BITS_MAXIMOS = 62;
+    private static final int ANIO_MAXIMO = 9999;
+    private static final DateTimeFormatter FECHA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter FECHA_HORA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    private Formato() {
+    }
+
+    /**
+     * Importe en euros con separador de millares y dos decimales: {@code 1.234,50 €}.
+     * Devuelve {@value #SIN_IMPORTE} si es null.
+     */
+    public static String euros(BigDecimal importe) {
+        return importe != null ? escribirImporte(importe, true, SUFIJO_EUROS) : SIN_IMPORTE;
+    }
+
+    /**
+     * Importe con coma decimal y sin millares ni símbolo, para los CSV: {@code 1234,50}.
+     * Devuelve una cadena vacía si es null.
+     */
+    public static String importe(BigDecimal importe) {
+        return importe != null ? escribirImporte(importe, false, "") : "";
+    }
+
+    /**
+     * {@code dd/MM/yyyy}, o null si no hay fecha.
+     */
+    public static String fecha(LocalDate fecha) {
+        if (fecha == null) {
+            return null;
+        }
+        if (fecha.getYear() < 0 || fecha.getYear() > ANIO_MAXIMO) {
+            return fecha.format(FECHA);
+        }
+        char[] texto = new char[10];
+        escribirFecha(texto, fecha.getDayOfMonth(), fecha.getMonthValue(), fecha.getYear());
+        return new String(texto);
+    }
+
+    /**
+     * Solo la fecha ({@code dd/MM/yyyy}), o null si no hay fecha.
+     */
+    public static String fecha(LocalDateTime fechaHora) {
+        return fechaHora != null ? fecha(fechaHora.toLocalDate()) : null;
+    }
+
+    /**
+     * {@code dd/MM/yyyy HH:mm}, o null si no hay fecha.
+     */
+    public static String fechaHora(LocalDateTime fechaHora) {
+        if (fechaHora == null) {
+            return null;
+        }
+        if (fechaHora.getYear() < 0 || fechaHora.getYear() > ANIO_MAXIMO) {
+            return fechaHora.format(FECHA_HORA);
+        }
+        char[] texto = new char[16];
+        escribirFecha(texto, fechaHora.getDayOfMonth(), fechaHora.getMonthValue(), fechaHora.getYear());
+        texto[10] = ' ';
+        escribirDosDigitos(texto, 11, fechaHora.getHour());
+        texto[13] = ':';
+        escribirDosDigitos(texto, 14, fechaHora.getMinute());
+        return new String(texto);
+    }
+
+    private static String escribirImporte(BigDecimal importe, boolean conMillares, String sufijo) {
+        // Mismo redondeo que DecimalFormat (HALF_EVEN); con escala 2 no crea otro BigDecimal
+        BigInteger centimos = importe.setScale(ESCALA, RoundingMode.HALF_EVEN).unscaledValue();
+        if (centimos.bitLength() > BITS_MAXIMOS) {
+            return formatoGeneral(importe, conMillares) + sufijo;
+        }
+        // Como DecimalFormat, un negativo que redondea a cero se escribe -0,00
+        boolean negativo = importe.signum() < 0;
+        long absoluto = Math.abs(centimos.longValue());
+        long entero = absoluto / 100;
+        int decimales = (int) (absoluto % 100);
+
+        int digitosEntero = contarDigitos(entero);
+        int separadores = conMillares ? (digitosEntero - 1) / 3 : 0;
+        int longitud = (negativo ? 1 : 0) + digitosEntero + separadores + 1 + ESCALA + sufijo.length();
+        char[] texto = new char[longitud];
+
+        // De derecha a izquierda: sufijo, decimales, coma y parte entera con los millares
+        int posicion = longitud - sufijo.length();
+        sufijo.getChars(0, sufijo.length(), texto, posicion);
+        posicion -= 2;
+        escribirDosDigitos(texto, posicion, decimales);
+        texto[--posicion] = ',';
+        int escritos = 0;
+        do {
+            if (conMillares && escritos > 0 && escritos % 3 == 0) {
+                texto[--posicion] = '.';
+            }
+            texto[--posicion] = (char) ('0' + entero % 10);
+            entero /= 10;
+            escritos++;
+        } while (entero > 0);
+        if (negativo) {
+            texto[--posicion] = '-';
+        }
+        return new String(texto);
+    }
+
+    private static String formatoGeneral(BigDecimal importe, boolean conMillares) {
+        DecimalFormatSymbols simbolos = new DecimalFormatSymbols(Locale.forLanguageTag("es-ES"));
+        simbolos.setDecimalSeparator(',');
+        simbolos.setGroupingSeparator('.');
+        return new DecimalFormat(conMillares ? "#,##0.00" : "0.00", simbolos).format(importe);
+    }
+
+    private static void escribirFecha(char[] texto, int dia, int mes, int anio) {
+        escribirDosDigitos(texto, 0, dia);
+        texto[2] = '/';
+        escribirDosDigitos(texto, 3, mes);
+        texto[5] = '/';
+        escribirDosDigitos(texto, 6, anio / 100);
+        escribirDosDigitos(texto, 8, anio % 100);
+    }
+
+    private static void escribirDosDigitos(char[] texto, int posicion, int valor) {
+        texto[posicion] = (char) ('0' + valor / 10);
+        texto[posicion + 1] = (char) ('0' + valor % 10);
+    }
+
+    private static int contarDigitos(long valor) {
+        int digitos = 1;
+        while (valor >= 10) {
+            valor /= 10;
+            digitos++;
+        }
+        return digitos;
+    }
+}
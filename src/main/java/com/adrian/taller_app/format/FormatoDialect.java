@@ -0,0 +1,70 @@
+package com.adrian.taller_app.format;
+
+import org.springframework.stereotype.Component;
+import org.thymeleaf.context.IExpressionContext;
+import org.thymeleaf.dialect.AbstractDialect;
+import org.thymeleaf.dialect.IExpressionObjectDialect;
+import org.thymeleaf.expression.IExpressionObjectFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Expone {@link Formato} en las plantillas como {@code #formato}, por ejemplo
+ * {@code ${#formato.euros(ot.total)}}. Spring Boot registra en Thymeleaf los dialectos que son beans.
+ */
+@Component
+public class FormatoDialect extends AbstractDialect implements IExpressionObjectDialect {
+
+    static final String NOMBRE = "formato";
+
+    private static final Expresiones EXPRESIONES = new Expresiones();
+
+    public FormatoDialect() {
+        super("Formato");
+    }
+
+    @Override
+    public IExpressionObjectFactory getExpressionObjectFactory() {
+        return new IExpressionObjectFactory() {
+            @Override
+            public Set<String> getAllExpressionObjectNames() {
+                return Set.of(NOMBRE);
+            }
+
+            @Override
+            public Object buildObject(IExpressionContext context, String expressionObjectName) {
+                return NOMBRE.equals(expressionObjectName) ? EXPRESIONES : null;
+            }
+
+            @Override
+            public boolean isCacheable(String expressionObjectName) {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Objeto {@code #formato}: una única instancia sin estado para todas las plantillas. Sin
+     * sobrecargas, para que SpEL no tenga que elegir método cuando el argumento es null.
+     */
+    public static final class Expresiones {
+
+        private Expresiones() {
+        }
+
+        public String euros(BigDecimal importe) {
+            return Formato.euros(importe);
+        }
+
+        public String fecha(LocalDate fecha) {
+            return Formato.fecha(fecha);
+        }
+
+        public String fechaHora(LocalDateTime fechaHora) {
+            return Formato.fechaHora(fechaHora);
+        }
+    }
+}
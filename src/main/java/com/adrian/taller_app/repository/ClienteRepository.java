@@ -1,21 +1,39 @@
 package com.adrian.taller_app.repository;
 
 import com.adrian.taller_app.domain.Cliente;
-import org.springframework.data.domain.Page;
+import com.adrian.taller_app.web.ClienteFila;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface ClienteRepository extends JpaRepository<Cliente, Long> {
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
-    @EntityGraph(attributePaths = "vehiculos")
-    Optional<Cliente> findWithVehiculosByIdCliente(Long idCliente);
+public interface ClienteRepository extends JpaRepository<Cliente, Long> {
 
     boolean existsByNifIgnoreCase(String nif);
 
     Optional<Cliente> findByNifIgnoreCase(String nif);
 
-    Page<Cliente> findAllByOrderByNombreAsc(Pageable pageable);
+    // El listado y la exportación leen DTOs con solo las columnas que muestran (expresiones
+    // constructoras), sin pasar por el contexto de persistencia.
+    String SELECT_FILA = "SELECT new com.adrian.taller_app.web.ClienteFila(" +
+            "c.idCliente, c.nombre, c.telefono, c.email, c.nif, c.fechaAlta) FROM Cliente c ";
+
+    // Slice: se lee una fila de más para saber si hay página siguiente, sin COUNT(*)
+    @Query(SELECT_FILA + "ORDER BY c.nombre ASC")
+    Slice<ClienteFila> findFilasOrderByNombre(Pageable pageable);
+
+    /**
+     * Recorre todos los clientes con un cursor de solo avance para la exportación CSV.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_FILA + "ORDER BY c.nombre ASC")
+    Stream<ClienteFila> streamFilas();
 }
@@ -2,73 +2,166 @@ package com.adrian.taller_app.repository;
 
 import com.adrian.taller_app.domain.EstadoOrdenTrabajo;
 import com.adrian.taller_app.domain.OrdenTrabajo;
-import org.springframework.data.domain.Page;
+import com.adrian.taller_app.web.OrdenTrabajoExportacion;
+import com.adrian.taller_app.web.OrdenTrabajoFila;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
-import java.math.BigDecimal;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface OrdenTrabajoRepository extends JpaRepository<OrdenTrabajo, Long> {
 
-    @EntityGraph(attributePaths = {"vehiculo", "vehiculo.cliente", "usuarioAsignado"})
-    List<OrdenTrabajo> findAllByOrderByFechaCreacionDesc();
+    // Los listados y la exportación leen DTOs con solo las columnas que muestran (expresiones
+    // constructoras): no pasan por el contexto de persistencia ni cargan las entidades relacionadas.
+    String SELECT_FILA = "SELECT new com.adrian.taller_app.web.OrdenTrabajoFila(" +
+            "o.idOt, o.fechaCreacion, o.fechaCierre, o.estado, o.total, v.matricula, c.nombre, u.nombre) ";
+
+    String SELECT_FILA_CON_DESCRIPCION = "SELECT new com.adrian.taller_app.web.OrdenTrabajoFila(" +
+            "o.idOt, o.fechaCreacion, o.fechaCierre, o.estado, o.total, v.matricula, c.nombre, u.nombre, " +
+            "o.descripcion) ";
+
+    String SELECT_EXPORTACION = "SELECT new com.adrian.taller_app.web.OrdenTrabajoExportacion(" +
+            "o.idOt, v.matricula, c.nombre, u.nombre, o.estado, o.fechaCreacion, o.fechaCierre, " +
+            "o.kmEntrada, o.descripcion, o.subtotal, o.ivaTotal, o.total) ";
+
+    String FROM_CON_RELACIONES = "FROM OrdenTrabajo o LEFT JOIN o.vehiculo v LEFT JOIN v.cliente c " +
+            "LEFT JOIN o.usuarioAsignado u ";
+
+    /**
+     * Recorre todas las órdenes con un cursor de solo avance para reconstruir el índice de búsqueda.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @EntityGraph(OrdenTrabajo.GRAFO_CON_RELACIONES)
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM OrdenTrabajo o ORDER BY o.fechaCreacion DESC")
+    Stream<OrdenTrabajo> streamAll();
+
+    /**
+     * Recorre las órdenes (todas, o solo las del estado dado) con un cursor de solo avance para la
+     * exportación CSV, ya como filas de exportación. Debe consumirse dentro de una transacción y
+     * cerrarse al terminar.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_EXPORTACION + FROM_CON_RELACIONES +
+           "WHERE :estado IS NULL OR o.estado = :estado " +
+           "ORDER BY o.fechaCreacion DESC")
+    Stream<OrdenTrabajoExportacion> streamExportacion(@Param("estado") EstadoOrdenTrabajo estado);
+
+    /**
+     * Órdenes a facturar en lote: creadas en [desde, hasta) y, si se indica, en el estado dado.
+     * Cursor de solo avance, igual que {@link #streamAll()}.
+     */
+    @EntityGraph(OrdenTrabajo.GRAFO_CON_RELACIONES)
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM OrdenTrabajo o " +
+           "WHERE o.fechaCreacion >= :desde AND o.fechaCreacion < :hasta " +
+           "AND (:estado IS NULL OR o.estado = :estado) " +
+           "ORDER BY o.fechaCreacion ASC, o.idOt ASC")
+    Stream<OrdenTrabajo> streamFacturables(@Param("desde") LocalDateTime desde,
+                                           @Param("hasta") LocalDateTime hasta,
+                                           @Param("estado") EstadoOrdenTrabajo estado);
 
-    @EntityGraph(attributePaths = {"vehiculo", "vehiculo.cliente", "usuarioAsignado"})
-    Page<OrdenTrabajo> findAllByOrderByFechaCreacionDesc(Pageable pageable);
+    @Query("SELECT COUNT(o) FROM OrdenTrabajo o " +
+           "WHERE o.fechaCreacion >= :desde AND o.fechaCreacion < :hasta " +
+           "AND (:estado IS NULL OR o.estado = :estado)")
+    long countFacturables(@Param("desde") LocalDateTime desde,
+                          @Param("hasta") LocalDateTime hasta,
+                          @Param("estado") EstadoOrdenTrabajo estado);
 
     boolean existsByUsuarioAsignado_IdUsuario(Long idUsuario);
 
     long countByFechaCierreIsNull();
 
-    @EntityGraph(attributePaths = {"vehiculo", "vehiculo.cliente", "usuarioAsignado"})
-    List<OrdenTrabajo> findAllByEstadoOrderByFechaCreacionDesc(EstadoOrdenTrabajo estado);
+    // Paginación por cursor (keyset) sobre (fecha_creacion, id_ot): cada página es un rango
+    // del índice a partir de la última fila vista, sin OFFSET ni COUNT(*).
+    @Query(SELECT_FILA + FROM_CON_RELACIONES +
+           "ORDER BY o.fechaCreacion DESC, o.idOt DESC")
+    List<OrdenTrabajoFila> findPrimeraPagina(Pageable limite);
+
+    @Query(SELECT_FILA + FROM_CON_RELACIONES +
+           "WHERE o.fechaCreacion < :fecha OR (o.fechaCreacion = :fecha AND o.idOt < :id) " +
+           "ORDER BY o.fechaCreacion DESC, o.idOt DESC")
+    List<OrdenTrabajoFila> findPaginaSiguiente(@Param("fecha") LocalDateTime fecha,
+                                           @Param("id") Long id,
+                                           Pageable limite);
+
+    @Query(SELECT_FILA + FROM_CON_RELACIONES +
+           "WHERE o.fechaCreacion > :fecha OR (o.fechaCreacion = :fecha AND o.idOt > :id) " +
+           "ORDER BY o.fechaCreacion ASC, o.idOt ASC")
+    List<OrdenTrabajoFila> findPaginaAnterior(@Param("fecha") LocalDateTime fecha,
+                                          @Param("id") Long id,
+                                          Pageable limite);
+
+    @Query(SELECT_FILA + FROM_CON_RELACIONES +
+           "WHERE o.estado = :estado " +
+           "ORDER BY o.fechaCreacion DESC, o.idOt DESC")
+    List<OrdenTrabajoFila> findPrimeraPaginaPorEstado(@Param("estado") EstadoOrdenTrabajo estado,
+                                                  Pageable limite);
+
+    @Query(SELECT_FILA + FROM_CON_RELACIONES +
+           "WHERE o.estado = :estado " +
+           "AND (o.fechaCreacion < :fecha OR (o.fechaCreacion = :fecha AND o.idOt < :id)) " +
+           "ORDER BY o.fechaCreacion DESC, o.idOt DESC")
+    List<OrdenTrabajoFila> findPaginaSiguientePorEstado(@Param("estado") EstadoOrdenTrabajo estado,
+                                                    @Param("fecha") LocalDateTime fecha,
+                                                    @Param("id") Long id,
+                                                    Pageable limite);
+
+    @Query(SELECT_FILA + FROM_CON_RELACIONES +
+           "WHERE o.estado = :estado " +
+           "AND (o.fechaCreacion > :fecha OR (o.fechaCreacion = :fecha AND o.idOt > :id)) " +
+           "ORDER BY o.fechaCreacion ASC, o.idOt ASC")
+    List<OrdenTrabajoFila> findPaginaAnteriorPorEstado(@Param("estado") EstadoOrdenTrabajo estado,
+                                                   @Param("fecha") LocalDateTime fecha,
+                                                   @Param("id") Long id,
+                                                   Pageable limite);
+
+    long countByEstado(EstadoOrdenTrabajo estado);
+
+    @EntityGraph(OrdenTrabajo.GRAFO_CON_RELACIONES)
+    Optional<OrdenTrabajo> findByIdOt(Long idOt);
 
-    @EntityGraph(attributePaths = {"vehiculo", "vehiculo.cliente", "usuarioAsignado"})
-    Page<OrdenTrabajo> findAllByEstadoOrderByFechaCreacionDesc(EstadoOrdenTrabajo estado, Pageable pageable);
+    @Query(SELECT_FILA + FROM_CON_RELACIONES + "WHERE o.idOt IN :ids")
+    List<OrdenTrabajoFila> findFilasByIdOtIn(@Param("ids") Collection<Long> ids);
 
-    @EntityGraph(attributePaths = {"vehiculo", "vehiculo.cliente", "usuarioAsignado"})
-    Optional<OrdenTrabajo> findByIdOt(Long idOt);
+    @EntityGraph(OrdenTrabajo.GRAFO_CON_RELACIONES)
+    List<OrdenTrabajo> findAllByUsuarioAsignado_IdUsuario(Long idUsuario);
 
-    @EntityGraph(attributePaths = {"vehiculo", "vehiculo.cliente", "usuarioAsignado"})
+    @EntityGraph(OrdenTrabajo.GRAFO_CON_RELACIONES)
     List<OrdenTrabajo> findAllByVehiculo_IdVehiculoOrderByFechaCreacionDesc(Long idVehiculo);
 
-    @EntityGraph(attributePaths = {"vehiculo", "vehiculo.cliente", "usuarioAsignado"})
+    @EntityGraph(OrdenTrabajo.GRAFO_CON_RELACIONES)
     List<OrdenTrabajo> findAllByVehiculo_Cliente_IdClienteOrderByFechaCreacionDesc(Long idCliente);
 
-    // Queries para dashboard
-    @Query("SELECT MONTH(o.fechaCreacion), YEAR(o.fechaCreacion), COUNT(o) " +
-           "FROM OrdenTrabajo o " +
-           "WHERE o.fechaCreacion >= :desde " +
-           "GROUP BY YEAR(o.fechaCreacion), MONTH(o.fechaCreacion) " +
-           "ORDER BY YEAR(o.fechaCreacion), MONTH(o.fechaCreacion)")
-    List<Object[]> contarOrdenesPorMes(@Param("desde") LocalDateTime desde);
-
-    @Query("SELECT MONTH(o.fechaCierre), YEAR(o.fechaCierre), SUM(o.total) " +
-           "FROM OrdenTrabajo o " +
-           "WHERE o.fechaCierre >= :desde AND o.estado = 'ENTREGADA' " +
-           "GROUP BY YEAR(o.fechaCierre), MONTH(o.fechaCierre) " +
-           "ORDER BY YEAR(o.fechaCierre), MONTH(o.fechaCierre)")
-    List<Object[]> sumarIngresosPorMes(@Param("desde") LocalDateTime desde);
-
-    @Query("SELECT SUM(o.total) FROM OrdenTrabajo o " +
-           "WHERE o.estado = 'ENTREGADA' AND o.fechaCierre >= :inicio AND o.fechaCierre < :fin")
-    BigDecimal sumarTotalFacturadoEnPeriodo(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
-
-    @Query("SELECT SUM(o.total) FROM OrdenTrabajo o " +
-           "WHERE o.estado IN ('ABIERTA', 'EN_CURSO', 'TERMINADA')")
-    BigDecimal sumarTotalPendiente();
+    @Query(SELECT_FILA_CON_DESCRIPCION + FROM_CON_RELACIONES +
+           "WHERE v.idVehiculo = :idVehiculo " +
+           "ORDER BY o.fechaCreacion DESC")
+    List<OrdenTrabajoFila> findFilasByVehiculo(@Param("idVehiculo") Long idVehiculo);
 
-    @Query("SELECT COUNT(o) FROM OrdenTrabajo o " +
-           "WHERE o.estado = 'ENTREGADA' AND o.fechaCierre >= :inicio AND o.fechaCierre < :fin")
-    long contarFacturasEnPeriodo(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+    @Query(SELECT_FILA_CON_DESCRIPCION + FROM_CON_RELACIONES +
+           "WHERE c.idCliente = :idCliente " +
+           "ORDER BY o.fechaCreacion DESC")
+    List<OrdenTrabajoFila> findFilasByCliente(@Param("idCliente") Long idCliente);
 
-    @EntityGraph(attributePaths = {"vehiculo", "vehiculo.cliente", "usuarioAsignado"})
+    @EntityGraph(OrdenTrabajo.GRAFO_CON_RELACIONES)
     List<OrdenTrabajo> findAllByUsuarioAsignado_IdUsuarioAndEstadoInOrderByFechaCreacionDesc(
         Long idUsuario, List<EstadoOrdenTrabajo> estados);
 }
@@ -1,45 +1,204 @@
 package com.adrian.taller_app.repository;
 
+import com.adrian.taller_app.domain.EstadoAviso;
+import com.adrian.taller_app.domain.ModoRecordatorio;
 import com.adrian.taller_app.domain.Recordatorio;
-import org.springframework.data.domain.Page;
+import com.adrian.taller_app.web.RecordatorioFila;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface RecordatorioRepository extends JpaRepository<Recordatorio, Long> {
 
-    @EntityGraph(attributePaths = {"vehiculo", "vehiculo.cliente"})
+    @EntityGraph(Recordatorio.GRAFO_CON_VEHICULO)
     List<Recordatorio> findAllByOrderByCreadoEnDesc();
 
-    @EntityGraph(attributePaths = {"vehiculo", "vehiculo.cliente"})
-    Page<Recordatorio> findAllByOrderByCreadoEnDesc(Pageable pageable);
+    @EntityGraph(Recordatorio.GRAFO_CON_VEHICULO)
+    Optional<Recordatorio> findWithVehiculoByIdRecordatorio(Long idRecordatorio);
+
+    // El listado, los próximos y el dashboard leen DTOs con solo las columnas que muestran
+    // (expresiones constructoras), sin cargar el recordatorio, el vehículo ni el cliente como entidades.
+    String SELECT_FILA = "SELECT new com.adrian.taller_app.web.RecordatorioFila(" +
+            "r.idRecordatorio, r.tipo, r.modo, r.fechaObjetivo, r.kmObjetivo, r.estado, r.creadoEn, " +
+            "v.matricula, v.marca, v.modelo, c.nombre) " +
+            "FROM Recordatorio r LEFT JOIN r.vehiculo v LEFT JOIN v.cliente c ";
+
+    @Query(SELECT_FILA + "ORDER BY r.creadoEn DESC")
+    Slice<RecordatorioFila> findFilasOrderByCreadoEn(Pageable pageable);
+
+    /**
+     * Recorre todos los recordatorios (para el índice de urgencia) con un cursor de solo avance,
+     * sin cruzar con VEHICULO: basta el id del vehículo y km_restantes.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Recordatorio r")
+    Stream<Recordatorio> streamAll();
+
+    @Query(SELECT_FILA + "WHERE r.idRecordatorio IN :ids")
+    List<RecordatorioFila> findFilasByIdRecordatorioIn(@Param("ids") Collection<Long> ids);
 
-    // Recordatorios próximos por fecha
-    @EntityGraph(attributePaths = {"vehiculo", "vehiculo.cliente"})
+    /**
+     * Recordatorios por fecha que vencen entre hoy y hasta, del más próximo al menos.
+     * Rango sobre el índice (modo, fecha_objetivo).
+     */
     @Query("SELECT r FROM Recordatorio r " +
-           "WHERE r.modo IN ('POR_FECHA', 'AMBOS') " +
-           "AND r.fechaObjetivo IS NOT NULL " +
-           "AND r.fechaObjetivo BETWEEN :hoy AND :limite " +
-           "ORDER BY r.fechaObjetivo ASC")
-    List<Recordatorio> findRecordatoriosProximosPorFecha(
-        @Param("hoy") LocalDate hoy, 
-        @Param("limite") LocalDate limite,
-        Pageable pageable);
-
-    // Recordatorios próximos por km (dentro de un margen)
-    @EntityGraph(attributePaths = {"vehiculo", "vehiculo.cliente"})
+           "WHERE r.modo IN :modos " +
+           "AND r.fechaObjetivo BETWEEN :hoy AND :hasta " +
+           "ORDER BY r.fechaObjetivo ASC, r.idRecordatorio ASC")
+    List<Recordatorio> findProximosPorFecha(@Param("modos") Collection<ModoRecordatorio> modos,
+                                            @Param("hoy") LocalDate hoy,
+                                            @Param("hasta") LocalDate hasta,
+                                            Pageable pageable);
+
+    /**
+     * Recordatorios por km a menos de margenKm km de vencer, del más próximo al menos.
+     * Rango sobre el índice (modo, km_restantes).
+     */
     @Query("SELECT r FROM Recordatorio r " +
-           "WHERE r.modo IN ('POR_KM', 'AMBOS') " +
-           "AND r.kmObjetivo IS NOT NULL " +
-           "AND r.vehiculo.kmActual IS NOT NULL " +
-           "AND (r.kmObjetivo - r.vehiculo.kmActual) BETWEEN 0 AND :margenKm " +
-           "ORDER BY (r.kmObjetivo - r.vehiculo.kmActual) ASC")
-    List<Recordatorio> findRecordatoriosProximosPorKm(
-        @Param("margenKm") int margenKm,
-        Pageable pageable);
+           "WHERE r.modo IN :modos " +
+           "AND r.kmRestantes BETWEEN 0 AND :margenKm " +
+           "ORDER BY r.kmRestantes ASC, r.idRecordatorio ASC")
+    List<Recordatorio> findProximosPorKm(@Param("modos") Collection<ModoRecordatorio> modos,
+                                         @Param("margenKm") int margenKm,
+                                         Pageable pageable);
+
+    /**
+     * Número de próximos a vencer por fecha o por km (cada recordatorio una vez).
+     */
+    @Query("SELECT COUNT(r) FROM Recordatorio r " +
+           "WHERE (r.modo IN :modosFecha AND r.fechaObjetivo BETWEEN :hoy AND :hasta) " +
+           "OR (r.modo IN :modosKm AND r.kmRestantes BETWEEN 0 AND :margenKm)")
+    long countProximos(@Param("modosFecha") Collection<ModoRecordatorio> modosFecha,
+                       @Param("hoy") LocalDate hoy,
+                       @Param("hasta") LocalDate hasta,
+                       @Param("modosKm") Collection<ModoRecordatorio> modosKm,
+                       @Param("margenKm") int margenKm);
+
+    /**
+     * Recalcula km_restantes de los recordatorios por km del vehículo tras cambiar su km actual
+     * (con km null queda null).
+     */
+    @Modifying
+    @Query("UPDATE Recordatorio r SET r.kmRestantes = r.kmObjetivo - :km " +
+           "WHERE r.vehiculo.idVehiculo = :idVehiculo " +
+           "AND r.modo IN :modos " +
+           "AND r.kmObjetivo IS NOT NULL")
+    int actualizarKmRestantes(@Param("idVehiculo") Long idVehiculo,
+                              @Param("km") Integer km,
+                              @Param("modos") Collection<ModoRecordatorio> modos);
+
+    // Recordatorios con aviso pendiente que vencen pronto: por fecha entre :hoy y :hasta, o a
+    // entre 0 y :margenKm km. Cada rama es un rango de su índice por modo
+    String CONDICION_AVISO = "r.avisoEstado IS NULL AND (" +
+            "(r.modo IN :modosFecha AND r.fechaObjetivo BETWEEN :hoy AND :hasta) " +
+            "OR (r.modo IN :modosKm AND r.kmRestantes BETWEEN 0 AND :margenKm)) ";
+
+    /**
+     * Clientes con avisos pendientes a partir del dado (excluido), en orden de id: el envío
+     * recorre los clientes por bloques sin volver a leer los ya tratados.
+     */
+    @Query("SELECT DISTINCT v.cliente.idCliente FROM Recordatorio r JOIN r.vehiculo v " +
+           "WHERE " + CONDICION_AVISO + "AND v.cliente.idCliente > :desde " +
+           "ORDER BY v.cliente.idCliente")
+    List<Long> findClientesConAvisoPendiente(@Param("modosFecha") Collection<ModoRecordatorio> modosFecha,
+                                             @Param("hoy") LocalDate hoy,
+                                             @Param("hasta") LocalDate hasta,
+                                             @Param("modosKm") Collection<ModoRecordatorio> modosKm,
+                                             @Param("margenKm") int margenKm,
+                                             @Param("desde") Long desdeCliente,
+                                             Limit limit);
+
+    /**
+     * Recordatorios con aviso pendiente de esos clientes, con vehículo y cliente, agrupados por cliente.
+     */
+    @EntityGraph(Recordatorio.GRAFO_CON_VEHICULO)
+    @Query("SELECT r FROM Recordatorio r " +
+           "WHERE " + CONDICION_AVISO + "AND r.vehiculo.cliente.idCliente IN :clientes " +
+           "ORDER BY r.vehiculo.cliente.idCliente, r.idRecordatorio")
+    List<Recordatorio> findAvisosPendientes(@Param("modosFecha") Collection<ModoRecordatorio> modosFecha,
+                                            @Param("hoy") LocalDate hoy,
+                                            @Param("hasta") LocalDate hasta,
+                                            @Param("modosKm") Collection<ModoRecordatorio> modosKm,
+                                            @Param("margenKm") int margenKm,
+                                            @Param("clientes") Collection<Long> idsCliente);
+
+    /**
+     * Pasa el aviso de los recordatorios de un estado a otro, solo si sigue en el primero.
+     */
+    @Modifying
+    @Query("UPDATE Recordatorio r SET r.avisoEstado = :nuevo, r.avisoEn = :fecha, r.avisoError = :error " +
+           "WHERE r.idRecordatorio IN :ids AND r.avisoEstado = :actual")
+    int cambiarEstadoAviso(@Param("ids") Collection<Long> idsRecordatorio,
+                           @Param("actual") EstadoAviso actual,
+                           @Param("nuevo") EstadoAviso nuevo,
+                           @Param("fecha") LocalDateTime fecha,
+                           @Param("error") String error);
+
+    /**
+     * Saca de pendientes los avisos: enviando antes de enviarlos, o sin email si el cliente no tiene.
+     */
+    @Modifying
+    @Query("UPDATE Recordatorio r SET r.avisoEstado = :nuevo, r.avisoEn = :fecha " +
+           "WHERE r.idRecordatorio IN :ids AND r.avisoEstado IS NULL")
+    int reservarAviso(@Param("ids") Collection<Long> idsRecordatorio,
+                      @Param("nuevo") EstadoAviso enviando,
+                      @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Anota un intento fallido de los avisos que llegan a maxIntentos y los da por fallidos.
+     * Los demás se devuelven a pendientes con {@link #anotarFalloAvisoPendiente}.
+     */
+    @Modifying
+    @Query("UPDATE Recordatorio r SET r.avisoIntentos = r.avisoIntentos + 1, r.avisoEn = :fecha, " +
+           "r.avisoError = :error, r.avisoEstado = :fallido " +
+           "WHERE r.idRecordatorio IN :ids AND r.avisoEstado = :enviando AND r.avisoIntentos + 1 >= :maxIntentos")
+    int anotarFalloAvisoAgotado(@Param("ids") Collection<Long> idsRecordatorio,
+                                @Param("enviando") EstadoAviso enviando,
+                                @Param("fallido") EstadoAviso fallido,
+                                @Param("maxIntentos") int maxIntentos,
+                                @Param("fecha") LocalDateTime fecha,
+                                @Param("error") String error);
+
+    /**
+     * Anota un intento fallido y deja el aviso pendiente para el siguiente envío.
+     */
+    @Modifying
+    @Query("UPDATE Recordatorio r SET r.avisoIntentos = r.avisoIntentos + 1, r.avisoEn = :fecha, " +
+           "r.avisoError = :error, r.avisoEstado = NULL " +
+           "WHERE r.idRecordatorio IN :ids AND r.avisoEstado = :enviando")
+    int anotarFalloAvisoPendiente(@Param("ids") Collection<Long> idsRecordatorio,
+                                  @Param("enviando") EstadoAviso enviando,
+                                  @Param("fecha") LocalDateTime fecha,
+                                  @Param("error") String error);
+
+    /**
+     * Cierra los avisos que quedaron enviando (envío interrumpido). No se reintentan: el correo
+     * puede haber salido.
+     */
+    @Modifying
+    @Query("UPDATE Recordatorio r SET r.avisoEstado = :nuevo, r.avisoError = :error WHERE r.avisoEstado = :actual")
+    int cerrarAvisosInterrumpidos(@Param("actual") EstadoAviso actual,
+                                  @Param("nuevo") EstadoAviso nuevo,
+                                  @Param("error") String error);
 }
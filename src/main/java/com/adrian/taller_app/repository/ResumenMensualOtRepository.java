@@ -0,0 +1,127 @@
+package com.adrian.taller_app.repository;
+
+import com.adrian.taller_app.domain.EstadoOrdenTrabajo;
+import com.adrian.taller_app.domain.ResumenMensualOt;
+import com.adrian.taller_app.domain.ResumenMensualOtId;
+import com.adrian.taller_app.web.TotalesFacturacion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+public interface ResumenMensualOtRepository extends JpaRepository<ResumenMensualOt, ResumenMensualOtId> {
+
+    /**
+     * Suma (o resta, con valores negativos) la aportación de una orden a su fila mensual,
+     * creándola si no existe. Atómico en BD: dos transacciones concurrentes no pierden incrementos.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO RESUMEN_MENSUAL_OT " +
+                   "(tipo_fecha, anio, mes, estado, id_usuario, num_ordenes, subtotal, iva_total, total) " +
+                   "VALUES (:tipoFecha, :anio, :mes, :estado, :idUsuario, :numOrdenes, :subtotal, :ivaTotal, :total) " +
+                   "ON DUPLICATE KEY UPDATE " +
+                   "num_ordenes = num_ordenes + VALUES(num_ordenes), " +
+                   "subtotal = subtotal + VALUES(subtotal), " +
+                   "iva_total = iva_total + VALUES(iva_total), " +
+                   "total = total + VALUES(total)",
+           nativeQuery = true)
+    int acumular(@Param("tipoFecha") String tipoFecha,
+                 @Param("anio") int anio,
+                 @Param("mes") int mes,
+                 @Param("estado") String estado,
+                 @Param("idUsuario") long idUsuario,
+                 @Param("numOrdenes") long numOrdenes,
+                 @Param("subtotal") BigDecimal subtotal,
+                 @Param("ivaTotal") BigDecimal ivaTotal,
+                 @Param("total") BigDecimal total);
+
+    @Modifying
+    @Query(value = "DELETE FROM RESUMEN_MENSUAL_OT", nativeQuery = true)
+    int vaciar();
+
+    /**
+     * Recalcula desde cero todas las filas a partir de ORDEN_TRABAJO (una por mes de creación
+     * y otra por mes de cierre). Debe ejecutarse tras {@link #vaciar()} en la misma transacción.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO RESUMEN_MENSUAL_OT " +
+                   "(tipo_fecha, anio, mes, estado, id_usuario, num_ordenes, subtotal, iva_total, total) " +
+                   "SELECT 'creacion', YEAR(fecha_creacion), MONTH(fecha_creacion), COALESCE(estado, 'abierta'), " +
+                   "COALESCE(id_usuario_asignado, 0), COUNT(*), " +
+                   "COALESCE(SUM(subtotal), 0), COALESCE(SUM(iva_total), 0), COALESCE(SUM(total), 0) " +
+                   "FROM ORDEN_TRABAJO WHERE fecha_creacion IS NOT NULL " +
+                   "GROUP BY YEAR(fecha_creacion), MONTH(fecha_creacion), COALESCE(estado, 'abierta'), COALESCE(id_usuario_asignado, 0) " +
+                   "UNION ALL " +
+                   "SELECT 'cierre', YEAR(fecha_cierre), MONTH(fecha_cierre), COALESCE(estado, 'abierta'), " +
+                   "COALESCE(id_usuario_asignado, 0), COUNT(*), " +
+                   "COALESCE(SUM(subtotal), 0), COALESCE(SUM(iva_total), 0), COALESCE(SUM(total), 0) " +
+                   "FROM ORDEN_TRABAJO WHERE fecha_cierre IS NOT NULL " +
+                   "GROUP BY YEAR(fecha_cierre), MONTH(fecha_cierre), COALESCE(estado, 'abierta'), COALESCE(id_usuario_asignado, 0)",
+           nativeQuery = true)
+    int reconstruir();
+
+    // Queries para dashboard: recorren como mucho una fila por mes, estado y mecánico
+    @Query("SELECT r.id.mes, r.id.anio, SUM(r.numOrdenes) " +
+           "FROM ResumenMensualOt r " +
+           "WHERE r.id.tipoFecha = 'creacion' " +
+           "AND (r.id.anio > :anio OR (r.id.anio = :anio AND r.id.mes >= :mes)) " +
+           "GROUP BY r.id.anio, r.id.mes " +
+           "HAVING SUM(r.numOrdenes) > 0 " +
+           "ORDER BY r.id.anio, r.id.mes")
+    List<Object[]> contarOrdenesPorMes(@Param("anio") int anioDesde, @Param("mes") int mesDesde);
+
+    @Query("SELECT r.id.mes, r.id.anio, SUM(r.total) " +
+           "FROM ResumenMensualOt r " +
+           "WHERE r.id.tipoFecha = 'cierre' AND r.id.estado = :estado " +
+           "AND (r.id.anio > :anio OR (r.id.anio = :anio AND r.id.mes >= :mes)) " +
+           "GROUP BY r.id.anio, r.id.mes " +
+           "HAVING SUM(r.numOrdenes) > 0 " +
+           "ORDER BY r.id.anio, r.id.mes")
+    List<Object[]> sumarTotalPorMesDeCierre(@Param("estado") EstadoOrdenTrabajo estado,
+                                            @Param("anio") int anioDesde,
+                                            @Param("mes") int mesDesde);
+
+    /**
+     * Totales de facturación en una sola pasada: suma y número de las órdenes cerradas en el estado
+     * facturado entre ambos periodos (año * 100 + mes, incluidos) y suma de las órdenes que siguen en
+     * los estados pendientes (de cualquier mes).
+     */
+    @Query("SELECT new com.adrian.taller_app.web.TotalesFacturacion(" +
+           "COALESCE(SUM(CASE WHEN r.id.tipoFecha = 'cierre' THEN r.total END), 0), " +
+           "COALESCE(SUM(CASE WHEN r.id.tipoFecha = 'cierre' THEN r.numOrdenes END), 0), " +
+           "COALESCE(SUM(CASE WHEN r.id.tipoFecha = 'creacion' THEN r.total END), 0)) " +
+           "FROM ResumenMensualOt r " +
+           "WHERE (r.id.tipoFecha = 'cierre' AND r.id.estado = :facturado " +
+           "AND r.id.anio * 100 + r.id.mes BETWEEN :desde AND :hasta) " +
+           "OR (r.id.tipoFecha = 'creacion' AND r.id.estado IN :pendientes)")
+    TotalesFacturacion sumarFacturacion(@Param("facturado") EstadoOrdenTrabajo facturado,
+                                        @Param("pendientes") Collection<EstadoOrdenTrabajo> pendientes,
+                                        @Param("desde") int periodoDesde,
+                                        @Param("hasta") int periodoHasta);
+
+    /**
+     * Como {@link #sumarFacturacion}, pero con lo facturado agrupado por mes de cierre, en la misma
+     * pasada. Las filas pendientes se agrupan juntas con año y mes 0 y solo llevan el total pendiente.
+     */
+    @Query("SELECT new com.adrian.taller_app.web.TotalesFacturacion(" +
+           "CASE WHEN r.id.tipoFecha = 'cierre' THEN r.id.anio ELSE 0 END, " +
+           "CASE WHEN r.id.tipoFecha = 'cierre' THEN r.id.mes ELSE 0 END, " +
+           "COALESCE(SUM(CASE WHEN r.id.tipoFecha = 'cierre' THEN r.total END), 0), " +
+           "COALESCE(SUM(CASE WHEN r.id.tipoFecha = 'cierre' THEN r.numOrdenes END), 0), " +
+           "COALESCE(SUM(CASE WHEN r.id.tipoFecha = 'creacion' THEN r.total END), 0)) " +
+           "FROM ResumenMensualOt r " +
+           "WHERE (r.id.tipoFecha = 'cierre' AND r.id.estado = :facturado " +
+           "AND r.id.anio * 100 + r.id.mes BETWEEN :desde AND :hasta) " +
+           "OR (r.id.tipoFecha = 'creacion' AND r.id.estado IN :pendientes) " +
+           "GROUP BY CASE WHEN r.id.tipoFecha = 'cierre' THEN r.id.anio ELSE 0 END, " +
+           "CASE WHEN r.id.tipoFecha = 'cierre' THEN r.id.mes ELSE 0 END " +
+           "ORDER BY 1, 2")
+    List<TotalesFacturacion> sumarFacturacionPorMes(@Param("facturado") EstadoOrdenTrabajo facturado,
+                                                    @Param("pendientes") Collection<EstadoOrdenTrabajo> pendientes,
+                                                    @Param("desde") int periodoDesde,
+                                                    @Param("hasta") int periodoHasta);
+}
@@ -0,0 +1,34 @@
+package com.adrian.taller_app.repository;
+
+import com.adrian.taller_app.domain.EstadoTrabajo;
+import com.adrian.taller_app.domain.TrabajoDocumento;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TrabajoDocumentoRepository extends JpaRepository<TrabajoDocumento, String> {
+
+    List<TrabajoDocumento> findByEstadoOrderByCreadoEn(EstadoTrabajo estado, Limit limit);
+
+    List<TrabajoDocumento> findByCaducaEnBefore(LocalDateTime fecha);
+
+    /**
+     * Pasa el trabajo de un estado a otro solo si sigue en el primero; devuelve las filas cambiadas.
+     */
+    @Modifying
+    @Query("UPDATE TrabajoDocumento t SET t.estado = :nuevo, t.iniciadoEn = :iniciadoEn " +
+            "WHERE t.idTrabajo = :id AND t.estado = :actual")
+    int cambiarEstado(@Param("id") String idTrabajo,
+                      @Param("actual") EstadoTrabajo actual,
+                      @Param("nuevo") EstadoTrabajo nuevo,
+                      @Param("iniciadoEn") LocalDateTime iniciadoEn);
+
+    @Modifying
+    @Query("UPDATE TrabajoDocumento t SET t.estado = :nuevo, t.iniciadoEn = NULL WHERE t.estado = :actual")
+    int cambiarEstadoTodos(@Param("actual") EstadoTrabajo actual, @Param("nuevo") EstadoTrabajo nuevo);
+}
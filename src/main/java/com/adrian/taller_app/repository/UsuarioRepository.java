@@ -2,20 +2,30 @@ package com.adrian.taller_app.repository;
 
 import com.adrian.taller_app.domain.RolUsuario;
 import com.adrian.taller_app.domain.Usuario;
-import org.springframework.data.domain.Page;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
 
+    /**
+     * Listados pequeños que se consultan en cada formulario: se guardan en la caché de consultas,
+     * que Hibernate invalida en cuanto se escribe en USUARIO.
+     */
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Usuario> findAllByActivoTrueOrderByNombreAsc();
 
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Usuario> findAllByActivoTrueAndRolOrderByNombreAsc(RolUsuario rol);
 
-    Page<Usuario> findAllByOrderByNombreAsc(Pageable pageable);
+    Slice<Usuario> findAllByOrderByNombreAsc(Pageable pageable);
 
     Optional<Usuario> findByUsernameIgnoreCase(String username);
 
@@ -1,31 +1,84 @@
 package com.adrian.taller_app.repository;
 
 import com.adrian.taller_app.domain.Vehiculo;
-import org.springframework.data.domain.Page;
+import com.adrian.taller_app.web.VehiculoFila;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface VehiculoRepository extends JpaRepository<Vehiculo, Long> {
 
-    @EntityGraph(attributePaths = "cliente")
-    List<Vehiculo> findAllByOrderByMatriculaAsc();
+    // Los listados y la exportación leen DTOs con solo las columnas que muestran (expresiones
+    // constructoras): no pasan por el contexto de persistencia ni cargan el cliente como entidad.
+    String SELECT_FILA = "SELECT new com.adrian.taller_app.web.VehiculoFila(" +
+            "v.idVehiculo, v.matricula, v.marca, v.modelo, v.anio, v.kmActual, c.nombre) " +
+            "FROM Vehiculo v LEFT JOIN v.cliente c ";
+
+    @Query(SELECT_FILA + "ORDER BY v.matricula ASC")
+    Slice<VehiculoFila> findFilasOrderByMatricula(Pageable pageable);
+
+    /**
+     * Recorre todos los vehículos con un cursor de solo avance para la exportación CSV.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_FILA + "ORDER BY v.matricula ASC")
+    Stream<VehiculoFila> streamFilas();
+
+    /**
+     * Recorre todos los vehículos con un cursor de solo avance para cargar las sugerencias.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @EntityGraph(Vehiculo.GRAFO_CON_CLIENTE)
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT v FROM Vehiculo v ORDER BY v.matricula ASC")
+    Stream<Vehiculo> streamAll();
+
+    /**
+     * Vehículos cuya matrícula empieza por el patrón (prefijo + '%'), por el índice de matrícula.
+     * Solo para las sugerencias mientras se carga su índice en memoria.
+     */
+    @EntityGraph(Vehiculo.GRAFO_CON_CLIENTE)
+    @Query("SELECT v FROM Vehiculo v WHERE v.matricula LIKE :patron ORDER BY v.matricula ASC")
+    List<Vehiculo> findByMatriculaEmpiezaPor(@Param("patron") String patron, Pageable pageable);
 
-    @EntityGraph(attributePaths = "cliente")
-    Page<Vehiculo> findAllByOrderByMatriculaAsc(Pageable pageable);
+    /**
+     * Vehículos de clientes con alguna palabra del nombre que empieza por el prefijo (patrones
+     * prefijo + '%' y '% ' + prefijo + '%'). Solo para las sugerencias mientras se carga su índice.
+     */
+    @EntityGraph(Vehiculo.GRAFO_CON_CLIENTE)
+    @Query("SELECT v FROM Vehiculo v JOIN v.cliente c " +
+           "WHERE LOWER(c.nombre) LIKE :inicio OR LOWER(c.nombre) LIKE :palabra " +
+           "ORDER BY c.nombre ASC, v.matricula ASC")
+    List<Vehiculo> findByPalabraClienteEmpiezaPor(@Param("inicio") String inicio,
+                                                  @Param("palabra") String palabra,
+                                                  Pageable pageable);
 
-    @EntityGraph(attributePaths = "cliente")
+    @EntityGraph(Vehiculo.GRAFO_CON_CLIENTE)
     Optional<Vehiculo> findWithClienteByIdVehiculo(Long idVehiculo);
 
-    @EntityGraph(attributePaths = "cliente")
+    @EntityGraph(Vehiculo.GRAFO_CON_CLIENTE)
     List<Vehiculo> findAllByCliente_IdClienteOrderByMatriculaAsc(Long idCliente);
 
+    @Query(SELECT_FILA + "WHERE c.idCliente = :idCliente ORDER BY v.matricula ASC")
+    List<VehiculoFila> findFilasByCliente(@Param("idCliente") Long idCliente);
+
     boolean existsByCliente_IdCliente(Long idCliente);
 
     boolean existsByMatriculaIgnoreCase(String matricula);
@@ -35,10 +88,14 @@ public interface VehiculoRepository extends JpaRepository<Vehiculo, Long> {
     /**
      * Actualiza km_actual del vehículo solo si el nuevo valor es mayor (o km_actual es null).
      * Atómico en BD: evita que una transacción concurrente sobrescriba un km mayor con uno menor.
+     * Al ser un UPDATE masivo, Hibernate invalida toda la región de Vehiculo en la caché de segundo
+     * nivel y las consultas cacheadas sobre VEHICULO (también tras el commit), así que la caché
+     * nunca devuelve el km anterior. Es VERSIONED para que suba la versión del vehículo: un
+     * formulario abierto antes del cambio de km ya no puede guardar el km anterior.
      *
      * @return número de filas actualizadas (1 si se actualizó, 0 si no)
      */
     @Modifying
-    @Query("UPDATE Vehiculo v SET v.kmActual = :km WHERE v.idVehiculo = :id AND (v.kmActual IS NULL OR v.kmActual < :km)")
+    @Query("UPDATE VERSIONED Vehiculo v SET v.kmActual = :km WHERE v.idVehiculo = :id AND (v.kmActual IS NULL OR v.kmActual < :km)")
     int updateKmActualIfGreater(@Param("id") Long idVehiculo, @Param("km") Integer km);
 }
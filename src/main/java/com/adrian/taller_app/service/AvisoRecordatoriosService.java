@@ -0,0 +1,269 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.Cliente;
+import com.adrian.taller_app.domain.EstadoAviso;
+import com.adrian.taller_app.domain.ModoRecordatorio;
+import com.adrian.taller_app.domain.Recordatorio;
+import com.adrian.taller_app.domain.Vehiculo;
+import com.adrian.taller_app.format.Formato;
+import com.adrian.taller_app.repository.RecordatorioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Aviso por correo a los clientes de los recordatorios próximos a vencer (los mismos que el
+ * dashboard: a {@value UrgenciaRecordatoriosService#DIAS_AVISO} días o
+ * {@value UrgenciaRecordatoriosService#MARGEN_KM} km), con un único correo por cliente que
+ * reúne todos sus recordatorios.
+ * <p>
+ * El envío recorre los clientes con avisos pendientes por bloques de
+ * {@code app.recordatorios.avisos.clientes-por-bloque} en orden de id, así que la memoria usada
+ * no depende del número de recordatorios. Antes de enviar un bloque sus recordatorios se marcan
+ * como enviando y, al terminar, como enviados: un recordatorio avisado no se vuelve a avisar
+ * (salvo que cambie su objetivo) y, si el proceso se corta a medias, los que quedaron enviando se
+ * dan por fallidos en vez de reenviarse. Un fallo temporal deja el aviso pendiente para el
+ * siguiente envío hasta {@code app.recordatorios.avisos.intentos-maximos} intentos.
+ * <p>
+ * Los avisos se cuentan por resultado en la métrica {@code taller.recordatorios.avisos}.
+ */
+@Service
+@Transactional(readOnly = true)
+public class AvisoRecordatoriosService {
+
+    private static final Logger log = LoggerFactory.getLogger(AvisoRecordatoriosService.class);
+
+    private static final int LONGITUD_ERROR = 500;
+
+    private final RecordatorioRepository recordatorioRepository;
+    private final EnvioCorreoService envioCorreoService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int clientesPorBloque;
+    private final int intentosMaximos;
+    private final String firma;
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+
+    public AvisoRecordatoriosService(RecordatorioRepository recordatorioRepository,
+                                     EnvioCorreoService envioCorreoService,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.recordatorios.avisos.enabled:false}") boolean enabled,
+                                     @Value("${app.recordatorios.avisos.clientes-por-bloque:200}") int clientesPorBloque,
+                                     @Value("${app.recordatorios.avisos.intentos-maximos:3}") int intentosMaximos,
+                                     @Value("${app.recordatorios.avisos.firma:GarageGest}") String firma) {
+        this.recordatorioRepository = recordatorioRepository;
+        this.envioCorreoService = envioCorreoService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.clientesPorBloque = Math.max(1, clientesPorBloque);
+        this.intentosMaximos = Math.max(1, intentosMaximos);
+        this.firma = firma;
+    }
+
+    @Scheduled(cron = "${app.recordatorios.avisos.cron:0 0 2 * * *}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void envioProgramado() {
+        if (enabled) {
+            enviarAvisos();
+        }
+    }
+
+    /**
+     * Envía los avisos pendientes. Cada bloque usa sus propias transacciones cortas: ninguna
+     * queda abierta mientras se espera al servidor de correo.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void enviarAvisos() {
+        if (!envioCorreoService.disponible()) {
+            log.warn("No se envían los avisos de recordatorios: no hay servidor de correo configurado (spring.mail.host)");
+            return;
+        }
+        if (!enCurso.compareAndSet(false, true)) {
+            log.info("El envío de avisos de recordatorios ya está en curso");
+            return;
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            Integer interrumpidos = transactionTemplate.execute(status -> recordatorioRepository.cerrarAvisosInterrumpidos(
+                    EstadoAviso.ENVIANDO, EstadoAviso.FALLIDO, "Envío interrumpido: puede que el aviso llegara al cliente."));
+            if (interrumpidos != null && interrumpidos > 0) {
+                log.warn("Avisos de recordatorios interrumpidos en el envío anterior (no se reenvían): {}", interrumpidos);
+            }
+
+            LocalDate hoy = LocalDate.now();
+            LocalDate hasta = hoy.plusDays(UrgenciaRecordatoriosService.DIAS_AVISO);
+            Totales totales = new Totales();
+            long ultimoCliente = 0;
+            while (true) {
+                List<Long> clientes = recordatorioRepository.findClientesConAvisoPendiente(
+                        ModoRecordatorio.CON_FECHA, hoy, hasta, ModoRecordatorio.CON_KM,
+                        UrgenciaRecordatoriosService.MARGEN_KM, ultimoCliente, Limit.of(clientesPorBloque));
+                if (clientes.isEmpty()) {
+                    break;
+                }
+                ultimoCliente = clientes.get(clientes.size() - 1);
+                enviarBloque(recordatorioRepository.findAvisosPendientes(
+                        ModoRecordatorio.CON_FECHA, hoy, hasta, ModoRecordatorio.CON_KM,
+                        UrgenciaRecordatoriosService.MARGEN_KM, clientes), totales);
+            }
+            log.info("Avisos de recordatorios: {} enviados en {} correos, {} fallidos, {} sin email ({} ms)",
+                    totales.enviados, totales.correos, totales.fallidos, totales.sinEmail,
+                    System.currentTimeMillis() - inicio);
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    private void enviarBloque(List<Recordatorio> recordatorios, Totales totales) {
+        // Vienen ordenados por cliente
+        Map<Long, List<Recordatorio>> porCliente = new LinkedHashMap<>();
+        for (Recordatorio recordatorio : recordatorios) {
+            porCliente.computeIfAbsent(recordatorio.getVehiculo().getCliente().getIdCliente(), id -> new ArrayList<>())
+                    .add(recordatorio);
+        }
+        List<Long> sinEmail = new ArrayList<>();
+        List<Long> reservados = new ArrayList<>();
+        List<List<Long>> idsPorCorreo = new ArrayList<>();
+        List<EnvioCorreoService.Correo> correos = new ArrayList<>();
+        for (List<Recordatorio> delCliente : porCliente.values()) {
+            Cliente cliente = delCliente.get(0).getVehiculo().getCliente();
+            List<Long> ids = delCliente.stream().map(Recordatorio::getIdRecordatorio).toList();
+            if (cliente.getEmail() == null || cliente.getEmail().isBlank()) {
+                sinEmail.addAll(ids);
+                continue;
+            }
+            correos.add(redactar(cliente, delCliente));
+            idsPorCorreo.add(ids);
+            reservados.addAll(ids);
+        }
+
+        LocalDateTime reserva = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sinEmail.isEmpty()) {
+                recordatorioRepository.reservarAviso(sinEmail, EstadoAviso.SIN_EMAIL, reserva);
+            }
+            if (!reservados.isEmpty()) {
+                recordatorioRepository.reservarAviso(reservados, EstadoAviso.ENVIANDO, reserva);
+            }
+        });
+        contar("sin_email", sinEmail.size());
+        totales.sinEmail += sinEmail.size();
+        if (correos.isEmpty()) {
+            return;
+        }
+
+        List<EnvioCorreoService.Resultado> resultados = envioCorreoService.enviar(correos);
+
+        LocalDateTime fin = LocalDateTime.now();
+        List<Long> enviados = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < resultados.size(); i++) {
+                EnvioCorreoService.Resultado resultado = resultados.get(i);
+                List<Long> ids = idsPorCorreo.get(i);
+                if (resultado.enviado()) {
+                    enviados.addAll(ids);
+                } else if (resultado.definitivo()) {
+                    recordatorioRepository.cambiarEstadoAviso(ids, EstadoAviso.ENVIANDO, EstadoAviso.FALLIDO,
+                            fin, recortar(resultado.error()));
+                } else {
+                    String error = recortar(resultado.error());
+                    recordatorioRepository.anotarFalloAvisoAgotado(ids, EstadoAviso.ENVIANDO, EstadoAviso.FALLIDO,
+                            intentosMaximos, fin, error);
+                    recordatorioRepository.anotarFalloAvisoPendiente(ids, EstadoAviso.ENVIANDO, fin, error);
+                }
+            }
+            if (!enviados.isEmpty()) {
+                recordatorioRepository.cambiarEstadoAviso(enviados, EstadoAviso.ENVIANDO, EstadoAviso.ENVIADO, fin, null);
+            }
+        });
+        long correosEnviados = resultados.stream().filter(EnvioCorreoService.Resultado::enviado).count();
+        contar("enviado", enviados.size());
+        contar("fallido", reservados.size() - enviados.size());
+        totales.correos += correosEnviados;
+        totales.enviados += enviados.size();
+        totales.fallidos += reservados.size() - enviados.size();
+    }
+
+    /**
+     * Correo con todos los recordatorios del cliente, ordenados como llegan (por id).
+     */
+    private EnvioCorreoService.Correo redactar(Cliente cliente, List<Recordatorio> recordatorios) {
+        StringBuilder texto = new StringBuilder();
+        texto.append("Hola ").append(cliente.getNombre()).append(",\n\n");
+        texto.append(recordatorios.size() == 1
+                ? "Te recordamos que se acerca esta revisión:\n\n"
+                : "Te recordamos que se acercan estas revisiones:\n\n");
+        for (Recordatorio recordatorio : recordatorios) {
+            Vehiculo vehiculo = recordatorio.getVehiculo();
+            texto.append("- ").append(recordatorio.getTipo() != null ? recordatorio.getTipo() : "Revisión")
+                    .append(" de ").append(vehiculo.getMatricula());
+            String modelo = String.join(" ",
+                    vehiculo.getMarca() != null ? vehiculo.getMarca() : "",
+                    vehiculo.getModelo() != null ? vehiculo.getModelo() : "").trim();
+            if (!modelo.isEmpty()) {
+                texto.append(" (").append(modelo).append(")");
+            }
+            texto.append(": ").append(vencimiento(recordatorio)).append("\n");
+        }
+        texto.append("\nPuedes pedir cita respondiendo a este correo.\n\nUn saludo,\n").append(firma).append("\n");
+        String asunto = recordatorios.size() == 1
+                ? "Recordatorio de mantenimiento de tu vehículo"
+                : "Recordatorios de mantenimiento de tus vehículos";
+        return new EnvioCorreoService.Correo(cliente.getEmail().trim(), asunto, texto.toString());
+    }
+
+    private static String vencimiento(Recordatorio recordatorio) {
+        ModoRecordatorio modo = recordatorio.getModo();
+        String fecha = modo != null && modo.usaFecha() && recordatorio.getFechaObjetivo() != null
+                ? "el " + Formato.fecha(recordatorio.getFechaObjetivo())
+                : null;
+        String km = modo != null && modo.usaKm() && recordatorio.getKmObjetivo() != null
+                ? "a los " + recordatorio.getKmObjetivo() + " km"
+                : null;
+        if (fecha != null && km != null) {
+            return fecha + " o " + km + ", lo que llegue antes";
+        }
+        return fecha != null ? fecha : (km != null ? km : "próximamente");
+    }
+
+    private void contar(String resultado, long avisos) {
+        if (avisos > 0) {
+            Counter.builder("taller.recordatorios.avisos").tag("resultado", resultado).register(meterRegistry)
+                    .increment(avisos);
+        }
+    }
+
+    private static String recortar(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > LONGITUD_ERROR ? error.substring(0, LONGITUD_ERROR) : error;
+    }
+
+    private static final class Totales {
+        private long correos;
+        private long enviados;
+        private long fallidos;
+        private long sinEmail;
+    }
+}
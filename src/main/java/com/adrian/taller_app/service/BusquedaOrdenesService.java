@@ -0,0 +1,438 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.OrdenTrabajo;
+import com.adrian.taller_app.repository.OrdenTrabajoRepository;
+import com.adrian.taller_app.validation.Formatos;
+import com.adrian.taller_app.web.OrdenTrabajoFila;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.es.SpanishAnalyzer;
+import org.apache.lucene.analysis.es.SpanishLightStemFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Servicio de búsqueda de texto completo sobre las órdenes de trabajo.
+ * Mantiene un índice Lucene en disco con la descripción, la matrícula, el cliente y el mecánico
+ * de cada orden, analizados en español (sin tildes y con lematización ligera).
+ * <p>
+ * El índice se actualiza al confirmarse la transacción que modifica la orden y los cambios son
+ * visibles en la búsqueda de inmediato (near-real-time); el volcado a disco se hace cada
+ * {@value #INTERVALO_COMMIT_SEGUNDOS} segundos. Si el índice se pierde o queda desfasado
+ * (por ejemplo, tras cambios hechos directamente en BD), {@link #reindexar()} lo reconstruye.
+ * <p>
+ * La reconstrucción se hace en un directorio aparte mientras las búsquedas siguen usando el
+ * índice actual; al terminar, el contenido nuevo sustituye al anterior de una vez, sin que los
+ * buscadores ni el volcado periódico lleguen a ver un índice vacío o a medio construir.
+ */
+@Service
+@Transactional(readOnly = true)
+public class BusquedaOrdenesService {
+
+    static final int INTERVALO_COMMIT_SEGUNDOS = 30;
+    static final int MAX_RESULTADOS = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(BusquedaOrdenesService.class);
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final String CAMPO_ID = "id";
+    private static final String CAMPO_FECHA = "fecha";
+    private static final String CAMPO_DESCRIPCION = "descripcion";
+    private static final String CAMPO_MATRICULA = "matricula";
+    private static final String CAMPO_MATRICULA_EXACTA = "matricula_exacta";
+    private static final String CAMPO_CLIENTE = "cliente";
+    private static final String CAMPO_MECANICO = "mecanico";
+
+    private static final Map<String, Float> PESOS = Map.of(
+            CAMPO_MATRICULA, 3f,
+            CAMPO_CLIENTE, 2f,
+            CAMPO_MECANICO, 1.5f,
+            CAMPO_DESCRIPCION, 1f
+    );
+
+    // Relevancia primero; a igualdad, las órdenes más recientes
+    private static final Sort ORDEN_RESULTADOS = new Sort(
+            SortField.FIELD_SCORE,
+            new SortField(CAMPO_FECHA, SortField.Type.LONG, true)
+    );
+
+    private final OrdenTrabajoRepository ordenTrabajoRepository;
+    private final EntityManager entityManager;
+    private final Analyzer analyzer;
+    private final Path directorio;
+    private final FSDirectory directory;
+    // Se vuelven a abrir si falla la sustitución del índice en una reconstrucción
+    private volatile IndexWriter indexWriter;
+    private volatile SearcherManager searcherManager;
+    // Protege los cambios, el refresco y el volcado del índice frente a su sustitución
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final AtomicBoolean reconstruyendo = new AtomicBoolean();
+    // Cambios confirmados durante una reconstrucción, que se repiten sobre el índice nuevo
+    private List<CambioIndice> cambiosDuranteReconstruccion;
+
+    public BusquedaOrdenesService(OrdenTrabajoRepository ordenTrabajoRepository,
+                                  EntityManager entityManager,
+                                  @Value("${app.busqueda.directorio:data/indice-ordenes}") Path directorio) throws IOException {
+        this.ordenTrabajoRepository = ordenTrabajoRepository;
+        this.entityManager = entityManager;
+        this.analyzer = crearAnalizador();
+        this.directorio = directorio;
+        this.directory = FSDirectory.open(Files.createDirectories(directorio));
+        abrir();
+    }
+
+    /**
+     * Busca órdenes por texto libre. Todas las palabras deben aparecer en alguno de los campos;
+     * admite frases entre comillas, prefijos con * y exclusión con -.
+     * Solo se pagina sobre los {@value #MAX_RESULTADOS} primeros resultados.
+     */
+    public Page<OrdenTrabajoFila> buscar(String texto, Pageable pageable) {
+        if (texto == null || texto.isBlank() || pageable.getOffset() >= MAX_RESULTADOS) {
+            return Page.empty(pageable);
+        }
+        int limite = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), MAX_RESULTADOS);
+
+        List<Long> ids = new ArrayList<>();
+        long total;
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs topDocs = searcher.search(construirConsulta(texto), limite, ORDEN_RESULTADOS, false);
+                for (int i = (int) pageable.getOffset(); i < topDocs.scoreDocs.length; i++) {
+                    ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                    ids.add(Long.valueOf(searcher.storedFields().document(scoreDoc.doc).get(CAMPO_ID)));
+                }
+                total = Math.min(topDocs.totalHits.value, MAX_RESULTADOS);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("No se ha podido consultar el índice de búsqueda", ex);
+        }
+
+        // Las órdenes se cargan de BD en el orden de relevancia del índice
+        Map<Long, OrdenTrabajoFila> porId = ordenTrabajoRepository.findFilasByIdOtIn(ids).stream()
+                .collect(Collectors.toMap(OrdenTrabajoFila::getIdOt, Function.identity()));
+        List<OrdenTrabajoFila> contenido = ids.stream()
+                .map(porId::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(contenido, pageable, total);
+    }
+
+    /**
+     * Añade o reemplaza la orden en el índice cuando se confirme la transacción en curso.
+     * El documento se construye ahora, mientras las relaciones de la orden siguen accesibles.
+     */
+    public void indexar(OrdenTrabajo ordenTrabajo) {
+        Document documento = crearDocumento(ordenTrabajo);
+        Term id = new Term(CAMPO_ID, ordenTrabajo.getIdOt().toString());
+        alConfirmar(() -> indexWriter.updateDocument(id, documento));
+    }
+
+    /**
+     * Reindexa varias órdenes, por ejemplo cuando cambia la matrícula o el cliente que comparten.
+     */
+    public void indexar(Collection<OrdenTrabajo> ordenes) {
+        ordenes.forEach(this::indexar);
+    }
+
+    /**
+     * Quita la orden del índice cuando se confirme la transacción en curso.
+     */
+    public void eliminar(Long idOt) {
+        Term id = new Term(CAMPO_ID, idOt.toString());
+        alConfirmar(() -> indexWriter.deleteDocuments(id));
+    }
+
+    /**
+     * Reconstruye el índice completo leyendo todas las órdenes con un cursor de solo avance.
+     * <p>
+     * El índice nuevo se escribe en un directorio temporal; las búsquedas y los cambios siguen
+     * yendo al actual, y los cambios confirmados mientras tanto se anotan. Al final, con el
+     * cerrojo tomado, se vuelca el índice actual, se sustituye su contenido por el nuevo, se
+     * repiten los cambios anotados y se confirma todo en un único commit: si el proceso se
+     * interrumpe antes, en disco queda el índice anterior completo.
+     *
+     * @throws IllegalStateException si ya hay una reconstrucción en curso
+     */
+    public void reindexar() {
+        if (!reconstruyendo.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya se está reconstruyendo el índice de búsqueda.");
+        }
+        long inicio = System.nanoTime();
+        Path temporal = directorio.resolveSibling(directorio.getFileName() + ".reconstruccion");
+        try {
+            anotarCambios(new ArrayList<>());
+            FileSystemUtils.deleteRecursively(temporal);
+            int indexadas;
+            try (FSDirectory nuevo = FSDirectory.open(Files.createDirectories(temporal))) {
+                indexadas = construir(nuevo);
+                sustituir(nuevo);
+            }
+            log.info("Índice de búsqueda de órdenes reconstruido: {} órdenes en {} ms",
+                    indexadas, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("No se ha podido reconstruir el índice de búsqueda", ex);
+        } finally {
+            anotarCambios(null);
+            try {
+                FileSystemUtils.deleteRecursively(temporal);
+            } catch (IOException ex) {
+                log.warn("No se ha podido borrar el directorio temporal {}", temporal, ex);
+            }
+            reconstruyendo.set(false);
+        }
+    }
+
+    /**
+     * Indica si el índice no tiene ningún documento (primer arranque o directorio borrado).
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean isIndiceVacio() {
+        return indexWriter.getDocStats().numDocs == 0;
+    }
+
+    /**
+     * Vuelca a disco los cambios pendientes del índice.
+     */
+    @Scheduled(fixedDelay = INTERVALO_COMMIT_SEGUNDOS, timeUnit = TimeUnit.SECONDS)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void confirmarCambios() throws IOException {
+        cerrojo.lock();
+        try {
+            if (indexWriter.hasUncommittedChanges()) {
+                indexWriter.commit();
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() throws IOException {
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+    }
+
+    private void abrir() throws IOException {
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(indexWriter, null);
+    }
+
+    /**
+     * Escribe todas las órdenes en el directorio indicado y confirma el resultado.
+     */
+    private int construir(FSDirectory destino) throws IOException {
+        int indexadas = 0;
+        try (IndexWriter writer = new IndexWriter(destino, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+             Stream<OrdenTrabajo> ordenes = ordenTrabajoRepository.streamAll()) {
+            Iterator<OrdenTrabajo> iterator = ordenes.iterator();
+            while (iterator.hasNext()) {
+                writer.addDocument(crearDocumento(iterator.next()));
+                if (++indexadas % CHUNK_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+            writer.commit();
+        }
+        return indexadas;
+    }
+
+    /**
+     * Sustituye el contenido del índice por el del directorio reconstruido. Si falla a medias,
+     * se descartan los cambios sin confirmar y se vuelve a abrir el índice anterior.
+     */
+    private void sustituir(FSDirectory nuevo) throws IOException {
+        cerrojo.lock();
+        try {
+            // Lo confirmado hasta ahora es el punto al que se vuelve si algo falla
+            indexWriter.commit();
+            try {
+                indexWriter.deleteAll();
+                indexWriter.addIndexes(nuevo);
+                for (CambioIndice cambio : cambiosDuranteReconstruccion) {
+                    cambio.aplicar();
+                }
+                indexWriter.commit();
+            } catch (IOException | RuntimeException ex) {
+                SearcherManager anterior = searcherManager;
+                indexWriter.rollback();
+                abrir();
+                anterior.close();
+                throw ex;
+            }
+            searcherManager.maybeRefresh();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private void anotarCambios(List<CambioIndice> cambios) {
+        cerrojo.lock();
+        try {
+            cambiosDuranteReconstruccion = cambios;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Análisis en español: minúsculas, palabras vacías, sin tildes y lematización ligera,
+     * de modo que "José" encuentra "jose" y "correas" encuentra "correa".
+     */
+    private static Analyzer crearAnalizador() {
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer tokenizer = new StandardTokenizer();
+                TokenStream stream = new LowerCaseFilter(tokenizer);
+                stream = new StopFilter(stream, SpanishAnalyzer.getDefaultStopSet());
+                stream = new ASCIIFoldingFilter(stream);
+                stream = new SpanishLightStemFilter(stream);
+                return new TokenStreamComponents(tokenizer, stream);
+            }
+
+            @Override
+            protected TokenStream normalize(String fieldName, TokenStream in) {
+                // Para los prefijos (distrib*), que no pasan por el lematizador
+                return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+            }
+        };
+    }
+
+    private Query construirConsulta(String texto) {
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, PESOS);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        BooleanQuery.Builder consulta = new BooleanQuery.Builder()
+                .add(parser.parse(texto), BooleanClause.Occur.SHOULD);
+        // Permite encontrar "1234 ABC" o "1234-abc" aunque el analizador separe la matrícula
+        String matricula = Formatos.normalizarMatricula(texto);
+        if (!matricula.isEmpty()) {
+            consulta.add(new BoostQuery(new TermQuery(new Term(CAMPO_MATRICULA_EXACTA, matricula)), 5f),
+                    BooleanClause.Occur.SHOULD);
+        }
+        return consulta.build();
+    }
+
+    private Document crearDocumento(OrdenTrabajo ot) {
+        Document documento = new Document();
+        documento.add(new StringField(CAMPO_ID, ot.getIdOt().toString(), Field.Store.YES));
+        if (ot.getFechaCreacion() != null) {
+            documento.add(new NumericDocValuesField(CAMPO_FECHA,
+                    ot.getFechaCreacion().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+        }
+        agregarTexto(documento, CAMPO_DESCRIPCION, ot.getDescripcion());
+        if (ot.getVehiculo() != null) {
+            agregarTexto(documento, CAMPO_MATRICULA, ot.getVehiculo().getMatricula());
+            if (ot.getVehiculo().getMatricula() != null) {
+                documento.add(new StringField(CAMPO_MATRICULA_EXACTA,
+                        Formatos.normalizarMatricula(ot.getVehiculo().getMatricula()), Field.Store.NO));
+            }
+            if (ot.getVehiculo().getCliente() != null) {
+                agregarTexto(documento, CAMPO_CLIENTE, ot.getVehiculo().getCliente().getNombre());
+            }
+        }
+        if (ot.getUsuarioAsignado() != null) {
+            agregarTexto(documento, CAMPO_MECANICO, ot.getUsuarioAsignado().getNombre());
+        }
+        return documento;
+    }
+
+    private void agregarTexto(Document documento, String campo, String valor) {
+        if (valor != null && !valor.isBlank()) {
+            documento.add(new TextField(campo, valor, Field.Store.NO));
+        }
+    }
+
+    /**
+     * Ejecuta el cambio en el índice tras el commit (o inmediatamente si no hay transacción).
+     */
+    private void alConfirmar(CambioIndice cambio) {
+        TrasConfirmar.ejecutar(() -> aplicar(cambio));
+    }
+
+    private void aplicar(CambioIndice cambio) {
+        cerrojo.lock();
+        try {
+            cambio.aplicar();
+            if (cambiosDuranteReconstruccion != null) {
+                cambiosDuranteReconstruccion.add(cambio);
+            }
+            searcherManager.maybeRefresh();
+        } catch (IOException ex) {
+            // La orden ya está guardada: se registra y el índice se corrige con una reindexación
+            log.error("No se ha podido actualizar el índice de búsqueda de órdenes", ex);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Cambio sobre el índice vigente; se aplica de nuevo tras sustituirlo, así que debe ser
+     * idempotente (actualizar o borrar por id).
+     */
+    @FunctionalInterface
+    private interface CambioIndice {
+        void aplicar() throws IOException;
+    }
+}
@@ -0,0 +1,169 @@
+package com.adrian.taller_app.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Caché en disco de facturas PDF ya generadas, direccionada por contenido: cada fichero se llama
+ * como la versión de la factura ({@link FacturaPdfService#version}), así que una factura que
+ * cambia simplemente deja de pedirse y nunca se sirve un PDF desactualizado.
+ * <p>
+ * El tamaño total está acotado por {@code app.facturas.cache.tamano-maximo}; al superarlo se
+ * borran las facturas usadas hace más tiempo. El orden de uso se mantiene en memoria y al
+ * arrancar se reconstruye a partir de la fecha de modificación de los ficheros.
+ * <p>
+ * Las facturas se entregan como un {@link FileChannel} ya abierto dentro del cerrojo, no como
+ * una ruta: si otra petición llena la caché y borra ese fichero mientras se envía, el canal
+ * abierto sigue leyendo el contenido completo. El cerrojo es un {@link ReentrantLock} y no
+ * {@code synchronized} porque dentro se borran y abren ficheros, y con hilos virtuales un
+ * monitor fijaría el hilo portador durante esa E/S.
+ */
+@Service
+public class CacheFacturasService {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheFacturasService.class);
+
+    private static final String EXTENSION = ".pdf";
+
+    private final Path directorio;
+    private final long tamanoMaximo;
+    // Versión -> tamaño en bytes, en orden de uso (el primero es el usado hace más tiempo)
+    private final LinkedHashMap<String, Long> ficheros = new LinkedHashMap<>(16, 0.75f, true);
+    private long tamanoTotal;
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    public CacheFacturasService(@Value("${app.facturas.cache.directorio:data/cache-facturas}") Path directorio,
+                                @Value("${app.facturas.cache.tamano-maximo:256MB}") DataSize tamanoMaximo) throws IOException {
+        this.directorio = Files.createDirectories(directorio);
+        this.tamanoMaximo = tamanoMaximo.toBytes();
+        // Temporales de escrituras que no llegaron a completarse
+        try (Stream<Path> temporales = Files.list(this.directorio)) {
+            for (Path temporal : temporales.filter(fichero -> fichero.toString().endsWith(".tmp")).toList()) {
+                Files.deleteIfExists(temporal);
+            }
+        }
+        try (Stream<Path> existentes = Files.list(this.directorio)) {
+            existentes.filter(fichero -> fichero.getFileName().toString().endsWith(EXTENSION))
+                    .map(CacheFacturasService::atributos)
+                    .sorted(Comparator.comparing(entrada -> entrada.getValue().lastModifiedTime()))
+                    .forEach(entrada -> {
+                        String nombre = entrada.getKey().getFileName().toString();
+                        ficheros.put(nombre.substring(0, nombre.length() - EXTENSION.length()), entrada.getValue().size());
+                        tamanoTotal += entrada.getValue().size();
+                    });
+        }
+        cerrojo.lock();
+        try {
+            liberarEspacio(null);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Abre el fichero de la factura con esa versión, generándolo y guardándolo si no está en la
+     * caché; quien la pide debe cerrar el canal. La generación se hace fuera del bloqueo: dos
+     * peticiones simultáneas de la misma factura pueden generarla las dos, pero escriben el mismo
+     * contenido.
+     */
+    public FileChannel abrir(String version, Supplier<byte[]> generar) {
+        Path fichero = directorio.resolve(version + EXTENSION);
+        cerrojo.lock();
+        try {
+            if (ficheros.get(version) != null) {
+                try {
+                    return FileChannel.open(fichero);
+                } catch (NoSuchFileException ex) {
+                    // Borrado por fuera de la caché: se vuelve a generar
+                    tamanoTotal -= ficheros.remove(version);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("No se pudo leer la factura de la caché.", ex);
+                }
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+        byte[] pdf = generar.get();
+        FileChannel canal = null;
+        try {
+            // El canal se abre antes de publicar el fichero: sigue al contenido aunque otra
+            // petición lo sustituya o lo borre en cuanto está en su sitio
+            Path temporal = Files.createTempFile(directorio, version, ".tmp");
+            Files.write(temporal, pdf);
+            canal = FileChannel.open(temporal);
+            Files.move(temporal, fichero, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            cerrar(canal);
+            throw new UncheckedIOException("No se pudo guardar la factura en la caché.", ex);
+        }
+        cerrojo.lock();
+        try {
+            Long anterior = ficheros.put(version, (long) pdf.length);
+            tamanoTotal += pdf.length - (anterior != null ? anterior : 0);
+            liberarEspacio(version);
+        } finally {
+            cerrojo.unlock();
+        }
+        return canal;
+    }
+
+    /**
+     * Borra las facturas usadas hace más tiempo hasta volver al tamaño máximo, sin tocar la
+     * versión indicada (la que se acaba de guardar). Se llama con el cerrojo cogido.
+     */
+    private void liberarEspacio(String conservar) {
+        Iterator<Map.Entry<String, Long>> it = ficheros.entrySet().iterator();
+        while (tamanoTotal > tamanoMaximo && it.hasNext()) {
+            Map.Entry<String, Long> entrada = it.next();
+            if (entrada.getKey().equals(conservar)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(directorio.resolve(entrada.getKey() + EXTENSION));
+            } catch (IOException ex) {
+                log.warn("No se pudo borrar la factura cacheada {}: {}", entrada.getKey(), ex.getMessage());
+                continue;
+            }
+            tamanoTotal -= entrada.getValue();
+            it.remove();
+        }
+    }
+
+    private static void cerrar(FileChannel canal) {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.close();
+        } catch (IOException ex) {
+            log.debug("Error al cerrar la factura cacheada: {}", ex.getMessage());
+        }
+    }
+
+    private static Map.Entry<Path, BasicFileAttributes> atributos(Path fichero) {
+        try {
+            return Map.entry(fichero, Files.readAttributes(fichero, BasicFileAttributes.class));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -2,15 +2,20 @@ package com.adrian.taller_app.service;
 
 import com.adrian.taller_app.domain.Cliente;
 import com.adrian.taller_app.repository.ClienteRepository;
+import com.adrian.taller_app.repository.OrdenTrabajoRepository;
 import com.adrian.taller_app.repository.VehiculoRepository;
+import com.adrian.taller_app.validation.Formatos;
+import com.adrian.taller_app.web.ClienteFila;
+import com.adrian.taller_app.web.PaginaAproximada;
 import jakarta.persistence.EntityNotFoundException;
-import org.springframework.data.domain.Page;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Servicio para la gestión de clientes.
@@ -22,18 +27,32 @@ public class ClienteService {
 
     private final ClienteRepository clienteRepository;
     private final VehiculoRepository vehiculoRepository;
+    private final OrdenTrabajoRepository ordenTrabajoRepository;
+    private final BusquedaOrdenesService busquedaOrdenesService;
+    private final SugerenciasVehiculoService sugerenciasVehiculoService;
+    private final ConteoAproximadoService conteoAproximadoService;
 
-    public ClienteService(ClienteRepository clienteRepository, VehiculoRepository vehiculoRepository) {
+    public ClienteService(ClienteRepository clienteRepository,
+                          VehiculoRepository vehiculoRepository,
+                          OrdenTrabajoRepository ordenTrabajoRepository,
+                          BusquedaOrdenesService busquedaOrdenesService,
+                          SugerenciasVehiculoService sugerenciasVehiculoService,
+                          ConteoAproximadoService conteoAproximadoService) {
         this.clienteRepository = clienteRepository;
         this.vehiculoRepository = vehiculoRepository;
+        this.ordenTrabajoRepository = ordenTrabajoRepository;
+        this.busquedaOrdenesService = busquedaOrdenesService;
+        this.sugerenciasVehiculoService = sugerenciasVehiculoService;
+        this.conteoAproximadoService = conteoAproximadoService;
     }
 
     public List<Cliente> findAll() {
         return clienteRepository.findAll(Sort.by("nombre").ascending());
     }
 
-    public Page<Cliente> findAll(Pageable pageable) {
-        return clienteRepository.findAllByOrderByNombreAsc(pageable);
+    public PaginaAproximada<ClienteFila> findAll(Pageable pageable) {
+        return new PaginaAproximada<>(clienteRepository.findFilasOrderByNombre(pageable),
+                conteoAproximadoService.contar(ConteoAproximadoService.CLIENTES, clienteRepository::count));
     }
 
     public Cliente findById(Long idCliente) {
@@ -41,31 +60,41 @@ public class ClienteService {
                 .orElseThrow(() -> new EntityNotFoundException("Cliente no encontrado"));
     }
 
-    public Cliente findByIdWithVehiculos(Long idCliente) {
-        return clienteRepository.findWithVehiculosByIdCliente(idCliente)
-                .orElseThrow(() -> new EntityNotFoundException("Cliente no encontrado"));
-    }
-
     @Transactional
+    @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_CLIENTES)
     public Cliente create(Cliente cliente) {
         sanitize(cliente);
         validateNif(cliente, null);
-        return clienteRepository.save(cliente);
+        Cliente saved = clienteRepository.save(cliente);
+        conteoAproximadoService.invalidar(ConteoAproximadoService.CLIENTES);
+        return saved;
     }
 
+    // Los recordatorios próximos del resumen muestran el nombre del cliente
     @Transactional
+    @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_RECORDATORIOS)
     public Cliente update(Long idCliente, Cliente datos) {
         Cliente existente = findById(idCliente);
+        String nombreAnterior = existente.getNombre();
         sanitize(datos);
         existente.setNombre(datos.getNombre());
         existente.setTelefono(datos.getTelefono());
         existente.setEmail(datos.getEmail());
         existente.setNif(datos.getNif());
         validateNif(existente, idCliente);
-        return clienteRepository.save(existente);
+        Cliente saved = clienteRepository.save(existente);
+        // El nombre del cliente se indexa con cada orden y en las sugerencias de sus vehículos
+        if (!Objects.equals(nombreAnterior, saved.getNombre())) {
+            sugerenciasVehiculoService.registrar(
+                    vehiculoRepository.findAllByCliente_IdClienteOrderByMatriculaAsc(idCliente));
+            busquedaOrdenesService.indexar(
+                    ordenTrabajoRepository.findAllByVehiculo_Cliente_IdClienteOrderByFechaCreacionDesc(idCliente));
+        }
+        return saved;
     }
 
     @Transactional
+    @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_CLIENTES)
     public void delete(Long idCliente) {
         if (vehiculoRepository.existsByCliente_IdCliente(idCliente)) {
             throw new IllegalStateException("No se puede eliminar el cliente porque tiene vehículos asociados.");
@@ -74,19 +103,15 @@ public class ClienteService {
             throw new EntityNotFoundException("Cliente no encontrado");
         }
         clienteRepository.deleteById(idCliente);
+        conteoAproximadoService.invalidar(ConteoAproximadoService.CLIENTES);
     }
 
     private void sanitize(Cliente cliente) {
         cliente.setNombre(clean(cliente.getNombre()));
         cliente.setTelefono(clean(cliente.getTelefono()));
         cliente.setEmail(clean(cliente.getEmail()));
-        String nif = clean(cliente.getNif());
-        if (nif != null) {
-            // Normalizar NIF: mayúsculas y sin espacios
-            cliente.setNif(nif.toUpperCase().replaceAll("\\s+", ""));
-        } else {
-            cliente.setNif(null);
-        }
+        // Normalizar NIF: mayúsculas y sin espacios
+        cliente.setNif(Formatos.normalizarNif(clean(cliente.getNif())));
     }
 
     private void validateNif(Cliente cliente, Long idActual) {
@@ -0,0 +1,83 @@
+package com.adrian.taller_app.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Totales aproximados de los listados paginados.
+ * Los listados leen solo una porción (Slice) de filas, sin COUNT(*), y muestran como total el
+ * último conteo conocido. Los conteos se recalculan en segundo plano cada
+ * {@code app.listados.conteo-refresco}, de modo que la vista solo espera a un COUNT(*) la primera
+ * vez que se pide un total o justo después de una escritura que lo invalida.
+ */
+@Service
+public class ConteoAproximadoService {
+
+    public static final String CLIENTES = "clientes";
+    public static final String VEHICULOS = "vehiculos";
+    public static final String RECORDATORIOS = "recordatorios";
+    public static final String USUARIOS = "usuarios";
+    public static final String ORDENES = "ordenes";
+
+    private static final Logger log = LoggerFactory.getLogger(ConteoAproximadoService.class);
+
+    private final Map<String, Conteo> conteos = new ConcurrentHashMap<>();
+
+    /**
+     * Devuelve el último conteo conocido para la clave; si aún no existe lo calcula con la
+     * consulta dada, que queda registrada para los refrescos periódicos.
+     *
+     * @param clave una de las constantes de esta clase, opcionalmente seguida de ":" y un filtro
+     *              (por ejemplo {@code ordenes:ABIERTA})
+     * @param consulta consulta de conteo exacto
+     */
+    public long contar(String clave, LongSupplier consulta) {
+        Conteo conteo = conteos.get(clave);
+        if (conteo == null) {
+            conteo = new Conteo(consulta, consulta.getAsLong());
+            conteos.put(clave, conteo);
+        }
+        return conteo.total;
+    }
+
+    /**
+     * Descarta el conteo de la clave y los de sus filtros (clave:*) tras confirmarse la
+     * transacción en curso, para que el siguiente listado vuelva a contar.
+     */
+    public void invalidar(String clave) {
+        TrasConfirmar.ejecutar(() -> conteos.keySet()
+                .removeIf(c -> c.equals(clave) || c.startsWith(clave + ":")));
+    }
+
+    /**
+     * Recalcula todos los conteos registrados. Si una consulta falla se conserva el valor
+     * anterior hasta el siguiente refresco.
+     */
+    @Scheduled(fixedDelayString = "${app.listados.conteo-refresco:60s}",
+               initialDelayString = "${app.listados.conteo-refresco:60s}")
+    public void refrescar() {
+        conteos.forEach((clave, conteo) -> {
+            try {
+                conteo.total = conteo.consulta.getAsLong();
+            } catch (RuntimeException ex) {
+                log.warn("No se pudo refrescar el conteo de {}: {}", clave, ex.getMessage());
+            }
+        });
+    }
+
+    private static final class Conteo {
+        private final LongSupplier consulta;
+        private volatile long total;
+
+        private Conteo(LongSupplier consulta, long total) {
+            this.consulta = consulta;
+            this.total = total;
+        }
+    }
+}
@@ -1,128 +1,205 @@
 package com.adrian.taller_app.service;
 
-import com.adrian.taller_app.domain.Cliente;
-import com.adrian.taller_app.domain.OrdenTrabajo;
-import com.adrian.taller_app.domain.Vehiculo;
+import com.adrian.taller_app.domain.EstadoOrdenTrabajo;
+import com.adrian.taller_app.format.Formato;
+import com.adrian.taller_app.repository.ClienteRepository;
+import com.adrian.taller_app.repository.OrdenTrabajoRepository;
+import com.adrian.taller_app.repository.VehiculoRepository;
+import com.adrian.taller_app.web.ClienteFila;
+import com.adrian.taller_app.web.OrdenTrabajoExportacion;
+import com.adrian.taller_app.web.VehiculoFila;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * Servicio para la exportación de datos a formato CSV.
  * Permite exportar clientes, vehículos y órdenes de trabajo.
+ * <p>
+ * Las exportaciones se escriben directamente sobre el {@link OutputStream} de la respuesta
+ * leyendo las filas con un cursor de solo avance, de modo que la memoria usada no depende
+ * del número de registros. Las filas son DTOs de solo lectura construidos en la consulta, así que
+ * el contexto de persistencia no crece; cada {@link #CHUNK_SIZE} filas se envía al cliente lo
+ * escrito hasta el momento.
+ * <p>
+ * Las filas y bytes exportados se cuentan por tipo en las métricas {@code taller.exportacion.filas}
+ * y {@code taller.exportacion.bytes}.
  */
 @Service
+@Transactional(readOnly = true)
+@Timed("taller.servicio")
 public class CsvExportService {
 
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    static final int CHUNK_SIZE = 500;
+
+    private final ClienteRepository clienteRepository;
+    private final VehiculoRepository vehiculoRepository;
+    private final OrdenTrabajoRepository ordenTrabajoRepository;
+    private final MeterRegistry meterRegistry;
+
+    public CsvExportService(ClienteRepository clienteRepository,
+                            VehiculoRepository vehiculoRepository,
+                            OrdenTrabajoRepository ordenTrabajoRepository,
+                            MeterRegistry meterRegistry) {
+        this.clienteRepository = clienteRepository;
+        this.vehiculoRepository = vehiculoRepository;
+        this.ordenTrabajoRepository = ordenTrabajoRepository;
+        this.meterRegistry = meterRegistry;
+    }
 
     /**
-     * Exporta una lista de clientes a CSV
+     * Exporta todos los clientes a CSV
      */
-    public byte[] exportClientes(List<Cliente> clientes) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        
-        // Añadir BOM UTF-8 para Excel
-        baos.write(0xEF);
-        baos.write(0xBB);
-        baos.write(0xBF);
-        
-        try (OutputStreamWriter writer = new OutputStreamWriter(baos, StandardCharsets.UTF_8)) {
-            // Encabezados
-            writer.write("Nombre,Teléfono,Email,NIF,Fecha de Alta\n");
-            
-            // Datos
-            for (Cliente cliente : clientes) {
-                writer.write(escapeCsv(cliente.getNombre()) + ",");
-                writer.write(escapeCsv(cliente.getTelefono() != null ? cliente.getTelefono() : "") + ",");
-                writer.write(escapeCsv(cliente.getEmail() != null ? cliente.getEmail() : "") + ",");
-                writer.write(escapeCsv(cliente.getNif() != null ? cliente.getNif() : "") + ",");
-                writer.write(cliente.getFechaAlta() != null ? cliente.getFechaAlta().format(DATE_FORMATTER) : "");
-                writer.write("\n");
-            }
+    public void exportClientes(OutputStream output) throws IOException {
+        Writer writer = openWriter(output, "clientes");
+        // Encabezados
+        writer.write("Nombre,Teléfono,Email,NIF,Fecha de Alta\n");
+
+        // Datos
+        try (Stream<ClienteFila> clientes = clienteRepository.streamFilas()) {
+            writeRows(writer, clientes, "clientes", (w, cliente) -> {
+                w.write(escapeCsv(cliente.getNombre()) + ",");
+                w.write(escapeCsv(cliente.getTelefono() != null ? cliente.getTelefono() : "") + ",");
+                w.write(escapeCsv(cliente.getEmail() != null ? cliente.getEmail() : "") + ",");
+                w.write(escapeCsv(cliente.getNif() != null ? cliente.getNif() : "") + ",");
+                w.write(cliente.getFechaAlta() != null ? Formato.fecha(cliente.getFechaAlta()) : "");
+                w.write("\n");
+            });
         }
-        
-        return baos.toByteArray();
     }
 
     /**
-     * Exporta una lista de vehículos a CSV
+     * Exporta todos los vehículos a CSV
      */
-    public byte[] exportVehiculos(List<Vehiculo> vehiculos) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        
-        // Añadir BOM UTF-8 para Excel
-        baos.write(0xEF);
-        baos.write(0xBB);
-        baos.write(0xBF);
-        
-        try (OutputStreamWriter writer = new OutputStreamWriter(baos, StandardCharsets.UTF_8)) {
-            // Encabezados
-            writer.write("Matrícula,Marca,Modelo,Año,Kilómetros Actuales,Cliente\n");
-            
-            // Datos
-            for (Vehiculo vehiculo : vehiculos) {
-                writer.write(escapeCsv(vehiculo.getMatricula()) + ",");
-                writer.write(escapeCsv(vehiculo.getMarca() != null ? vehiculo.getMarca() : "") + ",");
-                writer.write(escapeCsv(vehiculo.getModelo() != null ? vehiculo.getModelo() : "") + ",");
-                writer.write(vehiculo.getAnio() != null ? vehiculo.getAnio().toString() : "");
-                writer.write(",");
-                writer.write(vehiculo.getKmActual() != null ? vehiculo.getKmActual().toString() : "");
-                writer.write(",");
-                writer.write(escapeCsv(vehiculo.getCliente() != null ? vehiculo.getCliente().getNombre() : ""));
-                writer.write("\n");
-            }
+    public void exportVehiculos(OutputStream output) throws IOException {
+        Writer writer = openWriter(output, "vehiculos");
+        // Encabezados
+        writer.write("Matrícula,Marca,Modelo,Año,Kilómetros Actuales,Cliente\n");
+
+        // Datos
+        try (Stream<VehiculoFila> vehiculos = vehiculoRepository.streamFilas()) {
+            writeRows(writer, vehiculos, "vehiculos", (w, vehiculo) -> {
+                w.write(escapeCsv(vehiculo.getMatricula()) + ",");
+                w.write(escapeCsv(vehiculo.getMarca() != null ? vehiculo.getMarca() : "") + ",");
+                w.write(escapeCsv(vehiculo.getModelo() != null ? vehiculo.getModelo() : "") + ",");
+                w.write(vehiculo.getAnio() != null ? vehiculo.getAnio().toString() : "");
+                w.write(",");
+                w.write(vehiculo.getKmActual() != null ? vehiculo.getKmActual().toString() : "");
+                w.write(",");
+                w.write(escapeCsv(vehiculo.getNombreCliente() != null ? vehiculo.getNombreCliente() : ""));
+                w.write("\n");
+            });
+        }
+    }
+
+    /**
+     * Exporta las órdenes de trabajo a CSV, filtradas por estado si se indica
+     */
+    public void exportOrdenesTrabajo(EstadoOrdenTrabajo estado, OutputStream output) throws IOException {
+        Writer writer = openWriter(output, "ordenes");
+        // Encabezados
+        writer.write("Nº OT,Matrícula Vehículo,Cliente,Asignado a,Estado,Fecha Creación,Fecha Cierre,Km Entrada,Descripción,Subtotal,IVA Total,Total\n");
+
+        // Datos
+        try (Stream<OrdenTrabajoExportacion> ordenes = ordenTrabajoRepository.streamExportacion(estado)) {
+            writeRows(writer, ordenes, "ordenes", (w, ot) -> {
+                w.write(ot.getIdOt().toString() + ",");
+                w.write(escapeCsv(ot.getMatricula() != null ? ot.getMatricula() : "") + ",");
+                w.write(escapeCsv(ot.getNombreCliente() != null ? ot.getNombreCliente() : "") + ",");
+                w.write(escapeCsv(ot.getNombreUsuario() != null ? ot.getNombreUsuario() : "") + ",");
+                w.write(escapeCsv(ot.getEstado() != null ? ot.getEstado().getEtiqueta() : "") + ",");
+                w.write(ot.getFechaCreacion() != null ? Formato.fechaHora(ot.getFechaCreacion()) : "");
+                w.write(",");
+                w.write(ot.getFechaCierre() != null ? Formato.fechaHora(ot.getFechaCierre()) : "");
+                w.write(",");
+                w.write(ot.getKmEntrada() != null ? ot.getKmEntrada().toString() : "");
+                w.write(",");
+                w.write(escapeCsv(ot.getDescripcion() != null ? ot.getDescripcion() : "") + ",");
+                w.write(Formato.importe(ot.getSubtotal()));
+                w.write(",");
+                w.write(Formato.importe(ot.getIvaTotal()));
+                w.write(",");
+                w.write(Formato.importe(ot.getTotal()));
+                w.write("\n");
+            });
         }
-        
-        return baos.toByteArray();
     }
 
     /**
-     * Exporta una lista de órdenes de trabajo a CSV
+     * Abre un writer UTF-8 sobre la salida, precedido del BOM para que Excel detecte la codificación.
+     * No se cierra al terminar: la salida pertenece a quien la ha proporcionado.
      */
-    public byte[] exportOrdenesTrabajo(List<OrdenTrabajo> ordenes) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        
+    private Writer openWriter(OutputStream output, String tipo) throws IOException {
+        OutputStream contada = new ContadorBytes(output, Counter.builder("taller.exportacion.bytes")
+                .tag("tipo", tipo)
+                .baseUnit("bytes")
+                .register(meterRegistry));
         // Añadir BOM UTF-8 para Excel
-        baos.write(0xEF);
-        baos.write(0xBB);
-        baos.write(0xBF);
-        
-        try (OutputStreamWriter writer = new OutputStreamWriter(baos, StandardCharsets.UTF_8)) {
-            // Encabezados
-            writer.write("Nº OT,Matrícula Vehículo,Cliente,Asignado a,Estado,Fecha Creación,Fecha Cierre,Km Entrada,Descripción,Subtotal,IVA Total,Total\n");
-            
-            // Datos
-            for (OrdenTrabajo ot : ordenes) {
-                writer.write(ot.getIdOt().toString() + ",");
-                writer.write(escapeCsv(ot.getVehiculo() != null ? ot.getVehiculo().getMatricula() : "") + ",");
-                writer.write(escapeCsv(ot.getVehiculo() != null && ot.getVehiculo().getCliente() != null 
-                    ? ot.getVehiculo().getCliente().getNombre() : "") + ",");
-                writer.write(escapeCsv(ot.getUsuarioAsignado() != null ? ot.getUsuarioAsignado().getNombre() : "") + ",");
-                writer.write(escapeCsv(ot.getEstado() != null ? ot.getEstado().getEtiqueta() : "") + ",");
-                writer.write(ot.getFechaCreacion() != null ? ot.getFechaCreacion().format(DATETIME_FORMATTER) : "");
-                writer.write(",");
-                writer.write(ot.getFechaCierre() != null ? ot.getFechaCierre().format(DATETIME_FORMATTER) : "");
-                writer.write(",");
-                writer.write(ot.getKmEntrada() != null ? ot.getKmEntrada().toString() : "");
-                writer.write(",");
-                writer.write(escapeCsv(ot.getDescripcion() != null ? ot.getDescripcion() : "") + ",");
-                writer.write(ot.getSubtotal() != null ? ot.getSubtotal().toString().replace(".", ",") : "");
-                writer.write(",");
-                writer.write(ot.getIvaTotal() != null ? ot.getIvaTotal().toString().replace(".", ",") : "");
-                writer.write(",");
-                writer.write(ot.getTotal() != null ? ot.getTotal().toString().replace(".", ",") : "");
-                writer.write("\n");
+        contada.write(0xEF);
+        contada.write(0xBB);
+        contada.write(0xBF);
+        return new BufferedWriter(new OutputStreamWriter(contada, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Escribe las filas del cursor por bloques: tras cada bloque se vuelca el buffer a la salida.
+     */
+    private <T> void writeRows(Writer writer, Stream<T> rows, String tipo, RowWriter<T> rowWriter) throws IOException {
+        Counter filas = Counter.builder("taller.exportacion.filas").tag("tipo", tipo).register(meterRegistry);
+        int enBloque = 0;
+        Iterator<T> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            rowWriter.write(writer, iterator.next());
+            if (++enBloque == CHUNK_SIZE) {
+                filas.increment(enBloque);
+                writer.flush();
+                enBloque = 0;
             }
         }
-        
-        return baos.toByteArray();
+        filas.increment(enBloque);
+        writer.flush();
+    }
+
+    @FunctionalInterface
+    private interface RowWriter<T> {
+        void write(Writer writer, T row) throws IOException;
+    }
+
+    /**
+     * Cuenta en la métrica los bytes que pasan hacia la salida.
+     */
+    private static final class ContadorBytes extends FilterOutputStream {
+
+        private final Counter bytes;
+
+        ContadorBytes(OutputStream output, Counter bytes) {
+            super(output);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes.increment();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytes.increment(len);
+        }
     }
 
     /**
@@ -0,0 +1,76 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.repository.ClienteRepository;
+import com.adrian.taller_app.repository.OrdenTrabajoRepository;
+import com.adrian.taller_app.repository.VehiculoRepository;
+import com.adrian.taller_app.web.RecordatorioFila;
+import com.adrian.taller_app.web.ResumenFacturacion;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Servicio que compone los datos del dashboard (/resumen).
+ * Cada bloque se cachea por separado en la caché {@value #CACHE} y lo invalidan solo las
+ * escrituras que lo afectan (ver las constantes KEY_* y los {@code @CacheEvict} de los servicios),
+ * de modo que un dashboard consultado repetidamente no lanza consultas a BD.
+ */
+@Service
+@Transactional(readOnly = true)
+public class DashboardService {
+
+    public static final String CACHE = "dashboard";
+
+    public static final String KEY_CLIENTES = "'clientes'";
+    public static final String KEY_VEHICULOS = "'vehiculos'";
+    public static final String KEY_ORDENES_ABIERTAS = "'ordenesAbiertas'";
+    public static final String KEY_FACTURACION = "'facturacion'";
+    public static final String KEY_RECORDATORIOS = "'recordatorios'";
+
+    static final int LIMITE_RECORDATORIOS = 5;
+
+    private final ClienteRepository clienteRepository;
+    private final VehiculoRepository vehiculoRepository;
+    private final OrdenTrabajoRepository ordenTrabajoRepository;
+    private final OrdenTrabajoService ordenTrabajoService;
+    private final RecordatorioService recordatorioService;
+
+    public DashboardService(ClienteRepository clienteRepository,
+                            VehiculoRepository vehiculoRepository,
+                            OrdenTrabajoRepository ordenTrabajoRepository,
+                            OrdenTrabajoService ordenTrabajoService,
+                            RecordatorioService recordatorioService) {
+        this.clienteRepository = clienteRepository;
+        this.vehiculoRepository = vehiculoRepository;
+        this.ordenTrabajoRepository = ordenTrabajoRepository;
+        this.ordenTrabajoService = ordenTrabajoService;
+        this.recordatorioService = recordatorioService;
+    }
+
+    @Cacheable(cacheNames = CACHE, key = KEY_CLIENTES)
+    public long contarClientes() {
+        return clienteRepository.count();
+    }
+
+    @Cacheable(cacheNames = CACHE, key = KEY_VEHICULOS)
+    public long contarVehiculos() {
+        return vehiculoRepository.count();
+    }
+
+    @Cacheable(cacheNames = CACHE, key = KEY_ORDENES_ABIERTAS)
+    public long contarOrdenesAbiertas() {
+        return ordenTrabajoRepository.countByFechaCierreIsNull();
+    }
+
+    @Cacheable(cacheNames = CACHE, key = KEY_FACTURACION)
+    public ResumenFacturacion obtenerResumenFacturacion() {
+        return ordenTrabajoService.obtenerResumenFacturacionMesActual();
+    }
+
+    @Cacheable(cacheNames = CACHE, key = KEY_RECORDATORIOS)
+    public List<RecordatorioFila> obtenerRecordatoriosProximos() {
+        return recordatorioService.obtenerRecordatoriosProximos(LIMITE_RECORDATORIOS);
+    }
+}
@@ -0,0 +1,245 @@
+package com.adrian.taller_app.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Envío de correos en bloque por SMTP (servidor de {@code spring.mail.*}).
+ * <p>
+ * Cada bloque se reparte entre {@code app.correo.conexiones} hilos y cada hilo envía su parte por
+ * una sola conexión SMTP, que reutiliza para todos sus mensajes en lugar de abrir una por correo.
+ * El ritmo total está limitado a {@code app.correo.mensajes-por-segundo}. Un fallo temporal se
+ * reintenta en una conexión nueva con espera creciente; una dirección rechazada no se reintenta.
+ */
+@Service
+public class EnvioCorreoService {
+
+    private static final Logger log = LoggerFactory.getLogger(EnvioCorreoService.class);
+
+    private final ObjectProvider<JavaMailSenderImpl> mailSender;
+    private final String remitente;
+    private final int conexiones;
+    private final int reintentos;
+    private final Duration esperaReintento;
+    // Separación mínima entre dos envíos (0 = sin límite) y momento del siguiente turno libre.
+    // Con ReentrantLock y no synchronized: los hilos de envío pueden ser virtuales
+    private final long intervaloNanos;
+    private long siguienteTurno;
+    private final ReentrantLock turnos = new ReentrantLock();
+    private final ExecutorService executor;
+
+    public EnvioCorreoService(ObjectProvider<JavaMailSenderImpl> mailSender,
+                              @Value("${app.correo.remitente:taller@localhost}") String remitente,
+                              @Value("${app.correo.conexiones:4}") int conexiones,
+                              @Value("${app.correo.mensajes-por-segundo:20}") double mensajesPorSegundo,
+                              @Value("${app.correo.reintentos:3}") int reintentos,
+                              @Value("${app.correo.espera-reintento:2s}") Duration esperaReintento) {
+        this.mailSender = mailSender;
+        this.remitente = remitente;
+        this.conexiones = Math.max(1, conexiones);
+        this.reintentos = Math.max(0, reintentos);
+        this.esperaReintento = esperaReintento;
+        this.intervaloNanos = mensajesPorSegundo > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / mensajesPorSegundo) : 0;
+        this.siguienteTurno = System.nanoTime();
+        this.executor = new ThreadPoolExecutor(this.conexiones, this.conexiones, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.conexiones * 4),
+                new CustomizableThreadFactory("correo-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Indica si hay servidor de correo configurado.
+     */
+    public boolean disponible() {
+        return mailSender.getIfAvailable() != null;
+    }
+
+    /**
+     * Envía los correos y espera a que terminen todos. Devuelve el resultado de cada uno en el
+     * mismo orden.
+     */
+    public List<Resultado> enviar(List<Correo> correos) {
+        JavaMailSenderImpl sender = mailSender.getIfAvailable();
+        if (sender == null) {
+            throw new IllegalStateException("No hay servidor de correo configurado (spring.mail.host).");
+        }
+        Resultado[] resultados = new Resultado[correos.size()];
+        int partes = Math.min(conexiones, correos.size());
+        List<Future<?>> tareas = new ArrayList<>(partes);
+        for (int parte = 0; parte < partes; parte++) {
+            int primero = parte;
+            tareas.add(executor.submit(() -> enviarParte(sender, correos, resultados, primero, partes)));
+        }
+        for (Future<?> tarea : tareas) {
+            try {
+                tarea.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                tareas.forEach(pendiente -> pendiente.cancel(true));
+                throw new IllegalStateException("Se interrumpió el envío de correos.", ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new IllegalStateException("No se pudo enviar el bloque de correos.", ex.getCause());
+            }
+        }
+        return Arrays.asList(resultados);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Envía los correos primero, primero + paso, ... por una misma conexión.
+     */
+    private void enviarParte(JavaMailSenderImpl sender, List<Correo> correos, Resultado[] resultados,
+                             int primero, int paso) {
+        Conexion conexion = new Conexion(sender);
+        try {
+            for (int i = primero; i < correos.size(); i += paso) {
+                resultados[i] = enviarCorreo(sender, conexion, correos.get(i));
+            }
+        } finally {
+            conexion.cerrar();
+        }
+    }
+
+    private Resultado enviarCorreo(JavaMailSenderImpl sender, Conexion conexion, Correo correo) {
+        MimeMessage mensaje;
+        try {
+            mensaje = crearMensaje(sender, correo);
+        } catch (MessagingException ex) {
+            return new Resultado(false, true, "Dirección no válida: " + correo.para());
+        }
+        MessagingException ultimo = null;
+        for (int intento = 0; intento <= reintentos; intento++) {
+            try {
+                if (intento > 0) {
+                    Thread.sleep(esperaReintento.multipliedBy(1L << (intento - 1)).toMillis());
+                }
+                esperarTurno();
+                conexion.enviar(mensaje);
+                return new Resultado(true, false, null);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return new Resultado(false, false, "Envío interrumpido.");
+            } catch (SendFailedException ex) {
+                conexion.cerrar();
+                if (ex.getInvalidAddresses() != null && ex.getInvalidAddresses().length > 0) {
+                    return new Resultado(false, true, "Dirección rechazada: " + correo.para());
+                }
+                ultimo = ex;
+            } catch (MessagingException ex) {
+                conexion.cerrar();
+                ultimo = ex;
+            }
+            log.debug("Intento {} de envío a {} fallido: {}", intento + 1, correo.para(), ultimo.getMessage());
+        }
+        return new Resultado(false, false, ultimo.getMessage());
+    }
+
+    private MimeMessage crearMensaje(JavaMailSenderImpl sender, Correo correo) throws MessagingException {
+        MimeMessage mensaje = sender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mensaje, StandardCharsets.UTF_8.name());
+        helper.setFrom(remitente);
+        helper.setTo(correo.para());
+        helper.setSubject(correo.asunto());
+        helper.setText(correo.texto());
+        mensaje.saveChanges();
+        return mensaje;
+    }
+
+    /**
+     * Reserva el siguiente turno de envío y espera hasta él, ya sin el cerrojo.
+     */
+    private void esperarTurno() throws InterruptedException {
+        if (intervaloNanos == 0) {
+            return;
+        }
+        long turno;
+        turnos.lock();
+        try {
+            // nanoTime puede ser negativo y desbordar: se compara la diferencia, no los valores
+            long ahora = System.nanoTime();
+            turno = siguienteTurno - ahora < 0 ? ahora : siguienteTurno;
+            siguienteTurno = turno + intervaloNanos;
+        } finally {
+            turnos.unlock();
+        }
+        long espera = turno - System.nanoTime();
+        if (espera > 0) {
+            TimeUnit.NANOSECONDS.sleep(espera);
+        }
+    }
+
+    public record Correo(String para, String asunto, String texto) {
+    }
+
+    /**
+     * Resultado de un envío. Un fallo definitivo (dirección no válida o rechazada) no tiene
+     * sentido reintentarlo más adelante.
+     */
+    public record Resultado(boolean enviado, boolean definitivo, String error) {
+    }
+
+    /**
+     * Conexión SMTP de un hilo: se abre con el primer envío y se vuelve a abrir tras un fallo.
+     */
+    private static final class Conexion {
+
+        private final JavaMailSenderImpl sender;
+        private Transport transporte;
+
+        private Conexion(JavaMailSenderImpl sender) {
+            this.sender = sender;
+        }
+
+        private void enviar(MimeMessage mensaje) throws MessagingException {
+            if (transporte == null) {
+                Transport nuevo = sender.getSession().getTransport(sender.getProtocol());
+                nuevo.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+                transporte = nuevo;
+            }
+            transporte.sendMessage(mensaje, mensaje.getAllRecipients());
+        }
+
+        private void cerrar() {
+            if (transporte == null) {
+                return;
+            }
+            try {
+                transporte.close();
+            } catch (MessagingException ex) {
+                log.debug("Error al cerrar la conexión SMTP: {}", ex.getMessage());
+            }
+            transporte = null;
+        }
+    }
+}
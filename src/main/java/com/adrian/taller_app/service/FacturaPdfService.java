@@ -3,6 +3,9 @@ package com.adrian.taller_app.service;
 import com.adrian.taller_app.domain.Cliente;
 import com.adrian.taller_app.domain.OrdenTrabajo;
 import com.adrian.taller_app.domain.Vehiculo;
+import com.adrian.taller_app.format.Formato;
+import io.micrometer.core.annotation.Timed;
+import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -15,23 +18,32 @@ import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.springframework.stereotype.Service;
 
 import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.Locale;
 import java.util.Optional;
 
 /**
  * Servicio para la generación de facturas en formato PDF.
  * Crea facturas profesionales con logo, datos del cliente y detalles de la orden de trabajo.
+ * <p>
+ * La parte común a todas las facturas (logo, cabecera y títulos) se dibuja una sola vez al crear
+ * el servicio y se guarda como plantilla PDF; cada factura parte de una copia de la plantilla y
+ * solo añade los datos de la orden. Así el logo se decodifica y comprime una única vez.
+ * <p>
+ * Cada factura tiene una versión de contenido ({@link #version(OrdenTrabajo)}): un hash de los
+ * datos que se dibujan, que sirve de ETag y de nombre en la caché de facturas en disco.
  */
 @Service
 public class FacturaPdfService {
@@ -39,46 +51,114 @@ public class FacturaPdfService {
     private static final PDFont FONT_REGULAR = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
     private static final PDFont FONT_BOLD = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
 
-    public byte[] generarFactura(OrdenTrabajo ot) {
+    private static final float MARGIN = 50f;
+    private static final float LOGO_HEIGHT = 64f;
+    // Lado máximo del logo incrustado: ~4 px por punto a la altura dibujada (calidad de impresión)
+    private static final int LOGO_MAX_PX = 256;
+    // Forma parte de la versión de cada factura: subirla al cambiar el diseño invalida las cacheadas
+    private static final String VERSION_PLANTILLA = "1";
+
+    private final byte[] plantilla;
+    // Posiciones de la plantilla donde empiezan los datos de cada orden
+    private final float yNumeroOt;
+    private final float yDatos;
+
+    public FacturaPdfService() {
         try (PDDocument doc = new PDDocument();
              ByteArrayOutputStream output = new ByteArrayOutputStream()) {
             PDPage page = new PDPage(PDRectangle.A4);
             doc.addPage(page);
 
             try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
-                float margin = 50f;
                 float pageWidth = page.getMediaBox().getWidth();
-                float y = page.getMediaBox().getHeight() - margin;
+                float y = page.getMediaBox().getHeight() - MARGIN;
 
                 Optional<PDImageXObject> logo = loadLogo(doc);
                 if (logo.isPresent()) {
-                    float logoHeight = 64f;
+                    float logoHeight = LOGO_HEIGHT;
                     float logoWidth = logo.get().getWidth() * (logoHeight / logo.get().getHeight());
                     float logoY = y - logoHeight;
-                    cs.drawImage(logo.get(), margin, logoY, logoWidth, logoHeight);
+                    cs.drawImage(logo.get(), MARGIN, logoY, logoWidth, logoHeight);
                     float brandSize = 22f;
                     float textY = y - (logoHeight / 2) + (brandSize / 2) - 8f;
-                    drawText(cs, FONT_BOLD, brandSize, "GarageGest", margin + logoWidth + 14f, textY);
+                    drawText(cs, FONT_BOLD, brandSize, "GarageGest", MARGIN + logoWidth + 14f, textY);
                     y = logoY - 18f;
                 } else {
-                    drawText(cs, FONT_BOLD, 24f, "GarageGest", margin, y - 10f);
+                    drawText(cs, FONT_BOLD, 24f, "GarageGest", MARGIN, y - 10f);
                     y -= 48f;
                 }
-                drawText(cs, FONT_BOLD, 14f, "Factura de Orden de Trabajo", margin, y);
+                drawText(cs, FONT_BOLD, 14f, "Factura de Orden de Trabajo", MARGIN, y);
                 y -= 18f;
-                drawText(cs, FONT_REGULAR, 12f, "OT #" + ot.getIdOt(), margin, y);
+                this.yNumeroOt = y;
 
                 y -= 20f;
-                drawLine(cs, margin, y, pageWidth - margin, y);
+                drawLine(cs, MARGIN, y, pageWidth - MARGIN, y);
                 y -= 18f;
 
-                Cliente cliente = ot.getVehiculo() != null ? ot.getVehiculo().getCliente() : null;
-                Vehiculo vehiculo = ot.getVehiculo();
-
-                drawText(cs, FONT_BOLD, 11f, "Cliente", margin, y);
+                drawText(cs, FONT_BOLD, 11f, "Cliente", MARGIN, y);
                 drawText(cs, FONT_BOLD, 11f, "Vehículo", pageWidth / 2, y);
                 y -= 14f;
+                this.yDatos = y;
+            }
+
+            doc.save(output);
+            this.plantilla = output.toByteArray();
+        } catch (IOException ex) {
+            throw new IllegalStateException("No se pudo preparar la plantilla de facturas PDF.", ex);
+        }
+    }
+
+    /**
+     * Versión del contenido de la factura de la orden: hash SHA-256 (128 bits en hexadecimal) de
+     * los campos que dibuja {@link #generarFactura(OrdenTrabajo)}. Cambia si y solo si cambia
+     * alguno de ellos (o la plantilla), así que no hace falta generar el PDF para compararla.
+     * La orden debe tener cargados el vehículo y su cliente.
+     */
+    public String version(OrdenTrabajo ot) {
+        Cliente cliente = ot.getVehiculo() != null ? ot.getVehiculo().getCliente() : null;
+        Vehiculo vehiculo = ot.getVehiculo();
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 no disponible.", ex);
+        }
+        for (Object campo : new Object[]{
+                VERSION_PLANTILLA, ot.getIdOt(),
+                cliente != null ? cliente.getNombre() : null,
+                cliente != null ? cliente.getEmail() : null,
+                cliente != null ? cliente.getTelefono() : null,
+                cliente != null ? cliente.getNif() : null,
+                vehiculo != null ? vehiculo.getMarca() : null,
+                vehiculo != null ? vehiculo.getModelo() : null,
+                vehiculo != null ? vehiculo.getMatricula() : null,
+                ot.getKmEntrada(), formatDate(ot.getFechaCreacion()), ot.getDescripcion(),
+                formatCurrency(ot.getSubtotal()), formatCurrency(ot.getIvaTotal()), formatCurrency(ot.getTotal())}) {
+            if (campo != null) {
+                digest.update(String.valueOf(campo).getBytes(StandardCharsets.UTF_8));
+            }
+            // Separador: distingue ("ab", "c") de ("a", "bc") y un campo nulo de uno vacío
+            digest.update(campo != null ? (byte) 0 : (byte) 1);
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    @Timed("taller.servicio")
+    public byte[] generarFactura(OrdenTrabajo ot) {
+        try (PDDocument doc = Loader.loadPDF(plantilla);
+             ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            PDPage page = doc.getPage(0);
+
+            try (PDPageContentStream cs = new PDPageContentStream(doc, page, PDPageContentStream.AppendMode.APPEND, true)) {
+                float margin = MARGIN;
+                float pageWidth = page.getMediaBox().getWidth();
+
+                drawText(cs, FONT_REGULAR, 12f, "OT #" + ot.getIdOt(), margin, yNumeroOt);
 
+                Cliente cliente = ot.getVehiculo() != null ? ot.getVehiculo().getCliente() : null;
+                Vehiculo vehiculo = ot.getVehiculo();
+
+                float y = yDatos;
                 y = drawWrappedText(cs, FONT_REGULAR, 11f,
                         cliente != null ? cliente.getNombre() : "-", margin, y, 240f, 14f);
                 y = drawWrappedText(cs, FONT_REGULAR, 11f,
@@ -125,20 +205,20 @@ public class FacturaPdfService {
         }
     }
 
-    private Optional<PDImageXObject> loadLogo(PDDocument doc) {
+    private static Optional<PDImageXObject> loadLogo(PDDocument doc) {
         String[] resources = {
                 "/static/images/logo-garagegest.png",
                 "/static/images/logo-garagegest.jpg",
                 "/static/images/logo-garagegest.jpeg"
         };
         for (String resource : resources) {
-            try (InputStream stream = getClass().getResourceAsStream(resource)) {
+            try (InputStream stream = FacturaPdfService.class.getResourceAsStream(resource)) {
                 if (stream == null) {
                     continue;
                 }
                 BufferedImage image = ImageIO.read(stream);
                 if (image != null) {
-                    return Optional.of(LosslessFactory.createFromImage(doc, image));
+                    return Optional.of(LosslessFactory.createFromImage(doc, reducir(image)));
                 }
             } catch (IOException | IllegalArgumentException ex) {
                 // ignore and try next
@@ -147,7 +227,30 @@ public class FacturaPdfService {
         return Optional.empty();
     }
 
-    private void drawText(PDPageContentStream cs, PDFont font, float size, String text, float x, float y) throws IOException {
+    /**
+     * Reduce el logo a {@value #LOGO_MAX_PX} px de lado como máximo: el original se dibuja a
+     * {@value #LOGO_HEIGHT} puntos y a tamaño completo solo engordaría cada factura.
+     */
+    private static BufferedImage reducir(BufferedImage image) {
+        double escala = (double) LOGO_MAX_PX / Math.max(image.getWidth(), image.getHeight());
+        if (escala >= 1) {
+            return image;
+        }
+        int width = Math.max(1, (int) Math.round(image.getWidth() * escala));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * escala));
+        BufferedImage reducida = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = reducida.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return reducida;
+    }
+
+    private static void drawText(PDPageContentStream cs, PDFont font, float size, String text, float x, float y) throws IOException {
         cs.beginText();
         cs.setFont(font, size);
         cs.newLineAtOffset(x, y);
@@ -155,7 +258,7 @@ public class FacturaPdfService {
         cs.endText();
     }
 
-    private void drawLine(PDPageContentStream cs, float x1, float y1, float x2, float y2) throws IOException {
+    private static void drawLine(PDPageContentStream cs, float x1, float y1, float x2, float y2) throws IOException {
         cs.moveTo(x1, y1);
         cs.lineTo(x2, y2);
         cs.stroke();
@@ -178,23 +281,34 @@ public class FacturaPdfService {
         return currentY;
     }
 
+    /**
+     * Parte el texto en líneas que caben en el ancho dado. Cada palabra se mide una sola vez y el
+     * ancho de la línea se acumula (el ancho de una cadena es la suma de sus caracteres).
+     */
     private List<String> wrapText(PDFont font, float size, String text, float width) throws IOException {
         List<String> lines = new ArrayList<>();
         if (text == null || text.isBlank()) {
             lines.add("-");
             return lines;
         }
+        float maxWidth = width * 1000 / size;
+        float spaceWidth = font.getStringWidth(" ");
         String[] words = text.split("\\s+");
         StringBuilder line = new StringBuilder();
+        float lineWidth = 0f;
         for (String word : words) {
-            String testLine = line.length() == 0 ? word : line + " " + word;
-            float textWidth = font.getStringWidth(testLine) / 1000 * size;
-            if (textWidth > width && line.length() > 0) {
+            float wordWidth = font.getStringWidth(word);
+            if (line.length() > 0 && lineWidth + spaceWidth + wordWidth > maxWidth) {
                 lines.add(line.toString());
-                line = new StringBuilder(word);
-            } else {
-                line = new StringBuilder(testLine);
+                line.setLength(0);
+                lineWidth = 0f;
+            }
+            if (line.length() > 0) {
+                line.append(' ');
+                lineWidth += spaceWidth;
             }
+            line.append(word);
+            lineWidth += wordWidth;
         }
         if (line.length() > 0) {
             lines.add(line.toString());
@@ -203,20 +317,14 @@ public class FacturaPdfService {
     }
 
     private String formatCurrency(BigDecimal value) {
-        BigDecimal safe = value != null ? value : BigDecimal.ZERO;
-        DecimalFormatSymbols symbols = new DecimalFormatSymbols(new Locale("es", "ES"));
-        symbols.setDecimalSeparator(',');
-        symbols.setGroupingSeparator('.');
-        DecimalFormat df = new DecimalFormat("#,##0.00", symbols);
-        return df.format(safe) + " €";
+        return Formato.euros(value != null ? value : BigDecimal.ZERO);
     }
 
     private String formatDate(LocalDateTime value) {
         if (value == null) {
             return "-";
         }
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-        return value.format(formatter);
+        return Formato.fechaHora(value);
     }
 
     private String vehiculoLabel(Vehiculo vehiculo) {
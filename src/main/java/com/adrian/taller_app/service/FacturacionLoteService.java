@@ -0,0 +1,191 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.EstadoOrdenTrabajo;
+import com.adrian.taller_app.domain.OrdenTrabajo;
+import com.adrian.taller_app.repository.OrdenTrabajoRepository;
+import com.adrian.taller_app.web.ProgresoFacturacion;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Servicio de facturación en lote: genera las facturas PDF de las órdenes de un periodo y las
+ * escribe en un ZIP directamente sobre la respuesta.
+ * <p>
+ * Las órdenes se leen con un cursor de solo avance y cada PDF se genera en un pool de hilos
+ * compartido (uno por núcleo salvo que se indique otro valor). Cada lote mantiene como mucho
+ * {@link #enVueloPorLote} facturas pendientes de escribir, de modo que la memoria usada no
+ * depende del número de órdenes; las facturas se escriben en el ZIP en el orden de lectura.
+ * El avance de cada lote se puede consultar con {@link #obtenerProgreso(String)} mientras dura
+ * la descarga y hasta una hora después.
+ */
+@Service
+@Transactional(readOnly = true)
+public class FacturacionLoteService {
+
+    private static final Logger log = LoggerFactory.getLogger(FacturacionLoteService.class);
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int INTERVALO_LOG = 100;
+    private static final Pattern FORMATO_LOTE = Pattern.compile("[0-9a-fA-F-]{36}");
+
+    private final OrdenTrabajoRepository ordenTrabajoRepository;
+    private final FacturaPdfService facturaPdfService;
+    private final EntityManager entityManager;
+    private final ExecutorService executor;
+    private final int enVueloPorLote;
+
+    private final Cache<String, ProgresoFacturacion> progresos = Caffeine.newBuilder()
+            .maximumSize(100)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    public FacturacionLoteService(OrdenTrabajoRepository ordenTrabajoRepository,
+                                  FacturaPdfService facturaPdfService,
+                                  EntityManager entityManager,
+                                  @Value("${app.facturas-lote.hilos:0}") int hilos) {
+        this.ordenTrabajoRepository = ordenTrabajoRepository;
+        this.facturaPdfService = facturaPdfService;
+        this.entityManager = entityManager;
+        int tamano = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        // Cola acotada: si varios lotes la llenan, el hilo del propio lote genera la factura y
+        // deja de leer órdenes hasta terminarla
+        this.executor = new ThreadPoolExecutor(tamano, tamano, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(tamano * 4),
+                new CustomizableThreadFactory("facturas-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.enVueloPorLote = tamano * 2;
+    }
+
+    /**
+     * Registra un lote nuevo. Si el cliente propone un identificador válido y libre (para poder
+     * consultar el avance mientras descarga) se usa ese; si no, se genera uno.
+     */
+    public ProgresoFacturacion iniciar(String lote) {
+        String id = lote != null && FORMATO_LOTE.matcher(lote).matches() && progresos.getIfPresent(lote) == null
+                ? lote
+                : UUID.randomUUID().toString();
+        ProgresoFacturacion progreso = new ProgresoFacturacion(id);
+        progresos.put(id, progreso);
+        return progreso;
+    }
+
+    /**
+     * Avance del lote, o null si no existe o ya ha caducado.
+     */
+    public ProgresoFacturacion obtenerProgreso(String lote) {
+        return lote != null ? progresos.getIfPresent(lote) : null;
+    }
+
+    /**
+     * Escribe en un ZIP las facturas de las órdenes creadas entre ambas fechas (incluidas) y,
+     * si se indica, en el estado dado.
+     */
+    public void generarZip(ProgresoFacturacion progreso,
+                           LocalDate desde,
+                           LocalDate hasta,
+                           EstadoOrdenTrabajo estado,
+                           OutputStream output) throws IOException {
+        long inicio = System.currentTimeMillis();
+        progreso.setTotal(ordenTrabajoRepository.countFacturables(
+                desde.atStartOfDay(), hasta.plusDays(1).atStartOfDay(), estado));
+
+        ZipOutputStream zip = new ZipOutputStream(output);
+        // Los PDF ya van comprimidos: la compresión mínima basta y no frena al hilo que escribe
+        zip.setLevel(Deflater.BEST_SPEED);
+        Deque<FacturaPendiente> pendientes = new ArrayDeque<>(enVueloPorLote);
+        try (Stream<OrdenTrabajo> ordenes = ordenTrabajoRepository.streamFacturables(
+                desde.atStartOfDay(), hasta.plusDays(1).atStartOfDay(), estado)) {
+            Iterator<OrdenTrabajo> iterator = ordenes.iterator();
+            int leidas = 0;
+            while (iterator.hasNext()) {
+                // La orden ya trae vehículo y cliente (entity graph); el hilo del pool solo la lee
+                OrdenTrabajo ordenTrabajo = iterator.next();
+                pendientes.add(new FacturaPendiente(ordenTrabajo.getIdOt(),
+                        executor.submit(() -> facturaPdfService.generarFactura(ordenTrabajo))));
+                if (pendientes.size() >= enVueloPorLote) {
+                    escribir(zip, pendientes.poll(), progreso);
+                }
+                if (++leidas % CHUNK_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+            while (!pendientes.isEmpty()) {
+                escribir(zip, pendientes.poll(), progreso);
+            }
+            zip.finish();
+            zip.flush();
+        } catch (IOException | RuntimeException ex) {
+            pendientes.forEach(pendiente -> pendiente.pdf().cancel(true));
+            progreso.setError("La facturación se interrumpió tras " + progreso.getGeneradas() + " facturas.");
+            progreso.setTerminado(true);
+            throw ex;
+        }
+        progreso.setTerminado(true);
+        log.info("Facturación en lote {}: {} facturas en {} ms",
+                progreso.getLote(), progreso.getGeneradas(), System.currentTimeMillis() - inicio);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    private void escribir(ZipOutputStream zip, FacturaPendiente pendiente, ProgresoFacturacion progreso) throws IOException {
+        byte[] pdf = esperar(pendiente);
+        zip.putNextEntry(new ZipEntry("factura-ot-" + pendiente.idOt() + ".pdf"));
+        zip.write(pdf);
+        zip.closeEntry();
+        // Envía al cliente lo escrito: la descarga avanza al ritmo de la generación
+        zip.flush();
+        long generadas = progreso.getGeneradas() + 1;
+        progreso.setGeneradas(generadas);
+        if (generadas % INTERVALO_LOG == 0) {
+            log.info("Facturación en lote {}: {} de {} facturas", progreso.getLote(), generadas, progreso.getTotal());
+        }
+    }
+
+    private static byte[] esperar(FacturaPendiente pendiente) {
+        try {
+            return pendiente.pdf().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Se interrumpió la facturación en lote.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("No se pudo generar la factura de la OT #" + pendiente.idOt() + ".", ex.getCause());
+        }
+    }
+
+    private record FacturaPendiente(Long idOt, Future<byte[]> pdf) {
+    }
+}
@@ -0,0 +1,553 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.Cliente;
+import com.adrian.taller_app.domain.Vehiculo;
+import com.adrian.taller_app.validation.Formatos;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio de importación masiva de clientes y vehículos desde CSV.
+ * <p>
+ * El fichero se lee en streaming por bloques de {@link #BLOQUE} filas. Las filas de cada bloque
+ * se validan en paralelo con las mismas restricciones que los formularios (NIF, matrícula,
+ * teléfono, email, longitudes); los duplicados se comprueban con una consulta por bloque contra
+ * BD y con las claves ya leídas del propio fichero, y las filas válidas se insertan con un único
+ * batch JDBC por bloque (con {@code rewriteBatchedStatements=true} el driver de MySQL lo envía
+ * como INSERT multifila; los ids IDENTITY impiden que Hibernate agrupe los INSERT).
+ * <p>
+ * Cada bloque se confirma en su propia transacción y el informe de errores (una línea por fila
+ * rechazada y un resumen final) se escribe sobre la respuesta a medida que avanza la importación.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ImportacionCsvService {
+
+    static final int BLOQUE = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionCsvService.class);
+
+    private static final String INSERT_CLIENTE =
+            "INSERT INTO CLIENTE (nombre, telefono, email, nif) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_VEHICULO =
+            "INSERT INTO VEHICULO (id_cliente, matricula, marca, modelo, anio, km_actual) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final SugerenciasVehiculoService sugerenciasVehiculoService;
+    private final ConteoAproximadoService conteoAproximadoService;
+
+    public ImportacionCsvService(NamedParameterJdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 Validator validator,
+                                 SugerenciasVehiculoService sugerenciasVehiculoService,
+                                 ConteoAproximadoService conteoAproximadoService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.sugerenciasVehiculoService = sugerenciasVehiculoService;
+        this.conteoAproximadoService = conteoAproximadoService;
+    }
+
+    /**
+     * Importa clientes con las columnas Nombre, Teléfono, Email y NIF (la primera fila es la
+     * cabecera; el resto de columnas se ignora, así que admite un CSV exportado).
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_CLIENTES)
+    public void importarClientes(InputStream input, OutputStream output) throws IOException {
+        importar("clientes", input, output, new Importador<Cliente>() {
+
+            @Override
+            Cliente leer(List<String> campos) {
+                Cliente cliente = new Cliente();
+                cliente.setNombre(clean(campo(campos, 0)));
+                cliente.setTelefono(clean(campo(campos, 1)));
+                cliente.setEmail(clean(campo(campos, 2)));
+                cliente.setNif(Formatos.normalizarNif(clean(campo(campos, 3))));
+                return cliente;
+            }
+
+            @Override
+            String clave(Cliente cliente) {
+                return cliente.getNif();
+            }
+
+            @Override
+            String duplicado(String nif) {
+                return "Ya existe un cliente con el NIF/NIE " + nif + ".";
+            }
+
+            @Override
+            Set<String> existentes(Set<String> nifs) {
+                return new HashSet<>(jdbcTemplate.queryForList(
+                        "SELECT UPPER(nif) FROM CLIENTE WHERE nif IN (:nifs)",
+                        new MapSqlParameterSource("nifs", nifs), String.class));
+            }
+
+            @Override
+            void insertar(List<Fila<Cliente>> filas) {
+                jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_CLIENTE, filas.stream()
+                        .map(fila -> new Object[]{fila.entidad().getNombre(), fila.entidad().getTelefono(),
+                                fila.entidad().getEmail(), fila.entidad().getNif()})
+                        .toList());
+            }
+        });
+        conteoAproximadoService.invalidar(ConteoAproximadoService.CLIENTES);
+    }
+
+    /**
+     * Importa vehículos con las columnas Matrícula, Marca, Modelo, Año, Kilómetros Actuales y
+     * NIF del cliente (la primera fila es la cabecera). El cliente debe existir previamente.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_VEHICULOS)
+    public void importarVehiculos(InputStream input, OutputStream output) throws IOException {
+        importar("vehículos", input, output, new Importador<Vehiculo>() {
+
+            @Override
+            Vehiculo leer(List<String> campos) {
+                Vehiculo vehiculo = new Vehiculo();
+                vehiculo.setMatricula(Formatos.normalizarMatricula(clean(campo(campos, 0))));
+                vehiculo.setMarca(clean(campo(campos, 1)));
+                vehiculo.setModelo(clean(campo(campos, 2)));
+                vehiculo.setAnio(entero(campo(campos, 3), "El año no es un número válido."));
+                vehiculo.setKmActual(entero(campo(campos, 4), "Los kilómetros no son un número válido."));
+                String nif = clean(campo(campos, 5));
+                if (nif == null) {
+                    throw new IllegalArgumentException("El NIF del cliente es obligatorio.");
+                }
+                // Solo el NIF; el cliente se resuelve por bloque antes de insertar
+                Cliente cliente = new Cliente();
+                cliente.setNif(Formatos.normalizarNif(nif));
+                vehiculo.setCliente(cliente);
+                return vehiculo;
+            }
+
+            @Override
+            String clave(Vehiculo vehiculo) {
+                return vehiculo.getMatricula();
+            }
+
+            @Override
+            String duplicado(String matricula) {
+                return "La matrícula " + matricula + " ya existe.";
+            }
+
+            @Override
+            Set<String> existentes(Set<String> matriculas) {
+                return new HashSet<>(jdbcTemplate.queryForList(
+                        "SELECT UPPER(matricula) FROM VEHICULO WHERE matricula IN (:matriculas)",
+                        new MapSqlParameterSource("matriculas", matriculas), String.class));
+            }
+
+            @Override
+            List<Fila<Vehiculo>> resolver(List<Fila<Vehiculo>> filas) {
+                Set<String> nifs = filas.stream()
+                        .map(fila -> fila.entidad().getCliente().getNif())
+                        .collect(Collectors.toSet());
+                Map<String, Cliente> clientes = new HashMap<>();
+                jdbcTemplate.query("SELECT id_cliente, nif, nombre FROM CLIENTE WHERE nif IN (:nifs)",
+                        new MapSqlParameterSource("nifs", nifs), rs -> {
+                            Cliente cliente = new Cliente();
+                            cliente.setIdCliente(rs.getLong("id_cliente"));
+                            cliente.setNif(rs.getString("nif").toUpperCase());
+                            cliente.setNombre(rs.getString("nombre"));
+                            clientes.put(cliente.getNif(), cliente);
+                        });
+                return filas.stream()
+                        .map(fila -> {
+                            Cliente cliente = clientes.get(fila.entidad().getCliente().getNif());
+                            if (cliente == null) {
+                                return fila.conError("No existe ningún cliente con el NIF/NIE "
+                                        + fila.entidad().getCliente().getNif() + ".");
+                            }
+                            fila.entidad().setCliente(cliente);
+                            return fila;
+                        })
+                        .toList();
+            }
+
+            @Override
+            void insertar(List<Fila<Vehiculo>> filas) {
+                jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_VEHICULO, filas.stream()
+                        .map(fila -> {
+                            Vehiculo vehiculo = fila.entidad();
+                            return new Object[]{vehiculo.getCliente().getIdCliente(), vehiculo.getMatricula(),
+                                    vehiculo.getMarca(), vehiculo.getModelo(), vehiculo.getAnio(), vehiculo.getKmActual()};
+                        })
+                        .toList());
+            }
+
+            @Override
+            void insertados(List<Fila<Vehiculo>> filas) {
+                // Los ids IDENTITY no vuelven del batch: se leen por matrícula para el selector de vehículos
+                Map<String, Vehiculo> porMatricula = filas.stream()
+                        .map(Fila::entidad)
+                        .collect(Collectors.toMap(Vehiculo::getMatricula, Function.identity()));
+                jdbcTemplate.query("SELECT id_vehiculo, matricula FROM VEHICULO WHERE matricula IN (:matriculas)",
+                        new MapSqlParameterSource("matriculas", porMatricula.keySet()), rs -> {
+                            Vehiculo vehiculo = porMatricula.get(rs.getString("matricula").toUpperCase());
+                            if (vehiculo != null) {
+                                vehiculo.setIdVehiculo(rs.getLong("id_vehiculo"));
+                            }
+                        });
+                sugerenciasVehiculoService.registrar(porMatricula.values().stream()
+                        .filter(vehiculo -> vehiculo.getIdVehiculo() != null)
+                        .toList());
+            }
+        });
+        conteoAproximadoService.invalidar(ConteoAproximadoService.VEHICULOS);
+    }
+
+    private <T> void importar(String tipo, InputStream input, OutputStream output, Importador<T> importador) throws IOException {
+        long inicio = System.currentTimeMillis();
+        LectorCsv lector = new LectorCsv(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+        Writer informe = openWriter(output);
+        informe.write("Fila,Error\n");
+
+        if (lector.leer() == null) {
+            informe.write("Resumen," + escapeCsv("El fichero está vacío.") + "\n");
+            informe.flush();
+            return;
+        }
+        // Claves ya leídas del fichero: un duplicado dentro del propio CSV también se rechaza
+        Set<String> vistas = new HashSet<>();
+        long importadas = 0;
+        long rechazadas = 0;
+        List<Fila<T>> bloque;
+        while (!(bloque = leerBloque(lector, importador)).isEmpty()) {
+            List<Fila<T>> validadas = bloque.parallelStream()
+                    .map(fila -> fila.error() != null ? fila : validar(fila))
+                    .toList();
+            List<Fila<T>> resultado = guardarBloque(validadas, vistas, importador);
+            for (Fila<T> fila : resultado) {
+                if (fila.error() == null) {
+                    importadas++;
+                } else {
+                    rechazadas++;
+                    informe.write(fila.numero() + "," + escapeCsv(fila.error()) + "\n");
+                }
+            }
+            // Envía al cliente el informe del bloque ya procesado
+            informe.flush();
+        }
+        informe.write("Resumen," + escapeCsv(importadas + " filas importadas, " + rechazadas + " con errores") + "\n");
+        informe.flush();
+        log.info("Importación de {}: {} filas importadas y {} rechazadas en {} ms",
+                tipo, importadas, rechazadas, System.currentTimeMillis() - inicio);
+    }
+
+    private <T> List<Fila<T>> leerBloque(LectorCsv lector, Importador<T> importador) throws IOException {
+        List<Fila<T>> bloque = new ArrayList<>(BLOQUE);
+        List<String> campos;
+        while (bloque.size() < BLOQUE && (campos = lector.leer()) != null) {
+            if (campos.stream().allMatch(String::isBlank)) {
+                continue;
+            }
+            int numero = lector.getFilaInicio();
+            try {
+                bloque.add(new Fila<>(numero, importador.leer(campos), null));
+            } catch (IllegalArgumentException ex) {
+                bloque.add(new Fila<>(numero, null, ex.getMessage()));
+            }
+        }
+        return bloque;
+    }
+
+    private <T> Fila<T> validar(Fila<T> fila) {
+        Set<ConstraintViolation<T>> violaciones = validator.validate(fila.entidad());
+        if (violaciones.isEmpty()) {
+            return fila;
+        }
+        return fila.conError(violaciones.stream()
+                .sorted(Comparator.comparing(violacion -> violacion.getPropertyPath().toString()))
+                .map(violacion -> violacion.getPropertyPath() + ": " + violacion.getMessage())
+                .collect(Collectors.joining("; ")));
+    }
+
+    /**
+     * Comprueba los duplicados del bloque e inserta las filas válidas en una transacción.
+     * Si otra escritura inserta la misma clave entre la comprobación y el batch, el bloque se
+     * deshace y se reintenta fila a fila para rechazar solo las que chocan.
+     */
+    private <T> List<Fila<T>> guardarBloque(List<Fila<T>> filas, Set<String> vistas, Importador<T> importador) {
+        Set<String> claves = filas.stream()
+                .filter(fila -> fila.error() == null && importador.clave(fila) != null)
+                .map(importador::clave)
+                .collect(Collectors.toSet());
+        Set<String> existentes = claves.isEmpty() ? Set.of() : importador.existentes(claves);
+
+        Set<String> enBloque = new HashSet<>();
+        List<Fila<T>> comprobadas = new ArrayList<>(filas.size());
+        for (Fila<T> fila : filas) {
+            String clave = fila.error() == null ? importador.clave(fila) : null;
+            if (clave != null && (existentes.contains(clave) || vistas.contains(clave) || !enBloque.add(clave))) {
+                comprobadas.add(fila.conError(importador.duplicado(clave)));
+            } else {
+                comprobadas.add(fila);
+            }
+        }
+        List<Fila<T>> resultado = comprobadas.stream().anyMatch(fila -> fila.error() == null)
+                ? importador.resolver(comprobadas)
+                : comprobadas;
+
+        List<Fila<T>> validas = resultado.stream().filter(fila -> fila.error() == null).toList();
+        if (!validas.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    importador.insertar(validas);
+                    importador.insertados(validas);
+                });
+            } catch (DataIntegrityViolationException ex) {
+                List<Fila<T>> pendientes = resultado;
+                resultado = transactionTemplate.execute(status -> insertarFilaAFila(pendientes, importador));
+            }
+        }
+        // Solo reservan su clave las filas guardadas: una fila rechazada no invalida las siguientes
+        resultado.stream()
+                .filter(fila -> fila.error() == null && importador.clave(fila) != null)
+                .forEach(fila -> vistas.add(importador.clave(fila)));
+        return resultado;
+    }
+
+    private <T> List<Fila<T>> insertarFilaAFila(List<Fila<T>> filas, Importador<T> importador) {
+        List<Fila<T>> resultado = new ArrayList<>(filas.size());
+        List<Fila<T>> insertadas = new ArrayList<>();
+        for (Fila<T> fila : filas) {
+            if (fila.error() != null) {
+                resultado.add(fila);
+                continue;
+            }
+            try {
+                importador.insertar(List.of(fila));
+                insertadas.add(fila);
+                resultado.add(fila);
+            } catch (DataIntegrityViolationException ex) {
+                String clave = importador.clave(fila);
+                resultado.add(fila.conError(clave != null ? importador.duplicado(clave) : "No se pudo guardar la fila."));
+            }
+        }
+        if (!insertadas.isEmpty()) {
+            importador.insertados(insertadas);
+        }
+        return resultado;
+    }
+
+    /**
+     * Abre un writer UTF-8 sobre la salida, precedido del BOM para que Excel detecte la codificación.
+     */
+    private Writer openWriter(OutputStream output) throws IOException {
+        output.write(0xEF);
+        output.write(0xBB);
+        output.write(0xBF);
+        return new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+    }
+
+    private static String campo(List<String> campos, int indice) {
+        return indice < campos.size() ? campos.get(indice) : null;
+    }
+
+    private static Integer entero(String value, String error) {
+        String limpio = clean(value);
+        if (limpio == null) {
+            return null;
+        }
+        try {
+            // Admite separador de miles ("125.000")
+            return Integer.valueOf(limpio.replace(".", ""));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    private static String clean(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /**
+     * Fila del CSV: número de línea en el fichero y entidad leída, o el motivo del rechazo.
+     */
+    private record Fila<T>(int numero, T entidad, String error) {
+
+        Fila<T> conError(String mensaje) {
+            return new Fila<>(numero, entidad, mensaje);
+        }
+    }
+
+    /**
+     * Lo que cambia entre importar clientes y vehículos.
+     */
+    private abstract static class Importador<T> {
+
+        /**
+         * Construye la entidad a partir de los campos de la fila; lanza
+         * IllegalArgumentException si un campo no se puede convertir.
+         */
+        abstract T leer(List<String> campos);
+
+        /**
+         * Clave única de la entidad (NIF o matrícula), o null si no tiene.
+         */
+        abstract String clave(T entidad);
+
+        abstract String duplicado(String clave);
+
+        /**
+         * De las claves dadas, las que ya existen en BD (en mayúsculas).
+         */
+        abstract Set<String> existentes(Set<String> claves);
+
+        abstract void insertar(List<Fila<T>> filas);
+
+        /**
+         * Completa las filas válidas con datos de BD antes de insertarlas.
+         */
+        List<Fila<T>> resolver(List<Fila<T>> filas) {
+            return filas;
+        }
+
+        /**
+         * Se llama dentro de la transacción del bloque con las filas ya insertadas.
+         */
+        void insertados(List<Fila<T>> filas) {
+        }
+
+        String clave(Fila<T> fila) {
+            return clave(fila.entidad());
+        }
+    }
+
+    /**
+     * Lector CSV en streaming (RFC 4180): campos entre comillas con comas, comillas dobladas y
+     * saltos de línea. El separador se deduce de la cabecera: coma, o punto y coma si la cabecera
+     * no tiene comas (CSV guardado con Excel en español).
+     */
+    static final class LectorCsv {
+
+        private final Reader reader;
+        private char separador = ',';
+        private boolean primera = true;
+        private int linea = 1;
+        private int filaInicio;
+        private int pendiente = -2;
+
+        LectorCsv(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Línea del fichero en la que empieza la última fila leída.
+         */
+        int getFilaInicio() {
+            return filaInicio;
+        }
+
+        List<String> leer() throws IOException {
+            int c = siguiente();
+            if (c == -1) {
+                return null;
+            }
+            if (primera && c == '\uFEFF') {
+                c = siguiente();
+            }
+            filaInicio = linea;
+            List<String> campos = new ArrayList<>();
+            StringBuilder campo = new StringBuilder();
+            boolean entreComillas = false;
+            while (c != -1) {
+                if (entreComillas) {
+                    if (c == '"') {
+                        int d = siguiente();
+                        if (d == '"') {
+                            campo.append('"');
+                        } else {
+                            entreComillas = false;
+                            c = d;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            linea++;
+                        }
+                        campo.append((char) c);
+                    }
+                } else if (c == '"' && campo.isEmpty()) {
+                    entreComillas = true;
+                } else if (c == '\r' || c == '\n') {
+                    if (c == '\r') {
+                        int d = siguiente();
+                        if (d != '\n') {
+                            pendiente = d;
+                        }
+                    }
+                    linea++;
+                    break;
+                } else if (c == separador || (primera && campos.isEmpty() && c == ';')) {
+                    // El primer separador de la cabecera decide el del resto del fichero
+                    separador = (char) c;
+                    campos.add(campo.toString());
+                    campo.setLength(0);
+                } else {
+                    campo.append((char) c);
+                }
+                c = siguiente();
+            }
+            campos.add(campo.toString());
+            primera = false;
+            return campos;
+        }
+
+        private int siguiente() throws IOException {
+            if (pendiente != -2) {
+                int c = pendiente;
+                pendiente = -2;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+}
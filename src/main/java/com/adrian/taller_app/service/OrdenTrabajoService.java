@@ -1,26 +1,45 @@
 package com.adrian.taller_app.service;
 
 import com.adrian.taller_app.domain.EstadoOrdenTrabajo;
+import com.adrian.taller_app.domain.ModoRecordatorio;
 import com.adrian.taller_app.domain.OrdenTrabajo;
 import com.adrian.taller_app.domain.Usuario;
 import com.adrian.taller_app.domain.Vehiculo;
 import com.adrian.taller_app.repository.OrdenTrabajoRepository;
+import com.adrian.taller_app.repository.RecordatorioRepository;
+import com.adrian.taller_app.repository.ResumenMensualOtRepository;
 import com.adrian.taller_app.repository.UsuarioRepository;
 import com.adrian.taller_app.repository.VehiculoRepository;
+import com.adrian.taller_app.service.ResumenMensualService.Aportacion;
 import com.adrian.taller_app.web.EstadisticasMes;
 import com.adrian.taller_app.web.IngresosMes;
+import com.adrian.taller_app.web.OrdenTrabajoFila;
+import com.adrian.taller_app.web.PaginaCursor;
 import com.adrian.taller_app.web.ResumenFacturacion;
+import com.adrian.taller_app.web.TotalesFacturacion;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
-import org.springframework.data.domain.Page;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Servicio para la gestión de órdenes de trabajo.
@@ -28,57 +47,142 @@ import java.util.List;
  */
 @Service
 @Transactional(readOnly = true)
+@Timed("taller.servicio")
 public class OrdenTrabajoService {
 
+    private static final List<EstadoOrdenTrabajo> ESTADOS_PENDIENTES = List.of(
+        EstadoOrdenTrabajo.ABIERTA,
+        EstadoOrdenTrabajo.EN_CURSO,
+        EstadoOrdenTrabajo.TERMINADA
+    );
+
     private final OrdenTrabajoRepository ordenTrabajoRepository;
     private final VehiculoRepository vehiculoRepository;
     private final UsuarioRepository usuarioRepository;
+    private final ResumenMensualOtRepository resumenMensualOtRepository;
+    private final RecordatorioRepository recordatorioRepository;
+    private final ResumenMensualService resumenMensualService;
+    private final BusquedaOrdenesService busquedaOrdenesService;
+    private final SugerenciasVehiculoService sugerenciasVehiculoService;
+    private final UrgenciaRecordatoriosService urgenciaRecordatoriosService;
+    private final ConteoAproximadoService conteoAproximadoService;
 
     public OrdenTrabajoService(OrdenTrabajoRepository ordenTrabajoRepository,
                                VehiculoRepository vehiculoRepository,
-                               UsuarioRepository usuarioRepository) {
+                               UsuarioRepository usuarioRepository,
+                               ResumenMensualOtRepository resumenMensualOtRepository,
+                               RecordatorioRepository recordatorioRepository,
+                               ResumenMensualService resumenMensualService,
+                               BusquedaOrdenesService busquedaOrdenesService,
+                               SugerenciasVehiculoService sugerenciasVehiculoService,
+                               UrgenciaRecordatoriosService urgenciaRecordatoriosService,
+                               ConteoAproximadoService conteoAproximadoService) {
         this.ordenTrabajoRepository = ordenTrabajoRepository;
         this.vehiculoRepository = vehiculoRepository;
         this.usuarioRepository = usuarioRepository;
+        this.resumenMensualOtRepository = resumenMensualOtRepository;
+        this.recordatorioRepository = recordatorioRepository;
+        this.resumenMensualService = resumenMensualService;
+        this.busquedaOrdenesService = busquedaOrdenesService;
+        this.sugerenciasVehiculoService = sugerenciasVehiculoService;
+        this.urgenciaRecordatoriosService = urgenciaRecordatoriosService;
+        this.conteoAproximadoService = conteoAproximadoService;
     }
 
-    public List<OrdenTrabajo> findAll() {
-        return ordenTrabajoRepository.findAllByOrderByFechaCreacionDesc();
+    public List<OrdenTrabajoFila> findAllByVehiculo(Long idVehiculo) {
+        return ordenTrabajoRepository.findFilasByVehiculo(idVehiculo);
     }
 
-    public List<OrdenTrabajo> findAllByVehiculo(Long idVehiculo) {
-        return ordenTrabajoRepository.findAllByVehiculo_IdVehiculoOrderByFechaCreacionDesc(idVehiculo);
+    public List<OrdenTrabajoFila> findAllByCliente(Long idCliente) {
+        return ordenTrabajoRepository.findFilasByCliente(idCliente);
     }
 
-    public List<OrdenTrabajo> findAllByCliente(Long idCliente) {
-        return ordenTrabajoRepository.findAllByVehiculo_Cliente_IdClienteOrderByFechaCreacionDesc(idCliente);
-    }
+    /**
+     * Obtiene una página de órdenes ordenadas por fecha de creación descendente usando un cursor
+     * sobre (fecha_creacion, id_ot). El coste es el mismo para cualquier página porque no se usa OFFSET.
+     *
+     * @param estado estado por el que filtrar, o null para todas
+     * @param cursor cursor opaco recibido de una página previa, o null para la primera página
+     * @param haciaAtras true para obtener la página anterior al cursor, false para la siguiente
+     * @param size número de órdenes por página
+     * @return la página con los cursores para navegar y el total aproximado
+     */
+    public PaginaCursor<OrdenTrabajoFila> findPagina(EstadoOrdenTrabajo estado, String cursor, boolean haciaAtras, int size) {
+        ClaveCursor clave = ClaveCursor.decodificar(cursor);
+        // Se pide una fila de más para saber si hay otra página en el mismo sentido
+        Pageable limite = PageRequest.of(0, size + 1);
+        List<OrdenTrabajoFila> filas;
+        if (clave == null) {
+            filas = estado == null
+                    ? ordenTrabajoRepository.findPrimeraPagina(limite)
+                    : ordenTrabajoRepository.findPrimeraPaginaPorEstado(estado, limite);
+        } else if (haciaAtras) {
+            filas = estado == null
+                    ? ordenTrabajoRepository.findPaginaAnterior(clave.fecha(), clave.id(), limite)
+                    : ordenTrabajoRepository.findPaginaAnteriorPorEstado(estado, clave.fecha(), clave.id(), limite);
+        } else {
+            filas = estado == null
+                    ? ordenTrabajoRepository.findPaginaSiguiente(clave.fecha(), clave.id(), limite)
+                    : ordenTrabajoRepository.findPaginaSiguientePorEstado(estado, clave.fecha(), clave.id(), limite);
+        }
 
-    public List<OrdenTrabajo> findAllByEstado(EstadoOrdenTrabajo estado) {
-        if (estado == null) {
-            return findAll();
+        boolean hayMas = filas.size() > size;
+        List<OrdenTrabajoFila> contenido = new ArrayList<>(hayMas ? filas.subList(0, size) : filas);
+        boolean tieneAnterior;
+        boolean tieneSiguiente;
+        if (clave != null && haciaAtras) {
+            // La consulta hacia atrás devuelve las filas en orden ascendente
+            Collections.reverse(contenido);
+            tieneAnterior = hayMas;
+            tieneSiguiente = true;
+        } else {
+            tieneAnterior = clave != null;
+            tieneSiguiente = hayMas;
         }
-        return ordenTrabajoRepository.findAllByEstadoOrderByFechaCreacionDesc(estado);
+
+        String cursorAnterior = tieneAnterior && !contenido.isEmpty()
+                ? ClaveCursor.de(contenido.get(0)).codificar() : null;
+        String cursorSiguiente = tieneSiguiente && !contenido.isEmpty()
+                ? ClaveCursor.de(contenido.get(contenido.size() - 1)).codificar() : null;
+        return new PaginaCursor<>(contenido, cursorAnterior, cursorSiguiente, contarAproximado(estado));
     }
 
-    public Page<OrdenTrabajo> findAllByEstado(EstadoOrdenTrabajo estado, Pageable pageable) {
+    /**
+     * Devuelve el número de órdenes (por estado o en total) de la caché de conteos aproximados,
+     * para no lanzar un COUNT(*) en cada navegación. Las escrituras de este servicio la invalidan.
+     */
+    private long contarAproximado(EstadoOrdenTrabajo estado) {
         if (estado == null) {
-            return ordenTrabajoRepository.findAllByOrderByFechaCreacionDesc(pageable);
+            return conteoAproximadoService.contar(ConteoAproximadoService.ORDENES, ordenTrabajoRepository::count);
         }
-        return ordenTrabajoRepository.findAllByEstadoOrderByFechaCreacionDesc(estado, pageable);
+        return conteoAproximadoService.contar(ConteoAproximadoService.ORDENES + ":" + estado.name(),
+                () -> ordenTrabajoRepository.countByEstado(estado));
     }
 
+    /**
+     * Orden sin sus relaciones: fuera de la transacción solo son accesibles los ids del vehículo
+     * y del usuario asignado.
+     */
     public OrdenTrabajo findById(Long idOt) {
         return ordenTrabajoRepository.findById(idOt)
                 .orElseThrow(() -> new EntityNotFoundException("Orden de trabajo no encontrada"));
     }
 
+    /**
+     * Orden con el vehículo, su cliente y el usuario asignado ({@link OrdenTrabajo#GRAFO_CON_RELACIONES}),
+     * para el formulario de edición y la factura PDF.
+     */
     public OrdenTrabajo findByIdWithRelations(Long idOt) {
         return ordenTrabajoRepository.findByIdOt(idOt)
                 .orElseThrow(() -> new EntityNotFoundException("Orden de trabajo no encontrada"));
     }
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_ORDENES_ABIERTAS),
+            @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_FACTURACION),
+            @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_RECORDATORIOS)
+    })
     public OrdenTrabajo create(OrdenTrabajo ordenTrabajo) {
         sanitize(ordenTrabajo);
         Vehiculo vehiculo = resolveVehiculo(ordenTrabajo);
@@ -91,12 +195,26 @@ public class OrdenTrabajoService {
         normalizarTotales(ordenTrabajo);
         OrdenTrabajo saved = ordenTrabajoRepository.save(ordenTrabajo);
         actualizarKmVehiculo(vehiculo, ordenTrabajo.getKmEntrada());
+        resumenMensualService.registrar(Aportacion.de(saved));
+        busquedaOrdenesService.indexar(saved);
+        conteoAproximadoService.invalidar(ConteoAproximadoService.ORDENES);
         return saved;
     }
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_ORDENES_ABIERTAS),
+            @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_FACTURACION),
+            @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_RECORDATORIOS)
+    })
     public OrdenTrabajo update(Long idOt, OrdenTrabajo datos) {
         OrdenTrabajo existente = findById(idOt);
+        // El formulario se editó sobre una versión que otra persona ya ha modificado: se rechaza
+        // en lugar de pisar sus cambios. Un cambio concurrente posterior lo detecta Hibernate al guardar
+        if (datos.getVersion() != null && !datos.getVersion().equals(existente.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(OrdenTrabajo.class, idOt);
+        }
+        Aportacion aportacionAnterior = Aportacion.de(existente);
         sanitize(datos);
         Vehiculo vehiculo = resolveVehiculo(datos);
         validarKmEntradaEnActualizacion(existente.getKmEntrada(), datos.getKmEntrada(), vehiculo);
@@ -119,6 +237,9 @@ public class OrdenTrabajoService {
         normalizarTotales(existente);
         OrdenTrabajo saved = ordenTrabajoRepository.save(existente);
         actualizarKmVehiculo(vehiculo, existente.getKmEntrada());
+        resumenMensualService.actualizar(aportacionAnterior, Aportacion.de(saved));
+        busquedaOrdenesService.indexar(saved);
+        conteoAproximadoService.invalidar(ConteoAproximadoService.ORDENES);
         return saved;
     }
 
@@ -126,20 +247,35 @@ public class OrdenTrabajoService {
      * Actualiza el kilometraje actual del vehículo en BD solo si el nuevo valor es mayor
      * (o km_actual es null). Usa un UPDATE condicional atómico para evitar condiciones
      * de carrera: si dos órdenes se crean a la vez para el mismo vehículo, solo gana el km mayor.
+     * Si el vehículo ya tiene ese km o más no se lanza el UPDATE, que vaciaría la región de
+     * vehículos de la caché de segundo nivel sin cambiar nada. Si el km sube, se recalculan los
+     * km restantes de sus recordatorios.
      */
     private void actualizarKmVehiculo(Vehiculo vehiculo, Integer kmEntrada) {
         if (vehiculo == null || kmEntrada == null) {
             return;
         }
-        vehiculoRepository.updateKmActualIfGreater(vehiculo.getIdVehiculo(), kmEntrada);
+        if (vehiculo.getKmActual() != null && vehiculo.getKmActual() >= kmEntrada) {
+            return;
+        }
+        if (vehiculoRepository.updateKmActualIfGreater(vehiculo.getIdVehiculo(), kmEntrada) > 0) {
+            recordatorioRepository.actualizarKmRestantes(vehiculo.getIdVehiculo(), kmEntrada, ModoRecordatorio.CON_KM);
+        }
+        sugerenciasVehiculoService.actualizarKm(vehiculo.getIdVehiculo(), kmEntrada);
+        urgenciaRecordatoriosService.actualizarKm(vehiculo.getIdVehiculo(), kmEntrada);
     }
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_ORDENES_ABIERTAS),
+            @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_FACTURACION)
+    })
     public void delete(Long idOt) {
-        if (!ordenTrabajoRepository.existsById(idOt)) {
-            throw new EntityNotFoundException("Orden de trabajo no encontrada");
-        }
-        ordenTrabajoRepository.deleteById(idOt);
+        OrdenTrabajo existente = findById(idOt);
+        resumenMensualService.retirar(Aportacion.de(existente));
+        ordenTrabajoRepository.delete(existente);
+        busquedaOrdenesService.eliminar(idOt);
+        conteoAproximadoService.invalidar(ConteoAproximadoService.ORDENES);
     }
 
     private Vehiculo resolveVehiculo(OrdenTrabajo ordenTrabajo) {
@@ -247,14 +383,16 @@ public class OrdenTrabajoService {
     }
 
     /**
-     * Obtiene estadísticas mensuales de órdenes de trabajo.
+     * Obtiene estadísticas mensuales de órdenes de trabajo a partir del resumen mensual.
      *
-     * @param meses número de meses hacia atrás a considerar
+     * @param meses número de meses hacia atrás a considerar (se incluye el mes de inicio completo)
      * @return lista de estadísticas por mes
      */
     public List<EstadisticasMes> obtenerEstadisticasMensuales(int meses) {
         LocalDateTime desde = LocalDateTime.now().minusMonths(meses);
-        List<Object[]> resultados = ordenTrabajoRepository.contarOrdenesPorMes(desde);
+        List<Object[]> resultados = resumenMensualOtRepository.contarOrdenesPorMes(
+            desde.getYear(), desde.getMonthValue()
+        );
         List<EstadisticasMes> estadisticas = new ArrayList<>();
         
         for (Object[] fila : resultados) {
@@ -268,14 +406,16 @@ public class OrdenTrabajoService {
     }
 
     /**
-     * Obtiene ingresos mensuales de órdenes de trabajo entregadas.
+     * Obtiene ingresos mensuales de órdenes de trabajo entregadas a partir del resumen mensual.
      *
-     * @param meses número de meses hacia atrás a considerar
+     * @param meses número de meses hacia atrás a considerar (se incluye el mes de inicio completo)
      * @return lista de ingresos por mes
      */
     public List<IngresosMes> obtenerIngresosMensuales(int meses) {
         LocalDateTime desde = LocalDateTime.now().minusMonths(meses);
-        List<Object[]> resultados = ordenTrabajoRepository.sumarIngresosPorMes(desde);
+        List<Object[]> resultados = resumenMensualOtRepository.sumarTotalPorMesDeCierre(
+            EstadoOrdenTrabajo.ENTREGADA, desde.getYear(), desde.getMonthValue()
+        );
         List<IngresosMes> ingresos = new ArrayList<>();
         
         for (Object[] fila : resultados) {
@@ -289,44 +429,113 @@ public class OrdenTrabajoService {
     }
 
     /**
-     * Obtiene el resumen de facturación del mes actual.
+     * Obtiene el resumen de facturación del mes actual a partir del resumen mensual.
      *
      * @return resumen con total facturado, pendiente y ticket medio
      */
     public ResumenFacturacion obtenerResumenFacturacionMesActual() {
-        LocalDateTime ahora = LocalDateTime.now();
-        LocalDateTime inicioMes = ahora.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime finMes = inicioMes.plusMonths(1);
+        YearMonth mesActual = YearMonth.now();
+        return obtenerResumenFacturacion(mesActual, mesActual);
+    }
 
-        BigDecimal totalFacturado = ordenTrabajoRepository.sumarTotalFacturadoEnPeriodo(inicioMes, finMes);
-        BigDecimal totalPendiente = ordenTrabajoRepository.sumarTotalPendiente();
-        long numeroFacturas = ordenTrabajoRepository.contarFacturasEnPeriodo(inicioMes, finMes);
-        
+    /**
+     * Obtiene el resumen de facturación de las órdenes entregadas entre ambos meses (incluidos),
+     * con una sola consulta sobre el resumen mensual. El total pendiente es siempre el actual.
+     */
+    public ResumenFacturacion obtenerResumenFacturacion(YearMonth desde, YearMonth hasta) {
+        TotalesFacturacion totales = resumenMensualOtRepository.sumarFacturacion(
+            EstadoOrdenTrabajo.ENTREGADA, ESTADOS_PENDIENTES, periodo(desde), periodo(hasta)
+        );
+        return crearResumenFacturacion(totales.getTotalFacturado(), totales.getNumeroFacturas(),
+            totales.getTotalPendiente());
+    }
+
+    /**
+     * Obtiene el resumen de facturación de cada mes entre ambos (incluidos) con una sola consulta.
+     * Los meses sin facturas aparecen a cero; el total pendiente (el actual) es el mismo en todos.
+     *
+     * @return resúmenes por mes, en orden cronológico
+     */
+    public Map<YearMonth, ResumenFacturacion> obtenerResumenFacturacionPorMes(YearMonth desde, YearMonth hasta) {
+        List<TotalesFacturacion> filas = resumenMensualOtRepository.sumarFacturacionPorMes(
+            EstadoOrdenTrabajo.ENTREGADA, ESTADOS_PENDIENTES, periodo(desde), periodo(hasta)
+        );
+        BigDecimal totalPendiente = BigDecimal.ZERO;
+        Map<YearMonth, TotalesFacturacion> porMes = new HashMap<>();
+        for (TotalesFacturacion fila : filas) {
+            if (fila.getMes() == 0) {
+                totalPendiente = fila.getTotalPendiente();
+            } else {
+                porMes.put(YearMonth.of(fila.getAnio(), fila.getMes()), fila);
+            }
+        }
+
+        Map<YearMonth, ResumenFacturacion> resumenes = new LinkedHashMap<>();
+        for (YearMonth mes = desde; !mes.isAfter(hasta); mes = mes.plusMonths(1)) {
+            TotalesFacturacion totales = porMes.get(mes);
+            resumenes.put(mes, crearResumenFacturacion(
+                totales != null ? totales.getTotalFacturado() : BigDecimal.ZERO,
+                totales != null ? totales.getNumeroFacturas() : 0,
+                totalPendiente
+            ));
+        }
+        return resumenes;
+    }
+
+    private static ResumenFacturacion crearResumenFacturacion(BigDecimal totalFacturado, long numeroFacturas,
+                                                              BigDecimal totalPendiente) {
         BigDecimal ticketMedio = BigDecimal.ZERO;
-        if (numeroFacturas > 0 && totalFacturado != null) {
+        if (numeroFacturas > 0) {
             ticketMedio = totalFacturado.divide(
                 BigDecimal.valueOf(numeroFacturas), 
                 2, 
                 RoundingMode.HALF_UP
             );
         }
+        return new ResumenFacturacion(totalFacturado, totalPendiente, numeroFacturas, ticketMedio);
+    }
 
-        return new ResumenFacturacion(
-            totalFacturado != null ? totalFacturado : BigDecimal.ZERO,
-            totalPendiente != null ? totalPendiente : BigDecimal.ZERO,
-            numeroFacturas,
-            ticketMedio
-        );
+    /**
+     * Mes como año * 100 + mes, el formato de periodo de las consultas del resumen mensual.
+     */
+    private static int periodo(YearMonth mes) {
+        return mes.getYear() * 100 + mes.getMonthValue();
     }
 
     public List<OrdenTrabajo> obtenerOrdenesPendientesPorMecanico(Long idUsuario) {
-        List<EstadoOrdenTrabajo> estadosPendientes = List.of(
-            EstadoOrdenTrabajo.ABIERTA,
-            EstadoOrdenTrabajo.EN_CURSO,
-            EstadoOrdenTrabajo.TERMINADA
-        );
         return ordenTrabajoRepository.findAllByUsuarioAsignado_IdUsuarioAndEstadoInOrderByFechaCreacionDesc(
-            idUsuario, estadosPendientes
+            idUsuario, ESTADOS_PENDIENTES
         );
     }
+
+    /**
+     * Posición de una orden en el orden (fecha_creacion DESC, id_ot DESC), codificada en Base64 URL-safe
+     * para usarla como cursor opaco en la vista.
+     */
+    private record ClaveCursor(LocalDateTime fecha, Long id) {
+
+        static ClaveCursor de(OrdenTrabajoFila ot) {
+            return new ClaveCursor(ot.getFechaCreacion(), ot.getIdOt());
+        }
+
+        static ClaveCursor decodificar(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return null;
+            }
+            try {
+                String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separador = valor.indexOf('|');
+                return new ClaveCursor(LocalDateTime.parse(valor.substring(0, separador)),
+                        Long.valueOf(valor.substring(separador + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException ex) {
+                // Cursor manipulado o de una versión anterior: se vuelve a la primera página
+                return null;
+            }
+        }
+
+        String codificar() {
+            String valor = fecha + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+        }
+    }
 }
@@ -5,16 +5,23 @@ import com.adrian.taller_app.domain.Recordatorio;
 import com.adrian.taller_app.domain.Vehiculo;
 import com.adrian.taller_app.repository.RecordatorioRepository;
 import com.adrian.taller_app.repository.VehiculoRepository;
+import com.adrian.taller_app.web.PaginaAproximada;
+import com.adrian.taller_app.web.RecordatorioFila;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Servicio para la gestión de recordatorios (ITV, seguros, revisiones).
@@ -22,44 +29,79 @@ import java.util.List;
  */
 @Service
 @Transactional(readOnly = true)
+@Timed("taller.servicio")
 public class RecordatorioService {
 
     private final RecordatorioRepository recordatorioRepository;
     private final VehiculoRepository vehiculoRepository;
+    private final UrgenciaRecordatoriosService urgenciaRecordatoriosService;
+    private final ConteoAproximadoService conteoAproximadoService;
 
     public RecordatorioService(RecordatorioRepository recordatorioRepository,
-                               VehiculoRepository vehiculoRepository) {
+                               VehiculoRepository vehiculoRepository,
+                               UrgenciaRecordatoriosService urgenciaRecordatoriosService,
+                               ConteoAproximadoService conteoAproximadoService) {
         this.recordatorioRepository = recordatorioRepository;
         this.vehiculoRepository = vehiculoRepository;
+        this.urgenciaRecordatoriosService = urgenciaRecordatoriosService;
+        this.conteoAproximadoService = conteoAproximadoService;
     }
 
     public List<Recordatorio> findAll() {
         return recordatorioRepository.findAllByOrderByCreadoEnDesc();
     }
 
-    public Page<Recordatorio> findAll(Pageable pageable) {
-        return recordatorioRepository.findAllByOrderByCreadoEnDesc(pageable);
+    public PaginaAproximada<RecordatorioFila> findAll(Pageable pageable) {
+        return new PaginaAproximada<>(recordatorioRepository.findFilasOrderByCreadoEn(pageable),
+                conteoAproximadoService.contar(ConteoAproximadoService.RECORDATORIOS, recordatorioRepository::count));
     }
 
+    /**
+     * Recordatorio sin su vehículo: fuera de la transacción solo es accesible el id del vehículo.
+     */
     public Recordatorio findById(Long idRecordatorio) {
         return recordatorioRepository.findById(idRecordatorio)
                 .orElseThrow(() -> new EntityNotFoundException("Recordatorio no encontrado"));
     }
 
+    /**
+     * Recordatorio con su vehículo ({@link Recordatorio#GRAFO_CON_VEHICULO}), para el formulario de
+     * edición, que enlaza el vehículo.
+     */
+    public Recordatorio findByIdWithVehiculo(Long idRecordatorio) {
+        return recordatorioRepository.findWithVehiculoByIdRecordatorio(idRecordatorio)
+                .orElseThrow(() -> new EntityNotFoundException("Recordatorio no encontrado"));
+    }
+
     @Transactional
+    @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_RECORDATORIOS)
     public Recordatorio create(Recordatorio recordatorio) {
         sanitize(recordatorio);
         Vehiculo vehiculo = resolveVehiculo(recordatorio);
         recordatorio.setVehiculo(vehiculo);
         validateObjetivo(recordatorio);
-        return recordatorioRepository.save(recordatorio);
+        recordatorio.setKmRestantes(calcularKmRestantes(recordatorio));
+        reiniciarAviso(recordatorio);
+        Recordatorio saved = recordatorioRepository.save(recordatorio);
+        urgenciaRecordatoriosService.registrar(saved);
+        conteoAproximadoService.invalidar(ConteoAproximadoService.RECORDATORIOS);
+        return saved;
     }
 
     @Transactional
+    @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_RECORDATORIOS)
     public Recordatorio update(Long idRecordatorio, Recordatorio datos) {
         Recordatorio existente = findById(idRecordatorio);
+        if (datos.getVersion() != null && !datos.getVersion().equals(existente.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Recordatorio.class, idRecordatorio);
+        }
         sanitize(datos);
         Vehiculo vehiculo = resolveVehiculo(datos);
+        // Con otro objetivo es otro aviso: vuelve a quedar pendiente aunque el anterior se enviara
+        boolean objetivoCambiado = !vehiculo.getIdVehiculo().equals(existente.getVehiculo().getIdVehiculo())
+                || existente.getModo() != datos.getModo()
+                || !Objects.equals(existente.getFechaObjetivo(), datos.getFechaObjetivo())
+                || !Objects.equals(existente.getKmObjetivo(), datos.getKmObjetivo());
         existente.setVehiculo(vehiculo);
         existente.setTipo(datos.getTipo());
         existente.setModo(datos.getModo());
@@ -67,15 +109,23 @@ public class RecordatorioService {
         existente.setKmObjetivo(datos.getKmObjetivo());
         existente.setEstado(datos.getEstado());
         validateObjetivo(existente);
+        existente.setKmRestantes(calcularKmRestantes(existente));
+        if (objetivoCambiado) {
+            reiniciarAviso(existente);
+        }
+        urgenciaRecordatoriosService.registrar(existente);
         return existente;
     }
 
     @Transactional
+    @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_RECORDATORIOS)
     public void delete(Long idRecordatorio) {
         if (!recordatorioRepository.existsById(idRecordatorio)) {
             throw new EntityNotFoundException("Recordatorio no encontrado");
         }
         recordatorioRepository.deleteById(idRecordatorio);
+        urgenciaRecordatoriosService.eliminar(idRecordatorio);
+        conteoAproximadoService.invalidar(ConteoAproximadoService.RECORDATORIOS);
     }
 
     private Vehiculo resolveVehiculo(Recordatorio recordatorio) {
@@ -108,6 +158,24 @@ public class RecordatorioService {
         }
     }
 
+    private Integer calcularKmRestantes(Recordatorio recordatorio) {
+        Integer kmActual = recordatorio.getVehiculo().getKmActual();
+        if (!recordatorio.getModo().usaKm() || recordatorio.getKmObjetivo() == null || kmActual == null) {
+            return null;
+        }
+        return recordatorio.getKmObjetivo() - kmActual;
+    }
+
+    /**
+     * Deja el aviso por correo pendiente (AvisoRecordatoriosService).
+     */
+    private void reiniciarAviso(Recordatorio recordatorio) {
+        recordatorio.setAvisoEstado(null);
+        recordatorio.setAvisoIntentos(0);
+        recordatorio.setAvisoEn(null);
+        recordatorio.setAvisoError(null);
+    }
+
     private void sanitize(Recordatorio recordatorio) {
         recordatorio.setTipo(clean(recordatorio.getTipo()));
         recordatorio.setEstado(clean(recordatorio.getEstado()));
@@ -126,59 +194,27 @@ public class RecordatorioService {
      * @param limite Número máximo de recordatorios a devolver
      * @return Lista de recordatorios ordenados por urgencia
      */
-    public List<Recordatorio> obtenerRecordatoriosProximos(int limite) {
-        LocalDate hoy = LocalDate.now();
-        LocalDate limiteUrgencia = hoy.plusDays(30);
-        int margenKm = 2000;
-
-        // Obtener recordatorios próximos por fecha
-        List<Recordatorio> porFecha = recordatorioRepository.findRecordatoriosProximosPorFecha(
-            hoy, limiteUrgencia, PageRequest.of(0, limite)
-        );
-
-        // Obtener recordatorios próximos por km
-        List<Recordatorio> porKm = recordatorioRepository.findRecordatoriosProximosPorKm(
-            margenKm, PageRequest.of(0, limite)
-        );
-
-        // Combinar y eliminar duplicados
-        List<Recordatorio> combinados = new ArrayList<>(porFecha);
-        for (Recordatorio r : porKm) {
-            if (!combinados.contains(r)) {
-                combinados.add(r);
-            }
-        }
-
-        // Ordenar por urgencia y limitar
-        combinados.sort((r1, r2) -> {
-            int urgencia1 = calcularUrgencia(r1);
-            int urgencia2 = calcularUrgencia(r2);
-            return Integer.compare(urgencia1, urgencia2);
-        });
-
-        return combinados.stream().limit(limite).toList();
+    public List<RecordatorioFila> obtenerRecordatoriosProximos(int limite) {
+        return cargarEnOrden(urgenciaRecordatoriosService.proximos(limite));
     }
 
     /**
-     * Calcula la urgencia de un recordatorio (menor número = más urgente)
+     * Página de todos los recordatorios próximos a vencer, ordenados por urgencia.
      */
-    private int calcularUrgencia(Recordatorio r) {
-        int urgencia = Integer.MAX_VALUE;
-
-        // Urgencia por fecha
-        if (r.getFechaObjetivo() != null) {
-            LocalDate hoy = LocalDate.now();
-            long diasRestantes = java.time.temporal.ChronoUnit.DAYS.between(hoy, r.getFechaObjetivo());
-            urgencia = Math.min(urgencia, (int) diasRestantes);
-        }
+    public Page<RecordatorioFila> findProximos(Pageable pageable) {
+        List<Long> ids = urgenciaRecordatoriosService.proximos(pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(cargarEnOrden(ids), pageable, urgenciaRecordatoriosService.totalProximos());
+    }
 
-        // Urgencia por km (aproximado a días considerando 50km/día promedio)
-        if (r.getKmObjetivo() != null && r.getVehiculo() != null && r.getVehiculo().getKmActual() != null) {
-            int kmRestantes = r.getKmObjetivo() - r.getVehiculo().getKmActual();
-            int diasEquivalentes = kmRestantes / 50;
-            urgencia = Math.min(urgencia, diasEquivalentes);
+    private List<RecordatorioFila> cargarEnOrden(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
         }
-
-        return Math.max(0, urgencia);
+        Map<Long, RecordatorioFila> porId = recordatorioRepository.findFilasByIdRecordatorioIn(ids).stream()
+                .collect(Collectors.toMap(RecordatorioFila::getIdRecordatorio, Function.identity()));
+        return ids.stream()
+                .map(porId::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 }
@@ -0,0 +1,94 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.web.DatosDashboard;
+import com.adrian.taller_app.web.RecordatorioFila;
+import com.adrian.taller_app.web.ResumenFacturacion;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compone el dashboard (/resumen) lanzando a la vez los bloques de {@link DashboardService}, que
+ * son independientes, de modo que la página tarda lo que el bloque más lento y no la suma de todos.
+ * <p>
+ * Cada bloque se ejecuta en un pool acotado (por defecto 4 hilos, por debajo del pool de conexiones)
+ * y abre su propia transacción de solo lectura a través de {@link DashboardService}. Si un bloque
+ * falla o tarda más de {@code app.dashboard.timeout-consulta}, se muestra el resto y ese bloque queda
+ * vacío; la consulta sigue en segundo plano y, al terminar, su resultado queda en la caché.
+ * No es transaccional: el hilo de la petición no consulta BD y no debe retener una conexión mientras espera.
+ */
+@Service
+public class ResumenDashboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumenDashboardService.class);
+
+    private final DashboardService dashboardService;
+    private final ExecutorService executor;
+    private final Duration timeoutConsulta;
+
+    public ResumenDashboardService(DashboardService dashboardService,
+                                   @Value("${app.dashboard.hilos:4}") int hilos,
+                                   @Value("${app.dashboard.timeout-consulta:2s}") Duration timeoutConsulta) {
+        this.dashboardService = dashboardService;
+        this.timeoutConsulta = timeoutConsulta;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(hilos, hilos, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(hilos * 8),
+                new CustomizableThreadFactory("dashboard-"),
+                // Con la cola llena el bloque se consulta en el hilo de la petición
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    /**
+     * Datos del dashboard; la facturación y los recordatorios solo se consultan si se piden
+     * (administración y recepción).
+     */
+    public DatosDashboard obtener(boolean conDatosAdministracion) {
+        CompletableFuture<Long> clientes = lanzar("clientes", dashboardService::contarClientes);
+        CompletableFuture<Long> vehiculos = lanzar("vehículos", dashboardService::contarVehiculos);
+        CompletableFuture<Long> ordenesAbiertas = lanzar("órdenes abiertas", dashboardService::contarOrdenesAbiertas);
+        CompletableFuture<ResumenFacturacion> facturacion = conDatosAdministracion
+                ? lanzar("facturación", dashboardService::obtenerResumenFacturacion)
+                : CompletableFuture.completedFuture(null);
+        CompletableFuture<List<RecordatorioFila>> recordatorios = conDatosAdministracion
+                ? lanzar("recordatorios", dashboardService::obtenerRecordatoriosProximos)
+                : CompletableFuture.completedFuture(null);
+
+        CompletableFuture.allOf(clientes, vehiculos, ordenesAbiertas, facturacion, recordatorios).join();
+
+        boolean incompleto = clientes.join() == null || vehiculos.join() == null || ordenesAbiertas.join() == null
+                || (conDatosAdministracion && (facturacion.join() == null || recordatorios.join() == null));
+        return new DatosDashboard(clientes.join(), vehiculos.join(), ordenesAbiertas.join(),
+                facturacion.join(), recordatorios.join(), incompleto);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Lanza la consulta del bloque; si falla o vence el plazo, el futuro se completa con null.
+     */
+    private <T> CompletableFuture<T> lanzar(String bloque, Supplier<T> consulta) {
+        return CompletableFuture.supplyAsync(consulta, executor)
+                .orTimeout(timeoutConsulta.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(ex -> {
+                    log.warn("Dashboard sin el bloque de {}: {}", bloque, ex.toString());
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,127 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.EstadoOrdenTrabajo;
+import com.adrian.taller_app.domain.OrdenTrabajo;
+import com.adrian.taller_app.domain.ResumenMensualOt;
+import com.adrian.taller_app.repository.ResumenMensualOtRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Servicio que mantiene los acumulados mensuales de órdenes de trabajo (RESUMEN_MENSUAL_OT).
+ * Las estadísticas del dashboard leen estos acumulados en lugar de agregar ORDEN_TRABAJO completa.
+ * <p>
+ * Los métodos de actualización se ejecutan en la transacción de quien los llama, de modo que el
+ * acumulado y la orden se confirman o se deshacen juntos.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class ResumenMensualService {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumenMensualService.class);
+
+    private final ResumenMensualOtRepository resumenMensualOtRepository;
+
+    public ResumenMensualService(ResumenMensualOtRepository resumenMensualOtRepository) {
+        this.resumenMensualOtRepository = resumenMensualOtRepository;
+    }
+
+    /**
+     * Suma la aportación de una orden nueva (o de una orden tras modificarse).
+     */
+    public void registrar(Aportacion aportacion) {
+        aplicar(aportacion, 1);
+    }
+
+    /**
+     * Resta la aportación de una orden eliminada (o de una orden antes de modificarse).
+     */
+    public void retirar(Aportacion aportacion) {
+        aplicar(aportacion, -1);
+    }
+
+    /**
+     * Sustituye la aportación anterior de una orden por la actual. No hace nada si no ha cambiado
+     * ninguno de los datos que se acumulan.
+     */
+    public void actualizar(Aportacion anterior, Aportacion actual) {
+        if (anterior.equals(actual)) {
+            return;
+        }
+        retirar(anterior);
+        registrar(actual);
+    }
+
+    /**
+     * Recalcula todos los acumulados desde ORDEN_TRABAJO. Corrige cualquier desviación
+     * (por ejemplo, cambios hechos directamente en BD) y sirve para la carga inicial.
+     */
+    @Scheduled(cron = "${app.estadisticas.reconstruccion-cron:0 30 3 * * *}")
+    @Transactional
+    public void reconstruir() {
+        resumenMensualOtRepository.vaciar();
+        int filas = resumenMensualOtRepository.reconstruir();
+        log.info("Resumen mensual de órdenes reconstruido: {} filas", filas);
+    }
+
+    private void aplicar(Aportacion aportacion, int signo) {
+        LocalDateTime creacion = aportacion.fechaCreacion() != null ? aportacion.fechaCreacion() : LocalDateTime.now();
+        acumular(ResumenMensualOt.POR_CREACION, creacion, aportacion, signo);
+        if (aportacion.fechaCierre() != null) {
+            acumular(ResumenMensualOt.POR_CIERRE, aportacion.fechaCierre(), aportacion, signo);
+        }
+    }
+
+    private void acumular(String tipoFecha, LocalDateTime fecha, Aportacion aportacion, int signo) {
+        BigDecimal factor = BigDecimal.valueOf(signo);
+        resumenMensualOtRepository.acumular(
+                tipoFecha,
+                fecha.getYear(),
+                fecha.getMonthValue(),
+                aportacion.estado().getValor(),
+                aportacion.idUsuario(),
+                signo,
+                aportacion.subtotal().multiply(factor),
+                aportacion.ivaTotal().multiply(factor),
+                aportacion.total().multiply(factor)
+        );
+    }
+
+    /**
+     * Datos de una orden que intervienen en los acumulados, capturados en un momento dado.
+     */
+    public record Aportacion(LocalDateTime fechaCreacion,
+                             LocalDateTime fechaCierre,
+                             EstadoOrdenTrabajo estado,
+                             long idUsuario,
+                             BigDecimal subtotal,
+                             BigDecimal ivaTotal,
+                             BigDecimal total) {
+
+        public static Aportacion de(OrdenTrabajo ot) {
+            return new Aportacion(
+                    ot.getFechaCreacion(),
+                    ot.getFechaCierre(),
+                    Objects.requireNonNullElse(ot.getEstado(), EstadoOrdenTrabajo.ABIERTA),
+                    ot.getUsuarioAsignado() != null && ot.getUsuarioAsignado().getIdUsuario() != null
+                            ? ot.getUsuarioAsignado().getIdUsuario() : 0L,
+                    importe(ot.getSubtotal()),
+                    importe(ot.getIvaTotal()),
+                    importe(ot.getTotal())
+            );
+        }
+
+        private static BigDecimal importe(BigDecimal valor) {
+            return valor != null ? valor.setScale(2, RoundingMode.HALF_UP) : BigDecimal.ZERO.setScale(2);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.Vehiculo;
+import com.adrian.taller_app.repository.VehiculoRepository;
+import com.adrian.taller_app.web.SugerenciaVehiculo;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Servicio de sugerencias para el selector de vehículos de los formularios.
+ * Mantiene en memoria un índice ordenado por prefijo de la matrícula y del nombre del cliente
+ * (normalizados: sin tildes, espacios ni guiones), de modo que cada sugerencia se resuelve sin BD.
+ * <p>
+ * El índice se carga completo al arrancar y se actualiza tras el commit de cada escritura de
+ * vehículos, del nombre de un cliente o del km actual. Las lecturas no se bloquean; las
+ * escrituras se serializan con un {@link ReentrantLock} para que las claves de un vehículo cambien
+ * de una vez. La carga construye un índice nuevo aparte, leyendo de BD sin el cerrojo, y solo lo
+ * toma al final para repetir las escrituras confirmadas mientras tanto y sustituir el índice.
+ * <p>
+ * Hasta que termina la primera carga (al arrancar, con la aplicación ya atendiendo peticiones)
+ * las sugerencias y el vehículo seleccionado se consultan en BD: matrícula por prefijo y nombre
+ * del cliente por prefijo de alguna palabra.
+ */
+@Service
+@Transactional(readOnly = true)
+public class SugerenciasVehiculoService {
+
+    public static final int LIMITE_POR_DEFECTO = 10;
+    public static final int LIMITE_MAXIMO = 20;
+
+    private static final Logger log = LoggerFactory.getLogger(SugerenciasVehiculoService.class);
+
+    private static final int CHUNK_SIZE = 500;
+    // Separa la clave del id para que dos vehículos con la misma clave no se pisen
+    private static final char SEPARADOR = '\u0000';
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}");
+    private static final Pattern NO_ALFANUMERICO = Pattern.compile("[^\\p{Alnum}]");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    private final VehiculoRepository vehiculoRepository;
+    private final EntityManager entityManager;
+
+    // Se sustituye completo al cargar; las lecturas trabajan sobre el que leen al empezar
+    private volatile Indice indice = new Indice();
+    // Falso hasta que termina la primera carga
+    private volatile boolean cargado;
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    // Escrituras confirmadas durante una carga (null si no hay ninguna en curso)
+    private List<Consumer<Indice>> cambiosDuranteCarga;
+
+    public SugerenciasVehiculoService(VehiculoRepository vehiculoRepository, EntityManager entityManager) {
+        this.vehiculoRepository = vehiculoRepository;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Devuelve los vehículos cuya matrícula, o alguna palabra del nombre del cliente (y las que la
+     * siguen), empieza por el texto indicado. Primero las coincidencias por matrícula.
+     */
+    public List<SugerenciaVehiculo> sugerir(String texto, int limite) {
+        String prefijo = texto != null ? normalizar(texto) : "";
+        if (prefijo.isEmpty()) {
+            return List.of();
+        }
+        int maximo = Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+        if (!cargado) {
+            return consultar(prefijo, maximo);
+        }
+        Indice actual = indice;
+        Set<Long> ids = new LinkedHashSet<>();
+        recoger(actual.porMatricula, prefijo, ids, maximo);
+        recoger(actual.porCliente, prefijo, ids, maximo);
+
+        List<SugerenciaVehiculo> sugerencias = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            SugerenciaVehiculo sugerencia = actual.vehiculos.get(id);
+            if (sugerencia != null) {
+                sugerencias.add(sugerencia);
+            }
+        }
+        return sugerencias;
+    }
+
+    /**
+     * Datos del vehículo para mostrar el seleccionado en un formulario, o null si no existe.
+     */
+    public SugerenciaVehiculo obtener(Long idVehiculo) {
+        if (idVehiculo == null) {
+            return null;
+        }
+        if (!cargado) {
+            return vehiculoRepository.findWithClienteByIdVehiculo(idVehiculo)
+                    .map(SugerenciasVehiculoService::crearSugerencia)
+                    .orElse(null);
+        }
+        return indice.vehiculos.get(idVehiculo);
+    }
+
+    /**
+     * Añade o actualiza el vehículo en el índice cuando se confirme la transacción en curso.
+     * Los datos (incluido el nombre del cliente) se copian ahora, dentro de la transacción.
+     */
+    public void registrar(Vehiculo vehiculo) {
+        SugerenciaVehiculo sugerencia = crearSugerencia(vehiculo);
+        TrasConfirmar.ejecutar(() -> escribir(actual -> actual.guardar(sugerencia)));
+    }
+
+    public void registrar(Collection<Vehiculo> vehiculos) {
+        vehiculos.forEach(this::registrar);
+    }
+
+    /**
+     * Quita el vehículo del índice cuando se confirme la transacción en curso.
+     */
+    public void eliminar(Long idVehiculo) {
+        TrasConfirmar.ejecutar(() -> escribir(actual -> actual.quitar(idVehiculo)));
+    }
+
+    /**
+     * Sube el km actual del vehículo en el índice (nunca lo baja), igual que
+     * {@link VehiculoRepository#updateKmActualIfGreater}.
+     */
+    public void actualizarKm(Long idVehiculo, int km) {
+        TrasConfirmar.ejecutar(() -> escribir(actual -> {
+            SugerenciaVehiculo sugerencia = actual.vehiculos.get(idVehiculo);
+            if (sugerencia != null && sugerencia.getKmActual() < km) {
+                actual.vehiculos.put(idVehiculo, new SugerenciaVehiculo(
+                        idVehiculo, sugerencia.getMatricula(), sugerencia.getCliente(), km));
+            }
+        }));
+    }
+
+    /**
+     * Carga el índice completo desde BD leyendo los vehículos con un cursor de solo avance.
+     * La lectura se hace sin el cerrojo sobre un índice nuevo: las escrituras que se confirman
+     * mientras tanto se aplican al vigente y se anotan, y al terminar se repiten sobre el nuevo
+     * (todas sustituyen o quitan un vehículo o solo suben su km, así que repetir una que la
+     * lectura ya recogió no cambia nada) antes de sustituirlo.
+     */
+    public void cargar() {
+        cerrojo.lock();
+        try {
+            if (cambiosDuranteCarga != null) {
+                log.info("Carga de sugerencias de vehículos ya en curso; se omite");
+                return;
+            }
+            cambiosDuranteCarga = new ArrayList<>();
+        } finally {
+            cerrojo.unlock();
+        }
+
+        long inicio = System.currentTimeMillis();
+        Indice nuevo = new Indice();
+        int cargados = 0;
+        try {
+            try (Stream<Vehiculo> stream = vehiculoRepository.streamAll()) {
+                Iterator<Vehiculo> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    nuevo.guardar(crearSugerencia(iterator.next()));
+                    if (++cargados % CHUNK_SIZE == 0) {
+                        entityManager.clear();
+                    }
+                }
+            }
+            cerrojo.lock();
+            try {
+                cambiosDuranteCarga.forEach(cambio -> cambio.accept(nuevo));
+                indice = nuevo;
+                cargado = true;
+            } finally {
+                cerrojo.unlock();
+            }
+        } finally {
+            cerrojo.lock();
+            try {
+                cambiosDuranteCarga = null;
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+        log.info("Sugerencias de vehículos cargadas: {} vehículos en {} ms",
+                cargados, System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Aplica la escritura al índice vigente y, si hay una carga en curso, la anota para repetirla
+     * sobre el índice nuevo.
+     */
+    private void escribir(Consumer<Indice> escritura) {
+        cerrojo.lock();
+        try {
+            escritura.accept(indice);
+            if (cambiosDuranteCarga != null) {
+                cambiosDuranteCarga.add(escritura);
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Sugerencias leídas de BD mientras no hay índice: primero por matrícula (ya guardada
+     * normalizada, en mayúsculas) y después por palabra del nombre del cliente.
+     */
+    private List<SugerenciaVehiculo> consultar(String prefijo, int maximo) {
+        PageRequest pagina = PageRequest.of(0, maximo);
+        Map<Long, SugerenciaVehiculo> sugerencias = new LinkedHashMap<>();
+        for (Vehiculo vehiculo : vehiculoRepository.findByMatriculaEmpiezaPor(
+                prefijo.toUpperCase(Locale.ROOT) + "%", pagina)) {
+            sugerencias.put(vehiculo.getIdVehiculo(), crearSugerencia(vehiculo));
+        }
+        if (sugerencias.size() < maximo) {
+            for (Vehiculo vehiculo : vehiculoRepository.findByPalabraClienteEmpiezaPor(
+                    prefijo + "%", "% " + prefijo + "%", pagina)) {
+                if (sugerencias.size() >= maximo) {
+                    break;
+                }
+                sugerencias.putIfAbsent(vehiculo.getIdVehiculo(), crearSugerencia(vehiculo));
+            }
+        }
+        return new ArrayList<>(sugerencias.values());
+    }
+
+    private static void recoger(NavigableMap<String, Long> indice, String prefijo, Set<Long> ids, int maximo) {
+        // Las claves que empiezan por el prefijo quedan entre el prefijo y el prefijo + Character.MAX_VALUE
+        for (Long id : indice.subMap(prefijo, true, prefijo + Character.MAX_VALUE, false).values()) {
+            if (ids.size() >= maximo) {
+                return;
+            }
+            ids.add(id);
+        }
+    }
+
+    /**
+     * Estructuras del índice. Los mapas son concurrentes para que las lecturas no se bloqueen;
+     * las escrituras se hacen siempre con el cerrojo del servicio.
+     */
+    private static final class Indice {
+        private final Map<Long, SugerenciaVehiculo> vehiculos = new ConcurrentHashMap<>();
+        private final NavigableMap<String, Long> porMatricula = new ConcurrentSkipListMap<>();
+        private final NavigableMap<String, Long> porCliente = new ConcurrentSkipListMap<>();
+
+        void guardar(SugerenciaVehiculo sugerencia) {
+            quitar(sugerencia.getIdVehiculo());
+            vehiculos.put(sugerencia.getIdVehiculo(), sugerencia);
+            for (String clave : clavesMatricula(sugerencia)) {
+                porMatricula.put(clave + SEPARADOR + sugerencia.getIdVehiculo(), sugerencia.getIdVehiculo());
+            }
+            for (String clave : clavesCliente(sugerencia)) {
+                porCliente.put(clave + SEPARADOR + sugerencia.getIdVehiculo(), sugerencia.getIdVehiculo());
+            }
+        }
+
+        void quitar(Long idVehiculo) {
+            SugerenciaVehiculo anterior = vehiculos.remove(idVehiculo);
+            if (anterior == null) {
+                return;
+            }
+            for (String clave : clavesMatricula(anterior)) {
+                porMatricula.remove(clave + SEPARADOR + idVehiculo);
+            }
+            for (String clave : clavesCliente(anterior)) {
+                porCliente.remove(clave + SEPARADOR + idVehiculo);
+            }
+        }
+    }
+
+    private static SugerenciaVehiculo crearSugerencia(Vehiculo vehiculo) {
+        return new SugerenciaVehiculo(
+                vehiculo.getIdVehiculo(),
+                vehiculo.getMatricula(),
+                vehiculo.getCliente() != null ? vehiculo.getCliente().getNombre() : null,
+                Objects.requireNonNullElse(vehiculo.getKmActual(), 0)
+        );
+    }
+
+    private static List<String> clavesMatricula(SugerenciaVehiculo sugerencia) {
+        String clave = sugerencia.getMatricula() != null ? normalizar(sugerencia.getMatricula()) : "";
+        return clave.isEmpty() ? List.of() : List.of(clave);
+    }
+
+    /**
+     * Una clave por cada palabra del nombre unida a las siguientes: "José García Pérez" da
+     * "josegarciaperez", "garciaperez" y "perez", así que "garcia p" también encuentra al cliente.
+     */
+    private static List<String> clavesCliente(SugerenciaVehiculo sugerencia) {
+        if (sugerencia.getCliente() == null || sugerencia.getCliente().isBlank()) {
+            return List.of();
+        }
+        List<String> palabras = new ArrayList<>();
+        for (String palabra : ESPACIOS.split(sugerencia.getCliente().trim())) {
+            String normalizada = normalizar(palabra);
+            if (!normalizada.isEmpty()) {
+                palabras.add(normalizada);
+            }
+        }
+        List<String> claves = new ArrayList<>(palabras.size());
+        for (int i = 0; i < palabras.size(); i++) {
+            claves.add(String.join("", palabras.subList(i, palabras.size())));
+        }
+        return claves;
+    }
+
+    static String normalizar(String valor) {
+        String sinTildes = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(valor, Normalizer.Form.NFD)).replaceAll("");
+        return NO_ALFANUMERICO.matcher(sinTildes).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,316 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.EstadoOrdenTrabajo;
+import com.adrian.taller_app.domain.EstadoTrabajo;
+import com.adrian.taller_app.domain.TipoTrabajo;
+import com.adrian.taller_app.domain.TrabajoDocumento;
+import com.adrian.taller_app.repository.TrabajoDocumentoRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Generación de documentos (facturas PDF, exportaciones CSV) en segundo plano: quien lo pide
+ * recibe el id del trabajo, consulta su estado y descarga el resultado cuando está listo, sin
+ * ocupar un hilo de petición mientras se genera.
+ * <p>
+ * Los trabajos se guardan en TRABAJO_DOCUMENTO y se ejecutan en dos carriles con sus propios
+ * hilos y colas acotadas: los prioritarios ({@link TipoTrabajo#isPrioritario()}, una factura)
+ * nunca esperan detrás de una exportación grande. Si una cola está llena el trabajo sigue
+ * pendiente en la tabla y lo encola el siguiente despacho periódico, que también recoge los que
+ * quedaron a medias en un reinicio.
+ * <p>
+ * El resultado se escribe en {@code app.trabajos.directorio} con el id como nombre; fichero y
+ * fila se borran pasado {@code app.trabajos.caducidad} desde que termina el trabajo.
+ */
+@Service
+@Transactional(readOnly = true)
+public class TrabajoDocumentoService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrabajoDocumentoService.class);
+
+    private static final int LONGITUD_ERROR = 500;
+    private static final int TRABAJOS_POR_DESPACHO = 100;
+
+    private final TrabajoDocumentoRepository trabajoDocumentoRepository;
+    private final OrdenTrabajoService ordenTrabajoService;
+    private final FacturaPdfService facturaPdfService;
+    private final CsvExportService csvExportService;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directorio;
+    private final Duration caducidad;
+    private final ThreadPoolExecutor prioritarios;
+    private final ThreadPoolExecutor normales;
+    // Trabajos ya entregados a un carril, para que el despacho no los encole dos veces
+    private final Set<String> encolados = ConcurrentHashMap.newKeySet();
+
+    public TrabajoDocumentoService(TrabajoDocumentoRepository trabajoDocumentoRepository,
+                                   OrdenTrabajoService ordenTrabajoService,
+                                   FacturaPdfService facturaPdfService,
+                                   CsvExportService csvExportService,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.trabajos.directorio:data/trabajos}") Path directorio,
+                                   @Value("${app.trabajos.caducidad:24h}") Duration caducidad,
+                                   @Value("${app.trabajos.hilos-prioritarios:2}") int hilosPrioritarios,
+                                   @Value("${app.trabajos.hilos-normales:1}") int hilosNormales,
+                                   @Value("${app.trabajos.cola:50}") int cola) throws IOException {
+        this.trabajoDocumentoRepository = trabajoDocumentoRepository;
+        this.ordenTrabajoService = ordenTrabajoService;
+        this.facturaPdfService = facturaPdfService;
+        this.csvExportService = csvExportService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.directorio = Files.createDirectories(directorio);
+        this.caducidad = caducidad;
+        this.prioritarios = crearCarril(hilosPrioritarios, cola, "trabajos-prioritarios-");
+        this.normales = crearCarril(hilosNormales, cola, "trabajos-");
+        // Temporales de trabajos que no llegaron a terminar
+        try (Stream<Path> temporales = Files.list(this.directorio)) {
+            for (Path temporal : temporales.filter(fichero -> fichero.toString().endsWith(".tmp")).toList()) {
+                Files.deleteIfExists(temporal);
+            }
+        }
+    }
+
+    /**
+     * Encarga la factura PDF de la orden.
+     */
+    @Transactional
+    public TrabajoDocumento encargarFactura(Long idOt, String usuario) {
+        ordenTrabajoService.findById(idOt);
+        return encargar(TipoTrabajo.FACTURA, idOt.toString(), "factura-ot-" + idOt + ".pdf", usuario);
+    }
+
+    /**
+     * Encarga la exportación CSV de las órdenes de trabajo, filtradas por estado si se indica.
+     */
+    @Transactional
+    public TrabajoDocumento encargarExportacionOrdenes(EstadoOrdenTrabajo estado, String usuario) {
+        String nombre = "ordenes_trabajo_" + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + ".csv";
+        return encargar(TipoTrabajo.EXPORTACION_ORDENES, estado != null ? estado.getValor() : null, nombre, usuario);
+    }
+
+    /**
+     * Trabajo con ese id si existe, no ha caducado y lo puede ver el usuario (el que lo encargó o
+     * un administrador); si no, null.
+     */
+    public TrabajoDocumento obtener(String idTrabajo, String usuario, boolean administrador) {
+        if (idTrabajo == null) {
+            return null;
+        }
+        return trabajoDocumentoRepository.findById(idTrabajo)
+                .filter(trabajo -> administrador || trabajo.getUsuario().equals(usuario))
+                .filter(trabajo -> trabajo.getCaducaEn() == null || trabajo.getCaducaEn().isAfter(LocalDateTime.now()))
+                .orElse(null);
+    }
+
+    /**
+     * Fichero con el resultado de un trabajo terminado.
+     */
+    public Path fichero(TrabajoDocumento trabajo) {
+        if (trabajo.getEstado() != EstadoTrabajo.TERMINADO) {
+            throw new IllegalStateException("El documento aún no está disponible.");
+        }
+        Path fichero = directorio.resolve(trabajo.getIdTrabajo());
+        if (!Files.exists(fichero)) {
+            throw new EntityNotFoundException("El documento ya no está disponible.");
+        }
+        return fichero;
+    }
+
+    /**
+     * Devuelve a pendientes los trabajos que quedaron en curso al parar la aplicación y los encola.
+     */
+    @Transactional
+    public void recuperar() {
+        int interrumpidos = trabajoDocumentoRepository.cambiarEstadoTodos(EstadoTrabajo.EN_CURSO, EstadoTrabajo.PENDIENTE);
+        if (interrumpidos > 0) {
+            log.info("Trabajos de documentos interrumpidos que se vuelven a encolar: {}", interrumpidos);
+        }
+        TrasConfirmar.ejecutar(this::despachar);
+    }
+
+    /**
+     * Encola los trabajos pendientes que aún no están en un carril (los que no cupieron en la
+     * cola al encargarlos y los recuperados tras un reinicio), por orden de llegada.
+     */
+    @Scheduled(fixedDelayString = "${app.trabajos.despacho:30s}", initialDelayString = "${app.trabajos.despacho:30s}")
+    public void despachar() {
+        List<TrabajoDocumento> pendientes = trabajoDocumentoRepository.findByEstadoOrderByCreadoEn(
+                EstadoTrabajo.PENDIENTE, Limit.of(TRABAJOS_POR_DESPACHO));
+        for (TrabajoDocumento trabajo : pendientes) {
+            encolar(trabajo.getIdTrabajo(), trabajo.getTipo());
+        }
+    }
+
+    /**
+     * Borra los trabajos caducados y, una vez confirmado, sus ficheros.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.trabajos.limpieza:10m}", initialDelayString = "${app.trabajos.limpieza:10m}")
+    public void limpiarCaducados() {
+        List<TrabajoDocumento> caducados = trabajoDocumentoRepository.findByCaducaEnBefore(LocalDateTime.now());
+        if (caducados.isEmpty()) {
+            return;
+        }
+        trabajoDocumentoRepository.deleteAllInBatch(caducados);
+        List<String> ids = caducados.stream().map(TrabajoDocumento::getIdTrabajo).toList();
+        TrasConfirmar.ejecutar(() -> {
+            for (String id : ids) {
+                try {
+                    Files.deleteIfExists(directorio.resolve(id));
+                } catch (IOException ex) {
+                    log.warn("No se pudo borrar el documento del trabajo {}: {}", id, ex.getMessage());
+                }
+            }
+        });
+        log.info("Trabajos de documentos caducados borrados: {}", ids.size());
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        prioritarios.shutdownNow();
+        normales.shutdownNow();
+    }
+
+    private TrabajoDocumento encargar(TipoTrabajo tipo, String parametros, String nombreFichero, String usuario) {
+        TrabajoDocumento trabajo = new TrabajoDocumento();
+        trabajo.setIdTrabajo(UUID.randomUUID().toString());
+        trabajo.setTipo(tipo);
+        trabajo.setParametros(parametros);
+        trabajo.setEstado(EstadoTrabajo.PENDIENTE);
+        trabajo.setUsuario(usuario);
+        trabajo.setNombreFichero(nombreFichero);
+        trabajo.setCreadoEn(LocalDateTime.now());
+        TrabajoDocumento guardado = trabajoDocumentoRepository.save(trabajo);
+        TrasConfirmar.ejecutar(() -> encolar(guardado.getIdTrabajo(), tipo));
+        return guardado;
+    }
+
+    private void encolar(String idTrabajo, TipoTrabajo tipo) {
+        if (!encolados.add(idTrabajo)) {
+            return;
+        }
+        ThreadPoolExecutor carril = tipo.isPrioritario() ? prioritarios : normales;
+        try {
+            carril.execute(() -> {
+                try {
+                    ejecutar(idTrabajo);
+                } finally {
+                    encolados.remove(idTrabajo);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // Cola llena (o aplicación parando): sigue pendiente en la tabla para el próximo despacho
+            encolados.remove(idTrabajo);
+            log.info("Cola de trabajos llena; el trabajo {} se encolará en el próximo despacho", idTrabajo);
+        }
+    }
+
+    /**
+     * Genera el documento en un temporal y lo renombra al terminar, de modo que nunca se sirve
+     * un fichero a medias. Solo lo ejecuta el hilo que consigue pasarlo de pendiente a en curso.
+     */
+    private void ejecutar(String idTrabajo) {
+        LocalDateTime inicio = LocalDateTime.now();
+        Integer iniciados = transactionTemplate.execute(status -> trabajoDocumentoRepository.cambiarEstado(
+                idTrabajo, EstadoTrabajo.PENDIENTE, EstadoTrabajo.EN_CURSO, inicio));
+        if (iniciados == null || iniciados == 0) {
+            return;
+        }
+        TrabajoDocumento trabajo = trabajoDocumentoRepository.findById(idTrabajo).orElse(null);
+        if (trabajo == null) {
+            return;
+        }
+
+        Path temporal = null;
+        try {
+            temporal = Files.createTempFile(directorio, idTrabajo, ".tmp");
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temporal))) {
+                generar(trabajo, output);
+            }
+            Path fichero = directorio.resolve(idTrabajo);
+            Files.move(temporal, fichero, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            trabajo.setTamano(Files.size(fichero));
+            trabajo.setEstado(EstadoTrabajo.TERMINADO);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Falló el trabajo {} ({}): {}", idTrabajo, trabajo.getTipo().getValor(), ex.getMessage(), ex);
+            borrar(temporal);
+            trabajo.setEstado(EstadoTrabajo.ERROR);
+            trabajo.setError(mensajeError(ex));
+        }
+        LocalDateTime fin = LocalDateTime.now();
+        trabajo.setTerminadoEn(fin);
+        trabajo.setCaducaEn(fin.plus(caducidad));
+        trabajoDocumentoRepository.save(trabajo);
+        log.info("Trabajo {} ({}) {} en {} ms", idTrabajo, trabajo.getTipo().getValor(),
+                trabajo.getEstado().getValor(), Duration.between(inicio, fin).toMillis());
+    }
+
+    private void generar(TrabajoDocumento trabajo, OutputStream output) throws IOException {
+        switch (trabajo.getTipo()) {
+            case FACTURA -> output.write(facturaPdfService.generarFactura(
+                    ordenTrabajoService.findByIdWithRelations(Long.valueOf(trabajo.getParametros()))));
+            case EXPORTACION_ORDENES -> csvExportService.exportOrdenesTrabajo(
+                    EstadoOrdenTrabajo.fromValor(trabajo.getParametros()), output);
+        }
+    }
+
+    private void borrar(Path temporal) {
+        if (temporal == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temporal);
+        } catch (IOException ex) {
+            log.warn("No se pudo borrar el temporal {}: {}", temporal, ex.getMessage());
+        }
+    }
+
+    /**
+     * Mensaje que se muestra al usuario: los errores de negocio tal cual y el resto genérico.
+     */
+    private static String mensajeError(Exception ex) {
+        String mensaje = (ex instanceof IllegalStateException || ex instanceof EntityNotFoundException)
+                && ex.getMessage() != null
+                ? ex.getMessage()
+                : "No se pudo generar el documento.";
+        return mensaje.length() > LONGITUD_ERROR ? mensaje.substring(0, LONGITUD_ERROR) : mensaje;
+    }
+
+    private static ThreadPoolExecutor crearCarril(int hilos, int cola, String prefijo) {
+        int tamano = Math.max(1, hilos);
+        return new ThreadPoolExecutor(tamano, tamano, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, cola)),
+                new CustomizableThreadFactory(prefijo),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
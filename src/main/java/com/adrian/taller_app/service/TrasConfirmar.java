@@ -0,0 +1,30 @@
+package com.adrian.taller_app.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Aplaza cambios en estructuras en memoria o en disco (índices, sugerencias) hasta que se confirme
+ * la transacción en curso, de modo que una transacción deshecha no deja rastro en ellas.
+ */
+final class TrasConfirmar {
+
+    private TrasConfirmar() {
+    }
+
+    /**
+     * Ejecuta la acción tras el commit, o inmediatamente si no hay transacción activa.
+     */
+    static void ejecutar(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,419 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.ModoRecordatorio;
+import com.adrian.taller_app.domain.Recordatorio;
+import com.adrian.taller_app.domain.Vehiculo;
+import com.adrian.taller_app.repository.RecordatorioRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Índice en memoria de la urgencia de los recordatorios (dashboard y página de próximos).
+ * <p>
+ * Mantiene dos colas de prioridad ordenadas: por fecha objetivo y por km restantes
+ * (km objetivo - km actual del vehículo, guardado en RECORDATORIO.km_restantes). Los próximos son los que vencen en los próximos
+ * {@value #DIAS_AVISO} días o a menos de {@value #MARGEN_KM} km; se obtienen recorriendo ambos
+ * rangos a la vez por urgencia (días hasta la fecha o km restantes a {@value #KM_POR_DIA} km/día),
+ * sin consultar BD y en O(log n) más los elementos saltados y devueltos. El total de próximos se
+ * lleva aparte y se ajusta con cada escritura, así que una página no recorre todos los próximos.
+ * <p>
+ * Se actualiza tras el commit de cada escritura de recordatorios y de cada cambio del km de un
+ * vehículo, y se resincroniza por completo desde BD periódicamente, lo que corrige cambios hechos
+ * fuera de la aplicación. Las escrituras se serializan con un {@link ReentrantLock}; la
+ * resincronización lee de BD sin él y solo lo toma al final para cambiar de índice, de modo que
+ * las escrituras que se confirman mientras tanto no esperan a que termine la lectura.
+ * <p>
+ * Hasta que termina la primera carga (al arrancar, con la aplicación ya atendiendo peticiones)
+ * los próximos se consultan en BD con los rangos de los índices (modo, fecha_objetivo) y
+ * (modo, km_restantes), mezclados igual que en memoria.
+ */
+@Service
+@Transactional(readOnly = true)
+public class UrgenciaRecordatoriosService {
+
+    static final int DIAS_AVISO = 30;
+    static final int MARGEN_KM = 2000;
+    static final int KM_POR_DIA = 50;
+
+    private static final Logger log = LoggerFactory.getLogger(UrgenciaRecordatoriosService.class);
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final RecordatorioRepository recordatorioRepository;
+    private final EntityManager entityManager;
+
+    // Se sustituye completo al resincronizar; las lecturas trabajan sobre el que leen al empezar
+    private volatile Indice indice = new Indice();
+    // Falso hasta que termina la primera resincronización
+    private volatile boolean cargado;
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    // Escrituras confirmadas durante una resincronización (null si no hay ninguna en curso)
+    private List<Consumer<Indice>> cambiosDuranteResincronizacion;
+
+    public UrgenciaRecordatoriosService(RecordatorioRepository recordatorioRepository,
+                                        EntityManager entityManager) {
+        this.recordatorioRepository = recordatorioRepository;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Ids de los recordatorios próximos a vencer, del más urgente al menos urgente.
+     */
+    public List<Long> proximos(int limite) {
+        return proximos(0, limite);
+    }
+
+    /**
+     * Ventana [desde, desde + limite) de los próximos a vencer, del más urgente al menos urgente.
+     * Recorre los dos rangos desde el principio saltando las {@code desde} primeras sin copiarlas.
+     */
+    public List<Long> proximos(long desde, int limite) {
+        LocalDate hoy = LocalDate.now();
+        Indice actual = cargado ? indice : consultarProximos(hoy, (int) Math.min(desde + limite, Integer.MAX_VALUE));
+        Iterator<Entrada> porFecha = actual.porFecha.subSet(
+                Entrada.sondaFecha(hoy, Long.MIN_VALUE), true,
+                Entrada.sondaFecha(hoy.plusDays(DIAS_AVISO), Long.MAX_VALUE), true).iterator();
+        Iterator<Entrada> porKm = actual.porKm.subSet(
+                Entrada.sondaKm(0, Long.MIN_VALUE), true,
+                Entrada.sondaKm(MARGEN_KM, Long.MAX_VALUE), true).iterator();
+
+        // Mezcla de los dos rangos ordenados; un recordatorio por fecha y por km sale solo en su
+        // posición más urgente, que se sabe con sus propios datos sin recordar los ya vistos
+        List<Long> ids = new ArrayList<>();
+        long saltados = 0;
+        Entrada fecha = siguiente(porFecha);
+        Entrada km = siguiente(porKm);
+        while ((fecha != null || km != null) && ids.size() < limite) {
+            Entrada elegida;
+            if (km == null || (fecha != null && fecha.diasHasta(hoy) <= km.kmRestantes() / KM_POR_DIA)) {
+                elegida = fecha.kmProximos() && !fecha.antesPorFecha(hoy) ? null : fecha;
+                fecha = siguiente(porFecha);
+            } else {
+                elegida = km.fechaProxima(hoy) && km.antesPorFecha(hoy) ? null : km;
+                km = siguiente(porKm);
+            }
+            if (elegida != null && saltados++ >= desde) {
+                ids.add(elegida.idRecordatorio());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Número de recordatorios próximos a vencer. El índice lo lleva al día con cada escritura;
+     * solo se recuenta (recorriendo los rangos) la primera vez que se pide en un día nuevo.
+     */
+    public long totalProximos() {
+        LocalDate hoy = LocalDate.now();
+        if (!cargado) {
+            return recordatorioRepository.countProximos(ModoRecordatorio.CON_FECHA, hoy, hoy.plusDays(DIAS_AVISO),
+                    ModoRecordatorio.CON_KM, MARGEN_KM);
+        }
+        if (!hoy.equals(indice.diaConteo)) {
+            escribir(actual -> actual.recontar(hoy));
+        }
+        return indice.total;
+    }
+
+    /**
+     * Añade o actualiza el recordatorio cuando se confirme la transacción en curso.
+     * Los datos (incluidos los km restantes ya calculados) se copian ahora, dentro de la transacción.
+     */
+    public void registrar(Recordatorio recordatorio) {
+        Entrada entrada = Entrada.de(recordatorio);
+        TrasConfirmar.ejecutar(() -> escribir(actual -> actual.poner(entrada)));
+    }
+
+    public void eliminar(Long idRecordatorio) {
+        TrasConfirmar.ejecutar(() -> escribir(actual -> actual.quitar(idRecordatorio)));
+    }
+
+    /**
+     * Quita los recordatorios del vehículo (se borran con él).
+     */
+    public void eliminarVehiculo(Long idVehiculo) {
+        TrasConfirmar.ejecutar(() -> escribir(actual -> {
+            for (Long idRecordatorio : List.copyOf(actual.recordatoriosDe(idVehiculo))) {
+                actual.quitar(idRecordatorio);
+            }
+        }));
+    }
+
+    /**
+     * Recalcula los km restantes de los recordatorios del vehículo con su km actual, tal como
+     * queda tras editarlo (puede bajar o quedar vacío).
+     */
+    public void registrarKm(Vehiculo vehiculo) {
+        Long idVehiculo = vehiculo.getIdVehiculo();
+        Integer kmActual = vehiculo.getKmActual();
+        TrasConfirmar.ejecutar(() -> cambiarKm(idVehiculo, kmActual, false));
+    }
+
+    /**
+     * Sube el km actual del vehículo en sus recordatorios (nunca lo baja), igual que
+     * {@link com.adrian.taller_app.repository.VehiculoRepository#updateKmActualIfGreater}.
+     */
+    public void actualizarKm(Long idVehiculo, int km) {
+        TrasConfirmar.ejecutar(() -> cambiarKm(idVehiculo, km, true));
+    }
+
+    /**
+     * Reconstruye el índice completo desde BD. La lectura se hace sin el cerrojo: las escrituras
+     * que se confirman mientras tanto se aplican al índice vigente y se anotan, y al terminar se
+     * repiten sobre el nuevo (todas sustituyen o quitan entradas, así que repetir una que la
+     * lectura ya recogió no cambia nada) antes de sustituirlo, así que no se pierde ninguna.
+     */
+    @Scheduled(cron = "${app.recordatorios.resincronizacion-cron:0 0 * * * *}")
+    public void resincronizar() {
+        cerrojo.lock();
+        try {
+            if (cambiosDuranteResincronizacion != null) {
+                log.info("Resincronización de la urgencia de recordatorios ya en curso; se omite");
+                return;
+            }
+            cambiosDuranteResincronizacion = new ArrayList<>();
+        } finally {
+            cerrojo.unlock();
+        }
+
+        long inicio = System.currentTimeMillis();
+        Indice nuevo = new Indice();
+        int cargados = 0;
+        try {
+            try (Stream<Recordatorio> stream = recordatorioRepository.streamAll()) {
+                Iterator<Recordatorio> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    nuevo.poner(Entrada.de(iterator.next()));
+                    if (++cargados % CHUNK_SIZE == 0) {
+                        entityManager.clear();
+                    }
+                }
+            }
+            cerrojo.lock();
+            try {
+                cambiosDuranteResincronizacion.forEach(cambio -> cambio.accept(nuevo));
+                indice = nuevo;
+                cargado = true;
+            } finally {
+                cerrojo.unlock();
+            }
+        } finally {
+            cerrojo.lock();
+            try {
+                cambiosDuranteResincronizacion = null;
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+        log.info("Urgencia de recordatorios resincronizada: {} recordatorios en {} ms",
+                cargados, System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Índice provisional con solo los próximos a vencer, leído de BD (como mucho {@code limite}
+     * por cada rango, que es lo máximo que puede aportar cada uno a la mezcla).
+     */
+    private Indice consultarProximos(LocalDate hoy, int limite) {
+        Indice proximos = new Indice();
+        PageRequest pagina = PageRequest.of(0, limite);
+        recordatorioRepository.findProximosPorFecha(ModoRecordatorio.CON_FECHA, hoy, hoy.plusDays(DIAS_AVISO), pagina)
+                .forEach(recordatorio -> proximos.poner(Entrada.de(recordatorio)));
+        recordatorioRepository.findProximosPorKm(ModoRecordatorio.CON_KM, MARGEN_KM, pagina)
+                .forEach(recordatorio -> proximos.poner(Entrada.de(recordatorio)));
+        return proximos;
+    }
+
+    private void cambiarKm(Long idVehiculo, Integer km, boolean soloSiMayor) {
+        escribir(actual -> {
+            for (Long idRecordatorio : List.copyOf(actual.recordatoriosDe(idVehiculo))) {
+                Entrada entrada = actual.entradas.get(idRecordatorio);
+                if (entrada == null || entrada.kmObjetivo() == null
+                        || (soloSiMayor && entrada.kmActual() != null && entrada.kmActual() >= km)) {
+                    continue;
+                }
+                actual.poner(entrada.conKmActual(km));
+            }
+        });
+    }
+
+    /**
+     * Aplica la escritura al índice vigente y, si hay una resincronización en curso, la anota
+     * para repetirla sobre el índice nuevo.
+     */
+    private void escribir(Consumer<Indice> escritura) {
+        cerrojo.lock();
+        try {
+            escritura.accept(indice);
+            if (cambiosDuranteResincronizacion != null) {
+                cambiosDuranteResincronizacion.add(escritura);
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private static Entrada siguiente(Iterator<Entrada> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * Estructuras del índice. Las colas son concurrentes para que las lecturas no se bloqueen;
+     * las escrituras se hacen siempre con el cerrojo del servicio.
+     */
+    private static final class Indice {
+        private final Map<Long, Entrada> entradas = new ConcurrentHashMap<>();
+        private final NavigableSet<Entrada> porFecha = new ConcurrentSkipListSet<>(Entrada.POR_FECHA);
+        private final NavigableSet<Entrada> porKm = new ConcurrentSkipListSet<>(Entrada.POR_KM);
+        private final Map<Long, Set<Long>> porVehiculo = new HashMap<>();
+        // Próximos a vencer contados para diaConteo
+        private volatile LocalDate diaConteo = LocalDate.now();
+        private volatile int total;
+
+        void poner(Entrada entrada) {
+            quitar(entrada.idRecordatorio());
+            entradas.put(entrada.idRecordatorio(), entrada);
+            if (entrada.proxima(diaConteo)) {
+                total++;
+            }
+            if (entrada.fecha() != null) {
+                porFecha.add(entrada);
+            }
+            if (entrada.kmRestantes() != null) {
+                porKm.add(entrada);
+            }
+            porVehiculo.computeIfAbsent(entrada.idVehiculo(), id -> new HashSet<>()).add(entrada.idRecordatorio());
+        }
+
+        void quitar(Long idRecordatorio) {
+            Entrada anterior = entradas.remove(idRecordatorio);
+            if (anterior == null) {
+                return;
+            }
+            if (anterior.proxima(diaConteo)) {
+                total--;
+            }
+            if (anterior.fecha() != null) {
+                porFecha.remove(anterior);
+            }
+            if (anterior.kmRestantes() != null) {
+                porKm.remove(anterior);
+            }
+            Set<Long> delVehiculo = porVehiculo.get(anterior.idVehiculo());
+            if (delVehiculo != null) {
+                delVehiculo.remove(idRecordatorio);
+                if (delVehiculo.isEmpty()) {
+                    porVehiculo.remove(anterior.idVehiculo());
+                }
+            }
+        }
+
+        Set<Long> recordatoriosDe(Long idVehiculo) {
+            return porVehiculo.getOrDefault(idVehiculo, Set.of());
+        }
+
+        void recontar(LocalDate hoy) {
+            if (hoy.equals(diaConteo)) {
+                return;
+            }
+            int nuevo = porFecha.subSet(
+                    Entrada.sondaFecha(hoy, Long.MIN_VALUE), true,
+                    Entrada.sondaFecha(hoy.plusDays(DIAS_AVISO), Long.MAX_VALUE), true).size();
+            for (Entrada entrada : porKm.subSet(
+                    Entrada.sondaKm(0, Long.MIN_VALUE), true,
+                    Entrada.sondaKm(MARGEN_KM, Long.MAX_VALUE), true)) {
+                if (!entrada.fechaProxima(hoy)) {
+                    nuevo++;
+                }
+            }
+            total = nuevo;
+            diaConteo = hoy;
+        }
+    }
+
+    /**
+     * Datos de un recordatorio para calcular su urgencia. La fecha solo se guarda si el modo la
+     * usa; los km restantes ya vienen a null en los modos que no son por km.
+     */
+    private record Entrada(Long idRecordatorio, Long idVehiculo, LocalDate fecha, Integer kmObjetivo, Integer kmRestantes) {
+
+        static final Comparator<Entrada> POR_FECHA = Comparator.comparing(Entrada::fecha)
+                .thenComparing(Entrada::idRecordatorio);
+        static final Comparator<Entrada> POR_KM = Comparator.comparing(Entrada::kmRestantes)
+                .thenComparing(Entrada::idRecordatorio);
+
+        static Entrada de(Recordatorio recordatorio) {
+            ModoRecordatorio modo = recordatorio.getModo();
+            boolean usaKm = modo != null && modo.usaKm();
+            return new Entrada(
+                    recordatorio.getIdRecordatorio(),
+                    // Solo el id: no inicializa el vehículo si no está cargado
+                    recordatorio.getVehiculo().getIdVehiculo(),
+                    modo != null && modo.usaFecha() ? recordatorio.getFechaObjetivo() : null,
+                    usaKm ? recordatorio.getKmObjetivo() : null,
+                    usaKm ? recordatorio.getKmRestantes() : null
+            );
+        }
+
+        static Entrada sondaFecha(LocalDate fecha, long idRecordatorio) {
+            return new Entrada(idRecordatorio, null, fecha, null, null);
+        }
+
+        static Entrada sondaKm(int kmRestantes, long idRecordatorio) {
+            return new Entrada(idRecordatorio, null, null, null, kmRestantes);
+        }
+
+        boolean fechaProxima(LocalDate hoy) {
+            return fecha != null && !fecha.isBefore(hoy) && !fecha.isAfter(hoy.plusDays(DIAS_AVISO));
+        }
+
+        boolean kmProximos() {
+            return kmRestantes != null && kmRestantes >= 0 && kmRestantes <= MARGEN_KM;
+        }
+
+        boolean proxima(LocalDate hoy) {
+            return fechaProxima(hoy) || kmProximos();
+        }
+
+        long diasHasta(LocalDate hoy) {
+            return ChronoUnit.DAYS.between(hoy, fecha);
+        }
+
+        /**
+         * Si está en los dos rangos, sale antes por fecha que por km (mismo criterio que la mezcla).
+         */
+        boolean antesPorFecha(LocalDate hoy) {
+            return diasHasta(hoy) <= kmRestantes / KM_POR_DIA;
+        }
+
+        Integer kmActual() {
+            return kmObjetivo != null && kmRestantes != null ? kmObjetivo - kmRestantes : null;
+        }
+
+        Entrada conKmActual(Integer km) {
+            return new Entrada(idRecordatorio, idVehiculo, fecha, kmObjetivo,
+                    kmObjetivo != null && km != null ? kmObjetivo - km : null);
+        }
+    }
+}
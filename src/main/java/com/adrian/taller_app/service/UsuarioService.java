@@ -4,15 +4,16 @@ import com.adrian.taller_app.domain.RolUsuario;
 import com.adrian.taller_app.domain.Usuario;
 import com.adrian.taller_app.repository.OrdenTrabajoRepository;
 import com.adrian.taller_app.repository.UsuarioRepository;
+import com.adrian.taller_app.web.PaginaAproximada;
 import com.adrian.taller_app.web.UsuarioForm;
 import jakarta.persistence.EntityNotFoundException;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Servicio para la gestión de usuarios del sistema.
@@ -25,13 +26,19 @@ public class UsuarioService {
     private final UsuarioRepository usuarioRepository;
     private final OrdenTrabajoRepository ordenTrabajoRepository;
     private final PasswordEncoder passwordEncoder;
+    private final BusquedaOrdenesService busquedaOrdenesService;
+    private final ConteoAproximadoService conteoAproximadoService;
 
     public UsuarioService(UsuarioRepository usuarioRepository,
                           OrdenTrabajoRepository ordenTrabajoRepository,
-                          PasswordEncoder passwordEncoder) {
+                          PasswordEncoder passwordEncoder,
+                          BusquedaOrdenesService busquedaOrdenesService,
+                          ConteoAproximadoService conteoAproximadoService) {
         this.usuarioRepository = usuarioRepository;
         this.ordenTrabajoRepository = ordenTrabajoRepository;
         this.passwordEncoder = passwordEncoder;
+        this.busquedaOrdenesService = busquedaOrdenesService;
+        this.conteoAproximadoService = conteoAproximadoService;
     }
 
     public List<Usuario> findActivos() {
@@ -46,8 +53,9 @@ public class UsuarioService {
         return usuarioRepository.findAll();
     }
 
-    public Page<Usuario> findAll(Pageable pageable) {
-        return usuarioRepository.findAllByOrderByNombreAsc(pageable);
+    public PaginaAproximada<Usuario> findAll(Pageable pageable) {
+        return new PaginaAproximada<>(usuarioRepository.findAllByOrderByNombreAsc(pageable),
+                conteoAproximadoService.contar(ConteoAproximadoService.USUARIOS, usuarioRepository::count));
     }
 
     public Usuario findById(Long idUsuario) {
@@ -102,7 +110,9 @@ public class UsuarioService {
         Usuario usuario = new Usuario();
         applyForm(usuario, form);
         usuario.setPasswordHash(passwordEncoder.encode(form.getPassword()));
-        return usuarioRepository.save(usuario);
+        Usuario saved = usuarioRepository.save(usuario);
+        conteoAproximadoService.invalidar(ConteoAproximadoService.USUARIOS);
+        return saved;
     }
 
     /**
@@ -122,10 +132,15 @@ public class UsuarioService {
                 .ifPresent(existente -> {
                     throw new IllegalStateException("El nombre de usuario ya existe.");
                 });
+        String nombreAnterior = usuario.getNombre();
         applyForm(usuario, form);
         if (form.getPassword() != null && !form.getPassword().isBlank()) {
             usuario.setPasswordHash(passwordEncoder.encode(form.getPassword()));
         }
+        // El nombre del mecánico se indexa con cada orden que tiene asignada
+        if (!Objects.equals(nombreAnterior, usuario.getNombre())) {
+            busquedaOrdenesService.indexar(ordenTrabajoRepository.findAllByUsuarioAsignado_IdUsuario(idUsuario));
+        }
         return usuario;
     }
 
@@ -138,6 +153,7 @@ public class UsuarioService {
             throw new IllegalStateException("No se puede eliminar el usuario porque tiene OT asignadas.");
         }
         usuarioRepository.deleteById(idUsuario);
+        conteoAproximadoService.invalidar(ConteoAproximadoService.USUARIOS);
     }
 
     private void applyForm(Usuario usuario, UsuarioForm form) {
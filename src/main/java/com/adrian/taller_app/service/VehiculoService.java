@@ -1,16 +1,25 @@
 package com.adrian.taller_app.service;
 
 import com.adrian.taller_app.domain.Cliente;
+import com.adrian.taller_app.domain.ModoRecordatorio;
 import com.adrian.taller_app.domain.Vehiculo;
 import com.adrian.taller_app.repository.ClienteRepository;
+import com.adrian.taller_app.repository.OrdenTrabajoRepository;
+import com.adrian.taller_app.repository.RecordatorioRepository;
 import com.adrian.taller_app.repository.VehiculoRepository;
+import com.adrian.taller_app.validation.Formatos;
+import com.adrian.taller_app.web.PaginaAproximada;
+import com.adrian.taller_app.web.VehiculoFila;
 import jakarta.persistence.EntityNotFoundException;
-import org.springframework.data.domain.Page;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Servicio para la gestión de vehículos.
@@ -22,46 +31,80 @@ public class VehiculoService {
 
     private final VehiculoRepository vehiculoRepository;
     private final ClienteRepository clienteRepository;
-
-    public VehiculoService(VehiculoRepository vehiculoRepository, ClienteRepository clienteRepository) {
+    private final OrdenTrabajoRepository ordenTrabajoRepository;
+    private final RecordatorioRepository recordatorioRepository;
+    private final BusquedaOrdenesService busquedaOrdenesService;
+    private final SugerenciasVehiculoService sugerenciasVehiculoService;
+    private final UrgenciaRecordatoriosService urgenciaRecordatoriosService;
+    private final ConteoAproximadoService conteoAproximadoService;
+
+    public VehiculoService(VehiculoRepository vehiculoRepository,
+                           ClienteRepository clienteRepository,
+                           OrdenTrabajoRepository ordenTrabajoRepository,
+                           RecordatorioRepository recordatorioRepository,
+                           BusquedaOrdenesService busquedaOrdenesService,
+                           SugerenciasVehiculoService sugerenciasVehiculoService,
+                           UrgenciaRecordatoriosService urgenciaRecordatoriosService,
+                           ConteoAproximadoService conteoAproximadoService) {
         this.vehiculoRepository = vehiculoRepository;
         this.clienteRepository = clienteRepository;
+        this.ordenTrabajoRepository = ordenTrabajoRepository;
+        this.recordatorioRepository = recordatorioRepository;
+        this.busquedaOrdenesService = busquedaOrdenesService;
+        this.sugerenciasVehiculoService = sugerenciasVehiculoService;
+        this.urgenciaRecordatoriosService = urgenciaRecordatoriosService;
+        this.conteoAproximadoService = conteoAproximadoService;
     }
 
-    public List<Vehiculo> findAll() {
-        return vehiculoRepository.findAllByOrderByMatriculaAsc();
-    }
-
-    public Page<Vehiculo> findAll(Pageable pageable) {
-        return vehiculoRepository.findAllByOrderByMatriculaAsc(pageable);
+    public PaginaAproximada<VehiculoFila> findAll(Pageable pageable) {
+        return new PaginaAproximada<>(vehiculoRepository.findFilasOrderByMatricula(pageable),
+                conteoAproximadoService.contar(ConteoAproximadoService.VEHICULOS, vehiculoRepository::count));
     }
 
+    /**
+     * Vehículo sin su cliente: fuera de la transacción solo es accesible el id del cliente.
+     */
     public Vehiculo findById(Long idVehiculo) {
         return vehiculoRepository.findById(idVehiculo)
                 .orElseThrow(() -> new EntityNotFoundException("Vehículo no encontrado"));
     }
 
+    /**
+     * Vehículo con su cliente ({@link Vehiculo#GRAFO_CON_CLIENTE}), para la ficha del vehículo y
+     * el formulario de edición.
+     */
     public Vehiculo findByIdWithCliente(Long idVehiculo) {
         return vehiculoRepository.findWithClienteByIdVehiculo(idVehiculo)
                 .orElseThrow(() -> new EntityNotFoundException("Vehículo no encontrado"));
     }
 
-    public List<Vehiculo> findAllByCliente(Long idCliente) {
-        return vehiculoRepository.findAllByCliente_IdClienteOrderByMatriculaAsc(idCliente);
+    public List<VehiculoFila> findAllByCliente(Long idCliente) {
+        return vehiculoRepository.findFilasByCliente(idCliente);
     }
 
     @Transactional
+    @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_VEHICULOS)
     public Vehiculo create(Vehiculo vehiculo) {
         sanitize(vehiculo);
         Cliente cliente = resolveCliente(vehiculo);
         vehiculo.setCliente(cliente);
         validateMatricula(vehiculo, null);
-        return vehiculoRepository.save(vehiculo);
+        Vehiculo saved = vehiculoRepository.save(vehiculo);
+        sugerenciasVehiculoService.registrar(saved);
+        conteoAproximadoService.invalidar(ConteoAproximadoService.VEHICULOS);
+        return saved;
     }
 
     @Transactional
+    @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_RECORDATORIOS)
     public Vehiculo update(Long idVehiculo, Vehiculo datos) {
         Vehiculo existente = findById(idVehiculo);
+        if (datos.getVersion() != null && !datos.getVersion().equals(existente.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Vehiculo.class, idVehiculo);
+        }
+        String matriculaAnterior = existente.getMatricula();
+        Integer kmAnterior = existente.getKmActual();
+        Long idClienteAnterior = existente.getCliente() != null ? existente.getCliente().getIdCliente() : null;
         sanitize(datos);
         Cliente cliente = resolveCliente(datos);
         existente.setCliente(cliente);
@@ -71,15 +114,35 @@ public class VehiculoService {
         existente.setAnio(datos.getAnio());
         existente.setKmActual(datos.getKmActual());
         validateMatricula(existente, idVehiculo);
-        return vehiculoRepository.save(existente);
+        Vehiculo saved = vehiculoRepository.save(existente);
+        sugerenciasVehiculoService.registrar(saved);
+        if (!Objects.equals(kmAnterior, saved.getKmActual())) {
+            recordatorioRepository.actualizarKmRestantes(idVehiculo, saved.getKmActual(), ModoRecordatorio.CON_KM);
+            urgenciaRecordatoriosService.registrarKm(saved);
+        }
+        // La matrícula y el cliente se indexan con cada orden del vehículo
+        if (!Objects.equals(matriculaAnterior, saved.getMatricula())
+                || !Objects.equals(idClienteAnterior, cliente.getIdCliente())) {
+            busquedaOrdenesService.indexar(
+                    ordenTrabajoRepository.findAllByVehiculo_IdVehiculoOrderByFechaCreacionDesc(idVehiculo));
+        }
+        return saved;
     }
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_VEHICULOS),
+            @CacheEvict(cacheNames = DashboardService.CACHE, key = DashboardService.KEY_RECORDATORIOS)
+    })
     public void delete(Long idVehiculo) {
         if (!vehiculoRepository.existsById(idVehiculo)) {
             throw new EntityNotFoundException("Vehículo no encontrado");
         }
         vehiculoRepository.deleteById(idVehiculo);
+        sugerenciasVehiculoService.eliminar(idVehiculo);
+        urgenciaRecordatoriosService.eliminarVehiculo(idVehiculo);
+        conteoAproximadoService.invalidar(ConteoAproximadoService.VEHICULOS);
+        conteoAproximadoService.invalidar(ConteoAproximadoService.RECORDATORIOS);
     }
 
     private Cliente resolveCliente(Vehiculo vehiculo) {
@@ -110,15 +173,8 @@ public class VehiculoService {
     }
 
     private void sanitize(Vehiculo vehiculo) {
-        String matricula = clean(vehiculo.getMatricula());
-        if (matricula != null) {
-            // Normalizar matrícula: mayúsculas, sin espacios y sin guiones
-            vehiculo.setMatricula(matricula.toUpperCase()
-                    .replaceAll("\\s+", "")
-                    .replaceAll("-", ""));
-        } else {
-            vehiculo.setMatricula(null);
-        }
+        // Normalizar matrícula: mayúsculas, sin espacios y sin guiones
+        vehiculo.setMatricula(Formatos.normalizarMatricula(clean(vehiculo.getMatricula())));
         vehiculo.setMarca(clean(vehiculo.getMarca()));
         vehiculo.setModelo(clean(vehiculo.getModelo()));
     }
@@ -2,15 +2,9 @@ package com.adrian.taller_app.validation;
 
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
-import java.util.regex.Pattern;
 
 public class EmailRealValidator implements ConstraintValidator<EmailReal, String> {
 
-    private static final String EMAIL_PATTERN = 
-        "^[a-zA-Z0-9.!#$%&'*+/=?^_`{|}~-]+@[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?(?:\\.[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?)*$";
-    
-    private static final Pattern pattern = Pattern.compile(EMAIL_PATTERN);
-    
     private boolean required;
 
     @Override
@@ -20,27 +14,12 @@ public class EmailRealValidator implements ConstraintValidator<EmailReal, String
 
     @Override
     public boolean isValid(String email, ConstraintValidatorContext context) {
-        // Si no es requerido y está vacío, es válido
-        if (!required && (email == null || email.trim().isEmpty())) {
-            return true;
+        // Si está vacío, solo es válido cuando no es requerido
+        if (Formatos.estaVacio(email)) {
+            return !required;
         }
 
-        // Si es requerido y está vacío, no es válido
-        if (required && (email == null || email.trim().isEmpty())) {
-            return false;
-        }
-
-        // Validar formato de email
-        if (email == null || email.trim().isEmpty()) {
-            return false;
-        }
-
-        // Validar longitud máxima
-        if (email.length() > 100) {
-            return false;
-        }
-
-        // Validar formato con regex
-        return pattern.matcher(email.trim()).matches();
+        // Formato y longitud máxima (100 caracteres)
+        return Formatos.esEmailValido(email);
     }
 }
@@ -0,0 +1,311 @@
+package com.adrian.taller_app.validation;
+
+/**
+ * Validación y normalización de matrículas, NIF/NIE, teléfonos y emails, compartida por los
+ * validadores y los servicios.
+ * <p>
+ * Cada comprobación recorre el texto una sola vez, carácter a carácter, ignorando los
+ * separadores que se admiten al escribirlo (espacios, guiones...) en lugar de construir primero
+ * la versión normalizada; no se crea ningún objeto salvo al normalizar un texto que realmente
+ * cambia. Aceptan lo mismo que las expresiones regulares que sustituyen (lo comprueba
+ * {@code FormatosTests} con entradas aleatorias), salvo con letras no ASCII cuya mayúscula es
+ * ASCII, como "ſ" o "ı": antes pasaban tras {@code String.toUpperCase()} y ahora no se admiten.
+ * Por lo mismo, las mayúsculas ya no dependen del idioma por defecto de la JVM.
+ */
+public final class Formatos {
+
+    private static final String LETRAS_NIF = "TRWAGMYFPDXBNJZSQVHLCKE";
+    private static final int LONGITUD_MAXIMA_EMAIL = 100;
+    private static final int LONGITUD_MAXIMA_ETIQUETA = 63;
+
+    private Formatos() {
+    }
+
+    /**
+     * Vacío o solo espacios (equivale a {@code valor.trim().isEmpty()}).
+     */
+    public static boolean estaVacio(String valor) {
+        if (valor == null) {
+            return true;
+        }
+        for (int i = 0; i < valor.length(); i++) {
+            if (valor.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Matrícula en mayúsculas, sin espacios ni guiones. Devuelve el mismo texto si ya lo está.
+     */
+    public static String normalizarMatricula(String matricula) {
+        return normalizar(matricula, true);
+    }
+
+    /**
+     * NIF/NIE en mayúsculas y sin espacios. Devuelve el mismo texto si ya lo está.
+     */
+    public static String normalizarNif(String nif) {
+        return normalizar(nif, false);
+    }
+
+    /**
+     * Matrícula española, ignorando espacios, guiones y mayúsculas/minúsculas:
+     * formato actual (desde 2000) de 4 dígitos y 3 consonantes sin Q (1234BCD), o provincial
+     * (1971-2000) de 1-2 letras, 4 dígitos y 1-2 letras (M1234AB).
+     */
+    public static boolean esMatriculaValida(String matricula) {
+        if (matricula == null) {
+            return false;
+        }
+        int letrasIniciales = 0;
+        int digitos = 0;
+        int letrasFinales = 0;
+        boolean finalesConsonantes = true;
+        int fin = finSinEspacios(matricula);
+        for (int i = inicioSinEspacios(matricula); i < fin; i++) {
+            char c = matricula.charAt(i);
+            if (esEspacio(c) || c == '-') {
+                continue;
+            }
+            if (c >= '0' && c <= '9') {
+                if (letrasFinales > 0) {
+                    return false;
+                }
+                digitos++;
+            } else if (esLetra(c)) {
+                char letra = mayuscula(c);
+                if (digitos == 0) {
+                    letrasIniciales++;
+                } else {
+                    letrasFinales++;
+                    finalesConsonantes &= esConsonanteMatricula(letra);
+                }
+            } else {
+                return false;
+            }
+        }
+        if (digitos != 4) {
+            return false;
+        }
+        if (letrasIniciales == 0) {
+            return letrasFinales == 3 && finalesConsonantes;
+        }
+        return letrasIniciales <= 2 && letrasFinales >= 1 && letrasFinales <= 2;
+    }
+
+    /**
+     * DNI (8 dígitos y letra) o NIE (X/Y/Z, 7 dígitos y letra) con la letra de control correcta,
+     * ignorando espacios y mayúsculas/minúsculas.
+     */
+    public static boolean esNifValido(String nif) {
+        if (nif == null) {
+            return false;
+        }
+        int posicion = 0;
+        int numero = 0;
+        char control = 0;
+        int fin = finSinEspacios(nif);
+        for (int i = inicioSinEspacios(nif); i < fin; i++) {
+            char c = nif.charAt(i);
+            if (esEspacio(c)) {
+                continue;
+            }
+            if (posicion > 8) {
+                return false;
+            }
+            c = esLetra(c) ? mayuscula(c) : c;
+            if (posicion == 8) {
+                if (c < 'A' || c > 'Z') {
+                    return false;
+                }
+                control = c;
+            } else if (c >= '0' && c <= '9') {
+                numero = numero * 10 + (c - '0');
+            } else if (posicion == 0 && c >= 'X' && c <= 'Z') {
+                // NIE: la letra inicial equivale a 0, 1 o 2
+                numero = c - 'X';
+            } else {
+                return false;
+            }
+            posicion++;
+        }
+        return posicion == 9 && LETRAS_NIF.charAt(numero % 23) == control;
+    }
+
+    /**
+     * Teléfono español de 9 dígitos que empieza por 6, 7, 8 o 9. Admite espacios, guiones,
+     * paréntesis y el prefijo +34 o 0034.
+     */
+    public static boolean esTelefonoValido(String telefono) {
+        if (telefono == null) {
+            return false;
+        }
+        int digitos = 0;
+        int prefijo = 0;
+        char primero = 0;
+        char quinto = 0;
+        // Posición dentro de un "+34" (se elimina esté donde esté)
+        int enMas34 = 0;
+        int fin = finSinEspacios(telefono);
+        for (int i = inicioSinEspacios(telefono); i < fin; i++) {
+            char c = telefono.charAt(i);
+            if (esEspacio(c) || c == '-' || c == '(' || c == ')') {
+                continue;
+            }
+            if (enMas34 == 1) {
+                if (c != '3') {
+                    return false;
+                }
+                enMas34 = 2;
+            } else if (enMas34 == 2) {
+                if (c != '4') {
+                    return false;
+                }
+                enMas34 = 0;
+            } else if (c == '+') {
+                enMas34 = 1;
+            } else if (c >= '0' && c <= '9') {
+                if (digitos == 0) {
+                    primero = c;
+                }
+                if (digitos < 4) {
+                    prefijo = prefijo * 10 + (c - '0');
+                } else if (digitos == 4) {
+                    quinto = c;
+                }
+                digitos++;
+            } else {
+                return false;
+            }
+        }
+        if (enMas34 != 0) {
+            return false;
+        }
+        if (digitos == 13 && primero == '0' && prefijo == 34) {
+            // 0034 + 9 dígitos
+            return quinto >= '6' && quinto <= '9';
+        }
+        return digitos == 9 && primero >= '6' && primero <= '9';
+    }
+
+    /**
+     * Email con parte local de caracteres permitidos por RFC 5322 (sin comillas) y dominio de
+     * etiquetas alfanuméricas con guiones internos, de hasta 63 caracteres cada una. Se ignoran
+     * los espacios de los extremos; el total, con ellos, no puede pasar de 100 caracteres.
+     */
+    public static boolean esEmailValido(String email) {
+        if (email == null || email.length() > LONGITUD_MAXIMA_EMAIL) {
+            return false;
+        }
+        int inicio = inicioSinEspacios(email);
+        int fin = finSinEspacios(email);
+        int arroba = inicio;
+        while (arroba < fin && email.charAt(arroba) != '@') {
+            if (!esCaracterLocalEmail(email.charAt(arroba))) {
+                return false;
+            }
+            arroba++;
+        }
+        if (arroba == inicio || arroba == fin) {
+            return false;
+        }
+        // Dominio: etiquetas separadas por puntos
+        int longitudEtiqueta = 0;
+        char anterior = '.';
+        for (int i = arroba + 1; i < fin; i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                if (longitudEtiqueta == 0 || anterior == '-') {
+                    return false;
+                }
+                longitudEtiqueta = 0;
+            } else if (esAlfanumerico(c) || (c == '-' && longitudEtiqueta > 0)) {
+                if (++longitudEtiqueta > LONGITUD_MAXIMA_ETIQUETA) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+            anterior = c;
+        }
+        return longitudEtiqueta > 0 && anterior != '-';
+    }
+
+    private static String normalizar(String valor, boolean sinGuiones) {
+        if (valor == null) {
+            return null;
+        }
+        int i = 0;
+        while (i < valor.length()) {
+            char c = valor.charAt(i);
+            if (esEspacio(c) || (sinGuiones && c == '-') || Character.toUpperCase(c) != c) {
+                break;
+            }
+            i++;
+        }
+        if (i == valor.length()) {
+            return valor;
+        }
+        StringBuilder normalizado = new StringBuilder(valor.length());
+        normalizado.append(valor, 0, i);
+        for (; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (!esEspacio(c) && !(sinGuiones && c == '-')) {
+                normalizado.append(Character.toUpperCase(c));
+            }
+        }
+        return normalizado.toString();
+    }
+
+    /**
+     * Espacios que se descartan en cualquier posición: los de {@code \s} en una expresión
+     * regular (espacio, tabulador, saltos de línea, tabulador vertical y avance de página).
+     */
+    private static boolean esEspacio(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    /**
+     * Primera posición tras los espacios y caracteres de control iniciales, como {@link String#trim()}.
+     */
+    private static int inicioSinEspacios(String valor) {
+        int inicio = 0;
+        while (inicio < valor.length() && valor.charAt(inicio) <= ' ') {
+            inicio++;
+        }
+        return inicio;
+    }
+
+    /**
+     * Posición siguiente al último carácter que no es espacio ni de control, como {@link String#trim()}.
+     */
+    private static int finSinEspacios(String valor) {
+        int fin = valor.length();
+        while (fin > 0 && valor.charAt(fin - 1) <= ' ') {
+            fin--;
+        }
+        return fin;
+    }
+
+    private static boolean esLetra(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static char mayuscula(char c) {
+        return c >= 'a' ? (char) (c - ('a' - 'A')) : c;
+    }
+
+    private static boolean esConsonanteMatricula(char letra) {
+        return letra != 'A' && letra != 'E' && letra != 'I' && letra != 'O' && letra != 'U' && letra != 'Q';
+    }
+
+    private static boolean esAlfanumerico(char c) {
+        return esLetra(c) || (c >= '0' && c <= '9');
+    }
+
+    private static boolean esCaracterLocalEmail(char c) {
+        return esAlfanumerico(c) || ".!#$%&'*+/=?^_`{|}~-".indexOf(c) >= 0;
+    }
+}
@@ -14,65 +14,12 @@ public class NifValidator implements ConstraintValidator<Nif, String> {
 
     @Override
     public boolean isValid(String nif, ConstraintValidatorContext context) {
-        // Si no es requerido y está vacío, es válido
-        if (!required && (nif == null || nif.trim().isEmpty())) {
-            return true;
+        // Si está vacío, solo es válido cuando no es requerido
+        if (Formatos.estaVacio(nif)) {
+            return !required;
         }
 
-        // Si es requerido y está vacío, no es válido
-        if (required && (nif == null || nif.trim().isEmpty())) {
-            return false;
-        }
-
-        // Normalizar: quitar espacios y convertir a mayúsculas
-        String normalized = nif.trim().toUpperCase().replaceAll("\\s+", "");
-
-        // Validar formato básico
-        if (normalized.length() < 8 || normalized.length() > 9) {
-            return false;
-        }
-
-        // Validar DNI (8 dígitos + 1 letra)
-        if (normalized.matches("^[0-9]{8}[A-Z]$")) {
-            return validarNif(normalized);
-        }
-
-        // Validar NIE (X/Y/Z + 7 dígitos + letra) - extranjeros
-        if (normalized.matches("^[XYZ][0-9]{7}[A-Z]$")) {
-            return validarNie(normalized);
-        }
-
-        return false;
-    }
-
-    private boolean validarNif(String nif) {
-        try {
-            String numero = nif.substring(0, 8);
-            String letra = nif.substring(8, 9);
-            String letras = "TRWAGMYFPDXBNJZSQVHLCKE";
-            int resto = Integer.parseInt(numero) % 23;
-            return letras.charAt(resto) == letra.charAt(0);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    private boolean validarNie(String nie) {
-        try {
-            String letraInicial = nie.substring(0, 1);
-            String numero = nie.substring(1, 8);
-            String letra = nie.substring(8, 9);
-
-            // Reemplazar letra inicial por número
-            String numeroNif = letraInicial.replace("X", "0")
-                                          .replace("Y", "1")
-                                          .replace("Z", "2") + numero;
-
-            String letras = "TRWAGMYFPDXBNJZSQVHLCKE";
-            int resto = Integer.parseInt(numeroNif) % 23;
-            return letras.charAt(resto) == letra.charAt(0);
-        } catch (Exception e) {
-            return false;
-        }
+        // DNI (8 dígitos + letra) o NIE (X/Y/Z + 7 dígitos + letra) con letra de control correcta
+        return Formatos.esNifValido(nif);
     }
 }
@@ -0,0 +1,50 @@
+package com.adrian.taller_app.web;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO de solo lectura con las columnas de un cliente que muestran el listado y la exportación
+ * CSV. Se construye directamente en la consulta, sin cargar el cliente como entidad.
+ */
+public class ClienteFila {
+    private final Long idCliente;
+    private final String nombre;
+    private final String telefono;
+    private final String email;
+    private final String nif;
+    private final LocalDateTime fechaAlta;
+
+    public ClienteFila(Long idCliente, String nombre, String telefono, String email, String nif,
+                       LocalDateTime fechaAlta) {
+        this.idCliente = idCliente;
+        this.nombre = nombre;
+        this.telefono = telefono;
+        this.email = email;
+        this.nif = nif;
+        this.fechaAlta = fechaAlta;
+    }
+
+    public Long getIdCliente() {
+        return idCliente;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getTelefono() {
+        return telefono;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getNif() {
+        return nif;
+    }
+
+    public LocalDateTime getFechaAlta() {
+        return fechaAlta;
+    }
+}
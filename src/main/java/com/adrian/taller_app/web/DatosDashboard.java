@@ -0,0 +1,51 @@
+package com.adrian.taller_app.web;
+
+import java.util.List;
+
+/**
+ * DTO con los bloques del dashboard. Un bloque que no se pudo obtener a tiempo queda a null
+ * y el resumen se marca como incompleto; los bloques que no corresponden al rol también quedan a null.
+ */
+public class DatosDashboard {
+    private final Long clientesRegistrados;
+    private final Long vehiculosRegistrados;
+    private final Long ordenesAbiertas;
+    private final ResumenFacturacion resumenFacturacion;
+    private final List<RecordatorioFila> recordatoriosProximos;
+    private final boolean incompleto;
+
+    public DatosDashboard(Long clientesRegistrados, Long vehiculosRegistrados, Long ordenesAbiertas,
+                          ResumenFacturacion resumenFacturacion, List<RecordatorioFila> recordatoriosProximos,
+                          boolean incompleto) {
+        this.clientesRegistrados = clientesRegistrados;
+        this.vehiculosRegistrados = vehiculosRegistrados;
+        this.ordenesAbiertas = ordenesAbiertas;
+        this.resumenFacturacion = resumenFacturacion;
+        this.recordatoriosProximos = recordatoriosProximos;
+        this.incompleto = incompleto;
+    }
+
+    public Long getClientesRegistrados() {
+        return clientesRegistrados;
+    }
+
+    public Long getVehiculosRegistrados() {
+        return vehiculosRegistrados;
+    }
+
+    public Long getOrdenesAbiertas() {
+        return ordenesAbiertas;
+    }
+
+    public ResumenFacturacion getResumenFacturacion() {
+        return resumenFacturacion;
+    }
+
+    public List<RecordatorioFila> getRecordatoriosProximos() {
+        return recordatoriosProximos;
+    }
+
+    public boolean isIncompleto() {
+        return incompleto;
+    }
+}
@@ -0,0 +1,92 @@
+package com.adrian.taller_app.web;
+
+import com.adrian.taller_app.domain.EstadoOrdenTrabajo;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO de solo lectura con las columnas de una orden que se exportan a CSV. Se construye
+ * directamente en la consulta, de modo que el cursor de exportación no llena el contexto de
+ * persistencia con órdenes, vehículos, clientes y usuarios.
+ */
+public class OrdenTrabajoExportacion {
+    private final Long idOt;
+    private final String matricula;
+    private final String nombreCliente;
+    private final String nombreUsuario;
+    private final EstadoOrdenTrabajo estado;
+    private final LocalDateTime fechaCreacion;
+    private final LocalDateTime fechaCierre;
+    private final Integer kmEntrada;
+    private final String descripcion;
+    private final BigDecimal subtotal;
+    private final BigDecimal ivaTotal;
+    private final BigDecimal total;
+
+    public OrdenTrabajoExportacion(Long idOt, String matricula, String nombreCliente, String nombreUsuario,
+                                   EstadoOrdenTrabajo estado, LocalDateTime fechaCreacion,
+                                   LocalDateTime fechaCierre, Integer kmEntrada, String descripcion,
+                                   BigDecimal subtotal, BigDecimal ivaTotal, BigDecimal total) {
+        this.idOt = idOt;
+        this.matricula = matricula;
+        this.nombreCliente = nombreCliente;
+        this.nombreUsuario = nombreUsuario;
+        this.estado = estado;
+        this.fechaCreacion = fechaCreacion;
+        this.fechaCierre = fechaCierre;
+        this.kmEntrada = kmEntrada;
+        this.descripcion = descripcion;
+        this.subtotal = subtotal;
+        this.ivaTotal = ivaTotal;
+        this.total = total;
+    }
+
+    public Long getIdOt() {
+        return idOt;
+    }
+
+    public String getMatricula() {
+        return matricula;
+    }
+
+    public String getNombreCliente() {
+        return nombreCliente;
+    }
+
+    public String getNombreUsuario() {
+        return nombreUsuario;
+    }
+
+    public EstadoOrdenTrabajo getEstado() {
+        return estado;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public LocalDateTime getFechaCierre() {
+        return fechaCierre;
+    }
+
+    public Integer getKmEntrada() {
+        return kmEntrada;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+
+    public BigDecimal getSubtotal() {
+        return subtotal;
+    }
+
+    public BigDecimal getIvaTotal() {
+        return ivaTotal;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,80 @@
+package com.adrian.taller_app.web;
+
+import com.adrian.taller_app.domain.EstadoOrdenTrabajo;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO de solo lectura con las columnas de una orden que muestran los listados (listado paginado,
+ * búsqueda y órdenes de un vehículo o cliente). Se construye directamente en la consulta, sin
+ * cargar la orden, el vehículo, el cliente ni el usuario como entidades.
+ * La descripción (TEXT) solo se lee en las fichas de vehículo y cliente; en el resto queda a null.
+ */
+public class OrdenTrabajoFila {
+    private final Long idOt;
+    private final LocalDateTime fechaCreacion;
+    private final LocalDateTime fechaCierre;
+    private final EstadoOrdenTrabajo estado;
+    private final BigDecimal total;
+    private final String matricula;
+    private final String nombreCliente;
+    private final String nombreUsuario;
+    private final String descripcion;
+
+    public OrdenTrabajoFila(Long idOt, LocalDateTime fechaCreacion, LocalDateTime fechaCierre,
+                            EstadoOrdenTrabajo estado, BigDecimal total, String matricula,
+                            String nombreCliente, String nombreUsuario) {
+        this(idOt, fechaCreacion, fechaCierre, estado, total, matricula, nombreCliente, nombreUsuario, null);
+    }
+
+    public OrdenTrabajoFila(Long idOt, LocalDateTime fechaCreacion, LocalDateTime fechaCierre,
+                            EstadoOrdenTrabajo estado, BigDecimal total, String matricula,
+                            String nombreCliente, String nombreUsuario, String descripcion) {
+        this.idOt = idOt;
+        this.fechaCreacion = fechaCreacion;
+        this.fechaCierre = fechaCierre;
+        this.estado = estado;
+        this.total = total;
+        this.matricula = matricula;
+        this.nombreCliente = nombreCliente;
+        this.nombreUsuario = nombreUsuario;
+        this.descripcion = descripcion;
+    }
+
+    public Long getIdOt() {
+        return idOt;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public LocalDateTime getFechaCierre() {
+        return fechaCierre;
+    }
+
+    public EstadoOrdenTrabajo getEstado() {
+        return estado;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public String getMatricula() {
+        return matricula;
+    }
+
+    public String getNombreCliente() {
+        return nombreCliente;
+    }
+
+    public String getNombreUsuario() {
+        return nombreUsuario;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+}
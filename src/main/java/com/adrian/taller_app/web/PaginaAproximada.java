@@ -0,0 +1,55 @@
+package com.adrian.taller_app.web;
+
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * DTO para una página leída como Slice (sin COUNT(*)) con el total tomado de la caché de conteos
+ * aproximados. El total se corrige con lo que la propia página sabe: si hay página siguiente
+ * no puede ser menor que las filas ya vistas más una, y en la última página es exacto.
+ */
+public class PaginaAproximada<T> {
+    private final List<T> contenido;
+    private final int numero;
+    private final int tamano;
+    private final boolean tieneSiguiente;
+    private final long totalAproximado;
+
+    public PaginaAproximada(Slice<T> slice, long totalAproximado) {
+        this.contenido = slice.getContent();
+        this.numero = slice.getNumber();
+        this.tamano = slice.getSize();
+        this.tieneSiguiente = slice.hasNext();
+        long vistos = (long) numero * tamano + contenido.size();
+        if (!tieneSiguiente && (numero == 0 || !contenido.isEmpty())) {
+            this.totalAproximado = vistos;
+        } else {
+            this.totalAproximado = Math.max(totalAproximado, tieneSiguiente ? vistos + 1 : vistos);
+        }
+    }
+
+    public List<T> getContenido() {
+        return contenido;
+    }
+
+    public int getNumero() {
+        return numero;
+    }
+
+    public int getTamano() {
+        return tamano;
+    }
+
+    public boolean isTieneSiguiente() {
+        return tieneSiguiente;
+    }
+
+    public long getTotalAproximado() {
+        return totalAproximado;
+    }
+
+    public int getTotalPaginas() {
+        return (int) ((totalAproximado + tamano - 1) / tamano);
+    }
+}
@@ -0,0 +1,45 @@
+package com.adrian.taller_app.web;
+
+import java.util.List;
+
+/**
+ * DTO para una página obtenida por cursor (paginación keyset).
+ * Los cursores son opacos para la vista: solo se reenvían en los enlaces anterior/siguiente.
+ */
+public class PaginaCursor<T> {
+    private final List<T> contenido;
+    private final String cursorAnterior;
+    private final String cursorSiguiente;
+    private final long totalAproximado;
+
+    public PaginaCursor(List<T> contenido, String cursorAnterior, String cursorSiguiente, long totalAproximado) {
+        this.contenido = contenido;
+        this.cursorAnterior = cursorAnterior;
+        this.cursorSiguiente = cursorSiguiente;
+        this.totalAproximado = totalAproximado;
+    }
+
+    public List<T> getContenido() {
+        return contenido;
+    }
+
+    public String getCursorAnterior() {
+        return cursorAnterior;
+    }
+
+    public String getCursorSiguiente() {
+        return cursorSiguiente;
+    }
+
+    public boolean isTieneAnterior() {
+        return cursorAnterior != null;
+    }
+
+    public boolean isTieneSiguiente() {
+        return cursorSiguiente != null;
+    }
+
+    public long getTotalAproximado() {
+        return totalAproximado;
+    }
+}
@@ -0,0 +1,57 @@
+package com.adrian.taller_app.web;
+
+/**
+ * DTO con el avance de una facturación en lote, consultado mientras se descarga el ZIP.
+ * Solo lo modifica el hilo que escribe el ZIP; las lecturas concurrentes ven valores recientes.
+ */
+public class ProgresoFacturacion {
+    private final String lote;
+    private volatile long total;
+    private volatile long generadas;
+    private volatile boolean terminado;
+    private volatile String error;
+
+    public ProgresoFacturacion(String lote) {
+        this.lote = lote;
+    }
+
+    public String getLote() {
+        return lote;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getGeneradas() {
+        return generadas;
+    }
+
+    public void setGeneradas(long generadas) {
+        this.generadas = generadas;
+    }
+
+    public boolean isTerminado() {
+        return terminado;
+    }
+
+    public void setTerminado(boolean terminado) {
+        this.terminado = terminado;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public int getPorcentaje() {
+        return total > 0 ? (int) Math.min(100, generadas * 100 / total) : (terminado ? 100 : 0);
+    }
+}
@@ -0,0 +1,82 @@
+package com.adrian.taller_app.web;
+
+import com.adrian.taller_app.domain.EstadoTrabajo;
+import com.adrian.taller_app.domain.TrabajoDocumento;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO con el estado de un trabajo de documento, consultado mientras se genera. La URL de
+ * descarga solo se informa cuando el documento está listo.
+ */
+public class ProgresoTrabajo {
+    private final String id;
+    private final String tipo;
+    private final String estado;
+    private final String etiquetaEstado;
+    private final boolean terminado;
+    private final String nombreFichero;
+    private final Long tamano;
+    private final String error;
+    private final LocalDateTime creadoEn;
+    private final LocalDateTime caducaEn;
+    private final String urlDescarga;
+
+    public ProgresoTrabajo(TrabajoDocumento trabajo, String urlDescarga) {
+        this.id = trabajo.getIdTrabajo();
+        this.tipo = trabajo.getTipo().getValor();
+        this.estado = trabajo.getEstado().getValor();
+        this.etiquetaEstado = trabajo.getEstado().getEtiqueta();
+        this.terminado = trabajo.getEstado().isFinalizado();
+        this.nombreFichero = trabajo.getNombreFichero();
+        this.tamano = trabajo.getTamano();
+        this.error = trabajo.getError();
+        this.creadoEn = trabajo.getCreadoEn();
+        this.caducaEn = trabajo.getCaducaEn();
+        this.urlDescarga = trabajo.getEstado() == EstadoTrabajo.TERMINADO ? urlDescarga : null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public String getEtiquetaEstado() {
+        return etiquetaEstado;
+    }
+
+    public boolean isTerminado() {
+        return terminado;
+    }
+
+    public String getNombreFichero() {
+        return nombreFichero;
+    }
+
+    public Long getTamano() {
+        return tamano;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public LocalDateTime getCreadoEn() {
+        return creadoEn;
+    }
+
+    public LocalDateTime getCaducaEn() {
+        return caducaEn;
+    }
+
+    public String getUrlDescarga() {
+        return urlDescarga;
+    }
+}
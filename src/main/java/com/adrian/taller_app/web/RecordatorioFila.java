@@ -0,0 +1,86 @@
+package com.adrian.taller_app.web;
+
+import com.adrian.taller_app.domain.ModoRecordatorio;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * DTO de solo lectura con las columnas de un recordatorio que muestran el listado, los próximos
+ * a vencer y el dashboard. Se construye directamente en la consulta, sin cargar el recordatorio,
+ * el vehículo ni el cliente como entidades; al no ser entidad, también se puede guardar en la
+ * caché del dashboard.
+ */
+public class RecordatorioFila {
+    private final Long idRecordatorio;
+    private final String tipo;
+    private final ModoRecordatorio modo;
+    private final LocalDate fechaObjetivo;
+    private final Integer kmObjetivo;
+    private final String estado;
+    private final LocalDateTime creadoEn;
+    private final String matricula;
+    private final String marca;
+    private final String modelo;
+    private final String nombreCliente;
+
+    public RecordatorioFila(Long idRecordatorio, String tipo, ModoRecordatorio modo, LocalDate fechaObjetivo,
+                            Integer kmObjetivo, String estado, LocalDateTime creadoEn, String matricula,
+                            String marca, String modelo, String nombreCliente) {
+        this.idRecordatorio = idRecordatorio;
+        this.tipo = tipo;
+        this.modo = modo;
+        this.fechaObjetivo = fechaObjetivo;
+        this.kmObjetivo = kmObjetivo;
+        this.estado = estado;
+        this.creadoEn = creadoEn;
+        this.matricula = matricula;
+        this.marca = marca;
+        this.modelo = modelo;
+        this.nombreCliente = nombreCliente;
+    }
+
+    public Long getIdRecordatorio() {
+        return idRecordatorio;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public ModoRecordatorio getModo() {
+        return modo;
+    }
+
+    public LocalDate getFechaObjetivo() {
+        return fechaObjetivo;
+    }
+
+    public Integer getKmObjetivo() {
+        return kmObjetivo;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public LocalDateTime getCreadoEn() {
+        return creadoEn;
+    }
+
+    public String getMatricula() {
+        return matricula;
+    }
+
+    public String getMarca() {
+        return marca;
+    }
+
+    public String getModelo() {
+        return modelo;
+    }
+
+    public String getNombreCliente() {
+        return nombreCliente;
+    }
+}
@@ -1,10 +1,6 @@
 package com.adrian.taller_app.web;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.util.Locale;
 
 /**
  * DTO para el resumen de facturación del dashboard
@@ -38,25 +34,4 @@ public class ResumenFacturacion {
     public BigDecimal getTicketMedio() {
         return ticketMedio;
     }
-
-    public String getTotalFacturadoFormateado() {
-        return formatCurrency(totalFacturado);
-    }
-
-    public String getTotalPendienteFormateado() {
-        return formatCurrency(totalPendiente);
-    }
-
-    public String getTicketMedioFormateado() {
-        return formatCurrency(ticketMedio);
-    }
-
-    private String formatCurrency(BigDecimal value) {
-        BigDecimal safe = value != null ? value : BigDecimal.ZERO;
-        DecimalFormatSymbols symbols = new DecimalFormatSymbols(new Locale("es", "ES"));
-        symbols.setDecimalSeparator(',');
-        symbols.setGroupingSeparator('.');
-        DecimalFormat df = new DecimalFormat("#,##0.00", symbols);
-        return df.format(safe) + " €";
-    }
 }
@@ -0,0 +1,41 @@
+package com.adrian.taller_app.web;
+
+/**
+ * DTO para una sugerencia del selector de vehículos (búsqueda por matrícula o cliente).
+ */
+public class SugerenciaVehiculo {
+    private final Long idVehiculo;
+    private final String matricula;
+    private final String cliente;
+    private final int kmActual;
+
+    public SugerenciaVehiculo(Long idVehiculo, String matricula, String cliente, int kmActual) {
+        this.idVehiculo = idVehiculo;
+        this.matricula = matricula;
+        this.cliente = cliente;
+        this.kmActual = kmActual;
+    }
+
+    public Long getIdVehiculo() {
+        return idVehiculo;
+    }
+
+    public String getMatricula() {
+        return matricula;
+    }
+
+    public String getCliente() {
+        return cliente;
+    }
+
+    public int getKmActual() {
+        return kmActual;
+    }
+
+    /**
+     * Texto que se muestra en el selector: "matrícula - cliente".
+     */
+    public String getEtiqueta() {
+        return cliente != null && !cliente.isEmpty() ? matricula + " - " + cliente : matricula;
+    }
+}
@@ -0,0 +1,50 @@
+package com.adrian.taller_app.web;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO con los totales de facturación leídos del resumen mensual en una sola consulta de
+ * agregación condicional: lo facturado (órdenes entregadas) y el número de facturas de un
+ * periodo o de un mes, y el total pendiente de las órdenes aún no entregadas.
+ * Los totales de un periodo completo no llevan año ni mes.
+ */
+public class TotalesFacturacion {
+    private final Integer anio;
+    private final Integer mes;
+    private final BigDecimal totalFacturado;
+    private final long numeroFacturas;
+    private final BigDecimal totalPendiente;
+
+    public TotalesFacturacion(BigDecimal totalFacturado, Long numeroFacturas, BigDecimal totalPendiente) {
+        this(null, null, totalFacturado, numeroFacturas, totalPendiente);
+    }
+
+    public TotalesFacturacion(Integer anio, Integer mes, BigDecimal totalFacturado,
+                              Long numeroFacturas, BigDecimal totalPendiente) {
+        this.anio = anio;
+        this.mes = mes;
+        this.totalFacturado = totalFacturado != null ? totalFacturado : BigDecimal.ZERO;
+        this.numeroFacturas = numeroFacturas != null ? numeroFacturas : 0L;
+        this.totalPendiente = totalPendiente != null ? totalPendiente : BigDecimal.ZERO;
+    }
+
+    public Integer getAnio() {
+        return anio;
+    }
+
+    public Integer getMes() {
+        return mes;
+    }
+
+    public BigDecimal getTotalFacturado() {
+        return totalFacturado;
+    }
+
+    public long getNumeroFacturas() {
+        return numeroFacturas;
+    }
+
+    public BigDecimal getTotalPendiente() {
+        return totalPendiente;
+    }
+}
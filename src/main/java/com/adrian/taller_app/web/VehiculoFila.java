@@ -0,0 +1,55 @@
+package com.adrian.taller_app.web;
+
+/**
+ * DTO de solo lectura con las columnas de un vehículo que muestran el listado, la ficha del
+ * cliente y la exportación CSV. Se construye directamente en la consulta, sin cargar el vehículo
+ * ni su cliente como entidades.
+ */
+public class VehiculoFila {
+    private final Long idVehiculo;
+    private final String matricula;
+    private final String marca;
+    private final String modelo;
+    private final Integer anio;
+    private final Integer kmActual;
+    private final String nombreCliente;
+
+    public VehiculoFila(Long idVehiculo, String matricula, String marca, String modelo,
+                        Integer anio, Integer kmActual, String nombreCliente) {
+        this.idVehiculo = idVehiculo;
+        this.matricula = matricula;
+        this.marca = marca;
+        this.modelo = modelo;
+        this.anio = anio;
+        this.kmActual = kmActual;
+        this.nombreCliente = nombreCliente;
+    }
+
+    public Long getIdVehiculo() {
+        return idVehiculo;
+    }
+
+    public String getMatricula() {
+        return matricula;
+    }
+
+    public String getMarca() {
+        return marca;
+    }
+
+    public String getModelo() {
+        return modelo;
+    }
+
+    public Integer getAnio() {
+        return anio;
+    }
+
+    public Integer getKmActual() {
+        return kmActual;
+    }
+
+    public String getNombreCliente() {
+        return nombreCliente;
+    }
+}
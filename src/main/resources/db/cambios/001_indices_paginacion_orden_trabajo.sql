@@ -0,0 +1,5 @@
+-- Índices para la paginación por cursor del listado de órdenes de trabajo.
+-- El listado recorre (fecha_creacion, id_ot) en orden descendente, con o sin filtro por estado.
+
+CREATE INDEX idx_ot_fecha_creacion_id ON ORDEN_TRABAJO (fecha_creacion, id_ot);
+CREATE INDEX idx_ot_estado_fecha_creacion_id ON ORDEN_TRABAJO (estado, fecha_creacion, id_ot);
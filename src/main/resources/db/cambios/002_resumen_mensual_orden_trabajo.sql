@@ -0,0 +1,34 @@
+-- Acumulados mensuales de órdenes de trabajo para las estadísticas del dashboard.
+-- Cada orden aporta una fila por el mes de creación ('creacion') y, si está cerrada,
+-- otra por el mes de cierre ('cierre'). Las órdenes sin mecánico usan id_usuario = 0.
+-- La aplicación la mantiene al crear/editar/eliminar órdenes y la reconstruye cada noche.
+
+CREATE TABLE RESUMEN_MENSUAL_OT (
+    tipo_fecha  VARCHAR(10)    NOT NULL,
+    anio        INT            NOT NULL,
+    mes         INT            NOT NULL,
+    estado      VARCHAR(20)    NOT NULL,
+    id_usuario  BIGINT         NOT NULL,
+    num_ordenes BIGINT         NOT NULL DEFAULT 0,
+    subtotal    DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    iva_total   DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    total       DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (tipo_fecha, anio, mes, estado, id_usuario)
+);
+
+-- Carga inicial a partir de las órdenes existentes
+INSERT INTO RESUMEN_MENSUAL_OT
+    (tipo_fecha, anio, mes, estado, id_usuario, num_ordenes, subtotal, iva_total, total)
+SELECT 'creacion', YEAR(fecha_creacion), MONTH(fecha_creacion), COALESCE(estado, 'abierta'),
+       COALESCE(id_usuario_asignado, 0), COUNT(*),
+       COALESCE(SUM(subtotal), 0), COALESCE(SUM(iva_total), 0), COALESCE(SUM(total), 0)
+FROM ORDEN_TRABAJO
+WHERE fecha_creacion IS NOT NULL
+GROUP BY YEAR(fecha_creacion), MONTH(fecha_creacion), COALESCE(estado, 'abierta'), COALESCE(id_usuario_asignado, 0)
+UNION ALL
+SELECT 'cierre', YEAR(fecha_cierre), MONTH(fecha_cierre), COALESCE(estado, 'abierta'),
+       COALESCE(id_usuario_asignado, 0), COUNT(*),
+       COALESCE(SUM(subtotal), 0), COALESCE(SUM(iva_total), 0), COALESCE(SUM(total), 0)
+FROM ORDEN_TRABAJO
+WHERE fecha_cierre IS NOT NULL
+GROUP BY YEAR(fecha_cierre), MONTH(fecha_cierre), COALESCE(estado, 'abierta'), COALESCE(id_usuario_asignado, 0);
@@ -0,0 +1,16 @@
+-- Km restantes de los recordatorios por kilometraje (km_objetivo - km_actual del vehículo).
+-- Guardado en la propia fila para que los próximos por km sean un rango del índice (modo, km_restantes)
+-- en lugar de un cruce con VEHICULO y una expresión calculada sobre todas las filas.
+-- La aplicación lo mantiene al guardar recordatorios y al cambiar el km de un vehículo.
+
+ALTER TABLE RECORDATORIO ADD COLUMN km_restantes INT NULL;
+
+-- Carga inicial a partir del km actual de cada vehículo
+UPDATE RECORDATORIO r
+    JOIN VEHICULO v ON v.id_vehiculo = r.id_vehiculo
+SET r.km_restantes = r.km_objetivo - v.km_actual
+WHERE r.modo IN ('por_km', 'ambos')
+  AND r.km_objetivo IS NOT NULL
+  AND v.km_actual IS NOT NULL;
+
+CREATE INDEX idx_recordatorio_modo_km_restantes ON RECORDATORIO (modo, km_restantes);
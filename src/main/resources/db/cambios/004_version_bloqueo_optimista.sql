@@ -0,0 +1,7 @@
+-- Columna de versión para el bloqueo optimista (@Version) de órdenes, vehículos y recordatorios.
+-- Hibernate la incrementa en cada UPDATE y rechaza los que se hacen sobre una versión anterior;
+-- las filas existentes parten de la versión 0.
+
+ALTER TABLE ORDEN_TRABAJO ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE VEHICULO ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE RECORDATORIO ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
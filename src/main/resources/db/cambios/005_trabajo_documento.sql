@@ -0,0 +1,22 @@
+-- Trabajos de generación de documentos (facturas PDF, exportaciones CSV) que se ejecutan en
+-- segundo plano. La fila guarda el estado para consultarlo en /trabajos/{id} y sobrevive a un
+-- reinicio: al arrancar, los trabajos pendientes o a medias se vuelven a encolar.
+-- El resultado se guarda en disco (app.trabajos.directorio) y fila y fichero se borran al caducar.
+
+CREATE TABLE TRABAJO_DOCUMENTO (
+    id_trabajo      CHAR(36)     NOT NULL,
+    tipo            VARCHAR(30)  NOT NULL,
+    parametros      VARCHAR(255),
+    estado          VARCHAR(20)  NOT NULL,
+    usuario         VARCHAR(50)  NOT NULL,
+    nombre_fichero  VARCHAR(255) NOT NULL,
+    tamano          BIGINT,
+    error           VARCHAR(500),
+    creado_en       DATETIME     NOT NULL,
+    iniciado_en     DATETIME,
+    terminado_en    DATETIME,
+    caduca_en       DATETIME,
+    PRIMARY KEY (id_trabajo),
+    INDEX idx_trabajo_documento_estado (estado, creado_en),
+    INDEX idx_trabajo_documento_caduca_en (caduca_en)
+);
@@ -0,0 +1,13 @@
+-- Aviso por correo al cliente de los recordatorios próximos a vencer (AvisoRecordatoriosService).
+-- aviso_estado queda NULL mientras el aviso está pendiente; 'enviando' mientras se envía,
+-- 'enviado', 'fallido' (agotados los intentos) o 'sin_email'. Una vez enviado no se vuelve a
+-- enviar salvo que cambie el objetivo del recordatorio.
+
+ALTER TABLE RECORDATORIO
+    ADD COLUMN aviso_estado   VARCHAR(20)  NULL,
+    ADD COLUMN aviso_intentos INT          NOT NULL DEFAULT 0,
+    ADD COLUMN aviso_en       DATETIME     NULL,
+    ADD COLUMN aviso_error    VARCHAR(500) NULL;
+
+-- Los pendientes de aviso por fecha son un rango de este índice (los de km usan modo, km_restantes)
+CREATE INDEX idx_recordatorio_modo_fecha_objetivo ON RECORDATORIO (modo, fecha_objetivo);
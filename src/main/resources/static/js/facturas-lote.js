@@ -0,0 +1,74 @@
+/**
+ * Facturación en lote (listado de órdenes de trabajo):
+ * - Asigna un identificador de lote a cada descarga del ZIP
+ * - Consulta el avance en el servidor mientras se genera y lo muestra junto al botón
+ */
+(() => {
+    'use strict';
+
+    const INTERVALO_MS = 1000;
+    // Intentos sin respuesta (404) antes de desistir: la descarga puede tardar en empezar
+    const MAX_INTENTOS_SIN_LOTE = 10;
+
+    const form = document.querySelector("form.facturas-lote");
+    if (!form || !window.crypto || typeof window.crypto.randomUUID !== "function") {
+        return;
+    }
+
+    const loteInput = form.querySelector("input[name='lote']");
+    const estado = form.querySelector(".facturas-lote-progreso");
+    const boton = form.querySelector("button[type='submit']");
+    const progresoUrl = form.getAttribute("data-progreso-url");
+
+    if (!loteInput || !estado || !progresoUrl) {
+        return;
+    }
+
+    let temporizador = null;
+
+    const terminar = (mensaje) => {
+        window.clearTimeout(temporizador);
+        estado.textContent = mensaje;
+        if (boton) {
+            boton.disabled = false;
+            boton.removeAttribute("aria-busy");
+        }
+    };
+
+    const consultar = (lote, intentosSinLote) => {
+        fetch(`${progresoUrl}?lote=${encodeURIComponent(lote)}`, { headers: { "Accept": "application/json" } })
+            .then((response) => {
+                if (response.status === 404) {
+                    return null;
+                }
+                return response.ok ? response.json() : Promise.reject(new Error(String(response.status)));
+            })
+            .then((progreso) => {
+                if (!progreso) {
+                    if (intentosSinLote + 1 >= MAX_INTENTOS_SIN_LOTE) {
+                        terminar("");
+                        return;
+                    }
+                    temporizador = window.setTimeout(() => consultar(lote, intentosSinLote + 1), INTERVALO_MS);
+                    return;
+                }
+                if (progreso.error) {
+                    terminar(progreso.error);
+                } else if (progreso.terminado) {
+                    terminar(`${progreso.generadas} facturas generadas`);
+                } else {
+                    estado.textContent = `Generando facturas: ${progreso.generadas} de ${progreso.total} (${progreso.porcentaje}%)`;
+                    temporizador = window.setTimeout(() => consultar(lote, 0), INTERVALO_MS);
+                }
+            })
+            .catch(() => terminar(""));
+    };
+
+    form.addEventListener("submit", () => {
+        window.clearTimeout(temporizador);
+        const lote = window.crypto.randomUUID();
+        loteInput.value = lote;
+        estado.textContent = "Preparando facturas...";
+        temporizador = window.setTimeout(() => consultar(lote, 0), INTERVALO_MS);
+    });
+})();
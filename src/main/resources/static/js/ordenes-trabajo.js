@@ -52,9 +52,8 @@
             : null;
 
         const updateKmMin = () => {
-            const selected = vehiculoSelect.options[vehiculoSelect.selectedIndex];
-            const vehicleKm = selected && selected.hasAttribute("data-km")
-                ? parseInt(selected.getAttribute("data-km"), 10)
+            const vehicleKm = vehiculoSelect.value && vehiculoSelect.hasAttribute("data-km")
+                ? parseInt(vehiculoSelect.getAttribute("data-km"), 10)
                 : 0;
             const minKm = kmMinOriginal != null
                 ? kmMinOriginal
@@ -17,8 +17,7 @@
     }
 
     const updateKmMin = () => {
-        const option = vehiculoSelect.selectedOptions[0];
-        const kmActual = option ? Number(option.dataset.km || 0) : 0;
+        const kmActual = vehiculoSelect.value ? Number(vehiculoSelect.dataset.km || 0) : 0;
         kmInput.min = String(kmActual);
         if (kmInput.value && Number(kmInput.value) < kmActual) {
             kmInput.value = String(kmActual);
@@ -0,0 +1,75 @@
+/**
+ * Documentos generados en segundo plano (formularios .trabajo-documento):
+ * - Encarga el documento con un POST y recibe el trabajo creado
+ * - Consulta su estado hasta que termina y entonces inicia la descarga
+ */
+(() => {
+    'use strict';
+
+    const INTERVALO_MS = 1000;
+
+    document.querySelectorAll("form.trabajo-documento").forEach((form) => {
+        const estado = form.querySelector(".trabajo-documento-estado");
+        const boton = form.querySelector("button[type='submit']");
+        let temporizador = null;
+
+        const terminar = (mensaje) => {
+            window.clearTimeout(temporizador);
+            if (estado) {
+                estado.textContent = mensaje;
+            }
+            if (boton) {
+                boton.disabled = false;
+                boton.removeAttribute("aria-busy");
+            }
+        };
+
+        const seguir = (trabajo, urlEstado) => {
+            if (trabajo.error) {
+                terminar(trabajo.error);
+            } else if (trabajo.urlDescarga) {
+                terminar("");
+                window.location.href = trabajo.urlDescarga;
+            } else {
+                if (estado) {
+                    estado.textContent = trabajo.estado === "pendiente" ? "En cola..." : "Generando...";
+                }
+                temporizador = window.setTimeout(() => consultar(urlEstado), INTERVALO_MS);
+            }
+        };
+
+        const consultar = (urlEstado) => {
+            fetch(urlEstado, { headers: { "Accept": "application/json" } })
+                .then((response) => response.ok ? response.json() : Promise.reject(new Error(String(response.status))))
+                .then((trabajo) => seguir(trabajo, urlEstado))
+                .catch(() => terminar("No se pudo consultar el estado del documento."));
+        };
+
+        form.addEventListener("submit", (event) => {
+            event.preventDefault();
+            window.clearTimeout(temporizador);
+            if (boton) {
+                boton.disabled = true;
+                boton.setAttribute("aria-busy", "true");
+            }
+            if (estado) {
+                estado.textContent = "En cola...";
+            }
+            // Codificado como formulario (no multipart) para que el token CSRF se lea como parámetro
+            fetch(form.getAttribute("action"), {
+                method: "POST",
+                headers: { "Accept": "application/json" },
+                body: new URLSearchParams(new FormData(form))
+            })
+                .then((response) => {
+                    if (!response.ok) {
+                        return Promise.reject(new Error(String(response.status)));
+                    }
+                    // El estado del trabajo se consulta en la URL que devuelve Location
+                    const urlEstado = response.headers.get("Location");
+                    return response.json().then((trabajo) => seguir(trabajo, urlEstado));
+                })
+                .catch(() => terminar("No se pudo encargar el documento."));
+        });
+    });
+})();
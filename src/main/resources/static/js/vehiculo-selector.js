@@ -0,0 +1,173 @@
+/**
+ * Selector de vehículo con sugerencias (formularios de órdenes y recordatorios):
+ * - Pide al servidor los vehículos cuya matrícula o cliente empieza por el texto escrito
+ * - Navegación con flechas, Enter para elegir y Escape para cerrar
+ * - Al elegir, guarda el id y los km en el campo oculto y lanza "change" sobre él
+ */
+(() => {
+    'use strict';
+
+    const DEBOUNCE_MS = 200;
+
+    const contenedor = document.querySelector(".typeahead[data-url]");
+    if (!contenedor) {
+        return;
+    }
+
+    const hiddenInput = contenedor.querySelector("input[type='hidden']");
+    const textInput = contenedor.querySelector(".typeahead-input");
+    const lista = contenedor.querySelector(".typeahead-list");
+    const url = contenedor.getAttribute("data-url");
+
+    if (!hiddenInput || !textInput || !lista || !url) {
+        return;
+    }
+
+    let sugerencias = [];
+    let activa = -1;
+    let temporizador = null;
+    let peticion = null;
+
+    const validar = () => {
+        textInput.setCustomValidity(textInput.value.trim() && !hiddenInput.value
+            ? "Selecciona un vehículo de la lista"
+            : "");
+    };
+
+    const cerrar = () => {
+        lista.hidden = true;
+        lista.innerHTML = "";
+        textInput.setAttribute("aria-expanded", "false");
+        textInput.removeAttribute("aria-activedescendant");
+        sugerencias = [];
+        activa = -1;
+    };
+
+    const marcarActiva = (indice) => {
+        const items = lista.querySelectorAll("[role='option']");
+        items.forEach((item, i) => item.setAttribute("aria-selected", String(i === indice)));
+        activa = indice;
+        if (indice >= 0 && items[indice]) {
+            textInput.setAttribute("aria-activedescendant", items[indice].id);
+            items[indice].scrollIntoView({ block: "nearest" });
+        } else {
+            textInput.removeAttribute("aria-activedescendant");
+        }
+    };
+
+    const seleccionar = (sugerencia) => {
+        hiddenInput.value = String(sugerencia.idVehiculo);
+        hiddenInput.setAttribute("data-km", String(sugerencia.kmActual || 0));
+        textInput.value = sugerencia.etiqueta;
+        cerrar();
+        validar();
+        hiddenInput.dispatchEvent(new Event("change", { bubbles: true }));
+    };
+
+    const mostrar = (resultado) => {
+        sugerencias = resultado;
+        lista.innerHTML = "";
+        if (sugerencias.length === 0) {
+            const vacio = document.createElement("li");
+            vacio.className = "typeahead-empty";
+            vacio.textContent = "Sin coincidencias";
+            lista.appendChild(vacio);
+        }
+        sugerencias.forEach((sugerencia, i) => {
+            const item = document.createElement("li");
+            item.id = `vehiculo-sugerencia-${i}`;
+            item.className = "typeahead-item";
+            item.setAttribute("role", "option");
+            item.setAttribute("aria-selected", "false");
+
+            const matricula = document.createElement("strong");
+            matricula.textContent = sugerencia.matricula;
+            item.appendChild(matricula);
+            if (sugerencia.cliente) {
+                const cliente = document.createElement("span");
+                cliente.textContent = sugerencia.cliente;
+                item.appendChild(cliente);
+            }
+
+            // mousedown en lugar de click: se ejecuta antes del blur del campo de texto
+            item.addEventListener("mousedown", (e) => {
+                e.preventDefault();
+                seleccionar(sugerencia);
+            });
+            lista.appendChild(item);
+        });
+        lista.hidden = false;
+        textInput.setAttribute("aria-expanded", "true");
+        marcarActiva(sugerencias.length > 0 ? 0 : -1);
+    };
+
+    const buscar = () => {
+        const texto = textInput.value.trim();
+        if (!texto) {
+            cerrar();
+            return;
+        }
+        if (peticion) {
+            peticion.abort();
+        }
+        peticion = new AbortController();
+        fetch(`${url}?q=${encodeURIComponent(texto)}`, {
+            headers: { "Accept": "application/json" },
+            signal: peticion.signal
+        })
+            .then((response) => response.ok ? response.json() : [])
+            .then((resultado) => {
+                // Descarta respuestas que llegan después de que el texto haya cambiado o se haya salido del campo
+                if (textInput.value.trim() === texto && document.activeElement === textInput) {
+                    mostrar(resultado);
+                }
+            })
+            .catch((error) => {
+                if (error.name !== "AbortError") {
+                    cerrar();
+                }
+            });
+    };
+
+    textInput.addEventListener("input", () => {
+        // El texto editado ya no corresponde al vehículo elegido
+        if (hiddenInput.value) {
+            hiddenInput.value = "";
+            hiddenInput.setAttribute("data-km", "0");
+            hiddenInput.dispatchEvent(new Event("change", { bubbles: true }));
+        }
+        validar();
+        window.clearTimeout(temporizador);
+        temporizador = window.setTimeout(buscar, DEBOUNCE_MS);
+    });
+
+    textInput.addEventListener("keydown", (e) => {
+        if (lista.hidden) {
+            if (e.key === "ArrowDown" && textInput.value.trim()) {
+                e.preventDefault();
+                buscar();
+            }
+            return;
+        }
+        if (e.key === "ArrowDown" && sugerencias.length > 0) {
+            e.preventDefault();
+            marcarActiva((activa + 1) % sugerencias.length);
+        } else if (e.key === "ArrowUp" && sugerencias.length > 0) {
+            e.preventDefault();
+            marcarActiva(activa <= 0 ? sugerencias.length - 1 : activa - 1);
+        } else if (e.key === "Enter") {
+            // Evita enviar el formulario mientras la lista está abierta
+            e.preventDefault();
+            if (activa >= 0) {
+                seleccionar(sugerencias[activa]);
+            }
+        } else if (e.key === "Escape") {
+            e.preventDefault();
+            cerrar();
+        }
+    });
+
+    textInput.addEventListener("blur", cerrar);
+
+    validar();
+})();
@@ -0,0 +1,97 @@
+package com.adrian.taller_app.format;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link Formato} frente a los patrones de {@link DecimalFormat} y {@link DateTimeFormatter} que sustituye.
+ */
+class FormatoTests {
+
+    @Test
+    void euros() {
+        assertThat(Formato.euros(null)).isEqualTo(Formato.SIN_IMPORTE);
+        assertThat(Formato.euros(BigDecimal.ZERO)).isEqualTo("0,00 €");
+        assertThat(Formato.euros(new BigDecimal("7.5"))).isEqualTo("7,50 €");
+        assertThat(Formato.euros(new BigDecimal("999.99"))).isEqualTo("999,99 €");
+        assertThat(Formato.euros(new BigDecimal("1234.5"))).isEqualTo("1.234,50 €");
+        assertThat(Formato.euros(new BigDecimal("1234567.891"))).isEqualTo("1.234.567,89 €");
+        assertThat(Formato.euros(new BigDecimal("-1234.5"))).isEqualTo("-1.234,50 €");
+    }
+
+    @Test
+    void importeSinMillares() {
+        assertThat(Formato.importe(null)).isEmpty();
+        assertThat(Formato.importe(new BigDecimal("1234567.8"))).isEqualTo("1234567,80");
+        assertThat(Formato.importe(new BigDecimal("-0.5"))).isEqualTo("-0,50");
+    }
+
+    @Test
+    void redondeoComoDecimalFormat() {
+        // HALF_EVEN: 0,125 baja y 0,135 sube; 999,995 pasa a tener millares
+        assertThat(Formato.euros(new BigDecimal("0.125"))).isEqualTo("0,12 €");
+        assertThat(Formato.euros(new BigDecimal("0.135"))).isEqualTo("0,14 €");
+        assertThat(Formato.euros(new BigDecimal("999.995"))).isEqualTo("1.000,00 €");
+        // Un negativo que redondea a cero conserva el signo
+        assertThat(Formato.euros(new BigDecimal("-0.004"))).isEqualTo("-0,00 €");
+        assertThat(Formato.importe(new BigDecimal("-0.004"))).isEqualTo("-0,00");
+        assertThat(Formato.euros(new BigDecimal("-0.004"))).isEqualTo(patron("#,##0.00", new BigDecimal("-0.004")) + " €");
+    }
+
+    @Test
+    void importesDeMasDe62BitsUsanElFormatoGeneral() {
+        BigDecimal enorme = new BigDecimal("123456789012345678901234.565");
+        assertThat(Formato.euros(enorme)).isEqualTo("123.456.789.012.345.678.901.234,56 €");
+        assertThat(Formato.importe(enorme.negate())).isEqualTo("-123456789012345678901234,56");
+        // Justo en el límite: 2^62 - 1 céntimos cabe; 2^62 ya no
+        BigDecimal limite = new BigDecimal(BigDecimal.valueOf(Long.MAX_VALUE / 2).toBigInteger(), 2);
+        assertThat(Formato.euros(limite)).isEqualTo(patron("#,##0.00", limite) + " €");
+        BigDecimal fuera = limite.add(new BigDecimal("0.01"));
+        assertThat(Formato.euros(fuera)).isEqualTo(patron("#,##0.00", fuera) + " €");
+    }
+
+    @Test
+    void mismoTextoQueDecimalFormat() {
+        Random random = new Random(2018);
+        for (int i = 0; i < 50_000; i++) {
+            BigDecimal importe = BigDecimal.valueOf(random.nextLong() >> random.nextInt(63), random.nextInt(5));
+            assertThat(Formato.euros(importe)).as("%s", importe).isEqualTo(patron("#,##0.00", importe) + " €");
+            assertThat(Formato.importe(importe)).as("%s", importe).isEqualTo(patron("0.00", importe));
+        }
+    }
+
+    @Test
+    void fechas() {
+        assertThat(Formato.fecha((LocalDate) null)).isNull();
+        assertThat(Formato.fecha((LocalDateTime) null)).isNull();
+        assertThat(Formato.fechaHora(null)).isNull();
+        assertThat(Formato.fecha(LocalDate.of(2024, 3, 5))).isEqualTo("05/03/2024");
+        assertThat(Formato.fecha(LocalDate.of(5, 1, 9))).isEqualTo("09/01/0005");
+        assertThat(Formato.fecha(LocalDateTime.of(2024, 12, 31, 23, 59))).isEqualTo("31/12/2024");
+        assertThat(Formato.fechaHora(LocalDateTime.of(2024, 12, 31, 23, 59))).isEqualTo("31/12/2024 23:59");
+        assertThat(Formato.fechaHora(LocalDateTime.of(2024, 1, 2, 0, 7))).isEqualTo("02/01/2024 00:07");
+        // Fuera de 0-9999 años se usa el DateTimeFormatter
+        LocalDate lejana = LocalDate.of(12345, 6, 7);
+        assertThat(Formato.fecha(lejana)).isEqualTo(lejana.format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
+        LocalDateTime negativa = LocalDateTime.of(-44, 3, 15, 12, 0);
+        assertThat(Formato.fechaHora(negativa))
+                .isEqualTo(negativa.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
+    }
+
+    private static String patron(String patron, BigDecimal importe) {
+        DecimalFormatSymbols simbolos = new DecimalFormatSymbols(Locale.forLanguageTag("es-ES"));
+        simbolos.setDecimalSeparator(',');
+        simbolos.setGroupingSeparator('.');
+        return new DecimalFormat(patron, simbolos).format(importe);
+    }
+}
@@ -0,0 +1,228 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.Cliente;
+import com.adrian.taller_app.domain.EstadoAviso;
+import com.adrian.taller_app.domain.ModoRecordatorio;
+import com.adrian.taller_app.domain.Recordatorio;
+import com.adrian.taller_app.domain.Vehiculo;
+import com.adrian.taller_app.repository.ClienteRepository;
+import com.adrian.taller_app.repository.RecordatorioRepository;
+import com.adrian.taller_app.repository.VehiculoRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Envío de los avisos de recordatorios contra un servidor SMTP falso (GreenMail).
+ */
+@SpringBootTest(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        // Bloques de dos clientes para recorrer varios bloques con pocos datos
+        "app.recordatorios.avisos.clientes-por-bloque=2",
+        "app.recordatorios.avisos.intentos-maximos=2",
+        "app.correo.mensajes-por-segundo=0",
+        "app.correo.reintentos=0"
+})
+class AvisoRecordatoriosServiceTests {
+
+    @RegisterExtension
+    static final GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private AvisoRecordatoriosService avisoRecordatoriosService;
+
+    @Autowired
+    private RecordatorioService recordatorioService;
+
+    @Autowired
+    private RecordatorioRepository recordatorioRepository;
+
+    @Autowired
+    private VehiculoRepository vehiculoRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private JavaMailSenderImpl mailSender;
+
+    @BeforeEach
+    void limpiar() {
+        recordatorioRepository.deleteAllInBatch();
+        vehiculoRepository.deleteAllInBatch();
+        clienteRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void unCorreoPorClienteConTodosSusRecordatorios() throws Exception {
+        Cliente ana = crearCliente("Ana", "ana@example.com");
+        Vehiculo cocheAna = crearVehiculo(ana, "1111BBB", 50000);
+        Vehiculo motoAna = crearVehiculo(ana, "2222CCC", 10000);
+        Long itv = crearPorFecha(cocheAna, "ITV", LocalDate.now().plusDays(5));
+        Long aceite = crearPorKm(motoAna, "Cambio de aceite", 11000);
+        Long lejano = crearPorFecha(cocheAna, "Neumáticos", LocalDate.now().plusDays(90));
+        Long luis = crearPorFecha(crearVehiculo(crearCliente("Luis", "luis@example.com"), "3333DDD", null),
+                "Revisión", LocalDate.now().plusDays(10));
+        Long marta = crearPorFecha(crearVehiculo(crearCliente("Marta", "marta@example.com"), "4444FFF", null),
+                "ITV", LocalDate.now().plusDays(20));
+        Long sinEmail = crearPorFecha(crearVehiculo(crearCliente("Pedro", null), "5555GGG", null),
+                "ITV", LocalDate.now().plusDays(3));
+
+        avisoRecordatoriosService.enviarAvisos();
+
+        MimeMessage[] mensajes = greenMail.getReceivedMessages();
+        assertThat(mensajes).hasSize(3);
+        assertThat(Arrays.stream(mensajes).map(this::destinatario))
+                .containsExactlyInAnyOrder("ana@example.com", "luis@example.com", "marta@example.com");
+        MimeMessage paraAna = Arrays.stream(mensajes)
+                .filter(mensaje -> destinatario(mensaje).equals("ana@example.com"))
+                .findFirst().orElseThrow();
+        assertThat(GreenMailUtil.getBody(paraAna)).contains("1111BBB", "2222CCC").doesNotContain("Neum");
+
+        assertThat(estado(itv)).isEqualTo(EstadoAviso.ENVIADO);
+        assertThat(estado(aceite)).isEqualTo(EstadoAviso.ENVIADO);
+        assertThat(estado(luis)).isEqualTo(EstadoAviso.ENVIADO);
+        assertThat(estado(marta)).isEqualTo(EstadoAviso.ENVIADO);
+        assertThat(estado(sinEmail)).isEqualTo(EstadoAviso.SIN_EMAIL);
+        assertThat(estado(lejano)).isNull();
+    }
+
+    @Test
+    void unRecordatorioAvisadoNoSeVuelveAAvisar() {
+        Long itv = crearPorFecha(crearVehiculo(crearCliente("Ana", "ana@example.com"), "1111BBB", null),
+                "ITV", LocalDate.now().plusDays(5));
+
+        avisoRecordatoriosService.enviarAvisos();
+        avisoRecordatoriosService.enviarAvisos();
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(estado(itv)).isEqualTo(EstadoAviso.ENVIADO);
+
+        // Un recordatorio nuevo sí se avisa, solo él
+        Long aceite = crearPorFecha(vehiculoRepository.findAll().get(0), "Cambio de aceite", LocalDate.now().plusDays(7));
+        avisoRecordatoriosService.enviarAvisos();
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(2);
+        assertThat(GreenMailUtil.getBody(greenMail.getReceivedMessages()[1]))
+                .contains("Cambio de aceite").doesNotContain("ITV");
+        assertThat(estado(aceite)).isEqualTo(EstadoAviso.ENVIADO);
+    }
+
+    @Test
+    void fallosTemporalesQuedanPendientesHastaAgotarLosIntentos() throws IOException {
+        Long itv = crearPorFecha(crearVehiculo(crearCliente("Ana", "ana@example.com"), "1111BBB", null),
+                "ITV", LocalDate.now().plusDays(5));
+
+        int puerto = mailSender.getPort();
+        mailSender.setPort(puertoLibre());
+        try {
+            avisoRecordatoriosService.enviarAvisos();
+
+            Recordatorio pendiente = recordatorioRepository.findById(itv).orElseThrow();
+            assertThat(pendiente.getAvisoEstado()).isNull();
+            assertThat(pendiente.getAvisoIntentos()).isEqualTo(1);
+            assertThat(pendiente.getAvisoError()).isNotBlank();
+
+            avisoRecordatoriosService.enviarAvisos();
+
+            Recordatorio fallido = recordatorioRepository.findById(itv).orElseThrow();
+            assertThat(fallido.getAvisoEstado()).isEqualTo(EstadoAviso.FALLIDO);
+            assertThat(fallido.getAvisoIntentos()).isEqualTo(2);
+        } finally {
+            mailSender.setPort(puerto);
+        }
+
+        // Con el servidor de vuelta, un aviso fallido ya no se reintenta
+        avisoRecordatoriosService.enviarAvisos();
+
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+        assertThat(estado(itv)).isEqualTo(EstadoAviso.FALLIDO);
+    }
+
+    @Test
+    void avisosInterrumpidosSeCierranSinReenviarse() {
+        Vehiculo vehiculo = crearVehiculo(crearCliente("Ana", "ana@example.com"), "1111BBB", null);
+        Long interrumpido = crearPorFecha(vehiculo, "ITV", LocalDate.now().plusDays(5));
+        Recordatorio enviando = recordatorioRepository.findById(interrumpido).orElseThrow();
+        enviando.setAvisoEstado(EstadoAviso.ENVIANDO);
+        recordatorioRepository.save(enviando);
+        Long pendiente = crearPorFecha(vehiculo, "Cambio de aceite", LocalDate.now().plusDays(7));
+
+        avisoRecordatoriosService.enviarAvisos();
+
+        Recordatorio cerrado = recordatorioRepository.findById(interrumpido).orElseThrow();
+        assertThat(cerrado.getAvisoEstado()).isEqualTo(EstadoAviso.FALLIDO);
+        assertThat(cerrado.getAvisoError()).startsWith("Envío interrumpido");
+        assertThat(estado(pendiente)).isEqualTo(EstadoAviso.ENVIADO);
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(GreenMailUtil.getBody(greenMail.getReceivedMessages()[0]))
+                .contains("Cambio de aceite").doesNotContain("ITV");
+    }
+
+    private Cliente crearCliente(String nombre, String email) {
+        Cliente cliente = new Cliente();
+        cliente.setNombre(nombre);
+        cliente.setEmail(email);
+        return clienteRepository.save(cliente);
+    }
+
+    private Vehiculo crearVehiculo(Cliente cliente, String matricula, Integer kmActual) {
+        Vehiculo vehiculo = new Vehiculo();
+        vehiculo.setCliente(cliente);
+        vehiculo.setMatricula(matricula);
+        vehiculo.setKmActual(kmActual);
+        return vehiculoRepository.save(vehiculo);
+    }
+
+    private Long crearPorFecha(Vehiculo vehiculo, String tipo, LocalDate fecha) {
+        Recordatorio recordatorio = new Recordatorio();
+        recordatorio.setVehiculo(vehiculo);
+        recordatorio.setTipo(tipo);
+        recordatorio.setModo(ModoRecordatorio.POR_FECHA);
+        recordatorio.setFechaObjetivo(fecha);
+        return recordatorioService.create(recordatorio).getIdRecordatorio();
+    }
+
+    private Long crearPorKm(Vehiculo vehiculo, String tipo, int km) {
+        Recordatorio recordatorio = new Recordatorio();
+        recordatorio.setVehiculo(vehiculo);
+        recordatorio.setTipo(tipo);
+        recordatorio.setModo(ModoRecordatorio.POR_KM);
+        recordatorio.setKmObjetivo(km);
+        return recordatorioService.create(recordatorio).getIdRecordatorio();
+    }
+
+    private EstadoAviso estado(Long idRecordatorio) {
+        return recordatorioRepository.findById(idRecordatorio).orElseThrow().getAvisoEstado();
+    }
+
+    private String destinatario(MimeMessage mensaje) {
+        try {
+            return mensaje.getAllRecipients()[0].toString();
+        } catch (MessagingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static int puertoLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
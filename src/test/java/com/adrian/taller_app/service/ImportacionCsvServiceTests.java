@@ -0,0 +1,124 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.Cliente;
+import com.adrian.taller_app.repository.ClienteRepository;
+import com.adrian.taller_app.repository.RecordatorioRepository;
+import com.adrian.taller_app.repository.VehiculoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lectura del CSV de importación y rechazo de filas duplicadas.
+ */
+@SpringBootTest
+class ImportacionCsvServiceTests {
+
+    @Autowired
+    private ImportacionCsvService importacionCsvService;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private VehiculoRepository vehiculoRepository;
+
+    @Autowired
+    private RecordatorioRepository recordatorioRepository;
+
+    @BeforeEach
+    void limpiar() {
+        recordatorioRepository.deleteAllInBatch();
+        vehiculoRepository.deleteAllInBatch();
+        clienteRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void saltosDeLineaYComillasDentroDeUnCampo() throws IOException {
+        ImportacionCsvService.LectorCsv lector = lector(
+                "Nombre,Notas\r\n\"Ana\",\"primera\nsegunda, con \"\"comillas\"\"\"\r\nLuis,\"\"\n");
+
+        assertThat(lector.leer()).containsExactly("Nombre", "Notas");
+        assertThat(lector.leer()).containsExactly("Ana", "primera\nsegunda, con \"comillas\"");
+        assertThat(lector.getFilaInicio()).isEqualTo(2);
+        // La fila anterior ocupa dos líneas
+        assertThat(lector.leer()).containsExactly("Luis", "");
+        assertThat(lector.getFilaInicio()).isEqualTo(4);
+        assertThat(lector.leer()).isNull();
+    }
+
+    @Test
+    void puntoYComaSiLaCabeceraNoTieneComas() throws IOException {
+        ImportacionCsvService.LectorCsv lector = lector("Nombre;Teléfono\nAna, la del taller;612345678\n");
+
+        assertThat(lector.leer()).containsExactly("Nombre", "Teléfono");
+        assertThat(lector.leer()).containsExactly("Ana, la del taller", "612345678");
+
+        // Con coma en la cabecera, el punto y coma es texto
+        ImportacionCsvService.LectorCsv conComas = lector("Nombre,Teléfono\nAna;Luis,612345678\n");
+        conComas.leer();
+        assertThat(conComas.leer()).containsExactly("Ana;Luis", "612345678");
+    }
+
+    @Test
+    void bomSoloAlPrincipio() throws IOException {
+        ImportacionCsvService.LectorCsv lector = lector("\uFEFFNombre;NIF\r\n\uFEFFAna;12345678Z");
+
+        assertThat(lector.leer()).containsExactly("Nombre", "NIF");
+        assertThat(lector.leer()).containsExactly("\uFEFFAna", "12345678Z");
+        assertThat(lector.leer()).isNull();
+    }
+
+    @Test
+    void importaClientesYRechazaDuplicados() throws IOException {
+        Cliente existente = new Cliente();
+        existente.setNombre("Marta");
+        existente.setNif("X1234567L");
+        clienteRepository.save(existente);
+
+        List<String> informe = importarClientes("\uFEFFNombre;Teléfono;Email;NIF\r\n"
+                + "Ana;612345678;ana@example.com;12345678Z\r\n"
+                + "\"Luis\nPérez\";;;x1234567l\r\n"
+                + "Ana bis;;;12345678z\r\n"
+                + ";;;\r\n"
+                + "Eva;5;;87654321X\r\n"
+                + "Pepe;;;Y1234567X\r\n");
+
+        assertThat(informe).containsExactly(
+                "Fila,Error",
+                "3,Ya existe un cliente con el NIF/NIE X1234567L.",
+                "5,Ya existe un cliente con el NIF/NIE 12345678Z.",
+                "7,telefono: El teléfono no es válido. Debe ser un número español (9 dígitos)",
+                "Resumen,\"2 filas importadas, 3 con errores\"");
+        assertThat(clienteRepository.findAll()).extracting(Cliente::getNif)
+                .containsExactlyInAnyOrder("X1234567L", "12345678Z", "Y1234567X");
+    }
+
+    @Test
+    void ficheroVacio() throws IOException {
+        assertThat(importarClientes("")).containsExactly("Fila,Error", "Resumen,El fichero está vacío.");
+    }
+
+    private static ImportacionCsvService.LectorCsv lector(String csv) {
+        return new ImportacionCsvService.LectorCsv(new StringReader(csv));
+    }
+
+    private List<String> importarClientes(String csv) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        importacionCsvService.importarClientes(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), salida);
+        String informe = salida.toString(StandardCharsets.UTF_8);
+        assertThat(informe).startsWith("\uFEFF");
+        return new ArrayList<>(List.of(informe.substring(1).split("\n")));
+    }
+}
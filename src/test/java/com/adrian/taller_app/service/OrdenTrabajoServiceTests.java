@@ -0,0 +1,178 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.Cliente;
+import com.adrian.taller_app.domain.EstadoOrdenTrabajo;
+import com.adrian.taller_app.domain.OrdenTrabajo;
+import com.adrian.taller_app.domain.Vehiculo;
+import com.adrian.taller_app.repository.ClienteRepository;
+import com.adrian.taller_app.repository.OrdenTrabajoRepository;
+import com.adrian.taller_app.repository.RecordatorioRepository;
+import com.adrian.taller_app.repository.VehiculoRepository;
+import com.adrian.taller_app.web.OrdenTrabajoFila;
+import com.adrian.taller_app.web.PaginaCursor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Paginación por cursor del listado de órdenes: orden (fecha_creacion DESC, id_ot DESC), sin
+ * saltos ni repeticiones entre páginas y límites de anterior/siguiente.
+ */
+@SpringBootTest
+class OrdenTrabajoServiceTests {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 5, 10, 9, 30);
+
+    @Autowired
+    private OrdenTrabajoService ordenTrabajoService;
+
+    @Autowired
+    private OrdenTrabajoRepository ordenTrabajoRepository;
+
+    @Autowired
+    private RecordatorioRepository recordatorioRepository;
+
+    @Autowired
+    private VehiculoRepository vehiculoRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Ids en el orden esperado del listado
+    private final List<Long> esperadas = new ArrayList<>();
+    private final List<Long> abiertas = new ArrayList<>();
+
+    @BeforeEach
+    void preparar() {
+        limpiar();
+        Cliente cliente = new Cliente();
+        cliente.setNombre("Ana");
+        cliente = clienteRepository.save(cliente);
+        Vehiculo vehiculo = new Vehiculo();
+        vehiculo.setCliente(cliente);
+        vehiculo.setMatricula("1111BBB");
+        vehiculo = vehiculoRepository.save(vehiculo);
+
+        // Tres órdenes con la misma fecha: las desempata el id
+        Long a = crear(vehiculo, BASE.plusHours(1), EstadoOrdenTrabajo.ABIERTA);
+        Long b = crear(vehiculo, BASE, EstadoOrdenTrabajo.ENTREGADA);
+        Long c = crear(vehiculo, BASE, EstadoOrdenTrabajo.ABIERTA);
+        Long d = crear(vehiculo, BASE, EstadoOrdenTrabajo.ENTREGADA);
+        Long e = crear(vehiculo, BASE.minusDays(1), EstadoOrdenTrabajo.ABIERTA);
+        Long f = crear(vehiculo, BASE.plusDays(2), EstadoOrdenTrabajo.ABIERTA);
+        Long g = crear(vehiculo, BASE.minusDays(3), EstadoOrdenTrabajo.ENTREGADA);
+        esperadas.addAll(List.of(f, a, d, c, b, e, g));
+        abiertas.addAll(List.of(f, a, c, e));
+    }
+
+    @AfterEach
+    void limpiar() {
+        ordenTrabajoRepository.deleteAllInBatch();
+        recordatorioRepository.deleteAllInBatch();
+        vehiculoRepository.deleteAllInBatch();
+        clienteRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void haciaDelanteRecorreTodasSinRepetir() {
+        PaginaCursor<OrdenTrabajoFila> primera = ordenTrabajoService.findPagina(null, null, false, 3);
+        assertThat(ids(primera)).isEqualTo(esperadas.subList(0, 3));
+        assertThat(primera.isTieneAnterior()).isFalse();
+        assertThat(primera.isTieneSiguiente()).isTrue();
+
+        PaginaCursor<OrdenTrabajoFila> segunda = ordenTrabajoService.findPagina(null, primera.getCursorSiguiente(), false, 3);
+        assertThat(ids(segunda)).isEqualTo(esperadas.subList(3, 6));
+        assertThat(segunda.isTieneAnterior()).isTrue();
+        assertThat(segunda.isTieneSiguiente()).isTrue();
+
+        PaginaCursor<OrdenTrabajoFila> ultima = ordenTrabajoService.findPagina(null, segunda.getCursorSiguiente(), false, 3);
+        assertThat(ids(ultima)).isEqualTo(esperadas.subList(6, 7));
+        assertThat(ultima.isTieneAnterior()).isTrue();
+        assertThat(ultima.isTieneSiguiente()).isFalse();
+    }
+
+    @Test
+    void haciaAtrasDevuelveLasMismasPaginas() {
+        PaginaCursor<OrdenTrabajoFila> primera = ordenTrabajoService.findPagina(null, null, false, 3);
+        PaginaCursor<OrdenTrabajoFila> segunda = ordenTrabajoService.findPagina(null, primera.getCursorSiguiente(), false, 3);
+        PaginaCursor<OrdenTrabajoFila> ultima = ordenTrabajoService.findPagina(null, segunda.getCursorSiguiente(), false, 3);
+
+        PaginaCursor<OrdenTrabajoFila> otraVezSegunda = ordenTrabajoService.findPagina(null, ultima.getCursorAnterior(), true, 3);
+        assertThat(ids(otraVezSegunda)).isEqualTo(ids(segunda));
+        assertThat(otraVezSegunda.isTieneAnterior()).isTrue();
+        assertThat(otraVezSegunda.isTieneSiguiente()).isTrue();
+
+        PaginaCursor<OrdenTrabajoFila> otraVezPrimera = ordenTrabajoService.findPagina(null, otraVezSegunda.getCursorAnterior(), true, 3);
+        assertThat(ids(otraVezPrimera)).isEqualTo(ids(primera));
+        assertThat(otraVezPrimera.isTieneAnterior()).isFalse();
+        assertThat(otraVezPrimera.isTieneSiguiente()).isTrue();
+    }
+
+    @Test
+    void ultimaPaginaCompletaNoTieneSiguiente() {
+        PaginaCursor<OrdenTrabajoFila> primera = ordenTrabajoService.findPagina(EstadoOrdenTrabajo.ABIERTA, null, false, 2);
+        assertThat(ids(primera)).isEqualTo(abiertas.subList(0, 2));
+
+        PaginaCursor<OrdenTrabajoFila> segunda = ordenTrabajoService.findPagina(
+                EstadoOrdenTrabajo.ABIERTA, primera.getCursorSiguiente(), false, 2);
+        assertThat(ids(segunda)).isEqualTo(abiertas.subList(2, 4));
+        assertThat(segunda.isTieneSiguiente()).isFalse();
+        assertThat(segunda.isTieneAnterior()).isTrue();
+
+        PaginaCursor<OrdenTrabajoFila> todas = ordenTrabajoService.findPagina(null, null, false, esperadas.size());
+        assertThat(ids(todas)).isEqualTo(esperadas);
+        assertThat(todas.isTieneSiguiente()).isFalse();
+    }
+
+    @Test
+    void cursorEsFechaEIdEnBase64() {
+        // Cursor de la orden c (BASE, empatada con b y d): la siguiente página empieza en b
+        Long c = esperadas.get(3);
+        String cursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((BASE + "|" + c).getBytes(StandardCharsets.UTF_8));
+
+        assertThat(ids(ordenTrabajoService.findPagina(null, cursor, false, 2))).isEqualTo(esperadas.subList(4, 6));
+        assertThat(ids(ordenTrabajoService.findPagina(null, cursor, true, 2))).isEqualTo(esperadas.subList(1, 3));
+        PaginaCursor<OrdenTrabajoFila> primera = ordenTrabajoService.findPagina(null, null, false, 4);
+        assertThat(primera.getCursorSiguiente()).isEqualTo(cursor);
+    }
+
+    @Test
+    void cursorNoValidoVuelveALaPrimeraPagina() {
+        for (String cursor : List.of("%%%", "", Base64.getUrlEncoder().encodeToString("sin-separador".getBytes()),
+                Base64.getUrlEncoder().encodeToString("2024-13-40T00:00|1".getBytes()),
+                Base64.getUrlEncoder().encodeToString("2024-05-10T09:30|x".getBytes()))) {
+            PaginaCursor<OrdenTrabajoFila> pagina = ordenTrabajoService.findPagina(null, cursor, false, 3);
+            assertThat(ids(pagina)).as(cursor).isEqualTo(esperadas.subList(0, 3));
+            assertThat(pagina.isTieneAnterior()).isFalse();
+        }
+    }
+
+    private Long crear(Vehiculo vehiculo, LocalDateTime fechaCreacion, EstadoOrdenTrabajo estado) {
+        OrdenTrabajo ot = new OrdenTrabajo();
+        ot.setVehiculo(vehiculo);
+        ot.setEstado(estado);
+        Long id = ordenTrabajoRepository.save(ot).getIdOt();
+        // fecha_creacion la pone la BD; aquí se fija para controlar el orden
+        jdbcTemplate.update("UPDATE ORDEN_TRABAJO SET fecha_creacion = ? WHERE id_ot = ?", fechaCreacion, id);
+        return id;
+    }
+
+    private static List<Long> ids(PaginaCursor<OrdenTrabajoFila> pagina) {
+        return pagina.getContenido().stream().map(OrdenTrabajoFila::getIdOt).toList();
+    }
+}
@@ -0,0 +1,82 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.Cliente;
+import com.adrian.taller_app.domain.ModoRecordatorio;
+import com.adrian.taller_app.domain.Recordatorio;
+import com.adrian.taller_app.domain.Vehiculo;
+import com.adrian.taller_app.repository.ClienteRepository;
+import com.adrian.taller_app.repository.VehiculoRepository;
+import org.hibernate.LazyInitializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Sin open-in-view, lo que un servicio no carga no es accesible fuera de su transacción.
+ */
+@SpringBootTest
+class RecordatorioServiceTests {
+
+    @Autowired
+    private RecordatorioService recordatorioService;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private VehiculoRepository vehiculoRepository;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    void openInViewDesactivadoPorDefecto() {
+        // La configuración de pruebas no lo indica: viene de valores-por-defecto.properties
+        assertThat(context.getBeanNamesForType(OpenEntityManagerInViewInterceptor.class)).isEmpty();
+    }
+
+    @Test
+    void vehiculoNoCargadoFallaFueraDeLaTransaccion() {
+        Long idRecordatorio = crearRecordatorio("9001LZY").getIdRecordatorio();
+
+        Recordatorio recordatorio = recordatorioService.findById(idRecordatorio);
+
+        assertThat(recordatorio.getVehiculo().getIdVehiculo()).isNotNull();
+        assertThatThrownBy(() -> recordatorio.getVehiculo().getMatricula())
+                .isInstanceOf(LazyInitializationException.class);
+    }
+
+    @Test
+    void vehiculoDelGrafoAccesibleFueraDeLaTransaccion() {
+        Long idRecordatorio = crearRecordatorio("9002LZY").getIdRecordatorio();
+
+        Recordatorio recordatorio = recordatorioService.findByIdWithVehiculo(idRecordatorio);
+
+        assertThat(recordatorio.getVehiculo().getMatricula()).isEqualTo("9002LZY");
+    }
+
+    private Recordatorio crearRecordatorio(String matricula) {
+        Cliente cliente = new Cliente();
+        cliente.setNombre("Cliente " + matricula);
+        cliente = clienteRepository.save(cliente);
+
+        Vehiculo vehiculo = new Vehiculo();
+        vehiculo.setCliente(cliente);
+        vehiculo.setMatricula(matricula);
+        vehiculo = vehiculoRepository.save(vehiculo);
+
+        Recordatorio recordatorio = new Recordatorio();
+        recordatorio.setVehiculo(vehiculo);
+        recordatorio.setTipo("ITV");
+        recordatorio.setModo(ModoRecordatorio.POR_FECHA);
+        recordatorio.setFechaObjetivo(LocalDate.now().plusDays(10));
+        return recordatorioService.create(recordatorio);
+    }
+}
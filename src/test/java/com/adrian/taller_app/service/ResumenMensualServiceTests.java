@@ -0,0 +1,187 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.Cliente;
+import com.adrian.taller_app.domain.EstadoOrdenTrabajo;
+import com.adrian.taller_app.domain.OrdenTrabajo;
+import com.adrian.taller_app.domain.ResumenMensualOt;
+import com.adrian.taller_app.domain.Vehiculo;
+import com.adrian.taller_app.repository.ClienteRepository;
+import com.adrian.taller_app.repository.OrdenTrabajoRepository;
+import com.adrian.taller_app.repository.RecordatorioRepository;
+import com.adrian.taller_app.repository.ResumenMensualOtRepository;
+import com.adrian.taller_app.repository.VehiculoRepository;
+import com.adrian.taller_app.service.ResumenMensualService.Aportacion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Acumulados mensuales de órdenes: altas, cambios y bajas incrementales y su reconstrucción
+ * desde ORDEN_TRABAJO, que deben dar las mismas filas.
+ */
+@SpringBootTest
+class ResumenMensualServiceTests {
+
+    private static final LocalDateTime MARZO = LocalDateTime.of(2024, 3, 15, 10, 0);
+    private static final LocalDateTime ABRIL = LocalDateTime.of(2024, 4, 2, 18, 30);
+
+    @Autowired
+    private ResumenMensualService resumenMensualService;
+
+    @Autowired
+    private ResumenMensualOtRepository resumenMensualOtRepository;
+
+    @Autowired
+    private OrdenTrabajoRepository ordenTrabajoRepository;
+
+    @Autowired
+    private RecordatorioRepository recordatorioRepository;
+
+    @Autowired
+    private VehiculoRepository vehiculoRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    @AfterEach
+    void limpiar() {
+        resumenMensualOtRepository.deleteAllInBatch();
+        ordenTrabajoRepository.deleteAllInBatch();
+        recordatorioRepository.deleteAllInBatch();
+        vehiculoRepository.deleteAllInBatch();
+        clienteRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void lasAltasDelMismoMesSeSumanEnUnaFila() {
+        enTransaccion(() -> {
+            resumenMensualService.registrar(aportacion(MARZO, null, EstadoOrdenTrabajo.ABIERTA, "100.00"));
+            resumenMensualService.registrar(aportacion(MARZO.plusDays(10), null, EstadoOrdenTrabajo.ABIERTA, "50.50"));
+        });
+
+        assertThat(filas()).containsExactly(Map.entry("creacion 2024-3 abierta 7", "2 150.50"));
+    }
+
+    @Test
+    void unaOrdenCerradaSumaPorCreacionYPorCierre() {
+        enTransaccion(() -> resumenMensualService.registrar(
+                aportacion(MARZO, ABRIL, EstadoOrdenTrabajo.ENTREGADA, "80.00")));
+
+        assertThat(filas()).containsOnly(
+                Map.entry("creacion 2024-3 entregada 7", "1 80.00"),
+                Map.entry("cierre 2024-4 entregada 7", "1 80.00"));
+    }
+
+    @Test
+    void actualizarMueveLaAportacionYBajaLaRetira() {
+        Aportacion abierta = aportacion(MARZO, null, EstadoOrdenTrabajo.ABIERTA, "100.00");
+        Aportacion entregada = aportacion(MARZO, ABRIL, EstadoOrdenTrabajo.ENTREGADA, "120.00");
+        enTransaccion(() -> resumenMensualService.registrar(abierta));
+
+        enTransaccion(() -> resumenMensualService.actualizar(abierta, entregada));
+        assertThat(filas()).containsOnly(
+                Map.entry("creacion 2024-3 entregada 7", "1 120.00"),
+                Map.entry("cierre 2024-4 entregada 7", "1 120.00"));
+
+        // Sin cambios no toca nada
+        enTransaccion(() -> resumenMensualService.actualizar(entregada,
+                aportacion(MARZO, ABRIL, EstadoOrdenTrabajo.ENTREGADA, "120.00")));
+        enTransaccion(() -> resumenMensualService.retirar(entregada));
+        assertThat(filas()).isEmpty();
+    }
+
+    @Test
+    void soloDentroDeUnaTransaccion() {
+        assertThatThrownBy(() -> resumenMensualService.registrar(
+                aportacion(MARZO, null, EstadoOrdenTrabajo.ABIERTA, "1.00")))
+                .isInstanceOf(IllegalTransactionStateException.class);
+    }
+
+    @Test
+    void reconstruirDaLasMismasFilasQueLasAltasIncrementales() {
+        Cliente cliente = new Cliente();
+        cliente.setNombre("Ana");
+        Vehiculo vehiculo = new Vehiculo();
+        vehiculo.setCliente(clienteRepository.save(cliente));
+        vehiculo.setMatricula("1111BBB");
+        Vehiculo guardado = vehiculoRepository.save(vehiculo);
+
+        enTransaccion(() -> {
+            crear(guardado, MARZO, null, EstadoOrdenTrabajo.ABIERTA, "10.00");
+            crear(guardado, MARZO.plusDays(1), null, EstadoOrdenTrabajo.ABIERTA, null);
+            crear(guardado, MARZO, ABRIL, EstadoOrdenTrabajo.ENTREGADA, "99.99");
+            crear(guardado, ABRIL, ABRIL.plusMonths(9), EstadoOrdenTrabajo.ENTREGADA, "0.01");
+            crear(guardado, ABRIL, null, null, "5.00");
+        });
+        Map<String, String> incrementales = filas();
+
+        enTransaccion(() -> resumenMensualService.reconstruir());
+
+        assertThat(incrementales).hasSize(6);
+        assertThat(filas()).isEqualTo(incrementales);
+    }
+
+    private void crear(Vehiculo vehiculo, LocalDateTime creacion, LocalDateTime cierre,
+                       EstadoOrdenTrabajo estado, String total) {
+        OrdenTrabajo ot = new OrdenTrabajo();
+        ot.setVehiculo(vehiculo);
+        ot.setEstado(estado);
+        ot.setFechaCierre(cierre);
+        BigDecimal importe = total != null ? new BigDecimal(total) : null;
+        ot.setSubtotal(importe);
+        ot.setIvaTotal(importe != null ? BigDecimal.ZERO : null);
+        ot.setTotal(importe);
+        ot = ordenTrabajoRepository.saveAndFlush(ot);
+        // fecha_creacion la pone la BD; aquí se fija para controlar el mes
+        jdbcTemplate.update("UPDATE ORDEN_TRABAJO SET fecha_creacion = ? WHERE id_ot = ?", creacion, ot.getIdOt());
+        ot.setFechaCreacion(creacion);
+        resumenMensualService.registrar(Aportacion.de(ot));
+    }
+
+    private void enTransaccion(Runnable accion) {
+        transactionTemplate.executeWithoutResult(estado -> accion.run());
+    }
+
+    private static Aportacion aportacion(LocalDateTime creacion, LocalDateTime cierre,
+                                         EstadoOrdenTrabajo estado, String total) {
+        BigDecimal importe = new BigDecimal(total);
+        return new Aportacion(creacion, cierre, estado, 7L, importe, BigDecimal.ZERO.setScale(2), importe);
+    }
+
+    /**
+     * Filas con alguna orden, como "tipo año-mes estado usuario" -> "órdenes total".
+     */
+    private Map<String, String> filas() {
+        Map<String, String> filas = new TreeMap<>();
+        for (ResumenMensualOt fila : resumenMensualOtRepository.findAll()) {
+            if (fila.getNumOrdenes() == 0) {
+                assertThat(fila.getTotal()).isZero();
+                continue;
+            }
+            filas.put(fila.getId().getTipoFecha() + " " + fila.getId().getAnio() + "-" + fila.getId().getMes()
+                            + " " + fila.getId().getEstado().getValor() + " " + fila.getId().getIdUsuario(),
+                    fila.getNumOrdenes() + " " + fila.getTotal().setScale(2));
+        }
+        return filas;
+    }
+}
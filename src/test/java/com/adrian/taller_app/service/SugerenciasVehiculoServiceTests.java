@@ -0,0 +1,89 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.Cliente;
+import com.adrian.taller_app.domain.Vehiculo;
+import com.adrian.taller_app.repository.ClienteRepository;
+import com.adrian.taller_app.repository.RecordatorioRepository;
+import com.adrian.taller_app.repository.VehiculoRepository;
+import com.adrian.taller_app.web.SugerenciaVehiculo;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sugerencias de vehículos antes y después de cargar el índice en memoria.
+ */
+@SpringBootTest
+class SugerenciasVehiculoServiceTests {
+
+    @Autowired
+    private VehiculoRepository vehiculoRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private RecordatorioRepository recordatorioRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long idCoche;
+
+    @BeforeEach
+    void preparar() {
+        recordatorioRepository.deleteAllInBatch();
+        vehiculoRepository.deleteAllInBatch();
+        clienteRepository.deleteAllInBatch();
+        Cliente cliente = new Cliente();
+        cliente.setNombre("Jose Garcia Perez");
+        cliente = clienteRepository.save(cliente);
+        idCoche = crearVehiculo(cliente, "1234BCD");
+        crearVehiculo(cliente, "1299FGH");
+        Cliente otro = new Cliente();
+        otro.setNombre("Marta Lopez");
+        crearVehiculo(clienteRepository.save(otro), "5678JKL");
+    }
+
+    @Test
+    void sinCargarRespondeDesdeBd() {
+        // Instancia propia: la del contexto ya cargó su índice al arrancar
+        SugerenciasVehiculoService sinCargar = new SugerenciasVehiculoService(vehiculoRepository, entityManager);
+
+        assertThat(sinCargar.sugerir("12-3", 10)).extracting(SugerenciaVehiculo::getMatricula)
+                .containsExactly("1234BCD");
+        assertThat(sinCargar.sugerir("garcia", 10)).extracting(SugerenciaVehiculo::getMatricula)
+                .containsExactly("1234BCD", "1299FGH");
+        assertThat(sinCargar.sugerir("jose", 1)).hasSize(1);
+        assertThat(sinCargar.obtener(idCoche).getCliente()).isEqualTo("Jose Garcia Perez");
+    }
+
+    @Test
+    void trasCargarRespondeDesdeElIndice() {
+        SugerenciasVehiculoService servicio = new SugerenciasVehiculoService(vehiculoRepository, entityManager);
+        transactionTemplate.executeWithoutResult(estado -> servicio.cargar());
+        vehiculoRepository.deleteAllInBatch();
+
+        assertThat(servicio.sugerir("12-3", 10)).extracting(SugerenciaVehiculo::getMatricula)
+                .containsExactly("1234BCD");
+        assertThat(servicio.sugerir("garcia p", 10)).extracting(SugerenciaVehiculo::getMatricula)
+                .containsExactly("1234BCD", "1299FGH");
+        assertThat(servicio.obtener(idCoche).getMatricula()).isEqualTo("1234BCD");
+    }
+
+    private Long crearVehiculo(Cliente cliente, String matricula) {
+        Vehiculo vehiculo = new Vehiculo();
+        vehiculo.setCliente(cliente);
+        vehiculo.setMatricula(matricula);
+        vehiculo.setKmActual(1000);
+        return vehiculoRepository.save(vehiculo).getIdVehiculo();
+    }
+}
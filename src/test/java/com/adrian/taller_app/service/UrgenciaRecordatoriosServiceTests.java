@@ -0,0 +1,126 @@
+package com.adrian.taller_app.service;
+
+import com.adrian.taller_app.domain.Cliente;
+import com.adrian.taller_app.domain.ModoRecordatorio;
+import com.adrian.taller_app.domain.Recordatorio;
+import com.adrian.taller_app.domain.Vehiculo;
+import com.adrian.taller_app.repository.ClienteRepository;
+import com.adrian.taller_app.repository.RecordatorioRepository;
+import com.adrian.taller_app.repository.VehiculoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Páginas de próximos a vencer sobre el índice en memoria.
+ */
+@SpringBootTest
+class UrgenciaRecordatoriosServiceTests {
+
+    @Autowired
+    private UrgenciaRecordatoriosService urgenciaRecordatoriosService;
+
+    @Autowired
+    private RecordatorioService recordatorioService;
+
+    @Autowired
+    private RecordatorioRepository recordatorioRepository;
+
+    @Autowired
+    private VehiculoRepository vehiculoRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    private Vehiculo vehiculo;
+
+    @BeforeEach
+    void preparar() {
+        recordatorioRepository.deleteAllInBatch();
+        vehiculoRepository.deleteAllInBatch();
+        clienteRepository.deleteAllInBatch();
+        Cliente cliente = new Cliente();
+        cliente.setNombre("Ana");
+        cliente = clienteRepository.save(cliente);
+        vehiculo = new Vehiculo();
+        vehiculo.setCliente(cliente);
+        vehiculo.setMatricula("1111BBB");
+        vehiculo.setKmActual(50000);
+        vehiculo = vehiculoRepository.save(vehiculo);
+        urgenciaRecordatoriosService.resincronizar();
+    }
+
+    @Test
+    void mezclaPorUrgenciaYCadaRecordatorioUnaVez() {
+        Long fecha2 = crear(ModoRecordatorio.POR_FECHA, LocalDate.now().plusDays(2), null);
+        Long km100 = crear(ModoRecordatorio.POR_KM, null, 50100);
+        Long fecha20 = crear(ModoRecordatorio.POR_FECHA, LocalDate.now().plusDays(20), null);
+        // 10 días por km (500 km a 50 km/día) y 25 por fecha: sale una vez, por km
+        Long ambos = crear(ModoRecordatorio.AMBOS, LocalDate.now().plusDays(25), 50500);
+        Long km1500 = crear(ModoRecordatorio.POR_KM, null, 51500);
+        crear(ModoRecordatorio.POR_FECHA, LocalDate.now().plusDays(90), null);
+        crear(ModoRecordatorio.POR_KM, null, 60000);
+
+        assertThat(urgenciaRecordatoriosService.proximos(10)).containsExactly(fecha2, km100, ambos, fecha20, km1500);
+        assertThat(urgenciaRecordatoriosService.totalProximos()).isEqualTo(5);
+    }
+
+    @Test
+    void lasPaginasRecorrenLaListaCompletaSinRepetir() {
+        for (int i = 0; i < 12; i++) {
+            crear(ModoRecordatorio.POR_FECHA, LocalDate.now().plusDays(i * 2), null);
+            crear(ModoRecordatorio.POR_KM, null, 50000 + i * 150);
+            crear(ModoRecordatorio.AMBOS, LocalDate.now().plusDays(i * 3), 50000 + i * 120);
+        }
+
+        List<Long> todos = urgenciaRecordatoriosService.proximos(Integer.MAX_VALUE);
+        List<Long> porPaginas = new ArrayList<>();
+        for (int desde = 0; desde < todos.size() + 5; desde += 5) {
+            porPaginas.addAll(urgenciaRecordatoriosService.proximos(desde, 5));
+        }
+
+        assertThat(todos).hasSize(36).doesNotHaveDuplicates();
+        assertThat(porPaginas).isEqualTo(todos);
+        assertThat(urgenciaRecordatoriosService.totalProximos()).isEqualTo(36);
+    }
+
+    @Test
+    void elTotalSeAjustaConCadaEscritura() {
+        Long itv = crear(ModoRecordatorio.POR_FECHA, LocalDate.now().plusDays(5), null);
+        crear(ModoRecordatorio.POR_KM, null, 51000);
+        assertThat(urgenciaRecordatoriosService.totalProximos()).isEqualTo(2);
+
+        recordatorioService.update(itv, datos(ModoRecordatorio.POR_FECHA, LocalDate.now().plusDays(60), null));
+        assertThat(urgenciaRecordatoriosService.totalProximos()).isEqualTo(1);
+
+        recordatorioService.delete(itv);
+        crear(ModoRecordatorio.AMBOS, LocalDate.now().plusDays(1), 50010);
+        assertThat(urgenciaRecordatoriosService.totalProximos()).isEqualTo(2);
+
+        // Coincide con el recuento en BD que se usa hasta la primera carga
+        assertThat(recordatorioRepository.countProximos(ModoRecordatorio.CON_FECHA, LocalDate.now(),
+                LocalDate.now().plusDays(UrgenciaRecordatoriosService.DIAS_AVISO),
+                ModoRecordatorio.CON_KM, UrgenciaRecordatoriosService.MARGEN_KM)).isEqualTo(2);
+    }
+
+    private Long crear(ModoRecordatorio modo, LocalDate fecha, Integer km) {
+        return recordatorioService.create(datos(modo, fecha, km)).getIdRecordatorio();
+    }
+
+    private Recordatorio datos(ModoRecordatorio modo, LocalDate fecha, Integer km) {
+        Recordatorio recordatorio = new Recordatorio();
+        recordatorio.setVehiculo(vehiculo);
+        recordatorio.setTipo("Revisión");
+        recordatorio.setModo(modo);
+        recordatorio.setFechaObjetivo(fecha);
+        recordatorio.setKmObjetivo(km);
+        return recordatorio;
+    }
+}
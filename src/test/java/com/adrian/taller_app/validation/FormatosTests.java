@@ -0,0 +1,209 @@
+package com.adrian.taller_app.validation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Casos límite de {@link Formatos} y comparación con las expresiones regulares que sustituye
+ * ({@link ValidacionAnterior}).
+ */
+class FormatosTests {
+
+    private static final int ENTRADAS_POR_COMPROBACION = 100_000;
+
+    // Caracteres con los que se construyen y alteran las entradas aleatorias: los que aceptan
+    // los formatos, separadores y algunos que no se admiten (incluidos controles y no ASCII)
+    private static final String ALFABETO = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz"
+            + " \t\n\u000B\f\r\u0000\u0001\u001F-()+@._!#$%&'*/=?^`{|}~\"ñÑé";
+
+    @Test
+    void telefono() {
+        assertThat(Formatos.esTelefonoValido("612345678")).isTrue();
+        assertThat(Formatos.esTelefonoValido("(+34) 912-345-678")).isTrue();
+        assertThat(Formatos.esTelefonoValido("0034612345678")).isTrue();
+        assertThat(Formatos.esTelefonoValido("0034 712 34 56 78")).isTrue();
+        assertThat(Formatos.esTelefonoValido("+3 4 612345678")).isTrue();
+        // "+34" se quita esté donde esté, como hacía replaceAll
+        assertThat(Formatos.esTelefonoValido("6123+3445678")).isTrue();
+        assertThat(Formatos.esTelefonoValido("612345678+34")).isTrue();
+        assertThat(Formatos.esTelefonoValido("0034512345678")).isFalse();
+        assertThat(Formatos.esTelefonoValido("00340034612345678")).isFalse();
+        assertThat(Formatos.esTelefonoValido("612+35345678")).isFalse();
+        assertThat(Formatos.esTelefonoValido("612345678+3")).isFalse();
+        assertThat(Formatos.esTelefonoValido("512345678")).isFalse();
+        assertThat(Formatos.esTelefonoValido("61234567")).isFalse();
+        assertThat(Formatos.esTelefonoValido("6123456789")).isFalse();
+    }
+
+    @Test
+    void nif() {
+        assertThat(Formatos.esNifValido("12345678Z")).isTrue();
+        assertThat(Formatos.esNifValido(" 1234 5678 z ")).isTrue();
+        assertThat(Formatos.esNifValido("12345678A")).isFalse();
+        assertThat(Formatos.esNifValido("1234567Z")).isFalse();
+        assertThat(Formatos.esNifValido("123456789Z")).isFalse();
+        // NIE: X, Y y Z valen 0, 1 y 2 para la letra de control
+        assertThat(Formatos.esNifValido("X1234567L")).isTrue();
+        assertThat(Formatos.esNifValido("Y1234567X")).isTrue();
+        assertThat(Formatos.esNifValido("z1234567r")).isTrue();
+        assertThat(Formatos.esNifValido("X1234567R")).isFalse();
+        assertThat(Formatos.esNifValido("W1234567L")).isFalse();
+        assertThat(Formatos.esNifValido("1X234567L")).isFalse();
+        assertThat(Formatos.esNifValido("X12345678L")).isFalse();
+        assertThat(Formatos.esNifValido("123456789")).isFalse();
+    }
+
+    @Test
+    void matricula() {
+        assertThat(Formatos.esMatriculaValida("1234BCD")).isTrue();
+        assertThat(Formatos.esMatriculaValida(" 1234-bcd ")).isTrue();
+        assertThat(Formatos.esMatriculaValida("1234BCQ")).isFalse();
+        assertThat(Formatos.esMatriculaValida("1234BAD")).isFalse();
+        assertThat(Formatos.esMatriculaValida("1234BC")).isFalse();
+        assertThat(Formatos.esMatriculaValida("1234BCDF")).isFalse();
+        // Provincial: 1-2 letras, 4 dígitos y 1-2 letras, vocales y Q incluidas
+        assertThat(Formatos.esMatriculaValida("M1234AB")).isTrue();
+        assertThat(Formatos.esMatriculaValida("MA-1234-Q")).isTrue();
+        assertThat(Formatos.esMatriculaValida("MAD1234A")).isFalse();
+        assertThat(Formatos.esMatriculaValida("M1234ABC")).isFalse();
+        assertThat(Formatos.esMatriculaValida("M12345AB")).isFalse();
+        assertThat(Formatos.esMatriculaValida("M1234")).isFalse();
+        assertThat(Formatos.esMatriculaValida("12A34BCD")).isFalse();
+        assertThat(Formatos.esMatriculaValida("1234ÑBC")).isFalse();
+    }
+
+    @Test
+    void email() {
+        assertThat(Formatos.esEmailValido("ana@example.com")).isTrue();
+        assertThat(Formatos.esEmailValido("  a.b+c@mail-1.example.es  ")).isTrue();
+        assertThat(Formatos.esEmailValido("a@" + "x".repeat(63) + ".com")).isTrue();
+        assertThat(Formatos.esEmailValido("a@" + "x".repeat(64) + ".com")).isFalse();
+        assertThat(Formatos.esEmailValido("a@example-.com")).isFalse();
+        assertThat(Formatos.esEmailValido("a@example.com-")).isFalse();
+        assertThat(Formatos.esEmailValido("a@-example.com")).isFalse();
+        assertThat(Formatos.esEmailValido("a@example..com")).isFalse();
+        assertThat(Formatos.esEmailValido("a@example.com.")).isFalse();
+        assertThat(Formatos.esEmailValido("@example.com")).isFalse();
+        assertThat(Formatos.esEmailValido("a@")).isFalse();
+        assertThat(Formatos.esEmailValido("a@@example.com")).isFalse();
+        assertThat(Formatos.esEmailValido("a b@example.com")).isFalse();
+        // Hasta 100 caracteres contando los espacios de los extremos
+        String cien = "a".repeat(88) + "@example.com";
+        assertThat(cien).hasSize(100);
+        assertThat(Formatos.esEmailValido(cien)).isTrue();
+        assertThat(Formatos.esEmailValido("b" + cien)).isFalse();
+        assertThat(Formatos.esEmailValido(" " + cien)).isFalse();
+    }
+
+    @Test
+    void normalizacion() {
+        assertThat(Formatos.normalizarMatricula(" 1234-bcd ")).isEqualTo("1234BCD");
+        assertThat(Formatos.normalizarNif("x 1234567-l")).isEqualTo("X1234567-L");
+        String normalizada = "1234BCD";
+        assertThat(Formatos.normalizarMatricula(normalizada)).isSameAs(normalizada);
+        assertThat(Formatos.normalizarMatricula(null)).isNull();
+    }
+
+    @Test
+    void letrasNoAsciiConMayusculaAscii() {
+        // Única diferencia buscada con la versión anterior, que pasaba todo por toUpperCase()
+        assertThat(ValidacionAnterior.esMatriculaValida("M1234ſ")).isTrue();
+        assertThat(Formatos.esMatriculaValida("M1234ſ")).isFalse();
+        assertThat(Formatos.esNifValido("12345678ı")).isFalse();
+        assertThat(Formatos.normalizarMatricula("1234bcı")).isEqualTo("1234BCI");
+    }
+
+    @Test
+    void mismoResultadoQueLasExpresionesRegulares() {
+        Random random = new Random(20001);
+        comparar(random, "matrícula", new String[]{"1234BCD", "M1234AB", "GC0001Z", "1234 bcd"},
+                Formatos::esMatriculaValida, ValidacionAnterior::esMatriculaValida);
+        comparar(random, "NIF", new String[]{"12345678Z", "X1234567L", "Y1234567X", "z1234567r"},
+                nif -> Formatos.estaVacio(nif) || Formatos.esNifValido(nif), ValidacionAnterior::esNifValido);
+        comparar(random, "teléfono", new String[]{"612345678", "+34 912 345 678", "0034612345678", "(6)12-345-678"},
+                telefono -> Formatos.estaVacio(telefono) || Formatos.esTelefonoValido(telefono),
+                ValidacionAnterior::esTelefonoValido);
+        comparar(random, "email", new String[]{"ana@example.com", "a.b+c@x-1.es", "a@" + "b".repeat(63) + ".es",
+                        "x".repeat(85) + "@example.com"},
+                email -> Formatos.estaVacio(email) || Formatos.esEmailValido(email), ValidacionAnterior::esEmailValido);
+        compararNormalizacion(random, new String[]{"1234 bcd", "m-1234-ab"},
+                Formatos::normalizarMatricula, ValidacionAnterior::normalizarMatricula);
+        compararNormalizacion(random, new String[]{"x1234567l", " 12345678 z"},
+                Formatos::normalizarNif, ValidacionAnterior::normalizarNif);
+    }
+
+    private static void comparar(Random random, String nombre, String[] validos,
+                                 Predicate<String> nuevo, Predicate<String> anterior) {
+        for (int i = 0; i < ENTRADAS_POR_COMPROBACION; i++) {
+            String entrada = entrada(random, validos);
+            assertThat(nuevo.test(entrada))
+                    .as("%s: \"%s\"", nombre, escapar(entrada))
+                    .isEqualTo(anterior.test(entrada));
+        }
+    }
+
+    private static void compararNormalizacion(Random random, String[] validos,
+                                              Function<String, String> nuevo, Function<String, String> anterior) {
+        for (int i = 0; i < ENTRADAS_POR_COMPROBACION / 4; i++) {
+            String entrada = entrada(random, validos);
+            assertThat(nuevo.apply(entrada))
+                    .as("normalización: \"%s\"", escapar(entrada))
+                    .isEqualTo(anterior.apply(entrada));
+        }
+    }
+
+    /**
+     * Una entrada válida con unas pocas alteraciones (insertar, cambiar o quitar un carácter, o
+     * cambiar mayúsculas), o, a veces, una cadena aleatoria corta.
+     */
+    private static String entrada(Random random, String[] validos) {
+        if (random.nextInt(10) == 0) {
+            StringBuilder aleatoria = new StringBuilder();
+            int longitud = random.nextInt(16);
+            for (int i = 0; i < longitud; i++) {
+                aleatoria.append(ALFABETO.charAt(random.nextInt(ALFABETO.length())));
+            }
+            return aleatoria.toString();
+        }
+        StringBuilder entrada = new StringBuilder(validos[random.nextInt(validos.length)]);
+        int alteraciones = random.nextInt(4);
+        for (int i = 0; i < alteraciones; i++) {
+            int posicion = random.nextInt(entrada.length() + 1);
+            char c = ALFABETO.charAt(random.nextInt(ALFABETO.length()));
+            switch (random.nextInt(4)) {
+                case 0 -> entrada.insert(posicion, c);
+                case 1 -> {
+                    if (posicion < entrada.length()) {
+                        entrada.setCharAt(posicion, c);
+                    }
+                }
+                case 2 -> {
+                    if (posicion < entrada.length()) {
+                        entrada.deleteCharAt(posicion);
+                    }
+                }
+                default -> {
+                    if (posicion < entrada.length()) {
+                        char actual = entrada.charAt(posicion);
+                        entrada.setCharAt(posicion, Character.isUpperCase(actual)
+                                ? Character.toLowerCase(actual) : Character.toUpperCase(actual));
+                    }
+                }
+            }
+        }
+        return entrada.toString();
+    }
+
+    private static String escapar(String texto) {
+        StringBuilder escapado = new StringBuilder();
+        for (char c : texto.toCharArray()) {
+            escapado.append(c < ' ' ? String.format("\\u%04X", (int) c) : String.valueOf(c));
+        }
+        return escapado.toString();
+    }
+}